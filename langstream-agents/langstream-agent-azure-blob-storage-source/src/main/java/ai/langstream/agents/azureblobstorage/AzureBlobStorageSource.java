@@ -17,6 +17,7 @@ package ai.langstream.agents.azureblobstorage;
 
 import ai.langstream.api.runner.code.AbstractAgentCode;
 import ai.langstream.api.runner.code.AgentSource;
+import ai.langstream.api.runner.code.BlobValue;
 import ai.langstream.api.runner.code.Header;
 import ai.langstream.api.runner.code.Record;
 import ai.langstream.api.util.ConfigurationUtils;
@@ -24,7 +25,10 @@ import com.azure.core.http.rest.PagedIterable;
 import com.azure.storage.blob.BlobContainerClient;
 import com.azure.storage.blob.BlobContainerClientBuilder;
 import com.azure.storage.blob.models.BlobItem;
+import com.azure.storage.blob.models.BlobRequestConditions;
+import com.azure.storage.blob.options.BlobInputStreamOptions;
 import com.azure.storage.common.StorageSharedKeyCredential;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -40,6 +44,7 @@ public class AzureBlobStorageSource extends AbstractAgentCode implements AgentSo
     private BlobContainerClient client;
     private final Set<String> blobsToCommit = ConcurrentHashMap.newKeySet();
     private int idleTime;
+    private long maxInMemorySize;
 
     public static final String ALL_FILES = "*";
     public static final String DEFAULT_EXTENSIONS_FILTER = "pdf,docx,html,htm,md,txt";
@@ -106,6 +111,7 @@ public class AzureBlobStorageSource extends AbstractAgentCode implements AgentSo
     public void init(Map<String, Object> configuration) throws Exception {
         client = createContainerClient(configuration);
         idleTime = Integer.parseInt(configuration.getOrDefault("idle-time", 5).toString());
+        maxInMemorySize = ConfigurationUtils.getLong("max-in-memory-size", -1L, configuration);
         extensions =
                 Set.of(
                         configuration
@@ -141,8 +147,14 @@ public class AzureBlobStorageSource extends AbstractAgentCode implements AgentSo
             if (!blobsToCommit.contains(name)) {
                 log.info("Found new blob {}", name);
                 try {
-                    byte[] read = client.getBlobClient(name).downloadContent().toBytes();
-                    ;
+                    long size = blob.getProperties().getContentLength();
+                    final Object read;
+                    if (maxInMemorySize >= 0 && size > maxInMemorySize) {
+                        log.info("Blob {} is too big to be loaded in memory, streaming it", name);
+                        read = new BlobStreamValue(name, blob.getProperties().getETag(), size);
+                    } else {
+                        read = client.getBlobClient(name).downloadContent().toBytes();
+                    }
                     records.add(new BlobSourceRecord(read, name));
                     somethingFound = true;
                     blobsToCommit.add(name);
@@ -194,12 +206,38 @@ public class AzureBlobStorageSource extends AbstractAgentCode implements AgentSo
         }
     }
 
+    /**
+     * Content of a blob that is downloaded only when an agent consumes it. The ETag ensures that
+     * all the reads see the same version of the blob.
+     */
+    @AllArgsConstructor
+    @ToString(of = {"name", "size"})
+    private class BlobStreamValue implements BlobValue {
+        private final String name;
+        private final String etag;
+        private final long size;
+
+        @Override
+        public InputStream openStream() {
+            return client.getBlobClient(name)
+                    .openInputStream(
+                            new BlobInputStreamOptions()
+                                    .setRequestConditions(
+                                            new BlobRequestConditions().setIfMatch(etag)));
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+    }
+
     private static class BlobSourceRecord implements Record {
-        private final byte[] read;
+        private final Object read;
         private final String name;
         private final long timestamp = System.currentTimeMillis();
 
-        public BlobSourceRecord(byte[] read, String name) {
+        public BlobSourceRecord(Object read, String name) {
             this.read = read;
             this.name = name;
         }
@@ -16,6 +16,7 @@
 package ai.langstream.agents.grpc;
 
 import ai.langstream.api.runner.code.AbstractAgentCode;
+import ai.langstream.api.runner.code.BlobValue;
 import ai.langstream.api.runner.code.SimpleRecord;
 import ai.langstream.api.runner.topics.TopicProducer;
 import ai.langstream.api.util.ConfigurationUtils;
@@ -24,10 +25,12 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.Empty;
+import com.google.protobuf.UnsafeByteOperations;
 import io.grpc.ManagedChannel;
 import io.grpc.stub.StreamObserver;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -45,8 +48,8 @@ import org.apache.avro.Conversions;
 import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.BinaryEncoder;
-import org.apache.avro.io.Decoder;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.EncoderFactory;
 
@@ -64,6 +67,17 @@ abstract class AbstractGrpcAgent extends AbstractAgentCode {
     // Schemas received from the server
     protected final Map<Integer, Object> serverSchemas = new ConcurrentHashMap<>();
 
+    // Avro writers and readers are expensive to create, they are reused for all the records with
+    // the same schema
+    private final Map<org.apache.avro.Schema, GenericDatumWriter<GenericRecord>> avroWriters =
+            new ConcurrentHashMap<>();
+    private final Map<org.apache.avro.Schema, GenericDatumReader<GenericRecord>> avroReaders =
+            new ConcurrentHashMap<>();
+
+    // the buffers of the encoders and decoders are reused on each thread
+    private static final ThreadLocal<BinaryEncoder> AVRO_ENCODER = new ThreadLocal<>();
+    private static final ThreadLocal<BinaryDecoder> AVRO_DECODER = new ThreadLocal<>();
+
     protected AgentServiceGrpc.AgentServiceBlockingStub blockingStub;
 
     protected final AtomicBoolean restarting = new AtomicBoolean(false);
@@ -279,7 +293,7 @@ abstract class AbstractGrpcAgent extends AbstractAgentCode {
             case AVRO_VALUE -> {
                 Object serverSchema = serverSchemas.get(value.getSchemaId());
                 if (serverSchema instanceof org.apache.avro.Schema schema) {
-                    yield deserializeGenericRecord(schema, value.getAvroValue().toByteArray());
+                    yield deserializeGenericRecord(schema, value.getAvroValue());
                 } else {
                     log.error("Unknown schema id {}", value.getSchemaId());
                     throw new RuntimeException("Unknown schema id " + value.getSchemaId());
@@ -311,11 +325,11 @@ abstract class AbstractGrpcAgent extends AbstractAgentCode {
             throws IOException {
         Record.Builder recordBuilder = Record.newBuilder();
         if (record.value() != null) {
-            recordBuilder.setValue(toGrpc(record.value()));
+            toGrpc(record.value(), recordBuilder.getValueBuilder());
         }
 
         if (record.key() != null) {
-            recordBuilder.setKey(toGrpc(record.key()));
+            toGrpc(record.key(), recordBuilder.getKeyBuilder());
         }
 
         if (record.origin() != null) {
@@ -330,7 +344,7 @@ abstract class AbstractGrpcAgent extends AbstractAgentCode {
             for (ai.langstream.api.runner.code.Header h : record.headers()) {
                 Header.Builder headerBuilder = recordBuilder.addHeadersBuilder().setName(h.key());
                 if (h.value() != null) {
-                    headerBuilder.setValue(toGrpc(h.value()));
+                    toGrpc(h.value(), headerBuilder.getValueBuilder());
                 }
             }
         }
@@ -342,10 +356,20 @@ abstract class AbstractGrpcAgent extends AbstractAgentCode {
             return null;
         }
         Value.Builder valueBuilder = Value.newBuilder();
+        toGrpc(obj, valueBuilder);
+        return valueBuilder.build();
+    }
+
+    /** Fill the builder of the message in place, without building an intermediate Value. */
+    private void toGrpc(Object obj, Value.Builder valueBuilder) throws IOException {
         if (obj instanceof String value) {
             valueBuilder.setStringValue(value);
         } else if (obj instanceof byte[] value) {
             valueBuilder.setBytesValue(ByteString.copyFrom((value)));
+        } else if (obj instanceof BlobValue value) {
+            try (InputStream stream = value.openStream()) {
+                valueBuilder.setBytesValue(ByteString.readFrom(stream));
+            }
         } else if (obj instanceof Boolean value) {
             valueBuilder.setBooleanValue(value);
         } else if (obj instanceof Byte value) {
@@ -362,6 +386,8 @@ abstract class AbstractGrpcAgent extends AbstractAgentCode {
             valueBuilder.setDoubleValue(value);
         } else if (obj instanceof JsonNode value) {
             valueBuilder.setJsonValue(value.toString());
+        } else if (obj instanceof Map<?, ?> || obj instanceof Collection<?>) {
+            valueBuilder.setJsonValue(MAPPER.writeValueAsString(obj));
         } else if (obj instanceof GenericRecord genericRecord) {
             org.apache.avro.Schema schema = genericRecord.getSchema();
             Integer schemaId =
@@ -379,29 +405,47 @@ abstract class AbstractGrpcAgent extends AbstractAgentCode {
                             });
 
             valueBuilder.setSchemaId(schemaId);
-            valueBuilder.setAvroValue(ByteString.copyFrom(serializeGenericRecord(genericRecord)));
+            valueBuilder.setAvroValue(serializeGenericRecord(genericRecord));
         } else {
             throw new IllegalArgumentException("Unsupported type " + obj.getClass());
         }
-        return valueBuilder.build();
     }
 
-    private static byte[] serializeGenericRecord(GenericRecord record) throws IOException {
-        GenericDatumWriter<GenericRecord> writer = new GenericDatumWriter<>(record.getSchema());
-        // enable Decimal conversion, otherwise attempting to serialize java.math.BigDecimal will
-        // throw ClassCastException.
-        writer.getData().addLogicalTypeConversion(new Conversions.DecimalConversion());
+    private ByteString serializeGenericRecord(GenericRecord record) throws IOException {
+        GenericDatumWriter<GenericRecord> writer =
+                avroWriters.computeIfAbsent(
+                        record.getSchema(),
+                        schema -> {
+                            GenericDatumWriter<GenericRecord> w = new GenericDatumWriter<>(schema);
+                            // enable Decimal conversion, otherwise attempting to serialize
+                            // java.math.BigDecimal will throw ClassCastException.
+                            w.getData()
+                                    .addLogicalTypeConversion(new Conversions.DecimalConversion());
+                            return w;
+                        });
         ByteArrayOutputStream oo = new ByteArrayOutputStream();
-        BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(oo, null);
+        BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(oo, AVRO_ENCODER.get());
+        AVRO_ENCODER.set(encoder);
         writer.write(record, encoder);
-        return oo.toByteArray();
+        encoder.flush();
+        // the array is not shared, no need to copy it again
+        return UnsafeByteOperations.unsafeWrap(oo.toByteArray());
     }
 
-    private static GenericRecord deserializeGenericRecord(
-            org.apache.avro.Schema schema, byte[] data) throws IOException {
-        GenericDatumReader<GenericRecord> reader = new GenericDatumReader<>(schema);
-        reader.getData().addLogicalTypeConversion(new Conversions.DecimalConversion());
-        Decoder decoder = DecoderFactory.get().binaryDecoder(data, null);
+    private GenericRecord deserializeGenericRecord(org.apache.avro.Schema schema, ByteString data)
+            throws IOException {
+        GenericDatumReader<GenericRecord> reader =
+                avroReaders.computeIfAbsent(
+                        schema,
+                        s -> {
+                            GenericDatumReader<GenericRecord> r = new GenericDatumReader<>(s);
+                            r.getData()
+                                    .addLogicalTypeConversion(new Conversions.DecimalConversion());
+                            return r;
+                        });
+        BinaryDecoder decoder =
+                DecoderFactory.get().binaryDecoder(data.newInput(), AVRO_DECODER.get());
+        AVRO_DECODER.set(decoder);
         return reader.read(null, decoder);
     }
 
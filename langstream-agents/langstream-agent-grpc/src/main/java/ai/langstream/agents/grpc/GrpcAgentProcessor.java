@@ -107,6 +107,21 @@ public class GrpcAgentProcessor extends AbstractGrpcAgent implements AgentProces
         }
     }
 
+    /** Number of records sent to the server and waiting for the result. */
+    int pendingRecords() {
+        return sourceRecords.size();
+    }
+
+    /** Emit an error for all the records that are waiting for the result. */
+    void failPendingRecords(Throwable error) {
+        for (Long id : List.copyOf(sourceRecords.keySet())) {
+            RecordAndSink recordAndSink = sourceRecords.remove(id);
+            if (recordAndSink != null) {
+                recordAndSink.sink().emitError(recordAndSink.sourceRecord(), error);
+            }
+        }
+    }
+
     private SourceRecordAndResult fromGrpc(
             ai.langstream.api.runner.code.Record sourceRecord, ProcessorResult result)
             throws IOException {
@@ -0,0 +1,458 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.agents.grpc;
+
+import ai.langstream.api.runner.code.AgentContext;
+import ai.langstream.api.runner.code.BadRecordHandler;
+import ai.langstream.api.runner.code.MetricsReporter;
+import ai.langstream.api.runner.code.Record;
+import ai.langstream.api.runner.code.RecordSink;
+import ai.langstream.api.runner.topics.TopicAdmin;
+import ai.langstream.api.runner.topics.TopicConnectionProvider;
+import ai.langstream.api.runner.topics.TopicConsumer;
+import ai.langstream.api.runner.topics.TopicProducer;
+import io.grpc.ManagedChannel;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Distributes the records among a pool of {@link GrpcAgentProcessor}, each one connected to its own
+ * gRPC server (e.g. a Python process).
+ *
+ * <p>With the "round-robin" routing every batch goes to the worker with the fewest records in
+ * flight, so the records may be processed out of order. Only the "key" routing keeps the order: the
+ * records with the same key always go to the same worker, so they are processed in order.
+ *
+ * <p>When a worker fails, the records it is processing are failed, so that the errors policy of the
+ * agent applies to them, and the worker is restarted. In the meantime, with the "round-robin"
+ * routing its records go to the other workers, with the "key" routing they wait for the restart in
+ * order not to break the order of the keys. At most {@link #MAX_WAITING_RECORDS} records wait for a
+ * worker, then the caller is blocked until the restart.
+ *
+ * <p>Each worker has its own persistent state directory, the "worker-N" subdirectory of the
+ * persistent state directory of the agent.
+ */
+@Slf4j
+class GrpcAgentProcessorPool {
+
+    static final String ROUTING_ROUND_ROBIN = "round-robin";
+    static final String ROUTING_KEY = "key";
+    static final int MAX_WAITING_RECORDS = 1000;
+
+    interface WorkerServer extends AutoCloseable {
+        ManagedChannel channel();
+    }
+
+    @FunctionalInterface
+    interface WorkerServerFactory {
+        WorkerServer start(int index, AgentContext workerContext) throws Exception;
+    }
+
+    private final WorkerServerFactory serverFactory;
+    private final boolean keyRouting;
+    private final String agentId;
+    private final String agentType;
+    private final long startedAt;
+    private final AgentContext agentContext;
+    private final int maxWaitingRecords;
+    private final List<Worker> workers = new ArrayList<>();
+    private final AtomicInteger nextWorker = new AtomicInteger();
+    private final ExecutorService restartExecutor;
+    private volatile boolean closed;
+
+    GrpcAgentProcessorPool(
+            int size,
+            String routing,
+            WorkerServerFactory serverFactory,
+            String agentId,
+            String agentType,
+            long startedAt,
+            AgentContext agentContext) {
+        this(
+                size,
+                routing,
+                serverFactory,
+                agentId,
+                agentType,
+                startedAt,
+                agentContext,
+                MAX_WAITING_RECORDS);
+    }
+
+    GrpcAgentProcessorPool(
+            int size,
+            String routing,
+            WorkerServerFactory serverFactory,
+            String agentId,
+            String agentType,
+            long startedAt,
+            AgentContext agentContext,
+            int maxWaitingRecords) {
+        this.keyRouting =
+                switch (routing) {
+                    case ROUTING_ROUND_ROBIN -> false;
+                    case ROUTING_KEY -> true;
+                    default -> throw new IllegalArgumentException(
+                            "Invalid workers routing: %s, supported values are %s and %s"
+                                    .formatted(routing, ROUTING_ROUND_ROBIN, ROUTING_KEY));
+                };
+        this.serverFactory = serverFactory;
+        this.agentId = agentId;
+        this.agentType = agentType;
+        this.startedAt = startedAt;
+        this.agentContext = agentContext;
+        this.maxWaitingRecords = maxWaitingRecords;
+        for (int i = 0; i < size; i++) {
+            workers.add(new Worker(i));
+        }
+        this.restartExecutor =
+                Executors.newSingleThreadExecutor(
+                        r -> {
+                            Thread thread = new Thread(r, "grpc-worker-restart");
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+    }
+
+    void start() throws Exception {
+        // the servers are started in parallel, starting a Python process takes a while
+        ExecutorService executor = Executors.newFixedThreadPool(workers.size());
+        try {
+            List<Future<?>> starts = new ArrayList<>();
+            for (Worker worker : workers) {
+                starts.add(
+                        executor.submit(
+                                () -> {
+                                    worker.start();
+                                    return null;
+                                }));
+            }
+            for (Future<?> start : starts) {
+                start.get();
+            }
+        } catch (Exception error) {
+            close();
+            throw error;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    void process(List<Record> records, RecordSink recordSink) {
+        if (!keyRouting) {
+            dispatch(leastLoadedWorker(-1), records, recordSink);
+            return;
+        }
+        Map<Integer, List<Record>> recordsByWorker = new LinkedHashMap<>();
+        for (Record record : records) {
+            recordsByWorker
+                    .computeIfAbsent(workerForKey(record.key()), k -> new ArrayList<>())
+                    .add(record);
+        }
+        recordsByWorker.forEach(
+                (index, workerRecords) -> {
+                    if (index >= 0) {
+                        dispatchInOrder(workers.get(index), workerRecords, recordSink);
+                    } else {
+                        // the records without key have no order to keep
+                        dispatch(leastLoadedWorker(-1), workerRecords, recordSink);
+                    }
+                });
+    }
+
+    private int workerForKey(Object key) {
+        if (key == null) {
+            return -1;
+        }
+        int hash = key instanceof byte[] bytes ? Arrays.hashCode(bytes) : key.hashCode();
+        return Math.floorMod(hash, workers.size());
+    }
+
+    private void dispatch(Worker worker, List<Record> records, RecordSink recordSink) {
+        while (worker != null) {
+            synchronized (worker) {
+                if (worker.healthy) {
+                    worker.processor.process(records, recordSink);
+                    return;
+                }
+            }
+            // the worker is restarting, use another one
+            worker = leastLoadedWorker(worker.index);
+        }
+        IllegalStateException error = new IllegalStateException("No gRPC worker available");
+        records.forEach(record -> recordSink.emitError(record, error));
+    }
+
+    private void dispatchInOrder(Worker worker, List<Record> records, RecordSink recordSink) {
+        RuntimeException error = new IllegalStateException("No gRPC worker available");
+        synchronized (worker) {
+            try {
+                // bound the memory, block the caller until the worker is restarted
+                while (!worker.healthy
+                        && !closed
+                        && worker.waitingRecords > 0
+                        && worker.waitingRecords + records.size() > maxWaitingRecords) {
+                    worker.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                error = new RuntimeException("Interrupted while waiting for a gRPC worker", e);
+            }
+            if (worker.healthy) {
+                worker.processor.process(records, recordSink);
+                return;
+            }
+            if (!closed && !Thread.currentThread().isInterrupted()) {
+                // the worker is restarting, the records are sent after the restart
+                worker.waiting.add(new WaitingRecords(records, recordSink));
+                worker.waitingRecords += records.size();
+                return;
+            }
+        }
+        RuntimeException finalError = error;
+        records.forEach(record -> recordSink.emitError(record, finalError));
+    }
+
+    private Worker leastLoadedWorker(int excluded) {
+        int start = Math.floorMod(nextWorker.getAndIncrement(), workers.size());
+        Worker best = null;
+        int bestPending = Integer.MAX_VALUE;
+        for (int i = 0; i < workers.size(); i++) {
+            Worker worker = workers.get((start + i) % workers.size());
+            if (worker.index == excluded || !worker.healthy) {
+                continue;
+            }
+            int pending = worker.processor.pendingRecords();
+            if (pending < bestPending) {
+                best = worker;
+                bestPending = pending;
+            }
+        }
+        return best;
+    }
+
+    Map<String, Object> buildAdditionalInfo() {
+        List<Map<String, Object>> workersInfo = new ArrayList<>();
+        for (Worker worker : workers) {
+            Map<String, Object> info = new HashMap<>();
+            info.put("worker", worker.index);
+            info.put("healthy", worker.healthy);
+            info.put("restarts", worker.restarts.get());
+            if (worker.healthy) {
+                info.put("pending-records", worker.processor.pendingRecords());
+                info.put("info", worker.processor.buildAdditionalInfo());
+            }
+            workersInfo.add(info);
+        }
+        return Map.of("workers", workersInfo);
+    }
+
+    void close() throws Exception {
+        closed = true;
+        restartExecutor.shutdownNow();
+        for (Worker worker : workers) {
+            worker.failWaitingRecords(new IllegalStateException("No gRPC worker available"));
+            worker.close();
+        }
+    }
+
+    private void onWorkerFailure(Worker worker, Throwable error) {
+        synchronized (worker) {
+            if (closed || !worker.healthy) {
+                return;
+            }
+            worker.healthy = false;
+        }
+        log.warn("gRPC worker {} failed, restarting it", worker.index, error);
+        restartExecutor.execute(
+                () -> {
+                    try {
+                        GrpcAgentProcessor failed = worker.processor;
+                        worker.close();
+                        failed.failPendingRecords(
+                                new RuntimeException(
+                                        "gRPC worker %s failed: %s"
+                                                .formatted(worker.index, error.getMessage()),
+                                        error));
+                        if (closed) {
+                            return;
+                        }
+                        worker.restarts.incrementAndGet();
+                        worker.start();
+                        log.info("gRPC worker {} restarted", worker.index);
+                    } catch (Throwable restartError) {
+                        worker.failWaitingRecords(restartError);
+                        if (!closed) {
+                            agentContext.criticalFailure(
+                                    new RuntimeException(
+                                            "Cannot restart gRPC worker %s: %s"
+                                                    .formatted(
+                                                            worker.index,
+                                                            restartError.getMessage()),
+                                            restartError));
+                        }
+                    }
+                });
+    }
+
+    private record WaitingRecords(List<Record> records, RecordSink recordSink) {}
+
+    private final class Worker {
+        private final int index;
+        private final AtomicInteger restarts = new AtomicInteger();
+        // the records routed by key to the worker while it is restarting
+        private final List<WaitingRecords> waiting = new ArrayList<>();
+        private int waitingRecords;
+        private final WorkerContext context = new WorkerContext(this);
+        private WorkerServer server;
+        private volatile GrpcAgentProcessor processor;
+        private volatile boolean healthy;
+
+        Worker(int index) {
+            this.index = index;
+        }
+
+        void start() throws Exception {
+            server = serverFactory.start(index, context);
+            GrpcAgentProcessor newProcessor = new GrpcAgentProcessor(server.channel());
+            newProcessor.setMetadata(agentId, agentType, startedAt);
+            newProcessor.setContext(context);
+            processor = newProcessor;
+            newProcessor.start();
+            synchronized (this) {
+                healthy = true;
+                for (WaitingRecords batch : waiting) {
+                    newProcessor.process(batch.records(), batch.recordSink());
+                }
+                waiting.clear();
+                waitingRecords = 0;
+                notifyAll();
+            }
+        }
+
+        void failWaitingRecords(Throwable error) {
+            List<WaitingRecords> failed;
+            synchronized (this) {
+                failed = new ArrayList<>(waiting);
+                waiting.clear();
+                waitingRecords = 0;
+                notifyAll();
+            }
+            for (WaitingRecords batch : failed) {
+                batch.records().forEach(record -> batch.recordSink().emitError(record, error));
+            }
+        }
+
+        void close() throws Exception {
+            healthy = false;
+            try {
+                if (processor != null) {
+                    processor.close();
+                }
+            } finally {
+                if (server != null) {
+                    server.close();
+                    server = null;
+                }
+            }
+        }
+    }
+
+    /** The context of a worker, the failures of a worker restart only that worker. */
+    private final class WorkerContext implements AgentContext {
+        private final Worker worker;
+
+        WorkerContext(Worker worker) {
+            this.worker = worker;
+        }
+
+        @Override
+        public void criticalFailure(Throwable error) {
+            onWorkerFailure(worker, error);
+        }
+
+        @Override
+        public TopicConsumer getTopicConsumer() {
+            return agentContext.getTopicConsumer();
+        }
+
+        @Override
+        public TopicProducer getTopicProducer() {
+            return agentContext.getTopicProducer();
+        }
+
+        @Override
+        public String getGlobalAgentId() {
+            return agentContext.getGlobalAgentId();
+        }
+
+        @Override
+        public TopicAdmin getTopicAdmin() {
+            return agentContext.getTopicAdmin();
+        }
+
+        @Override
+        public TopicConnectionProvider getTopicConnectionProvider() {
+            return agentContext.getTopicConnectionProvider();
+        }
+
+        @Override
+        public MetricsReporter getMetricsReporter() {
+            return agentContext.getMetricsReporter();
+        }
+
+        @Override
+        public BadRecordHandler getBadRecordHandler() {
+            return agentContext.getBadRecordHandler();
+        }
+
+        @Override
+        public Path getCodeDirectory() {
+            return agentContext.getCodeDirectory();
+        }
+
+        @Override
+        public Optional<Path> getPersistentStateDirectoryForAgent(String agentId) {
+            // the workers must not share the files of the state
+            return agentContext
+                    .getPersistentStateDirectoryForAgent(agentId)
+                    .map(
+                            directory -> {
+                                Path workerDirectory = directory.resolve("worker-" + worker.index);
+                                try {
+                                    Files.createDirectories(workerDirectory);
+                                } catch (IOException e) {
+                                    throw new UncheckedIOException(e);
+                                }
+                                return workerDirectory;
+                            });
+        }
+    }
+}
@@ -20,9 +20,14 @@ import ai.langstream.api.runner.code.Record;
 import ai.langstream.api.util.ConfigurationUtils;
 import io.grpc.ManagedChannel;
 import io.grpc.stub.StreamObserver;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import lombok.extern.slf4j.Slf4j;
 
@@ -35,6 +40,16 @@ public class GrpcAgentSink extends AbstractGrpcAgent implements AgentSink {
     protected final AtomicLong recordId = new AtomicLong(0);
     private final Map<Long, CompletableFuture<?>> writeHandles = new ConcurrentHashMap<>();
 
+    // Records are sent to the server in batches of up to batchSize records and batchMaxBytes
+    // bytes, a partial batch is sent after flushIntervalMs. With batchSize = 1 every record is sent
+    // as soon as it is written. A record bigger than batchMaxBytes is sent alone.
+    private int batchSize = 1;
+    private long flushIntervalMs = 100;
+    private long batchMaxBytes = 1024 * 1024;
+    private final List<ai.langstream.agents.grpc.Record> pendingRecords = new ArrayList<>();
+    private long pendingBytes;
+    private ScheduledExecutorService flushExecutor;
+
     public GrpcAgentSink() {
         super();
         this.responseObserver = getResponseObserver();
@@ -45,6 +60,23 @@ public class GrpcAgentSink extends AbstractGrpcAgent implements AgentSink {
         this.responseObserver = getResponseObserver();
     }
 
+    @Override
+    public void init(Map<String, Object> configuration) throws Exception {
+        super.init(configuration);
+        batchSize = Math.max(1, ConfigurationUtils.getInt("grpc-batch-size", 1, configuration));
+        flushIntervalMs = ConfigurationUtils.getInt("grpc-flush-interval", 100, configuration);
+        batchMaxBytes =
+                ConfigurationUtils.getLong("grpc-batch-max-bytes", 1024 * 1024L, configuration);
+        if (batchSize > 1 && flushIntervalMs <= 0) {
+            // a partial batch would never be sent
+            throw new IllegalArgumentException(
+                    "grpc-flush-interval must be positive when grpc-batch-size is greater than 1");
+        }
+        if (batchMaxBytes <= 0) {
+            throw new IllegalArgumentException("grpc-batch-max-bytes must be positive");
+        }
+    }
+
     @Override
     public void onNewSchemaToSend(Schema schema) {
         request.onNext(SinkRequest.newBuilder().setSchema(schema).build());
@@ -56,6 +88,20 @@ public class GrpcAgentSink extends AbstractGrpcAgent implements AgentSink {
         request = asyncStub.write(responseObserver);
         restarting.set(false);
         startFailedButDevelopmentMode = false;
+        if (batchSize > 1) {
+            flushExecutor =
+                    Executors.newSingleThreadScheduledExecutor(
+                            r -> {
+                                Thread thread = new Thread(r, "grpc-sink-flush");
+                                thread.setDaemon(true);
+                                return thread;
+                            });
+            flushExecutor.scheduleWithFixedDelay(
+                    this::flushPendingRecords,
+                    flushIntervalMs,
+                    flushIntervalMs,
+                    TimeUnit.MILLISECONDS);
+        }
     }
 
     @Override
@@ -63,24 +109,20 @@ public class GrpcAgentSink extends AbstractGrpcAgent implements AgentSink {
         CompletableFuture<?> handle = new CompletableFuture<>();
         Long rId = recordId.incrementAndGet();
         try {
-            SinkRequest.Builder requestBuilder = SinkRequest.newBuilder();
-            requestBuilder.setRecord(toGrpc(record).setRecordId(rId));
-            writeHandles.put(rId, handle);
-            try {
-                request.onNext(requestBuilder.build());
-            } catch (IllegalStateException stopped) {
-                if (restarting.get()) {
-                    if (ConfigurationUtils.isDevelopmentMode()) {
-                        log.info(
-                                "Ignoring error during restart in dev mode {}, "
-                                        + "ignoring record {}",
-                                stopped + "",
-                                record);
-                        writeHandles.remove(rId);
-                        handle.complete(null);
-                    } else {
-                        throw stopped;
-                    }
+            synchronized (this) {
+                // the schemas are sent while converting the record, so they always
+                // precede the request carrying the record
+                ai.langstream.agents.grpc.Record grpcRecord =
+                        toGrpc(record).setRecordId(rId).build();
+                writeHandles.put(rId, handle);
+                int size = grpcRecord.getSerializedSize();
+                if (!pendingRecords.isEmpty() && pendingBytes + size > batchMaxBytes) {
+                    sendPendingRecords();
+                }
+                pendingRecords.add(grpcRecord);
+                pendingBytes += size;
+                if (pendingRecords.size() >= batchSize || pendingBytes >= batchMaxBytes) {
+                    sendPendingRecords();
                 }
             }
         } catch (Throwable error) {
@@ -90,23 +132,95 @@ public class GrpcAgentSink extends AbstractGrpcAgent implements AgentSink {
         return handle;
     }
 
+    private synchronized void flushPendingRecords() {
+        try {
+            sendPendingRecords();
+        } catch (Throwable error) {
+            log.error("Error while sending a batch of records", error);
+        }
+    }
+
+    private synchronized void sendPendingRecords() {
+        if (pendingRecords.isEmpty()) {
+            return;
+        }
+        List<ai.langstream.agents.grpc.Record> records = new ArrayList<>(pendingRecords);
+        pendingRecords.clear();
+        pendingBytes = 0;
+        SinkRequest.Builder requestBuilder = SinkRequest.newBuilder();
+        if (records.size() == 1) {
+            requestBuilder.setRecord(records.get(0));
+        } else {
+            requestBuilder.addAllRecords(records);
+        }
+        try {
+            request.onNext(requestBuilder.build());
+        } catch (IllegalStateException stopped) {
+            if (restarting.get()) {
+                if (ConfigurationUtils.isDevelopmentMode()) {
+                    log.info(
+                            "Ignoring error during restart in dev mode {}, "
+                                    + "ignoring {} records",
+                            stopped + "",
+                            records.size());
+                    records.forEach(r -> completeHandle(r.getRecordId(), null));
+                } else {
+                    records.forEach(r -> completeHandle(r.getRecordId(), stopped));
+                    throw stopped;
+                }
+            } else {
+                records.forEach(r -> completeHandle(r.getRecordId(), stopped));
+                throw stopped;
+            }
+        } catch (Throwable error) {
+            records.forEach(r -> completeHandle(r.getRecordId(), error));
+            throw error;
+        }
+    }
+
+    private synchronized void discardPendingRecords() {
+        pendingRecords.clear();
+        pendingBytes = 0;
+        writeHandles.forEach((id, handle) -> handle.complete(null));
+        writeHandles.clear();
+    }
+
+    private void completeHandle(long id, Throwable error) {
+        CompletableFuture<?> handle = writeHandles.remove(id);
+        if (handle == null) {
+            return;
+        }
+        if (error != null) {
+            handle.completeExceptionally(error);
+        } else {
+            handle.complete(null);
+        }
+    }
+
     private StreamObserver<SinkResponse> getResponseObserver() {
         return new StreamObserver<>() {
             @Override
             public void onNext(SinkResponse response) {
-                if (!writeHandles.containsKey(response.getRecordId())) {
+                if (response.getResultsCount() > 0) {
+                    for (SinkResult result : response.getResultsList()) {
+                        onResult(
+                                result.getRecordId(), result.hasError() ? result.getError() : null);
+                    }
+                } else {
+                    onResult(
+                            response.getRecordId(),
+                            response.hasError() ? response.getError() : null);
+                }
+            }
+
+            private void onResult(long id, String error) {
+                if (!writeHandles.containsKey(id)) {
                     agentContext.criticalFailure(
                             new RuntimeException(
-                                    "GrpcAgentSink received unknown record id: %s"
-                                            .formatted(response.getRecordId())));
+                                    "GrpcAgentSink received unknown record id: %s".formatted(id)));
                     return;
                 }
-                CompletableFuture<?> handle = writeHandles.get(response.getRecordId());
-                if (response.hasError()) {
-                    handle.completeExceptionally(new RuntimeException(response.getError()));
-                } else {
-                    handle.complete(null);
-                }
+                completeHandle(id, error != null ? new RuntimeException(error) : null);
             }
 
             @Override
@@ -117,8 +231,7 @@ public class GrpcAgentSink extends AbstractGrpcAgent implements AgentSink {
                                     + "ignoring records {}",
                             throwable + "",
                             writeHandles);
-                    writeHandles.forEach((id, handle) -> handle.complete(null));
-                    writeHandles.clear();
+                    discardPendingRecords();
                 } else {
                     agentContext.criticalFailure(
                             new RuntimeException(
@@ -134,8 +247,7 @@ public class GrpcAgentSink extends AbstractGrpcAgent implements AgentSink {
                             "Ignoring server completion during restart in dev mode, "
                                     + "ignoring records {}",
                             writeHandles);
-                    writeHandles.forEach((id, handle) -> handle.complete(null));
-                    writeHandles.clear();
+                    discardPendingRecords();
                 } else {
                     agentContext.criticalFailure(
                             new RuntimeException("gRPC server completed the stream unexpectedly"));
@@ -147,8 +259,17 @@ public class GrpcAgentSink extends AbstractGrpcAgent implements AgentSink {
     protected void stopBeforeRestart() throws Exception {
         log.info("Stopping...");
         restarting.set(true);
+        if (flushExecutor != null) {
+            flushExecutor.shutdown();
+            flushExecutor = null;
+        }
         synchronized (this) {
             if (request != null) {
+                try {
+                    sendPendingRecords();
+                } catch (IllegalStateException e) {
+                    log.info("Ignoring error while sending the pending records {}", e + "");
+                }
                 try {
                     request.onCompleted();
                 } catch (IllegalStateException e) {
@@ -15,23 +15,61 @@
  */
 package ai.langstream.agents.grpc;
 
+import ai.langstream.api.runner.code.AgentContext;
+import ai.langstream.api.runner.code.Record;
+import ai.langstream.api.runner.code.RecordSink;
+import ai.langstream.api.util.ConfigurationUtils;
+import io.grpc.ManagedChannel;
+import java.util.List;
 import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class PythonGrpcAgentProcessor extends GrpcAgentProcessor {
 
+    static final String WORKERS_CONFIG = "python-workers";
+    static final String WORKERS_ROUTING_CONFIG = "python-workers-routing";
+
     private PythonGrpcServer server;
     private Map<String, Object> configuration;
 
+    // With more than one worker the records are processed by a pool of Python processes,
+    // in order to use more than one core
+    private int workers;
+    private String workersRouting;
+    private volatile GrpcAgentProcessorPool pool;
+
     @Override
     public void init(Map<String, Object> configuration) throws Exception {
         super.init(configuration);
         this.configuration = configuration;
+        this.workers = Math.max(1, ConfigurationUtils.getInt(WORKERS_CONFIG, 1, configuration));
+        this.workersRouting =
+                ConfigurationUtils.getString(
+                        WORKERS_ROUTING_CONFIG,
+                        GrpcAgentProcessorPool.ROUTING_ROUND_ROBIN,
+                        configuration);
     }
 
     @Override
     public void start() throws Exception {
+        if (workers > 1) {
+            log.info("Starting {} Python workers, routing {}", workers, workersRouting);
+            GrpcAgentProcessorPool newPool =
+                    new GrpcAgentProcessorPool(
+                            workers,
+                            workersRouting,
+                            (index, workerContext) -> startWorkerServer(workerContext),
+                            agentId(),
+                            agentType(),
+                            startedAt(),
+                            agentContext);
+            newPool.start();
+            pool = newPool;
+            restarting.set(false);
+            startFailedButDevelopmentMode = false;
+            return;
+        }
         server =
                 new PythonGrpcServer(
                         agentContext.getCodeDirectory(), configuration, agentId(), agentContext);
@@ -45,9 +83,54 @@ public class PythonGrpcAgentProcessor extends GrpcAgentProcessor {
         super.start();
     }
 
+    private GrpcAgentProcessorPool.WorkerServer startWorkerServer(AgentContext workerContext)
+            throws Exception {
+        PythonGrpcServer workerServer =
+                new PythonGrpcServer(
+                        agentContext.getCodeDirectory(), configuration, agentId(), workerContext);
+        ManagedChannel workerChannel;
+        try {
+            workerChannel = workerServer.start();
+        } catch (Exception err) {
+            workerServer.close(true);
+            throw err;
+        }
+        return new GrpcAgentProcessorPool.WorkerServer() {
+            @Override
+            public ManagedChannel channel() {
+                return workerChannel;
+            }
+
+            @Override
+            public void close() throws Exception {
+                workerServer.close(true);
+            }
+        };
+    }
+
+    @Override
+    public void process(List<Record> records, RecordSink recordSink) {
+        GrpcAgentProcessorPool currentPool = pool;
+        if (currentPool != null) {
+            currentPool.process(records, recordSink);
+        } else {
+            super.process(records, recordSink);
+        }
+    }
+
+    @Override
+    protected Map<String, Object> buildAdditionalInfo() {
+        GrpcAgentProcessorPool currentPool = pool;
+        if (currentPool != null) {
+            return currentPool.buildAdditionalInfo();
+        }
+        return super.buildAdditionalInfo();
+    }
+
     @Override
     public synchronized void close() throws Exception {
         super.close();
+        closePool();
         if (server != null) {
             server.close(true);
         }
@@ -56,8 +139,17 @@ public class PythonGrpcAgentProcessor extends GrpcAgentProcessor {
     @Override
     protected synchronized void stopBeforeRestart() throws Exception {
         super.stopBeforeRestart();
+        closePool();
         if (server != null) {
             server.close(true);
         }
     }
+
+    private void closePool() throws Exception {
+        GrpcAgentProcessorPool currentPool = pool;
+        if (currentPool != null) {
+            pool = null;
+            currentPool.close();
+        }
+    }
 }
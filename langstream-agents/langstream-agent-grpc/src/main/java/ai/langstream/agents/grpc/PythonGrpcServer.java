@@ -20,7 +20,15 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.protobuf.Empty;
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.shaded.io.netty.channel.EventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.epoll.Epoll;
+import io.grpc.netty.shaded.io.netty.channel.epoll.EpollDomainSocketChannel;
+import io.grpc.netty.shaded.io.netty.channel.epoll.EpollEventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.unix.DomainSocketAddress;
+import java.io.IOException;
 import java.net.ServerSocket;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Map;
 import java.util.Optional;
@@ -33,11 +41,17 @@ public class PythonGrpcServer {
 
     private static final ObjectMapper MAPPER = new ObjectMapper();
 
+    static final String TRANSPORT_CONFIG = "grpc-transport";
+    static final String TRANSPORT_TCP = "tcp";
+    static final String TRANSPORT_UNIX_SOCKET = "unix-socket";
+
     private final Path codeDirectory;
     private final Map<String, Object> configuration;
     private final String agentId;
     private final AgentContext agentContext;
     private Process pythonProcess;
+    private Path socketDirectory;
+    private EventLoopGroup eventLoopGroup;
 
     public PythonGrpcServer(
             Path codeDirectory,
@@ -51,12 +65,23 @@ public class PythonGrpcServer {
     }
 
     public ManagedChannel start() throws Exception {
-        // Get a free port
-        int port;
-        try (ServerSocket socket = new ServerSocket(0)) {
-            socket.setReuseAddress(true);
-            port = socket.getLocalPort();
+        boolean useUnixSocket = useUnixSocket();
+        String target;
+        int port = -1;
+        Path socket = null;
+        if (useUnixSocket) {
+            socketDirectory = Files.createTempDirectory("langstream-grpc-");
+            socket = socketDirectory.resolve("agent.sock");
+            target = "unix:" + socket.toAbsolutePath();
+        } else {
+            // Get a free port
+            try (ServerSocket serverSocket = new ServerSocket(0)) {
+                serverSocket.setReuseAddress(true);
+                port = serverSocket.getLocalPort();
+            }
+            target = "[::]:%s".formatted(port);
         }
+        log.info("Python agent gRPC target {}", target);
 
         Path pythonCodeDirectory = codeDirectory.resolve("python");
         log.info("Python code directory {}", pythonCodeDirectory);
@@ -78,7 +103,7 @@ public class PythonGrpcServer {
                                 "python3",
                                 "-m",
                                 "langstream_grpc",
-                                "[::]:%s".formatted(port),
+                                target,
                                 MAPPER.writeValueAsString(configuration),
                                 MAPPER.writeValueAsString(agentContextConfiguration))
                         .inheritIO()
@@ -87,8 +112,13 @@ public class PythonGrpcServer {
         processBuilder.environment().put("PYTHONPATH", newPythonPath);
         processBuilder.environment().put("NLTK_DATA", "/app/nltk_data");
         pythonProcess = processBuilder.start();
-        ManagedChannel channel =
-                ManagedChannelBuilder.forAddress("localhost", port).usePlaintext().build();
+        ManagedChannel channel;
+        if (useUnixSocket) {
+            eventLoopGroup = new EpollEventLoopGroup(1);
+            channel = newDomainSocketChannel(socket, eventLoopGroup);
+        } else {
+            channel = ManagedChannelBuilder.forAddress("localhost", port).usePlaintext().build();
+        }
         AgentServiceGrpc.AgentServiceBlockingStub stub =
                 AgentServiceGrpc.newBlockingStub(channel)
                         .withMaxInboundMessageSize(Integer.MAX_VALUE)
@@ -115,6 +145,40 @@ public class PythonGrpcServer {
         return channel;
     }
 
+    private boolean useUnixSocket() {
+        String transport =
+                String.valueOf(configuration.getOrDefault(TRANSPORT_CONFIG, TRANSPORT_TCP));
+        switch (transport) {
+            case TRANSPORT_TCP:
+                return false;
+            case TRANSPORT_UNIX_SOCKET:
+                if (!Epoll.isAvailable()) {
+                    log.warn(
+                            "Unix domain sockets are not available on this platform, falling back to TCP",
+                            Epoll.unavailabilityCause());
+                    return false;
+                }
+                return true;
+            default:
+                throw new IllegalArgumentException(
+                        "Invalid %s: %s, supported values are %s and %s"
+                                .formatted(
+                                        TRANSPORT_CONFIG,
+                                        transport,
+                                        TRANSPORT_TCP,
+                                        TRANSPORT_UNIX_SOCKET));
+        }
+    }
+
+    static ManagedChannel newDomainSocketChannel(Path socket, EventLoopGroup eventLoopGroup) {
+        return NettyChannelBuilder.forAddress(
+                        new DomainSocketAddress(socket.toAbsolutePath().toString()))
+                .eventLoopGroup(eventLoopGroup)
+                .channelType(EpollDomainSocketChannel.class)
+                .usePlaintext()
+                .build();
+    }
+
     private AgentContextConfiguration computeAgentContextConfiguration() {
         final Optional<Path> persistentStateDirectoryForAgent =
                 agentContext.getPersistentStateDirectoryForAgent(agentId);
@@ -129,17 +193,38 @@ public class PythonGrpcServer {
     }
 
     public void close(boolean ignoreErrors) throws Exception {
-        if (pythonProcess != null) {
-            pythonProcess.destroy();
-            int exitCode = pythonProcess.waitFor();
-            log.info("Python process exited with code {}", exitCode);
-
-            if (!ignoreErrors) {
-                if (exitCode != 0) {
-                    throw new RuntimeException("Python code exited with code " + exitCode);
+        try {
+            if (pythonProcess != null) {
+                pythonProcess.destroy();
+                int exitCode = pythonProcess.waitFor();
+                log.info("Python process exited with code {}", exitCode);
+
+                if (!ignoreErrors) {
+                    if (exitCode != 0) {
+                        throw new RuntimeException("Python code exited with code " + exitCode);
+                    }
                 }
             }
+        } finally {
+            if (eventLoopGroup != null) {
+                eventLoopGroup.shutdownGracefully();
+                eventLoopGroup = null;
+            }
+            deleteSocketDirectory();
+        }
+    }
+
+    private void deleteSocketDirectory() {
+        if (socketDirectory == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(socketDirectory.resolve("agent.sock"));
+            Files.deleteIfExists(socketDirectory);
+        } catch (IOException e) {
+            log.warn("Cannot delete {}", socketDirectory, e);
         }
+        socketDirectory = null;
     }
 
     public record AgentContextConfiguration(String persistentStateDirectory) {}
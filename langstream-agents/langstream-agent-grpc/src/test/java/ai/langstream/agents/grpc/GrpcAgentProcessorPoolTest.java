@@ -0,0 +1,424 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.agents.grpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ai.langstream.api.runner.code.AgentContext;
+import ai.langstream.api.runner.code.AgentProcessor;
+import ai.langstream.api.runner.code.Record;
+import ai.langstream.api.runner.code.SimpleRecord;
+import ai.langstream.api.runner.topics.TopicAdmin;
+import ai.langstream.api.runner.topics.TopicConnectionProvider;
+import ai.langstream.api.runner.topics.TopicConsumer;
+import ai.langstream.api.runner.topics.TopicProducer;
+import com.google.protobuf.Empty;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class GrpcAgentProcessorPoolTest {
+
+    private final List<Server> servers = new CopyOnWriteArrayList<>();
+    private final AtomicInteger serversStarted = new AtomicInteger();
+    // worker index -> origins of the records processed by the worker
+    private final Map<Integer, List<String>> processedByWorker = new ConcurrentHashMap<>();
+    private final TestAgentContext context = new TestAgentContext();
+    // completed to let the restarts of the workers go on
+    private volatile CompletableFuture<Void> restartGate = CompletableFuture.completedFuture(null);
+    private final Map<Integer, AgentContext> workerContexts = new ConcurrentHashMap<>();
+    private GrpcAgentProcessorPool pool;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (pool != null) {
+            pool.close();
+        }
+        for (Server server : servers) {
+            server.shutdownNow();
+        }
+    }
+
+    private GrpcAgentProcessorPool startPool(int size, String routing) throws Exception {
+        return startPool(size, routing, GrpcAgentProcessorPool.MAX_WAITING_RECORDS);
+    }
+
+    private GrpcAgentProcessorPool startPool(int size, String routing, int maxWaitingRecords)
+            throws Exception {
+        pool =
+                new GrpcAgentProcessorPool(
+                        size,
+                        routing,
+                        this::startServer,
+                        "agent-id",
+                        "python-processor",
+                        System.currentTimeMillis(),
+                        context,
+                        maxWaitingRecords);
+        pool.start();
+        return pool;
+    }
+
+    private GrpcAgentProcessorPool.WorkerServer startServer(int index, AgentContext workerContext)
+            throws Exception {
+        if (workerContexts.putIfAbsent(index, workerContext) != null) {
+            restartGate.get();
+        }
+        serversStarted.incrementAndGet();
+        String serverName = InProcessServerBuilder.generateName();
+        Server server =
+                InProcessServerBuilder.forName(serverName)
+                        .directExecutor()
+                        .addService(new TestProcessorService(index))
+                        .build()
+                        .start();
+        servers.add(server);
+        ManagedChannel channel =
+                InProcessChannelBuilder.forName(serverName).directExecutor().build();
+        return new GrpcAgentProcessorPool.WorkerServer() {
+            @Override
+            public ManagedChannel channel() {
+                return channel;
+            }
+
+            @Override
+            public void close() {
+                channel.shutdownNow();
+                server.shutdownNow();
+            }
+        };
+    }
+
+    @Test
+    void testRoundRobin() throws Exception {
+        startPool(3, GrpcAgentProcessorPool.ROUTING_ROUND_ROBIN);
+        for (int i = 0; i < 6; i++) {
+            List<AgentProcessor.SourceRecordAndResult> results =
+                    process(SimpleRecord.builder().origin("record-" + i).value(i).build());
+            assertNull(results.get(0).error());
+            assertEquals(i, results.get(0).resultRecords().get(0).value());
+        }
+        assertEquals(Set.of(0, 1, 2), processedByWorker.keySet());
+        processedByWorker.values().forEach(origins -> assertEquals(2, origins.size()));
+    }
+
+    @Test
+    void testKeyRouting() throws Exception {
+        startPool(4, GrpcAgentProcessorPool.ROUTING_KEY);
+        List<Record> records = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            records.add(SimpleRecord.builder().key("key-" + (i % 5)).origin("" + i).build());
+        }
+        process(records.toArray(new Record[0]));
+        process(records.toArray(new Record[0]));
+
+        // all the records with the same key are processed in order by the same worker
+        for (int k = 0; k < 5; k++) {
+            List<Integer> workers = new ArrayList<>();
+            for (Map.Entry<Integer, List<String>> entry : processedByWorker.entrySet()) {
+                List<String> sameKey = new ArrayList<>();
+                for (String origin : entry.getValue()) {
+                    if (Integer.parseInt(origin) % 5 == k) {
+                        sameKey.add(origin);
+                    }
+                }
+                if (!sameKey.isEmpty()) {
+                    workers.add(entry.getKey());
+                    assertEquals(16, sameKey.size());
+                    List<String> expected = new ArrayList<>();
+                    for (int round = 0; round < 2; round++) {
+                        for (int i = k; i < 40; i += 5) {
+                            expected.add("" + i);
+                        }
+                    }
+                    assertEquals(expected, sameKey);
+                }
+            }
+            assertEquals(1, workers.size());
+        }
+    }
+
+    @Test
+    void testWorkerRestart() throws Exception {
+        startPool(2, GrpcAgentProcessorPool.ROUTING_ROUND_ROBIN);
+        assertEquals(2, serversStarted.get());
+
+        List<AgentProcessor.SourceRecordAndResult> results =
+                process(SimpleRecord.builder().origin("failing-server").build());
+        assertEquals(
+                "gRPC worker %s failed: gRPC server sent error: INTERNAL: server error"
+                        .formatted(processedByWorker.keySet().iterator().next()),
+                results.get(0).error().getMessage());
+
+        // the other worker keeps processing the records
+        for (int i = 0; i < 4; i++) {
+            results = process(SimpleRecord.builder().origin("record-" + i).value(i).build());
+            assertNull(results.get(0).error());
+        }
+
+        // the failed worker is restarted
+        long deadline = System.currentTimeMillis() + 5000;
+        while (serversStarted.get() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(3, serversStarted.get());
+        assertFalse(context.failure.isDone());
+
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> workersInfo =
+                (List<Map<String, Object>>) pool.buildAdditionalInfo().get("workers");
+        assertEquals(2, workersInfo.size());
+        deadline = System.currentTimeMillis() + 5000;
+        while (!workersInfo.stream().allMatch(w -> (Boolean) w.get("healthy"))
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            workersInfo = (List<Map<String, Object>>) pool.buildAdditionalInfo().get("workers");
+        }
+        assertTrue(workersInfo.stream().allMatch(w -> (Boolean) w.get("healthy")));
+        assertEquals(1, workersInfo.stream().mapToInt(w -> (Integer) w.get("restarts")).sum());
+    }
+
+    @Test
+    void testKeyRoutingWaitsForTheRestart() throws Exception {
+        startPool(2, GrpcAgentProcessorPool.ROUTING_KEY);
+        List<AgentProcessor.SourceRecordAndResult> results =
+                process(SimpleRecord.builder().key("key").origin("failing-server").build());
+        assertNotNull(results.get(0).error());
+        int worker = processedByWorker.keySet().iterator().next();
+
+        // the records of the key are not sent to the other worker
+        results =
+                process(
+                        SimpleRecord.builder().key("key").origin("first").build(),
+                        SimpleRecord.builder().key("key").origin("second").build());
+        results.forEach(result -> assertNull(result.error()));
+        assertEquals(Set.of(worker), processedByWorker.keySet());
+        assertEquals(List.of("failing-server", "first", "second"), processedByWorker.get(worker));
+        assertEquals(3, serversStarted.get());
+        assertFalse(context.failure.isDone());
+    }
+
+    @Test
+    void testWaitingRecordsAreBounded() throws Exception {
+        startPool(2, GrpcAgentProcessorPool.ROUTING_KEY, 1);
+        restartGate = new CompletableFuture<>();
+        assertNotNull(
+                process(SimpleRecord.builder().key("key").origin("failing-server").build())
+                        .get(0)
+                        .error());
+
+        LinkedBlockingQueue<AgentProcessor.SourceRecordAndResult> results =
+                new LinkedBlockingQueue<>();
+        pool.process(
+                List.of(SimpleRecord.builder().key("key").origin("first").build()), results::add);
+        Thread blocked =
+                new Thread(
+                        () ->
+                                pool.process(
+                                        List.of(
+                                                SimpleRecord.builder()
+                                                        .key("key")
+                                                        .origin("second")
+                                                        .build()),
+                                        results::add));
+        blocked.start();
+        blocked.join(200);
+        // the second batch waits for the restart of the worker
+        assertTrue(blocked.isAlive());
+        assertTrue(results.isEmpty());
+
+        restartGate.complete(null);
+        blocked.join(5000);
+        assertFalse(blocked.isAlive());
+        for (int i = 0; i < 2; i++) {
+            AgentProcessor.SourceRecordAndResult result = results.poll(5, TimeUnit.SECONDS);
+            assertNotNull(result);
+            assertNull(result.error());
+        }
+    }
+
+    @Test
+    void testWorkersHaveTheirOwnStateDirectory() throws Exception {
+        startPool(2, GrpcAgentProcessorPool.ROUTING_ROUND_ROBIN);
+        assertEquals(
+                context.stateDirectory.resolve("agent-id").resolve("worker-0"),
+                workerContexts
+                        .get(0)
+                        .getPersistentStateDirectoryForAgent("agent-id")
+                        .orElseThrow());
+        Path worker1 =
+                workerContexts.get(1).getPersistentStateDirectoryForAgent("agent-id").orElseThrow();
+        assertEquals(context.stateDirectory.resolve("agent-id").resolve("worker-1"), worker1);
+        assertTrue(Files.isDirectory(worker1));
+    }
+
+    private List<AgentProcessor.SourceRecordAndResult> process(Record... records) throws Exception {
+        LinkedBlockingQueue<AgentProcessor.SourceRecordAndResult> results =
+                new LinkedBlockingQueue<>();
+        pool.process(List.of(records), results::add);
+        List<AgentProcessor.SourceRecordAndResult> received = new ArrayList<>();
+        for (int i = 0; i < records.length; i++) {
+            AgentProcessor.SourceRecordAndResult result = results.poll(5, TimeUnit.SECONDS);
+            if (result == null) {
+                throw new AssertionError("Missing result");
+            }
+            received.add(result);
+        }
+        return received;
+    }
+
+    private class TestProcessorService extends AgentServiceGrpc.AgentServiceImplBase {
+        private final int index;
+
+        TestProcessorService(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void agentInfo(Empty request, StreamObserver<InfoResponse> responseObserver) {
+            responseObserver.onNext(InfoResponse.newBuilder().setJsonInfo("{}").build());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public StreamObserver<ProcessorRequest> process(
+                StreamObserver<ProcessorResponse> response) {
+            return new StreamObserver<>() {
+                @Override
+                public void onNext(ProcessorRequest request) {
+                    ProcessorResponse.Builder resp = ProcessorResponse.newBuilder();
+                    for (ai.langstream.agents.grpc.Record record : request.getRecordsList()) {
+                        processedByWorker
+                                .computeIfAbsent(index, k -> new CopyOnWriteArrayList<>())
+                                .add(record.getOrigin());
+                        if (record.getOrigin().equals("failing-server")) {
+                            response.onError(
+                                    Status.INTERNAL.withDescription("server error").asException());
+                            return;
+                        }
+                        resp.addResultsBuilder()
+                                .setRecordId(record.getRecordId())
+                                .addRecords(record);
+                    }
+                    response.onNext(resp.build());
+                }
+
+                @Override
+                public void onError(Throwable throwable) {}
+
+                @Override
+                public void onCompleted() {
+                    response.onCompleted();
+                }
+            };
+        }
+
+        @Override
+        public StreamObserver<TopicProducerWriteResult> getTopicProducerRecords(
+                StreamObserver<TopicProducerResponse> responseObserver) {
+            return new StreamObserver<>() {
+                @Override
+                public void onNext(TopicProducerWriteResult topicProducerWriteResult) {}
+
+                @Override
+                public void onError(Throwable throwable) {}
+
+                @Override
+                public void onCompleted() {
+                    responseObserver.onCompleted();
+                }
+            };
+        }
+    }
+
+    static class TestAgentContext implements AgentContext {
+
+        private final CompletableFuture<Throwable> failure = new CompletableFuture<>();
+        private final Path stateDirectory;
+
+        TestAgentContext() {
+            try {
+                stateDirectory = Files.createTempDirectory("grpc-pool-state");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public TopicConsumer getTopicConsumer() {
+            return null;
+        }
+
+        @Override
+        public TopicProducer getTopicProducer() {
+            return null;
+        }
+
+        @Override
+        public String getGlobalAgentId() {
+            return null;
+        }
+
+        @Override
+        public TopicAdmin getTopicAdmin() {
+            return null;
+        }
+
+        @Override
+        public TopicConnectionProvider getTopicConnectionProvider() {
+            return null;
+        }
+
+        @Override
+        public void criticalFailure(Throwable error) {
+            failure.complete(error);
+        }
+
+        @Override
+        public Path getCodeDirectory() {
+            return null;
+        }
+
+        @Override
+        public Optional<Path> getPersistentStateDirectoryForAgent(String agentId) {
+            return Optional.of(stateDirectory.resolve(agentId));
+        }
+    }
+}
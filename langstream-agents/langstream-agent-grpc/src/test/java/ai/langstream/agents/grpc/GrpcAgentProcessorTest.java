@@ -39,6 +39,7 @@ import io.grpc.stub.StreamObserver;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -262,6 +263,13 @@ public class GrpcAgentProcessorTest {
         assertEquals(1, schemaCounter.get());
     }
 
+    @Test
+    void testMapAndListValues() throws Exception {
+        assertEquals(
+                "{\"key\":[1,2]}", processor.toGrpc(Map.of("key", List.of(1, 2))).getJsonValue());
+        assertEquals("[\"a\",\"b\"]", processor.toGrpc(List.of("a", "b")).getJsonValue());
+    }
+
     private static void assertProcessSuccessful(GrpcAgentProcessor processor, Record inputRecord)
             throws ExecutionException, InterruptedException, TimeoutException {
         CompletableFuture<Void> op = new CompletableFuture<>();
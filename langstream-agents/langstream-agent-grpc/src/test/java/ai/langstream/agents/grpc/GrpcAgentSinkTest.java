@@ -16,6 +16,8 @@
 package ai.langstream.agents.grpc;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
 
 import ai.langstream.api.runner.code.AgentContext;
 import ai.langstream.api.runner.code.SimpleRecord;
@@ -30,6 +32,8 @@ import io.grpc.inprocess.InProcessServerBuilder;
 import io.grpc.stub.StreamObserver;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
@@ -54,10 +58,11 @@ public class GrpcAgentSinkTest {
     private final TestSinkService testSinkService = new TestSinkService();
     private GrpcAgentSink sink;
     private TestAgentContext context;
+    private String serverName;
 
     @BeforeEach
     public void setUp() throws Exception {
-        String serverName = InProcessServerBuilder.generateName();
+        serverName = InProcessServerBuilder.generateName();
         server =
                 InProcessServerBuilder.forName(serverName)
                         .directExecutor()
@@ -126,10 +131,89 @@ public class GrpcAgentSinkTest {
         assertEquals("test-string", writtenRecord.get("testField").toString());
     }
 
+    @Test
+    void testBatching() throws Exception {
+        GrpcAgentSink batchingSink =
+                new GrpcAgentSink(
+                        InProcessChannelBuilder.forName(serverName).directExecutor().build());
+        batchingSink.init(Map.of("grpc-batch-size", 3, "grpc-flush-interval", 50));
+        batchingSink.setContext(context);
+        batchingSink.start();
+        try {
+            List<CompletableFuture<?>> handles = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                handles.add(batchingSink.write(SimpleRecord.of(null, "value-" + i)));
+            }
+            CompletableFuture.allOf(handles.toArray(new CompletableFuture[0]))
+                    .get(5, TimeUnit.SECONDS);
+            assertEquals(3, testSinkService.requestSizes.poll(5, TimeUnit.SECONDS));
+
+            // a partial batch is sent after the flush interval
+            CompletableFuture<?> handle =
+                    batchingSink.write(SimpleRecord.builder().origin("failing-record").build());
+            try {
+                handle.get(5, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertEquals("test-error", e.getCause().getMessage());
+            }
+            assertEquals(1, testSinkService.requestSizes.poll(5, TimeUnit.SECONDS));
+        } finally {
+            batchingSink.close();
+        }
+    }
+
+    @Test
+    void testBatchingByBytes() throws Exception {
+        GrpcAgentSink batchingSink =
+                new GrpcAgentSink(
+                        InProcessChannelBuilder.forName(serverName).directExecutor().build());
+        batchingSink.init(
+                Map.of(
+                        "grpc-batch-size",
+                        100,
+                        "grpc-flush-interval",
+                        60_000,
+                        "grpc-batch-max-bytes",
+                        250));
+        batchingSink.setContext(context);
+        batchingSink.start();
+        try {
+            List<CompletableFuture<?>> handles = new ArrayList<>();
+            // the third record doesn't fit in the batch of the first two
+            for (int i = 0; i < 3; i++) {
+                handles.add(batchingSink.write(SimpleRecord.of(null, "x".repeat(100))));
+            }
+            assertEquals(2, testSinkService.requestSizes.poll(5, TimeUnit.SECONDS));
+            // a record bigger than the limit is sent alone
+            handles.add(batchingSink.write(SimpleRecord.of(null, "x".repeat(500))));
+            assertEquals(1, testSinkService.requestSizes.poll(5, TimeUnit.SECONDS));
+            assertEquals(1, testSinkService.requestSizes.poll(5, TimeUnit.SECONDS));
+            CompletableFuture.allOf(handles.toArray(new CompletableFuture[0]))
+                    .get(5, TimeUnit.SECONDS);
+        } finally {
+            batchingSink.close();
+        }
+    }
+
+    @Test
+    void testBatchingWithoutFlushInterval() {
+        GrpcAgentSink batchingSink =
+                new GrpcAgentSink(
+                        InProcessChannelBuilder.forName(serverName).directExecutor().build());
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> batchingSink.init(Map.of("grpc-batch-size", 3, "grpc-flush-interval", 0)));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> batchingSink.init(Map.of("grpc-batch-size", 3, "grpc-batch-max-bytes", 0)));
+    }
+
     static class TestSinkService extends AgentServiceGrpc.AgentServiceImplBase {
 
         private final Map<Integer, Schema> schemas = new ConcurrentHashMap<>();
         private final LinkedBlockingQueue<GenericRecord> avroRecords = new LinkedBlockingQueue<>();
+        private final LinkedBlockingQueue<Integer> requestSizes = new LinkedBlockingQueue<>();
 
         @Override
         public StreamObserver<SinkRequest> write(StreamObserver<SinkResponse> responseObserver) {
@@ -142,7 +226,20 @@ public class GrpcAgentSinkTest {
                                         .parse(request.getSchema().getValue().toStringUtf8());
                         schemas.put(request.getSchema().getSchemaId(), schema);
                     }
+                    if (request.getRecordsCount() > 0) {
+                        SinkResponse.Builder response = SinkResponse.newBuilder();
+                        for (ai.langstream.agents.grpc.Record record : request.getRecordsList()) {
+                            SinkResult.Builder result =
+                                    response.addResultsBuilder().setRecordId(record.getRecordId());
+                            if (record.getOrigin().equals("failing-record")) {
+                                result.setError("test-error");
+                            }
+                        }
+                        requestSizes.add(request.getRecordsCount());
+                        responseObserver.onNext(response.build());
+                    }
                     if (request.hasRecord()) {
+                        requestSizes.add(1);
                         ai.langstream.agents.grpc.Record record = request.getRecord();
                         Value value = record.getValue();
                         if (value.hasAvroValue()) {
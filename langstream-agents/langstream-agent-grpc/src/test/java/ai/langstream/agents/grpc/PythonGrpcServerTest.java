@@ -0,0 +1,78 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.agents.grpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.google.protobuf.Empty;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.netty.shaded.io.netty.channel.EventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.epoll.Epoll;
+import io.grpc.netty.shaded.io.netty.channel.epoll.EpollEventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.epoll.EpollServerDomainSocketChannel;
+import io.grpc.netty.shaded.io.netty.channel.unix.DomainSocketAddress;
+import io.grpc.stub.StreamObserver;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PythonGrpcServerTest {
+
+    @Test
+    void testDomainSocketChannel(@TempDir Path tempDir) throws Exception {
+        assumeTrue(Epoll.isAvailable());
+        Path socket = tempDir.resolve("agent.sock");
+        EventLoopGroup serverGroup = new EpollEventLoopGroup(1);
+        EventLoopGroup clientGroup = new EpollEventLoopGroup(1);
+        Server server =
+                NettyServerBuilder.forAddress(new DomainSocketAddress(socket.toString()))
+                        .channelType(EpollServerDomainSocketChannel.class)
+                        .bossEventLoopGroup(serverGroup)
+                        .workerEventLoopGroup(serverGroup)
+                        .addService(
+                                new AgentServiceGrpc.AgentServiceImplBase() {
+                                    @Override
+                                    public void agentInfo(
+                                            Empty request,
+                                            StreamObserver<InfoResponse> responseObserver) {
+                                        responseObserver.onNext(
+                                                InfoResponse.newBuilder()
+                                                        .setJsonInfo("{\"foo\":\"bar\"}")
+                                                        .build());
+                                        responseObserver.onCompleted();
+                                    }
+                                })
+                        .build()
+                        .start();
+        ManagedChannel channel = PythonGrpcServer.newDomainSocketChannel(socket, clientGroup);
+        try {
+            InfoResponse info =
+                    AgentServiceGrpc.newBlockingStub(channel)
+                            .withDeadlineAfter(30, TimeUnit.SECONDS)
+                            .agentInfo(Empty.getDefaultInstance());
+            assertEquals("{\"foo\":\"bar\"}", info.getJsonInfo());
+        } finally {
+            channel.shutdownNow().awaitTermination(10, TimeUnit.SECONDS);
+            server.shutdownNow().awaitTermination(10, TimeUnit.SECONDS);
+            clientGroup.shutdownGracefully();
+            serverGroup.shutdownGracefully();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.agents.s3;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ETags of the processed objects, stored as a snapshot file plus an append-only journal.
+ *
+ * <p>A commit only appends the objects it processed, when the journal becomes as big as the
+ * snapshot a new snapshot is written and the journal is deleted. The journal is also compacted when
+ * it is loaded, so the changes are never appended after a line left half-written by a crash.
+ */
+@Slf4j
+class ProcessedObjectsStore {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /** Minimum number of changes in the journal before compacting it. */
+    static final int MIN_CHANGES_BEFORE_COMPACTION = 1000;
+
+    /** A processed object, or a removed one if the etag is null. */
+    record Change(String name, String etag) {}
+
+    private final Path snapshotFile;
+    private final Path journalFile;
+    private final int minChangesBeforeCompaction;
+    private final Map<String, String> etags = new ConcurrentHashMap<>();
+    private long changesInJournal;
+
+    ProcessedObjectsStore(Path snapshotFile) {
+        this(snapshotFile, MIN_CHANGES_BEFORE_COMPACTION);
+    }
+
+    ProcessedObjectsStore(Path snapshotFile, int minChangesBeforeCompaction) {
+        this.snapshotFile = snapshotFile;
+        this.journalFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".journal");
+        this.minChangesBeforeCompaction = minChangesBeforeCompaction;
+    }
+
+    synchronized void load() throws IOException {
+        etags.clear();
+        if (Files.exists(snapshotFile)) {
+            etags.putAll(
+                    MAPPER.readValue(
+                            snapshotFile.toFile(), new TypeReference<Map<String, String>>() {}));
+        }
+        if (!Files.exists(journalFile)) {
+            log.info("Restored {} processed objects from {}", etags.size(), snapshotFile);
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                Change change;
+                try {
+                    change = MAPPER.readValue(line, Change.class);
+                } catch (IOException e) {
+                    // the last line may be truncated if we crashed while writing it
+                    log.warn("Cannot parse a change in {}, ignoring the rest", journalFile, e);
+                    break;
+                }
+                apply(change);
+            }
+        }
+        log.info("Restored {} processed objects from {}", etags.size(), snapshotFile);
+        compact();
+    }
+
+    String get(String name) {
+        return etags.get(name);
+    }
+
+    int size() {
+        return etags.size();
+    }
+
+    /** Records the processed objects, by name. */
+    synchronized void putAll(Map<String, String> processed) throws IOException {
+        if (processed.isEmpty()) {
+            return;
+        }
+        try (BufferedWriter writer =
+                Files.newBufferedWriter(
+                        journalFile,
+                        StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND)) {
+            for (Map.Entry<String, String> entry : processed.entrySet()) {
+                Change change = new Change(entry.getKey(), entry.getValue());
+                writer.write(MAPPER.writeValueAsString(change));
+                writer.write('\n');
+                apply(change);
+            }
+        }
+        changesInJournal += processed.size();
+        if (changesInJournal >= Math.max(minChangesBeforeCompaction, etags.size())) {
+            compact();
+        }
+    }
+
+    /** Forgets the objects that are not in the given names. */
+    synchronized void retainAll(Set<String> names) throws IOException {
+        if (etags.keySet().retainAll(names)) {
+            compact();
+        }
+    }
+
+    private void apply(Change change) {
+        if (change.etag() == null) {
+            etags.remove(change.name());
+        } else {
+            etags.put(change.name(), change.etag());
+        }
+    }
+
+    private void compact() throws IOException {
+        Path tmpFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        MAPPER.writeValue(tmpFile.toFile(), new HashMap<>(etags));
+        Files.move(
+                tmpFile,
+                snapshotFile,
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        // if we crash before deleting the journal its changes are applied again on top of the
+        // snapshot, that leads to the same ETags
+        Files.deleteIfExists(journalFile);
+        changesInJournal = 0;
+    }
+}
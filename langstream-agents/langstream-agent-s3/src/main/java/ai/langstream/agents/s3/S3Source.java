@@ -16,16 +16,19 @@
 package ai.langstream.agents.s3;
 
 import ai.langstream.api.runner.code.AbstractAgentCode;
+import ai.langstream.api.runner.code.AgentContext;
 import ai.langstream.api.runner.code.AgentSource;
+import ai.langstream.api.runner.code.BlobValue;
 import ai.langstream.api.runner.code.Header;
 import ai.langstream.api.runner.code.Record;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.minio.BucketExistsArgs;
 import io.minio.GetObjectArgs;
 import io.minio.GetObjectResponse;
 import io.minio.ListObjectsArgs;
 import io.minio.MakeBucketArgs;
 import io.minio.MinioClient;
-import io.minio.RemoveObjectArgs;
+import io.minio.RemoveObjectsArgs;
 import io.minio.Result;
 import io.minio.errors.ErrorResponseException;
 import io.minio.errors.InsufficientDataException;
@@ -33,26 +36,67 @@ import io.minio.errors.InternalException;
 import io.minio.errors.InvalidResponseException;
 import io.minio.errors.ServerException;
 import io.minio.errors.XmlParserException;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
 import io.minio.messages.Item;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import lombok.AllArgsConstructor;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class S3Source extends AbstractAgentCode implements AgentSource {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     private String bucketName;
     private MinioClient minioClient;
     private final Set<String> objectsToCommit = ConcurrentHashMap.newKeySet();
     private int idleTime;
+    private int maxConcurrentDownloads;
+    private boolean deleteObjects;
+    private long maxInMemorySize;
+    private ExecutorService downloadExecutor;
+
+    /**
+     * Current listing of the bucket. The iterator fetches the pages lazily using the continuation
+     * token, so the listing continues across calls to read() instead of being restarted each time.
+     */
+    private Iterator<Result<Item>> listing;
+
+    /** ETags of the processed objects, used when the objects are not deleted from the bucket. */
+    private ProcessedObjectsStore processedObjects;
+
+    /** Objects seen in the current listing, used to forget about the deleted objects. */
+    private final Set<String> objectsInCurrentListing = new HashSet<>();
+
+    /** Downloads that failed, they are retried before listing more objects. */
+    private final Deque<FailedDownload> failedDownloads = new ArrayDeque<>();
+
+    static final int MAX_DOWNLOAD_ATTEMPTS = 5;
+    private static final long MAX_RETRY_DELAY_MILLIS = 60_000;
+
+    private record FailedDownload(Item item, int attempts, long retryAt) {}
 
     public static final String ALL_FILES = "*";
     public static final String DEFAULT_EXTENSIONS_FILTER = "pdf,docx,html,htm,md,txt";
@@ -69,6 +113,17 @@ public class S3Source extends AbstractAgentCode implements AgentSource {
         String password = configuration.getOrDefault("secret-key", "minioadmin").toString();
         String region = configuration.getOrDefault("region", "").toString();
         idleTime = Integer.parseInt(configuration.getOrDefault("idle-time", 5).toString());
+        maxConcurrentDownloads =
+                Math.max(
+                        1,
+                        Integer.parseInt(
+                                configuration
+                                        .getOrDefault("max-concurrent-downloads", 1)
+                                        .toString()));
+        deleteObjects =
+                Boolean.parseBoolean(configuration.getOrDefault("delete-objects", true).toString());
+        maxInMemorySize =
+                Long.parseLong(configuration.getOrDefault("max-in-memory-size", -1).toString());
         extensions =
                 Set.of(
                         configuration
@@ -82,6 +137,10 @@ public class S3Source extends AbstractAgentCode implements AgentSource {
                 region,
                 username);
         log.info("Getting files with extensions {} (use '*' to no filter)", extensions);
+        log.info(
+                "Downloading up to {} objects concurrently, processed objects are {}",
+                maxConcurrentDownloads,
+                deleteObjects ? "deleted" : "tracked by ETag");
 
         MinioClient.Builder builder =
                 MinioClient.builder().endpoint(endpoint).credentials(username, password);
@@ -91,6 +150,38 @@ public class S3Source extends AbstractAgentCode implements AgentSource {
         minioClient = builder.build();
 
         makeBucketIfNotExists(bucketName);
+
+        AtomicInteger threadId = new AtomicInteger();
+        downloadExecutor =
+                Executors.newFixedThreadPool(
+                        maxConcurrentDownloads,
+                        r -> {
+                            Thread thread =
+                                    new Thread(
+                                            r, "s3-source-download-" + threadId.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+    }
+
+    @Override
+    public void setContext(AgentContext context) throws Exception {
+        super.setContext(context);
+        if (!deleteObjects) {
+            Optional<Path> localDiskPath = context.getPersistentStateDirectoryForAgent(agentId());
+            if (localDiskPath.isEmpty()) {
+                throw new IllegalArgumentException(
+                        "No local disk path available for agent "
+                                + agentId()
+                                + " and delete-objects was set to false");
+            }
+            processedObjects =
+                    new ProcessedObjectsStore(
+                            localDiskPath
+                                    .get()
+                                    .resolve(context.getGlobalAgentId() + ".s3-source.state.json"));
+            processedObjects.load();
+        }
     }
 
     private void makeBucketIfNotExists(String bucketName)
@@ -113,17 +204,95 @@ public class S3Source extends AbstractAgentCode implements AgentSource {
 
     @Override
     public List<Record> read() throws Exception {
+        Map<String, Integer> attempts = new HashMap<>();
+        List<Item> objectsToDownload = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (Iterator<FailedDownload> it = failedDownloads.iterator();
+                it.hasNext() && objectsToDownload.size() < maxConcurrentDownloads; ) {
+            FailedDownload failed = it.next();
+            if (failed.retryAt() <= now) {
+                it.remove();
+                objectsToDownload.add(failed.item());
+                attempts.put(failed.item().objectName(), failed.attempts());
+            }
+        }
+        objectsToDownload.addAll(findNewObjects(maxConcurrentDownloads - objectsToDownload.size()));
+        if (objectsToDownload.isEmpty()) {
+            log.info("Nothing found, sleeping for {} seconds", idleTime);
+            Thread.sleep(idleTime * 1000L);
+            return List.of();
+        }
+
+        List<Future<S3SourceRecord>> downloads = new ArrayList<>();
+        for (Item item : objectsToDownload) {
+            downloads.add(downloadExecutor.submit(() -> download(item)));
+        }
         List<Record> records = new ArrayList<>();
-        Iterable<Result<Item>> results;
-        try {
-            results = minioClient.listObjects(ListObjectsArgs.builder().bucket(bucketName).build());
-        } catch (Exception e) {
-            log.error("Error listing objects on bucket {}", bucketName, e);
-            throw e;
+        for (int i = 0; i < downloads.size(); i++) {
+            try {
+                S3SourceRecord record = downloads.get(i).get();
+                if (record != null) {
+                    records.add(record);
+                }
+            } catch (ExecutionException e) {
+                Item item = objectsToDownload.get(i);
+                downloadFailed(item, attempts.getOrDefault(item.objectName(), 0) + 1);
+            }
+        }
+        processed(0, records.size());
+        return records;
+    }
+
+    /**
+     * Retries the download with an exponential backoff. After {@link #MAX_DOWNLOAD_ATTEMPTS} the
+     * object is left to the next listing of the bucket.
+     */
+    private void downloadFailed(Item item, int attempts) {
+        String name = item.objectName();
+        if (attempts >= MAX_DOWNLOAD_ATTEMPTS) {
+            log.error(
+                    "Cannot download object {} after {} attempts, it will be read again by the next listing",
+                    name,
+                    attempts);
+            objectsToCommit.remove(name);
+            return;
         }
-        boolean somethingFound = false;
-        for (Result<Item> object : results) {
-            Item item = object.get();
+        long delay = Math.min(MAX_RETRY_DELAY_MILLIS, 1000L << (attempts - 1));
+        log.info("Retrying the download of object {} in {} ms", name, delay);
+        failedDownloads.add(new FailedDownload(item, attempts, System.currentTimeMillis() + delay));
+    }
+
+    /**
+     * Continue the listing of the bucket until enough new objects are found. When the listing is
+     * over a new one is started, but the bucket is never listed more than once in the same call.
+     */
+    private List<Item> findNewObjects(int max) throws Exception {
+        List<Item> result = new ArrayList<>();
+        boolean listingStarted = false;
+        while (result.size() < max) {
+            if (listing == null) {
+                if (listingStarted) {
+                    break;
+                }
+                listing =
+                        minioClient
+                                .listObjects(ListObjectsArgs.builder().bucket(bucketName).build())
+                                .iterator();
+                listingStarted = true;
+            }
+            Item item;
+            try {
+                if (!listing.hasNext()) {
+                    listingCompleted();
+                    continue;
+                }
+                item = listing.next().get();
+            } catch (Exception e) {
+                log.error("Error listing objects on bucket {}", bucketName, e);
+                listing = null;
+                objectsInCurrentListing.clear();
+                throw e;
+            }
             String name = item.objectName();
             if (item.isDir()) {
                 log.debug("Skipping directory {}", name);
@@ -134,35 +303,56 @@ public class S3Source extends AbstractAgentCode implements AgentSource {
                 log.debug("Skipping file with bad extension {}", name);
                 continue;
             }
-            if (!objectsToCommit.contains(name)) {
-                log.info("Found new object {}, size {} KB", item.objectName(), item.size() / 1024);
-                try {
-                    GetObjectResponse objectResponse =
-                            minioClient.getObject(
-                                    GetObjectArgs.builder()
-                                            .bucket(bucketName)
-                                            .object(name)
-                                            .build());
-                    objectsToCommit.add(name);
-                    byte[] read = objectResponse.readAllBytes();
-                    records.add(new S3SourceRecord(read, name));
-                    somethingFound = true;
-                } catch (Exception e) {
-                    log.error("Error reading object {}", name, e);
-                    throw e;
+            if (!deleteObjects) {
+                objectsInCurrentListing.add(name);
+                if (item.etag().equals(processedObjects.get(name))) {
+                    log.debug("Skipping unchanged object {}", name);
+                    continue;
                 }
-                break;
+            }
+            if (objectsToCommit.add(name)) {
+                log.info("Found new object {}, size {} KB", name, item.size() / 1024);
+                result.add(item);
             } else {
                 log.info("Skipping already processed object {}", name);
             }
         }
-        if (!somethingFound) {
-            log.info("Nothing found, sleeping for {} seconds", idleTime);
-            Thread.sleep(idleTime * 1000L);
-        } else {
-            processed(0, 1);
+        return result;
+    }
+
+    private void listingCompleted() throws IOException {
+        listing = null;
+        if (!deleteObjects) {
+            // forget about the objects that have been removed from the bucket
+            processedObjects.retainAll(objectsInCurrentListing);
+            objectsInCurrentListing.clear();
+        }
+    }
+
+    private S3SourceRecord download(Item item) throws Exception {
+        String name = item.objectName();
+        if (maxInMemorySize >= 0 && item.size() > maxInMemorySize) {
+            log.info("Object {} is too big to be loaded in memory, streaming it", name);
+            return new S3SourceRecord(
+                    new S3ObjectValue(name, item.etag(), item.size()), name, item.etag());
+        }
+        try (GetObjectResponse objectResponse =
+                minioClient.getObject(
+                        GetObjectArgs.builder().bucket(bucketName).object(name).build())) {
+            byte[] read = objectResponse.readAllBytes();
+            return new S3SourceRecord(read, name, item.etag());
+        } catch (ErrorResponseException e) {
+            if ("NoSuchKey".equals(e.errorResponse().code())) {
+                log.info("Object {} has been removed in the meantime, skipping", name);
+                objectsToCommit.remove(name);
+                return null;
+            }
+            log.error("Error reading object {}", name, e);
+            throw e;
+        } catch (Exception e) {
+            log.error("Error reading object {}", name, e);
+            throw e;
         }
-        return records;
     }
 
     static boolean isExtensionAllowed(String name, Set<String> extensions) {
@@ -186,23 +376,97 @@ public class S3Source extends AbstractAgentCode implements AgentSource {
 
     @Override
     public void commit(List<Record> records) throws Exception {
+        if (records.isEmpty()) {
+            return;
+        }
+        if (!deleteObjects) {
+            Map<String, String> processed = new HashMap<>();
+            for (Record record : records) {
+                S3SourceRecord s3SourceRecord = (S3SourceRecord) record;
+                processed.put(s3SourceRecord.name, s3SourceRecord.etag);
+            }
+            processedObjects.putAll(processed);
+            objectsToCommit.removeAll(processed.keySet());
+            return;
+        }
+
+        List<DeleteObject> objects = new ArrayList<>();
         for (Record record : records) {
             S3SourceRecord s3SourceRecord = (S3SourceRecord) record;
-            String objectName = s3SourceRecord.name;
-            log.info("Removing object {}", objectName);
-            minioClient.removeObject(
-                    RemoveObjectArgs.builder().bucket(bucketName).object(objectName).build());
-            objectsToCommit.remove(objectName);
+            log.info("Removing object {}", s3SourceRecord.name);
+            objects.add(new DeleteObject(s3SourceRecord.name));
+        }
+        // the objects are removed in batches, the results must be consumed to send the requests
+        Iterable<Result<DeleteError>> results =
+                minioClient.removeObjects(
+                        RemoveObjectsArgs.builder().bucket(bucketName).objects(objects).build());
+        Set<String> notRemoved = new HashSet<>();
+        for (Result<DeleteError> result : results) {
+            DeleteError error = result.get();
+            log.error("Error removing object {}: {}", error.objectName(), error.message());
+            notRemoved.add(error.objectName());
+        }
+        for (Record record : records) {
+            String objectName = ((S3SourceRecord) record).name;
+            if (!notRemoved.contains(objectName)) {
+                objectsToCommit.remove(objectName);
+            }
+        }
+        if (!notRemoved.isEmpty()) {
+            throw new IOException("Cannot remove objects " + notRemoved + " from " + bucketName);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        super.close();
+        if (downloadExecutor != null) {
+            downloadExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Content of an object that is read from the bucket only when an agent consumes it. The ETag
+     * ensures that all the reads see the same version of the object.
+     */
+    @AllArgsConstructor
+    @ToString(of = {"name", "size"})
+    private class S3ObjectValue implements BlobValue {
+        private final String name;
+        private final String etag;
+        private final long size;
+
+        @Override
+        public InputStream openStream() throws IOException {
+            try {
+                return minioClient.getObject(
+                        GetObjectArgs.builder()
+                                .bucket(bucketName)
+                                .object(name)
+                                .matchETag(etag)
+                                .build());
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Cannot read object " + name + " from " + bucketName, e);
+            }
+        }
+
+        @Override
+        public long size() {
+            return size;
         }
     }
 
     private static class S3SourceRecord implements Record {
-        private final byte[] read;
+        private final Object read;
         private final String name;
+        private final String etag;
 
-        public S3SourceRecord(byte[] read, String name) {
+        public S3SourceRecord(Object read, String name, String etag) {
             this.read = read;
             this.name = name;
+            this.etag = etag;
         }
 
         /**
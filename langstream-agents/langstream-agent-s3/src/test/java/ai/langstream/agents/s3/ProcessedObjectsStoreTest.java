@@ -0,0 +1,97 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.agents.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ProcessedObjectsStoreTest {
+
+    @TempDir Path tempDir;
+
+    @Test
+    void testCommitsAreAppendedToTheJournal() throws Exception {
+        Path snapshot = tempDir.resolve("state.json");
+        Path journal = tempDir.resolve("state.json.journal");
+        ProcessedObjectsStore store = new ProcessedObjectsStore(snapshot, 10);
+        store.load();
+
+        store.putAll(Map.of("a", "etag-a"));
+        store.putAll(Map.of("b", "etag-b"));
+        assertFalse(Files.exists(snapshot));
+        assertEquals(2, Files.readAllLines(journal).size());
+
+        ProcessedObjectsStore restored = new ProcessedObjectsStore(snapshot, 10);
+        restored.load();
+        assertEquals("etag-a", restored.get("a"));
+        assertEquals("etag-b", restored.get("b"));
+        // the journal is compacted when it is loaded
+        assertTrue(Files.exists(snapshot));
+        assertFalse(Files.exists(journal));
+    }
+
+    @Test
+    void testJournalIsCompacted() throws Exception {
+        Path snapshot = tempDir.resolve("state.json");
+        Path journal = tempDir.resolve("state.json.journal");
+        ProcessedObjectsStore store = new ProcessedObjectsStore(snapshot, 3);
+        store.load();
+
+        store.putAll(Map.of("a", "etag-a", "b", "etag-b"));
+        assertTrue(Files.exists(journal));
+        store.putAll(Map.of("c", "etag-c"));
+        assertFalse(Files.exists(journal));
+        assertTrue(Files.exists(snapshot));
+
+        store.retainAll(Set.of("a", "c"));
+        ProcessedObjectsStore restored = new ProcessedObjectsStore(snapshot, 3);
+        restored.load();
+        assertEquals(2, restored.size());
+        assertNull(restored.get("b"));
+    }
+
+    @Test
+    void testHalfWrittenChangeIsIgnored() throws Exception {
+        Path snapshot = tempDir.resolve("state.json");
+        Path journal = tempDir.resolve("state.json.journal");
+        ProcessedObjectsStore store = new ProcessedObjectsStore(snapshot, 10);
+        store.load();
+        store.putAll(Map.of("a", "etag-a"));
+        Files.writeString(
+                journal, "{\"name\":\"b\",\"et", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        ProcessedObjectsStore restored = new ProcessedObjectsStore(snapshot, 10);
+        restored.load();
+        assertEquals(1, restored.size());
+        assertEquals("etag-a", restored.get("a"));
+
+        restored.putAll(Map.of("b", "etag-b"));
+        ProcessedObjectsStore again = new ProcessedObjectsStore(snapshot, 10);
+        again.load();
+        assertEquals("etag-b", again.get("b"));
+    }
+}
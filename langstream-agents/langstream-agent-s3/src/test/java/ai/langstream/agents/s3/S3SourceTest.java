@@ -19,6 +19,7 @@ import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.testcontainers.containers.localstack.LocalStackContainer.Service.S3;
@@ -36,15 +37,18 @@ import io.minio.Result;
 import io.minio.messages.Item;
 import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.testcontainers.containers.localstack.LocalStackContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
@@ -171,16 +175,101 @@ public class S3SourceTest {
         agentSource.commit(read);
     }
 
+    @Test
+    void testConcurrentDownloads() throws Exception {
+        String bucket = "langstream-test-" + UUID.randomUUID();
+        AgentSource agentSource =
+                buildAgentSource(bucket, Map.of("max-concurrent-downloads", 4), null);
+        for (int i = 0; i < 10; i++) {
+            putObject(bucket, "test-" + i + ".txt", "test-content-" + i);
+        }
+
+        List<Record> read = agentSource.read();
+        assertEquals(4, read.size());
+        for (int i = 0; i < 4; i++) {
+            assertArrayEquals(
+                    ("test-content-" + i).getBytes(StandardCharsets.UTF_8),
+                    (byte[]) read.get(i).value());
+        }
+        agentSource.commit(read);
+
+        List<Record> all = new ArrayList<>();
+        all.addAll(agentSource.read());
+        all.addAll(agentSource.read());
+        assertEquals(6, all.size());
+        agentSource.commit(all);
+
+        assertFalse(
+                minioClient
+                        .listObjects(ListObjectsArgs.builder().bucket(bucket).build())
+                        .iterator()
+                        .hasNext());
+    }
+
+    @Test
+    void testTrackObjectsByETag(@TempDir Path tempDir) throws Exception {
+        String bucket = "langstream-test-" + UUID.randomUUID();
+        Map<String, Object> configs = Map.of("delete-objects", false, "idle-time", 0);
+        AgentSource agentSource = buildAgentSource(bucket, configs, tempDir);
+        putObject(bucket, "test-0.txt", "test-content-0");
+        putObject(bucket, "test-1.txt", "test-content-1");
+
+        List<Record> all = new ArrayList<>();
+        all.addAll(agentSource.read());
+        all.addAll(agentSource.read());
+        assertEquals(2, all.size());
+        agentSource.commit(all);
+        assertTrue(agentSource.read().isEmpty());
+
+        // the objects are still there
+        Iterator<Result<Item>> results =
+                minioClient
+                        .listObjects(ListObjectsArgs.builder().bucket(bucket).build())
+                        .iterator();
+        assertEquals("test-0.txt", results.next().get().objectName());
+        assertEquals("test-1.txt", results.next().get().objectName());
+
+        // only the modified object is read again, also after a restart
+        putObject(bucket, "test-1.txt", "test-content-1-modified");
+        agentSource.close();
+        agentSource = buildAgentSource(bucket, configs, tempDir);
+        List<Record> read = agentSource.read();
+        assertEquals(1, read.size());
+        assertArrayEquals(
+                "test-content-1-modified".getBytes(StandardCharsets.UTF_8),
+                (byte[]) read.get(0).value());
+        agentSource.commit(read);
+        assertTrue(agentSource.read().isEmpty());
+    }
+
+    private static void putObject(String bucket, String name, String content) throws Exception {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        minioClient.putObject(
+                PutObjectArgs.builder().bucket(bucket).object(name).stream(
+                                new ByteArrayInputStream(bytes), bytes.length, -1)
+                        .build());
+    }
+
     private AgentSource buildAgentSource(String bucket) throws Exception {
+        return buildAgentSource(bucket, Map.of(), null);
+    }
+
+    private AgentSource buildAgentSource(
+            String bucket, Map<String, Object> additionalConfigs, Path stateDirectory)
+            throws Exception {
         AgentSource agentSource =
                 (AgentSource) AGENT_CODE_REGISTRY.getAgentCode("s3-source").agentCode();
         Map<String, Object> configs = new HashMap<>();
         String endpoint = localstack.getEndpointOverride(S3).toString();
         configs.put("endpoint", endpoint);
         configs.put("bucketName", bucket);
+        configs.putAll(additionalConfigs);
         agentSource.init(configs);
         AgentContext context = mock(AgentContext.class);
         when(context.getMetricsReporter()).thenReturn(MetricsReporter.DISABLED);
+        when(context.getGlobalAgentId()).thenReturn("s3-source");
+        when(context.getPersistentStateDirectoryForAgent(any()))
+                .thenReturn(Optional.ofNullable(stateDirectory));
         agentSource.setContext(context);
         agentSource.start();
         return agentSource;
@@ -22,9 +22,11 @@ import static ai.langstream.api.util.ConfigurationUtils.getSet;
 import static ai.langstream.api.util.ConfigurationUtils.getString;
 
 import ai.langstream.agents.webcrawler.crawler.Document;
+import ai.langstream.agents.webcrawler.crawler.JournalStatusStorage;
 import ai.langstream.agents.webcrawler.crawler.StatusStorage;
 import ai.langstream.agents.webcrawler.crawler.WebCrawler;
 import ai.langstream.agents.webcrawler.crawler.WebCrawlerConfiguration;
+import ai.langstream.agents.webcrawler.crawler.WebCrawlerFetcherPool;
 import ai.langstream.agents.webcrawler.crawler.WebCrawlerStatus;
 import ai.langstream.api.runner.code.AbstractAgentCode;
 import ai.langstream.api.runner.code.AgentContext;
@@ -41,9 +43,9 @@ import io.minio.MinioClient;
 import io.minio.errors.ErrorResponseException;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -72,17 +74,20 @@ public class WebCrawlerSource extends AbstractAgentCode implements AgentSource {
     private Map<String, Object> agentConfiguration;
     private MinioClient minioClient;
     private int reindexIntervalSeconds;
+    private boolean emitTombstones;
 
     @Getter private String statusFileName;
     Optional<Path> localDiskPath;
 
     private WebCrawler crawler;
 
+    private WebCrawlerFetcherPool fetcherPool;
+
     private boolean finished;
 
     private final AtomicInteger flushNext = new AtomicInteger(100);
 
-    private final BlockingQueue<Document> foundDocuments = new LinkedBlockingQueue<>();
+    private BlockingQueue<Document> foundDocuments;
 
     private StatusStorage statusStorage;
 
@@ -118,6 +123,12 @@ public class WebCrawlerSource extends AbstractAgentCode implements AgentSource {
         boolean allowNonHtmlContents = getBoolean("allow-non-html-contents", false, configuration);
 
         boolean handleCookies = getBoolean("handle-cookies", true, configuration);
+        int maxConcurrentRequests = getInt("max-concurrent-requests", 1, configuration);
+        int maxConcurrentRequestsPerHost =
+                getInt("max-concurrent-requests-per-host", 1, configuration);
+        int maxBufferedDocuments = getInt("max-buffered-documents", 100, configuration);
+        boolean skipUnchangedPages = getBoolean("skip-unchanged-pages", false, configuration);
+        emitTombstones = getBoolean("emit-tombstones", false, configuration);
 
         log.info("allowed-domains: {}", allowedDomains);
         log.info("forbidden-paths: {}", forbiddenPaths);
@@ -131,6 +142,11 @@ public class WebCrawlerSource extends AbstractAgentCode implements AgentSource {
         log.info("max-unflushed-pages: {}", maxUnflushedPages);
         log.info("min-time-between-requests: {}", minTimeBetweenRequests);
         log.info("reindex-interval-seconds: {}", reindexIntervalSeconds);
+        log.info("max-concurrent-requests: {}", maxConcurrentRequests);
+        log.info("max-concurrent-requests-per-host: {}", maxConcurrentRequestsPerHost);
+        log.info("max-buffered-documents: {}", maxBufferedDocuments);
+        log.info("skip-unchanged-pages: {}", skipUnchangedPages);
+        log.info("emit-tombstones: {}", emitTombstones);
 
         WebCrawlerConfiguration webCrawlerConfiguration =
                 WebCrawlerConfiguration.builder()
@@ -145,12 +161,24 @@ public class WebCrawlerSource extends AbstractAgentCode implements AgentSource {
                         .handleCookies(handleCookies)
                         .httpTimeout(httpTimeout)
                         .maxErrorCount(maxErrorCount)
+                        .maxConcurrentRequests(maxConcurrentRequests)
+                        .maxConcurrentRequestsPerHost(maxConcurrentRequestsPerHost)
+                        .skipUnchangedPages(skipUnchangedPages)
+                        .emitTombstones(emitTombstones)
                         .build();
 
+        // the fetchers block when the queue is full, until the Source catches up
+        foundDocuments = new LinkedBlockingQueue<>(Math.max(1, maxBufferedDocuments));
+
         WebCrawlerStatus status = new WebCrawlerStatus();
         // this can be overwritten when the status is reloaded
         status.setLastIndexStartTimestamp(System.currentTimeMillis());
-        crawler = new WebCrawler(webCrawlerConfiguration, status, foundDocuments::add);
+        crawler = new WebCrawler(webCrawlerConfiguration, status, this::documentFound);
+    }
+
+    @SneakyThrows
+    private void documentFound(Document document) {
+        foundDocuments.put(document);
     }
 
     @Override
@@ -171,7 +199,7 @@ public class WebCrawlerSource extends AbstractAgentCode implements AgentSource {
             }
             log.info("Using local disk storage");
 
-            statusStorage = new LocalDiskStatusStorage();
+            statusStorage = new JournalStatusStorage(localDiskPath.get().resolve(statusFileName));
         } else {
             log.info("Using S3 storage");
             bucketName = getString("bucketName", "langstream-source", agentConfiguration);
@@ -229,6 +257,18 @@ public class WebCrawlerSource extends AbstractAgentCode implements AgentSource {
         for (String url : seedUrls) {
             crawler.crawl(url);
         }
+
+        if (crawler.getConfiguration().isUseFetcherPool()) {
+            fetcherPool = new WebCrawlerFetcherPool(crawler);
+            fetcherPool.start();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (fetcherPool != null) {
+            fetcherPool.close();
+        }
     }
 
     @Override
@@ -237,22 +277,16 @@ public class WebCrawlerSource extends AbstractAgentCode implements AgentSource {
             checkReindexIsNeeded();
             return sleepForNoResults();
         }
+        if (fetcherPool != null) {
+            return readFromFetcherPool();
+        }
         if (foundDocuments.isEmpty()) {
             boolean somethingDone = crawler.runCycle();
             if (!somethingDone) {
-                finished = true;
-                log.info("No more documents found.");
-                crawler.getStatus().setLastIndexEndTimestamp(System.currentTimeMillis());
-                if (reindexIntervalSeconds > 0) {
-                    Instant next =
-                            Instant.ofEpochMilli(crawler.getStatus().getLastIndexEndTimestamp())
-                                    .plusSeconds(reindexIntervalSeconds);
-                    log.info(
-                            "Next re-index will happen in {} seconds, at {}",
-                            reindexIntervalSeconds,
-                            next);
+                List<Record> tombstones = indexingFinished();
+                if (!tombstones.isEmpty()) {
+                    return tombstones;
                 }
-                flushStatus();
             } else {
                 // we did something but no new documents were found (for instance a redirection has
                 // been processed)
@@ -274,6 +308,62 @@ public class WebCrawlerSource extends AbstractAgentCode implements AgentSource {
                         document.content(), document.url(), document.contentType()));
     }
 
+    private List<Record> readFromFetcherPool() throws Exception {
+        fetcherPool.throwIfFailed();
+        // check if the pool is idle before looking at the queue, because
+        // the fetchers add the documents to the queue before becoming idle
+        boolean idle = fetcherPool.isIdle();
+        List<Document> documents = new ArrayList<>();
+        foundDocuments.drainTo(documents);
+        if (documents.isEmpty()) {
+            if (idle) {
+                List<Record> tombstones = indexingFinished();
+                if (!tombstones.isEmpty()) {
+                    return tombstones;
+                }
+            }
+            return sleepForNoResults();
+        }
+        processed(0, documents.size());
+        List<Record> records = new ArrayList<>(documents.size());
+        for (Document document : documents) {
+            records.add(
+                    new WebCrawlerSourceRecord(
+                            document.content(), document.url(), document.contentType()));
+        }
+        return records;
+    }
+
+    private List<Record> indexingFinished() {
+        finished = true;
+        log.info("No more documents found.");
+        crawler.getStatus().setLastIndexEndTimestamp(System.currentTimeMillis());
+        if (reindexIntervalSeconds > 0) {
+            Instant next =
+                    Instant.ofEpochMilli(crawler.getStatus().getLastIndexEndTimestamp())
+                            .plusSeconds(reindexIntervalSeconds);
+            log.info(
+                    "Next re-index will happen in {} seconds, at {}", reindexIntervalSeconds, next);
+        }
+        flushStatus();
+
+        if (!emitTombstones) {
+            return List.of();
+        }
+        // the signatures are removed on commit, so in case of failure the tombstones are emitted
+        // again after the restart
+        List<String> deletedPages = crawler.getStatus().getDeletedPages();
+        if (!deletedPages.isEmpty()) {
+            log.info("Emitting tombstones for {} deleted pages", deletedPages.size());
+            processed(0, deletedPages.size());
+        }
+        List<Record> tombstones = new ArrayList<>(deletedPages.size());
+        for (String url : deletedPages) {
+            tombstones.add(new WebCrawlerSourceRecord(null, url, null));
+        }
+        return tombstones;
+    }
+
     private void checkReindexIsNeeded() {
         if (reindexIntervalSeconds <= 0) {
             return;
@@ -326,7 +416,11 @@ public class WebCrawlerSource extends AbstractAgentCode implements AgentSource {
         for (Record record : records) {
             WebCrawlerSourceRecord webCrawlerSourceRecord = (WebCrawlerSourceRecord) record;
             String objectName = webCrawlerSourceRecord.url;
-            crawler.getStatus().urlProcessed(objectName);
+            if (webCrawlerSourceRecord.read == null) {
+                crawler.getStatus().removePageSignature(objectName);
+            } else {
+                crawler.getStatus().urlProcessed(objectName);
+            }
 
             if (flushNext.decrementAndGet() == 0) {
                 flushStatus();
@@ -374,6 +468,10 @@ public class WebCrawlerSource extends AbstractAgentCode implements AgentSource {
 
         @Override
         public Collection<Header> headers() {
+            if (read == null) {
+                // tombstone for a deleted page
+                return List.of(new SimpleRecord.SimpleHeader("url", url));
+            }
             return List.of(
                     new SimpleRecord.SimpleHeader("url", url),
                     new SimpleRecord.SimpleHeader("content_type", contentType));
@@ -420,42 +518,10 @@ public class WebCrawlerSource extends AbstractAgentCode implements AgentSource {
                 }
             } catch (ErrorResponseException e) {
                 if (e.errorResponse().code().equals("NoSuchKey")) {
-                    return new Status(List.of(), List.of(), null, null, Map.of());
+                    return new Status(List.of(), List.of(), null, null, Map.of(), Map.of());
                 }
                 throw e;
             }
         }
     }
-
-    private class LocalDiskStatusStorage implements StatusStorage {
-        private static final ObjectMapper MAPPER = new ObjectMapper();
-
-        @Override
-        public void storeStatus(Status status) throws Exception {
-            final Path fullPath = computeFullPath();
-            log.info("Storing status to the disk at path {}", fullPath);
-            MAPPER.writeValue(fullPath.toFile(), status);
-        }
-
-        private Path computeFullPath() {
-            final Path fullPath = localDiskPath.get().resolve(statusFileName);
-            return fullPath;
-        }
-
-        @Override
-        public Status getCurrentStatus() throws Exception {
-            final Path fullPath = computeFullPath();
-            if (Files.exists(fullPath)) {
-                log.info("Restoring status from {}", fullPath);
-                try {
-                    return MAPPER.readValue(fullPath.toFile(), Status.class);
-                } catch (IOException e) {
-                    log.error("Error parsing status file", e);
-                    return null;
-                }
-            } else {
-                return null;
-            }
-        }
-    }
 }
@@ -0,0 +1,41 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.agents.webcrawler.crawler;
+
+import java.util.List;
+
+/**
+ * A {@link StatusStorage} that is able to persist only the changes that happened since the last
+ * checkpoint. From time to time the storage asks for a full snapshot, that is passed to {@link
+ * #storeStatus(Status)}, in order to compact the changes.
+ */
+public interface IncrementalStatusStorage extends StatusStorage {
+
+    /**
+     * Append the changes to the storage.
+     *
+     * @param changes the changes, in the order they happened
+     * @throws Exception if an error occurs
+     */
+    void storeChanges(List<StatusChange> changes) throws Exception;
+
+    /**
+     * Check if the storage wants a full snapshot of the status.
+     *
+     * @return true if the next checkpoint should call {@link #storeStatus(Status)}
+     */
+    boolean isCompactionNeeded();
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.agents.webcrawler.crawler;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Stores the status on the local disk as a snapshot file plus an append-only journal of the
+ * changes. A checkpoint only appends the changes that happened since the previous checkpoint, when
+ * the journal becomes as big as the snapshot a new snapshot is written and the journal is
+ * truncated.
+ *
+ * <p>The snapshot has the same format of the status file written by the previous versions, so an
+ * existing status file is reloaded as it is.
+ *
+ * <p>A crash may leave the last line of the journal half-written: the journal is truncated after
+ * the last complete change when it is replayed, so that the following changes are not appended to
+ * the broken line. If the snapshot cannot be parsed it is renamed with the ".corrupted" suffix and
+ * the journal is deleted, because its changes cannot be applied without the snapshot: the crawler
+ * starts again from an empty status.
+ */
+@Slf4j
+public class JournalStatusStorage implements IncrementalStatusStorage {
+
+    private static final ObjectMapper MAPPER =
+            new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    /** Minimum number of changes in the journal before compacting it. */
+    static final int MIN_CHANGES_BEFORE_COMPACTION = 10_000;
+
+    private final Path snapshotFile;
+    private final Path journalFile;
+    private final int minChangesBeforeCompaction;
+
+    private long changesInJournal;
+    private long urlsInSnapshot;
+
+    public JournalStatusStorage(Path snapshotFile) {
+        this(snapshotFile, MIN_CHANGES_BEFORE_COMPACTION);
+    }
+
+    JournalStatusStorage(Path snapshotFile, int minChangesBeforeCompaction) {
+        this.snapshotFile = snapshotFile;
+        this.journalFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".journal");
+        this.minChangesBeforeCompaction = minChangesBeforeCompaction;
+    }
+
+    @Override
+    public void storeStatus(Status status) throws Exception {
+        log.info("Writing status snapshot to {}", snapshotFile);
+        Path tmpFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        MAPPER.writeValue(tmpFile.toFile(), status);
+        Files.move(
+                tmpFile,
+                snapshotFile,
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        // if we crash before deleting the journal the changes are applied again on top of the
+        // snapshot, this is not a problem because applying them twice leads to the same status
+        Files.deleteIfExists(journalFile);
+        changesInJournal = 0;
+        urlsInSnapshot = status.urls() != null ? status.urls().size() : 0;
+    }
+
+    @Override
+    public void storeChanges(List<StatusChange> changes) throws Exception {
+        if (changes.isEmpty()) {
+            return;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Appending {} changes to {}", changes.size(), journalFile);
+        }
+        try (BufferedWriter writer =
+                Files.newBufferedWriter(
+                        journalFile,
+                        StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND)) {
+            for (StatusChange change : changes) {
+                writer.write(MAPPER.writeValueAsString(change));
+                writer.write('\n');
+            }
+        }
+        changesInJournal += changes.size();
+    }
+
+    @Override
+    public boolean isCompactionNeeded() {
+        return changesInJournal >= Math.max(minChangesBeforeCompaction, urlsInSnapshot);
+    }
+
+    @Override
+    public Status getCurrentStatus() throws Exception {
+        boolean hasSnapshot = Files.exists(snapshotFile);
+        boolean hasJournal = Files.exists(journalFile);
+        if (!hasSnapshot && !hasJournal) {
+            return null;
+        }
+
+        Set<String> remainingUrls = new LinkedHashSet<>();
+        Map<String, StoreUrlReference> urls = new LinkedHashMap<>();
+        Map<String, RobotsFile> robotsFiles = new HashMap<>();
+        Map<String, PageSignature> pageSignatures = new HashMap<>();
+        Long lastIndexEndTimestamp = null;
+        Long lastIndexStartTimestamp = null;
+
+        if (hasSnapshot) {
+            log.info("Restoring status from {}", snapshotFile);
+            Status snapshot;
+            try {
+                snapshot = MAPPER.readValue(snapshotFile.toFile(), Status.class);
+            } catch (IOException e) {
+                Path corrupted =
+                        snapshotFile.resolveSibling(snapshotFile.getFileName() + ".corrupted");
+                log.error(
+                        "Error parsing status file {}, moving it to {} and starting from an empty status",
+                        snapshotFile,
+                        corrupted,
+                        e);
+                Files.move(snapshotFile, corrupted, StandardCopyOption.REPLACE_EXISTING);
+                Files.deleteIfExists(journalFile);
+                urlsInSnapshot = 0;
+                changesInJournal = 0;
+                return null;
+            }
+            if (snapshot.remainingUrls() != null) {
+                remainingUrls.addAll(snapshot.remainingUrls());
+            }
+            if (snapshot.urls() != null) {
+                snapshot.urls().forEach(u -> urls.put(u.url(), u));
+            }
+            if (snapshot.robotFiles() != null) {
+                robotsFiles.putAll(snapshot.robotFiles());
+            }
+            if (snapshot.pageSignatures() != null) {
+                pageSignatures.putAll(snapshot.pageSignatures());
+            }
+            lastIndexEndTimestamp = snapshot.lastIndexEndTimestamp();
+            lastIndexStartTimestamp = snapshot.lastIndexStartTimestamp();
+        }
+        urlsInSnapshot = urls.size();
+        changesInJournal = 0;
+
+        if (hasJournal) {
+            log.info("Replaying changes from {}", journalFile);
+            byte[] journal = Files.readAllBytes(journalFile);
+            int validLength = 0;
+            int lineStart = 0;
+            while (lineStart < journal.length) {
+                int lineEnd = lineStart;
+                while (lineEnd < journal.length && journal[lineEnd] != '\n') {
+                    lineEnd++;
+                }
+                if (lineEnd == journal.length) {
+                    // the last line is not terminated, we crashed while writing it
+                    log.warn("Ignoring the incomplete last change in {}", journalFile);
+                    break;
+                }
+                String line =
+                        new String(journal, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8);
+                if (!line.isBlank()) {
+                    StatusChange change;
+                    try {
+                        change = MAPPER.readValue(line, StatusChange.class);
+                    } catch (IOException e) {
+                        log.warn("Cannot parse a change in {}, ignoring the rest", journalFile, e);
+                        break;
+                    }
+                    changesInJournal++;
+                    applyChange(change, remainingUrls, urls, robotsFiles, pageSignatures);
+                    if (change.change() == StatusChange.ChangeType.TIMESTAMPS) {
+                        lastIndexEndTimestamp = change.lastIndexEndTimestamp();
+                        lastIndexStartTimestamp = change.lastIndexStartTimestamp();
+                    }
+                }
+                lineStart = lineEnd + 1;
+                validLength = lineStart;
+            }
+            if (validLength < journal.length) {
+                // the next changes must not be appended to the broken line
+                log.info(
+                        "Truncating {} from {} to {} bytes",
+                        journalFile,
+                        journal.length,
+                        validLength);
+                try (FileChannel channel =
+                        FileChannel.open(journalFile, StandardOpenOption.WRITE)) {
+                    channel.truncate(validLength);
+                    channel.force(true);
+                }
+            }
+            log.info("Replayed {} changes", changesInJournal);
+        }
+
+        return new Status(
+                new ArrayList<>(remainingUrls),
+                new ArrayList<>(urls.values()),
+                lastIndexEndTimestamp,
+                lastIndexStartTimestamp,
+                robotsFiles,
+                pageSignatures);
+    }
+
+    private static void applyChange(
+            StatusChange change,
+            Set<String> remainingUrls,
+            Map<String, StoreUrlReference> urls,
+            Map<String, RobotsFile> robotsFiles,
+            Map<String, PageSignature> pageSignatures) {
+        switch (change.change()) {
+            case URL_ADDED -> {
+                boolean wasThere = urls.containsKey(change.url());
+                urls.put(
+                        change.url(),
+                        new StoreUrlReference(change.url(), change.type(), change.depth()));
+                if (Boolean.TRUE.equals(change.toScan()) && !wasThere) {
+                    remainingUrls.add(change.url());
+                }
+            }
+            case URL_PROCESSED -> remainingUrls.remove(change.url());
+            case URL_REMOVED -> urls.remove(change.url());
+            case ROBOTS_FILE_STORED -> robotsFiles.put(change.url(), change.robotsFile());
+            case PAGE_SIGNATURE_STORED -> pageSignatures.put(change.url(), change.pageSignature());
+            case PAGE_SIGNATURE_REMOVED -> pageSignatures.remove(change.url());
+            case RESET -> {
+                remainingUrls.clear();
+                urls.clear();
+                robotsFiles.clear();
+            }
+            case TIMESTAMPS -> {
+                // handled by the caller
+            }
+        }
+    }
+}
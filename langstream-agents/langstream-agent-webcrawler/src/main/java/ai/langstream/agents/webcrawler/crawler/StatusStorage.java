@@ -25,12 +25,119 @@ public interface StatusStorage {
 
     record RobotsFile(String content, String contentType) {}
 
+    /**
+     * What we know about a page that has been emitted, used to detect changes on re-index.
+     *
+     * @param etag the ETag header
+     * @param lastModified the Last-Modified header
+     * @param contentHash hash of the content
+     * @param lastSeen the start timestamp of the last index that found the page
+     */
+    record PageSignature(String etag, String lastModified, String contentHash, long lastSeen) {}
+
     record Status(
             List<String> remainingUrls,
             List<StoreUrlReference> urls,
             Long lastIndexEndTimestamp,
             Long lastIndexStartTimestamp,
-            Map<String, RobotsFile> robotFiles) {}
+            Map<String, RobotsFile> robotFiles,
+            Map<String, PageSignature> pageSignatures) {}
+
+    /** A change to the status, see {@link IncrementalStatusStorage}. */
+    record StatusChange(
+            ChangeType change,
+            String url,
+            String type,
+            Integer depth,
+            Boolean toScan,
+            RobotsFile robotsFile,
+            Long lastIndexEndTimestamp,
+            Long lastIndexStartTimestamp,
+            PageSignature pageSignature) {
+
+        enum ChangeType {
+            URL_ADDED,
+            URL_PROCESSED,
+            URL_REMOVED,
+            ROBOTS_FILE_STORED,
+            TIMESTAMPS,
+            RESET,
+            PAGE_SIGNATURE_STORED,
+            PAGE_SIGNATURE_REMOVED
+        }
+
+        static StatusChange urlAdded(String url, String type, int depth, boolean toScan) {
+            return new StatusChange(
+                    ChangeType.URL_ADDED, url, type, depth, toScan, null, null, null, null);
+        }
+
+        static StatusChange urlProcessed(String url) {
+            return new StatusChange(
+                    ChangeType.URL_PROCESSED, url, null, null, null, null, null, null, null);
+        }
+
+        static StatusChange urlRemoved(String url) {
+            return new StatusChange(
+                    ChangeType.URL_REMOVED, url, null, null, null, null, null, null, null);
+        }
+
+        static StatusChange robotsFileStored(String url, RobotsFile robotsFile) {
+            return new StatusChange(
+                    ChangeType.ROBOTS_FILE_STORED,
+                    url,
+                    null,
+                    null,
+                    null,
+                    robotsFile,
+                    null,
+                    null,
+                    null);
+        }
+
+        static StatusChange timestamps(long lastIndexEndTimestamp, long lastIndexStartTimestamp) {
+            return new StatusChange(
+                    ChangeType.TIMESTAMPS,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    lastIndexEndTimestamp,
+                    lastIndexStartTimestamp,
+                    null);
+        }
+
+        static StatusChange reset() {
+            return new StatusChange(
+                    ChangeType.RESET, null, null, null, null, null, null, null, null);
+        }
+
+        static StatusChange pageSignatureStored(String url, PageSignature pageSignature) {
+            return new StatusChange(
+                    ChangeType.PAGE_SIGNATURE_STORED,
+                    url,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    pageSignature);
+        }
+
+        static StatusChange pageSignatureRemoved(String url) {
+            return new StatusChange(
+                    ChangeType.PAGE_SIGNATURE_REMOVED,
+                    url,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null);
+        }
+    }
 
     Status getCurrentStatus() throws Exception;
 }
@@ -30,15 +30,21 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
 import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Connection;
@@ -57,17 +63,31 @@ public class WebCrawler {
 
     private final DocumentVisitor visitor;
 
+    /** Source of the timestamps of the status, in milliseconds. */
+    private final LongSupplier clock;
+
     private final CookieStore cookieStore;
 
-    private final Map<String, SimpleRobotRules> robotsRules = new HashMap<>();
+    private final Map<String, SimpleRobotRules> robotsRules = new ConcurrentHashMap<>();
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
 
     public WebCrawler(
             WebCrawlerConfiguration configuration,
             WebCrawlerStatus status,
             DocumentVisitor visitor) {
+        this(configuration, status, visitor, System::currentTimeMillis);
+    }
+
+    public WebCrawler(
+            WebCrawlerConfiguration configuration,
+            WebCrawlerStatus status,
+            DocumentVisitor visitor,
+            LongSupplier clock) {
         this.configuration = configuration;
         this.visitor = visitor;
         this.status = status;
+        this.clock = clock;
 
         CookieManager cookieManager = new CookieManager();
         cookieManager.setCookiePolicy(
@@ -115,17 +135,20 @@ public class WebCrawler {
     }
 
     boolean addPageUrl(String startUrl, URLReference parent) {
-        int size = status.getUrls().size();
-        int newDepth = parent == null ? 0 : parent.depth() + 1;
-        if (configuration.getMaxUrls() > 0 && size >= configuration.getMaxUrls()) {
-            log.info("Max urls reached, skipping {}", startUrl);
-            return false;
-        } else if (configuration.getMaxDepth() > 0 && newDepth > configuration.getMaxDepth()) {
-            log.info("Max depth reached, skipping {}", startUrl);
-            return false;
-        } else {
-            status.addUrl(startUrl, URLReference.Type.PAGE, newDepth, true);
-            return true;
+        // with the fetcher pool many threads add urls, the check on maxUrls must be atomic
+        synchronized (status) {
+            int size = status.getUrls().size();
+            int newDepth = parent == null ? 0 : parent.depth() + 1;
+            if (configuration.getMaxUrls() > 0 && size >= configuration.getMaxUrls()) {
+                log.info("Max urls reached, skipping {}", startUrl);
+                return false;
+            } else if (configuration.getMaxDepth() > 0 && newDepth > configuration.getMaxDepth()) {
+                log.info("Max depth reached, skipping {}", startUrl);
+                return false;
+            } else {
+                status.addUrl(startUrl, URLReference.Type.PAGE, newDepth, true);
+                return true;
+            }
         }
     }
 
@@ -134,6 +157,18 @@ public class WebCrawler {
         if (current == null) {
             return false;
         }
+        processUrl(current);
+        return true;
+    }
+
+    /**
+     * Download and process one url. This method can be called concurrently by the threads of the
+     * {@link WebCrawlerFetcherPool}.
+     *
+     * @param current the url
+     * @throws Exception if an error occurs
+     */
+    void processUrl(String current) throws Exception {
         log.info("Crawling url: {}", current);
 
         URLReference reference = status.getReference(current);
@@ -142,14 +177,14 @@ public class WebCrawler {
             log.info("Found a robots.txt file");
             handleRobotsFile(current);
             status.urlProcessed(current);
-            return true;
+            return;
         }
 
         if (reference.type() == URLReference.Type.SITEMAP) {
             log.info("Found a sitemap file");
             handleSitemapsFile(current);
             status.urlProcessed(current);
-            return true;
+            return;
         }
 
         Connection connect = Jsoup.connect(current);
@@ -160,15 +195,31 @@ public class WebCrawler {
         }
         connect.timeout(configuration.getHttpTimeout());
 
+        StatusStorage.PageSignature previousSignature =
+                configuration.isSkipUnchangedPages() ? status.getPageSignature(current) : null;
+        // we need the body of the HTML pages in order to find the links
+        if (previousSignature != null && !configuration.isScanHtmlDocuments()) {
+            addConditionalHeaders(connect::header, previousSignature);
+        }
+
         boolean redirectedToForbiddenDomain = false;
         Document document = null;
         String contentType = null;
+        String etag = null;
+        String lastModified = null;
         byte[] binaryContent = null;
         try {
             document = connect.get();
             Connection.Response response = connect.response();
             contentType = response.contentType();
+            etag = response.header("ETag");
+            lastModified = response.header("Last-Modified");
             int statusCode = response.statusCode();
+            if (statusCode == 304) {
+                pageNotModified(current);
+                handleThrottling(current);
+                return;
+            }
             if (statusCode >= 300 && statusCode < 400) {
                 String location = response.header("Location");
                 if (!Objects.equals(location, current)) {
@@ -181,7 +232,7 @@ public class WebCrawler {
                     } else {
                         log.info("A redirection happened from {} to {}", current, location);
                         addPageUrl(location, reference);
-                        return true;
+                        return;
                     }
                 }
             }
@@ -200,9 +251,7 @@ public class WebCrawler {
             }
 
             handleThrottling(current);
-
-            // we did something
-            return true;
+            return;
         } catch (UnsupportedMimeTypeException notHtml) {
             if (configuration.isAllowNonHtmlContents()) {
                 log.info(
@@ -215,20 +264,25 @@ public class WebCrawler {
                 // this is not the most common case, we can improve it later
 
                 // downloadUrl takes care of retrying
-                HttpResponse<byte[]> httpResponse = downloadUrl(current);
-                contentType =
-                        httpResponse
-                                .headers()
-                                .firstValue("content-type")
-                                .orElse("application/octet-stream");
+                HttpResponse<byte[]> httpResponse = downloadUrl(current, previousSignature);
+                if (httpResponse.statusCode() == 304) {
+                    pageNotModified(current);
+                    handleThrottling(current);
+                    return;
+                }
+                HttpHeaders headers = httpResponse.headers();
+                contentType = headers.firstValue("content-type").orElse("application/octet-stream");
                 binaryContent = httpResponse.body();
-                visitor.visit(
-                        new ai.langstream.agents.webcrawler.crawler.Document(
-                                current, binaryContent, contentType));
+                emitDocument(
+                        current,
+                        binaryContent,
+                        contentType,
+                        headers.firstValue("ETag").orElse(null),
+                        headers.firstValue("Last-Modified").orElse(null));
 
                 handleThrottling(current);
 
-                return true;
+                return;
             } else {
                 log.info(
                         "Url {} lead to a {} content-type document. Skipping",
@@ -238,9 +292,7 @@ public class WebCrawler {
 
                 // prevent from being banned for flooding
                 handleThrottling(current);
-
-                // we did something
-                return true;
+                return;
             }
         } catch (IOException e) {
             log.info("Error while crawling url: {}, IO Error: {}", current, e + "");
@@ -249,9 +301,7 @@ public class WebCrawler {
 
             // prevent from being banned for flooding
             handleThrottling(current);
-
-            // we did something
-            return true;
+            return;
         }
 
         if (!redirectedToForbiddenDomain) {
@@ -270,20 +320,82 @@ public class WebCrawler {
                                     }
                                 });
             }
-            visitor.visit(
-                    new ai.langstream.agents.webcrawler.crawler.Document(
-                            current,
-                            document.html().getBytes(StandardCharsets.UTF_8),
-                            contentType));
+            emitDocument(
+                    current,
+                    document.html().getBytes(StandardCharsets.UTF_8),
+                    contentType,
+                    etag,
+                    lastModified);
         }
 
         // prevent from being banned for flooding
         handleThrottling(current);
+    }
 
-        return true;
+    private void emitDocument(
+            String url, byte[] content, String contentType, String etag, String lastModified) {
+        if (configuration.isTrackPageSignatures()) {
+            boolean changed =
+                    status.storePageSignature(url, etag, lastModified, computeContentHash(content));
+            if (!changed && configuration.isSkipUnchangedPages()) {
+                log.info("Page {} did not change, skipping", url);
+                // there is nothing to commit downstream
+                status.urlProcessed(url);
+                return;
+            }
+        }
+        visitor.visit(
+                new ai.langstream.agents.webcrawler.crawler.Document(url, content, contentType));
+    }
+
+    private void pageNotModified(String url) {
+        log.info("Page {} not modified, skipping", url);
+        status.pageNotModified(url);
+        status.urlProcessed(url);
+    }
+
+    private static void addConditionalHeaders(
+            BiConsumer<String, String> header, StatusStorage.PageSignature signature) {
+        if (signature.etag() != null) {
+            header.accept("If-None-Match", signature.etag());
+        }
+        if (signature.lastModified() != null) {
+            header.accept("If-Modified-Since", signature.lastModified());
+        }
+    }
+
+    static String computeContentHash(byte[] content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     private void handleThrottling(String current) throws InterruptedException {
+        if (configuration.isUseFetcherPool()) {
+            // the fetcher pool spaces the requests to the same host
+            return;
+        }
+        waitBeforeNextRequest(current);
+    }
+
+    private void waitBeforeNextRequest(String current) throws InterruptedException {
+        int delayMs = getDelayBetweenRequests(current);
+        // prevent from being banned for flooding
+        if (delayMs > 0) {
+            Thread.sleep(delayMs);
+        }
+    }
+
+    /**
+     * Compute the time to wait between two requests to the host of the given url.
+     *
+     * @param current the url
+     * @return the delay in milliseconds
+     */
+    int getDelayBetweenRequests(String current) {
         int delayMs = getCrawlerDelayFromRobots(current);
         if (configuration.getMinTimeBetweenRequests() > 0) {
             if (delayMs > 0) {
@@ -292,10 +404,7 @@ public class WebCrawler {
                 delayMs = configuration.getMinTimeBetweenRequests();
             }
         }
-        // prevent from being banned for flooding
-        if (delayMs > 0) {
-            Thread.sleep(delayMs);
-        }
+        return delayMs;
     }
 
     private void handleTemporaryError(String current, URLReference reference) {
@@ -303,6 +412,8 @@ public class WebCrawler {
         if (currentCount >= configuration.getMaxErrorCount()) {
             log.info("Too many errors ({}) on url {}, skipping it", currentCount, current);
             discardUrl(current, reference);
+            // we don't know if the page still exists, don't consider it deleted
+            status.pageNotModified(current);
         } else {
             log.info("Putting back the url {} into the backlog", current);
             forceAddUrl(current, reference.type(), reference.depth());
@@ -434,20 +545,26 @@ public class WebCrawler {
     }
 
     private HttpResponse<byte[]> downloadUrl(String url) throws IOException, InterruptedException {
-        HttpClient client = HttpClient.newHttpClient();
+        return downloadUrl(url, null);
+    }
+
+    private HttpResponse<byte[]> downloadUrl(String url, StatusStorage.PageSignature signature)
+            throws IOException, InterruptedException {
         IOException lastError = null;
         for (int i = 0; i < configuration.getMaxErrorCount(); i++) {
             try {
-                return client.send(
+                HttpRequest.Builder request =
                         HttpRequest.newBuilder()
                                 .uri(URI.create(url))
-                                .header("User-Agent", configuration.getUserAgent())
-                                .build(),
-                        HttpResponse.BodyHandlers.ofByteArray());
+                                .header("User-Agent", configuration.getUserAgent());
+                if (signature != null) {
+                    addConditionalHeaders(request::header, signature);
+                }
+                return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
             } catch (IOException err) {
                 lastError = err;
                 log.warn("Error while downloading url: {}", url, err);
-                handleThrottling(url);
+                waitBeforeNextRequest(url);
             }
         }
         if (lastError != null) {
@@ -462,7 +579,7 @@ public class WebCrawler {
         for (String url : seedUrls) {
             crawl(url);
         }
-        status.setLastIndexStartTimestamp(System.currentTimeMillis());
+        status.setLastIndexStartTimestamp(clock.getAsLong());
         status.setLastIndexEndTimestamp(0);
     }
 
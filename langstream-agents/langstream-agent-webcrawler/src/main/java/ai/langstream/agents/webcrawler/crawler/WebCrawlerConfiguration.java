@@ -41,6 +41,24 @@ public class WebCrawlerConfiguration {
     @Builder.Default private boolean scanHtmlDocuments = true;
     @Builder.Default private boolean allowNonHtmlContents = false;
 
+    /**
+     * Maximum number of pages fetched at the same time. With the default value (1) the crawler runs
+     * on the thread of the Source, otherwise a pool of fetcher threads is used.
+     */
+    @Builder.Default private int maxConcurrentRequests = 1;
+
+    /** Maximum number of pages fetched at the same time from the same host. */
+    @Builder.Default private int maxConcurrentRequestsPerHost = 1;
+
+    /**
+     * Do not emit the pages that did not change since the previous index. Conditional requests
+     * (ETag/Last-Modified) are used when the body of the page is not needed to find the links.
+     */
+    @Builder.Default private boolean skipUnchangedPages = false;
+
+    /** Keep track of the emitted pages, in order to detect the pages that have been deleted. */
+    @Builder.Default private boolean emitTombstones = false;
+
     @Builder.Default private Set<String> allowedTags = Set.of("a");
 
     public boolean isAllowedUrl(String url) {
@@ -95,6 +113,14 @@ public class WebCrawlerConfiguration {
         return allowedDomain && !forbiddenPath;
     }
 
+    public boolean isTrackPageSignatures() {
+        return skipUnchangedPages || emitTombstones;
+    }
+
+    public boolean isUseFetcherPool() {
+        return maxConcurrentRequests > 1;
+    }
+
     public boolean isAllowedTag(String tagName) {
         return tagName != null && allowedTags.contains(tagName.toLowerCase());
     }
@@ -0,0 +1,233 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.agents.webcrawler.crawler;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pool of threads that download the pages discovered by the {@link WebCrawler}.
+ *
+ * <p>The urls are taken from the {@link WebCrawlerStatus} and dispatched to one queue per host. A
+ * host is never contacted by more than maxConcurrentRequestsPerHost threads at the same time and
+ * two requests to the same host are spaced by the delay configured in the crawler (that takes into
+ * account the crawl-delay in the robots.txt file).
+ */
+@Slf4j
+public class WebCrawlerFetcherPool implements AutoCloseable {
+
+    /** Maximum time a fetcher waits before looking again for new urls in the status. */
+    private static final long IDLE_WAIT_MS = 100;
+
+    private final WebCrawler crawler;
+    private final int maxConcurrentRequests;
+    private final int maxConcurrentRequestsPerHost;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hostsChanged = lock.newCondition();
+
+    /** Queues of urls by host, the order is used to rotate fairly among the hosts. */
+    private final Map<String, HostQueue> hosts = new LinkedHashMap<>();
+
+    private int queuedUrls;
+    private int inFlightRequests;
+
+    private ExecutorService executorService;
+    private volatile boolean closed;
+    private volatile Exception failure;
+
+    private static class HostQueue {
+        private final Deque<String> urls = new ArrayDeque<>();
+        private int inFlightRequests;
+        private long nextRequestTime;
+    }
+
+    public WebCrawlerFetcherPool(WebCrawler crawler) {
+        this.crawler = crawler;
+        WebCrawlerConfiguration configuration = crawler.getConfiguration();
+        this.maxConcurrentRequests = Math.max(1, configuration.getMaxConcurrentRequests());
+        this.maxConcurrentRequestsPerHost =
+                Math.max(1, configuration.getMaxConcurrentRequestsPerHost());
+    }
+
+    public void start() {
+        log.info(
+                "Starting {} fetchers, max {} concurrent requests per host",
+                maxConcurrentRequests,
+                maxConcurrentRequestsPerHost);
+        AtomicInteger threadId = new AtomicInteger();
+        executorService =
+                Executors.newFixedThreadPool(
+                        maxConcurrentRequests,
+                        r -> {
+                            Thread thread =
+                                    new Thread(
+                                            r, "webcrawler-fetcher-" + threadId.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+        for (int i = 0; i < maxConcurrentRequests; i++) {
+            executorService.submit(this::runFetcher);
+        }
+    }
+
+    private void runFetcher() {
+        while (!closed) {
+            String url;
+            try {
+                url = takeNextUrl();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (url == null) {
+                return;
+            }
+            try {
+                crawler.processUrl(url);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Error while crawling url {}", url, e);
+                failure = e;
+            } finally {
+                releaseUrl(url);
+            }
+        }
+    }
+
+    private String takeNextUrl() throws InterruptedException {
+        lock.lock();
+        try {
+            while (!closed) {
+                dispatchPendingUrls();
+                long now = System.currentTimeMillis();
+                long waitMs = IDLE_WAIT_MS;
+                Iterator<Map.Entry<String, HostQueue>> it = hosts.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<String, HostQueue> entry = it.next();
+                    HostQueue host = entry.getValue();
+                    if (host.urls.isEmpty()) {
+                        if (host.inFlightRequests == 0 && host.nextRequestTime <= now) {
+                            // nothing to remember about this host
+                            it.remove();
+                        }
+                        continue;
+                    }
+                    if (host.inFlightRequests >= maxConcurrentRequestsPerHost) {
+                        continue;
+                    }
+                    long delay = host.nextRequestTime - now;
+                    if (delay > 0) {
+                        waitMs = Math.min(waitMs, delay);
+                        continue;
+                    }
+                    String url = host.urls.poll();
+                    host.inFlightRequests++;
+                    inFlightRequests++;
+                    queuedUrls--;
+                    // move the host to the end, in order to serve the other hosts first
+                    it.remove();
+                    hosts.put(entry.getKey(), host);
+                    return url;
+                }
+                hostsChanged.await(waitMs, TimeUnit.MILLISECONDS);
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void releaseUrl(String url) {
+        // compute the delay outside of the lock
+        int delayMs = crawler.getDelayBetweenRequests(url);
+        lock.lock();
+        try {
+            inFlightRequests--;
+            HostQueue host = hosts.get(WebCrawler.getDomainFromUrl(url));
+            if (host != null) {
+                host.inFlightRequests--;
+                host.nextRequestTime =
+                        Math.max(host.nextRequestTime, System.currentTimeMillis() + delayMs);
+            }
+            hostsChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatchPendingUrls() {
+        WebCrawlerStatus status = crawler.getStatus();
+        String url;
+        while ((url = status.nextUrl()) != null) {
+            hosts.computeIfAbsent(WebCrawler.getDomainFromUrl(url), h -> new HostQueue())
+                    .urls
+                    .add(url);
+            queuedUrls++;
+        }
+    }
+
+    /**
+     * Check if there is nothing left to crawl.
+     *
+     * @return true if there are no urls to process and no requests in flight
+     */
+    public boolean isIdle() {
+        lock.lock();
+        try {
+            dispatchPendingUrls();
+            return queuedUrls == 0 && inFlightRequests == 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rethrow the last unexpected error that happened on a fetcher thread.
+     *
+     * @throws Exception the error
+     */
+    public void throwIfFailed() throws Exception {
+        Exception error = failure;
+        if (error != null) {
+            failure = null;
+            throw error;
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        closed = true;
+        if (executorService != null) {
+            executorService.shutdownNow();
+            if (!executorService.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Some fetchers did not terminate in time");
+            }
+        }
+    }
+}
@@ -19,12 +19,20 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * In memory status of the crawler. The methods that access the collections are synchronized because
+ * the status is shared between the Source and the threads of the {@link WebCrawlerFetcherPool}.
+ */
 @Getter
 @Slf4j
 public class WebCrawlerStatus {
@@ -37,9 +45,10 @@ public class WebCrawlerStatus {
 
     /**
      * List of all URLs discovered and to be processed. An URL is removed from here on
-     * Source.commit()
+     * Source.commit(). This is a LinkedHashSet in order to keep the order of discovery and to
+     * remove the URLs in constant time.
      */
-    private final Deque<String> remainingUrls = new ArrayDeque<>();
+    private final Set<String> remainingUrls = new LinkedHashSet<>();
 
     /**
      * List of the URLs that are to be processed, this Deque is used to keep track of the urls that
@@ -65,7 +74,34 @@ public class WebCrawlerStatus {
      */
     private final Map<String, Integer> errorCount = new HashMap<>();
 
-    public void reloadFrom(StatusStorage statusStorage) throws Exception {
+    /**
+     * Signatures of the pages that have been emitted, used to detect the changes on re-index. This
+     * structure is not cleared on re-index.
+     */
+    private final Map<String, StatusStorage.PageSignature> pageSignatures = new HashMap<>();
+
+    /**
+     * Signatures of the pages that have been emitted but not committed yet. They are moved to
+     * {@link #pageSignatures} by {@link #urlProcessed(String)}, so that a page that is lost
+     * downstream is emitted again after a restart. This status is not persisted.
+     */
+    private final Map<String, StatusStorage.PageSignature> uncommittedPageSignatures =
+            new HashMap<>();
+
+    /**
+     * Changes that have not been persisted yet. The changes are tracked only when the status is
+     * stored in a {@link IncrementalStatusStorage}, otherwise this is null.
+     */
+    @Getter(AccessLevel.NONE)
+    private List<StatusStorage.StatusChange> changes;
+
+    private void recordChange(StatusStorage.StatusChange change) {
+        if (changes != null) {
+            changes.add(change);
+        }
+    }
+
+    public synchronized void reloadFrom(StatusStorage statusStorage) throws Exception {
         StatusStorage.Status currentStatus = statusStorage.getCurrentStatus();
         if (currentStatus != null) {
             log.info("Found a saved status, reloading...");
@@ -79,17 +115,21 @@ public class WebCrawlerStatus {
 
             if (remainingUrls != null) {
                 log.info("Reloaded {} remaining urls", remainingUrls.size());
-                remainingUrls.forEach(u -> log.info("Remaining {}", u));
+                if (log.isDebugEnabled()) {
+                    remainingUrls.forEach(u -> log.debug("Remaining {}", u));
+                }
                 this.pendingUrls.addAll(remainingUrls);
                 this.remainingUrls.addAll(remainingUrls);
             }
 
             List<StatusStorage.StoreUrlReference> urls = currentStatus.urls();
             if (urls != null) {
-                log.info("Reloaded {} urls", this.urls.size());
+                log.info("Reloaded {} urls", urls.size());
                 urls.forEach(
                         u -> {
-                            log.info("Visited {}", u);
+                            if (log.isDebugEnabled()) {
+                                log.debug("Visited {}", u);
+                            }
                             String url = u.url();
                             String type = u.type();
                             int depth = u.depth();
@@ -113,17 +153,28 @@ public class WebCrawlerStatus {
             if (robots != null) {
                 robotsFiles.putAll(robots);
             }
+
+            Map<String, StatusStorage.PageSignature> signatures = currentStatus.pageSignatures();
+            this.pageSignatures.clear();
+            if (signatures != null) {
+                log.info("Reloaded {} page signatures", signatures.size());
+                pageSignatures.putAll(signatures);
+            }
         } else {
             log.info("No saved status found, starting from scratch");
         }
+        // from now on we can send only the changes to the storage
+        changes = statusStorage instanceof IncrementalStatusStorage ? new ArrayList<>() : null;
     }
 
-    public Map<String, StatusStorage.RobotsFile> getRobotsFiles() {
+    public synchronized Map<String, StatusStorage.RobotsFile> getRobotsFiles() {
         return robotsFiles;
     }
 
-    public void storeRobotsFile(String url, String robotsFile, String contentType) {
-        robotsFiles.put(url, new StatusStorage.RobotsFile(robotsFile, contentType));
+    public synchronized void storeRobotsFile(String url, String robotsFile, String contentType) {
+        StatusStorage.RobotsFile file = new StatusStorage.RobotsFile(robotsFile, contentType);
+        robotsFiles.put(url, file);
+        recordChange(StatusStorage.StatusChange.robotsFileStored(url, file));
     }
 
     public long getLastIndexEndTimestamp() {
@@ -143,23 +194,73 @@ public class WebCrawlerStatus {
     }
 
     public void persist(StatusStorage statusStorage) throws Exception {
-        List<StatusStorage.StoreUrlReference> urlReferencesForStore =
-                urls.values().stream()
-                        .map(
-                                ref ->
-                                        new StatusStorage.StoreUrlReference(
-                                                ref.url(), ref.type().name(), ref.depth()))
-                        .collect(Collectors.toList());
-        statusStorage.storeStatus(
-                new StatusStorage.Status(
-                        new ArrayList<>(remainingUrls),
-                        urlReferencesForStore,
-                        lastIndexEndTimestamp,
-                        lastIndexStartTimestamp,
-                        new HashMap<>(robotsFiles)));
-    }
-
-    public void addUrl(String url, URLReference.Type type, int depth, boolean toScan) {
+        if (statusStorage instanceof IncrementalStatusStorage incrementalStatusStorage
+                && changes != null) {
+            List<StatusStorage.StatusChange> newChanges;
+            synchronized (this) {
+                newChanges = changes;
+                newChanges.add(
+                        StatusStorage.StatusChange.timestamps(
+                                lastIndexEndTimestamp, lastIndexStartTimestamp));
+                changes = new ArrayList<>();
+            }
+            try {
+                incrementalStatusStorage.storeChanges(newChanges);
+            } catch (Exception e) {
+                restoreChanges(newChanges);
+                throw e;
+            }
+            if (!incrementalStatusStorage.isCompactionNeeded()) {
+                return;
+            }
+        }
+
+        StatusStorage.Status snapshot;
+        List<StatusStorage.StatusChange> snapshotChanges = null;
+        // take the snapshot while holding the lock, but write it without blocking the crawler
+        synchronized (this) {
+            List<StatusStorage.StoreUrlReference> urlReferencesForStore =
+                    urls.values().stream()
+                            .map(
+                                    ref ->
+                                            new StatusStorage.StoreUrlReference(
+                                                    ref.url(), ref.type().name(), ref.depth()))
+                            .collect(Collectors.toList());
+            snapshot =
+                    new StatusStorage.Status(
+                            new ArrayList<>(remainingUrls),
+                            urlReferencesForStore,
+                            lastIndexEndTimestamp,
+                            lastIndexStartTimestamp,
+                            new HashMap<>(robotsFiles),
+                            new HashMap<>(pageSignatures));
+            if (statusStorage instanceof IncrementalStatusStorage) {
+                // the snapshot contains all the changes
+                snapshotChanges = changes;
+                changes = new ArrayList<>();
+            }
+        }
+        try {
+            statusStorage.storeStatus(snapshot);
+        } catch (Exception e) {
+            if (snapshotChanges != null) {
+                restoreChanges(snapshotChanges);
+            }
+            throw e;
+        }
+    }
+
+    /** Puts back the changes that could not be stored, before the ones recorded in the meantime. */
+    private synchronized void restoreChanges(List<StatusStorage.StatusChange> notStored) {
+        if (changes == null) {
+            return;
+        }
+        List<StatusStorage.StatusChange> merged = new ArrayList<>(notStored);
+        merged.addAll(changes);
+        changes = merged;
+    }
+
+    public synchronized void addUrl(String url, URLReference.Type type, int depth, boolean toScan) {
 
         // the '#' character is used to identify a fragment in a URL
         // we have to remove it to avoid duplicates
@@ -168,6 +269,7 @@ public class WebCrawlerStatus {
         boolean wasThere = urls.containsKey(url);
         // update the depth if the url was already there
         urls.put(url, new URLReference(url, type, depth));
+        recordChange(StatusStorage.StatusChange.urlAdded(url, type.name(), depth, toScan));
 
         if (toScan && !wasThere) {
             if (log.isDebugEnabled()) {
@@ -186,29 +288,36 @@ public class WebCrawlerStatus {
         return url;
     }
 
-    public String nextUrl() {
+    public synchronized String nextUrl() {
         if (log.isDebugEnabled()) {
             log.debug("PendingUrls: {} Uncommitted {}", pendingUrls.size(), remainingUrls.size());
         }
         return pendingUrls.poll();
     }
 
-    public void urlProcessed(String url) {
+    public synchronized void urlProcessed(String url) {
         // this method is called on "commit()", then the page has been successfully processed
         // downstream (for instance stored in the Vector database)
         if (log.isDebugEnabled()) {
             log.debug("Url {} completely processed", url);
         }
         remainingUrls.remove(url);
+        recordChange(StatusStorage.StatusChange.urlProcessed(url));
+        StatusStorage.PageSignature signature = uncommittedPageSignatures.remove(url);
+        if (signature != null) {
+            pageSignatures.put(url, signature);
+            recordChange(StatusStorage.StatusChange.pageSignatureStored(url, signature));
+        }
 
         // forget the errors about the page
         url = removeFragment(url);
         errorCount.remove(url);
     }
 
-    public int temporaryErrorOnUrl(String url) {
+    public synchronized int temporaryErrorOnUrl(String url) {
         url = removeFragment(url);
         urls.remove(url);
+        recordChange(StatusStorage.StatusChange.urlRemoved(url));
         return errorCount.compute(
                 url,
                 (u, current) -> {
@@ -220,15 +329,82 @@ public class WebCrawlerStatus {
                 });
     }
 
-    public void reset() {
+    public synchronized void reset() {
         urls.clear();
         errorCount.clear();
         pendingUrls.clear();
         remainingUrls.clear();
         robotsFiles.clear();
+        if (changes != null) {
+            changes.clear();
+            changes.add(StatusStorage.StatusChange.reset());
+        }
+    }
+
+    public synchronized StatusStorage.PageSignature getPageSignature(String url) {
+        return pageSignatures.get(url);
+    }
+
+    /**
+     * Store the signature of a page that has been found in the current index. The signature is
+     * saved when the page is committed, see {@link #urlProcessed(String)}.
+     *
+     * @param url the url
+     * @param etag the ETag header, or null
+     * @param lastModified the Last-Modified header, or null
+     * @param contentHash the hash of the content
+     * @return true if the content changed since the last time the page has been seen
+     */
+    public synchronized boolean storePageSignature(
+            String url, String etag, String lastModified, String contentHash) {
+        StatusStorage.PageSignature previous = pageSignatures.get(url);
+        StatusStorage.PageSignature signature =
+                new StatusStorage.PageSignature(
+                        etag, lastModified, contentHash, lastIndexStartTimestamp);
+        uncommittedPageSignatures.put(url, signature);
+        return previous == null || !Objects.equals(previous.contentHash(), contentHash);
+    }
+
+    /**
+     * Mark a page as found in the current index, without changes.
+     *
+     * @param url the url
+     */
+    public synchronized void pageNotModified(String url) {
+        StatusStorage.PageSignature previous = pageSignatures.get(url);
+        if (previous == null || previous.lastSeen() == lastIndexStartTimestamp) {
+            return;
+        }
+        StatusStorage.PageSignature signature =
+                new StatusStorage.PageSignature(
+                        previous.etag(),
+                        previous.lastModified(),
+                        previous.contentHash(),
+                        lastIndexStartTimestamp);
+        pageSignatures.put(url, signature);
+        recordChange(StatusStorage.StatusChange.pageSignatureStored(url, signature));
+    }
+
+    /**
+     * Find the pages that have been emitted in a previous index but not found by the current one.
+     *
+     * @return the urls of the pages
+     */
+    public synchronized List<String> getDeletedPages() {
+        return pageSignatures.entrySet().stream()
+                .filter(e -> e.getValue().lastSeen() < lastIndexStartTimestamp)
+                .filter(e -> !uncommittedPageSignatures.containsKey(e.getKey()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    public synchronized void removePageSignature(String url) {
+        if (pageSignatures.remove(url) != null) {
+            recordChange(StatusStorage.StatusChange.pageSignatureRemoved(url));
+        }
     }
 
-    public URLReference getReference(String current) {
+    public synchronized URLReference getReference(String current) {
         URLReference reference = urls.get(current);
         if (reference == null) {
             throw new IllegalStateException("Unknown url " + current);
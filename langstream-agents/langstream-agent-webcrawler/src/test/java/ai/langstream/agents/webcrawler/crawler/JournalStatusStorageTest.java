@@ -0,0 +1,208 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.agents.webcrawler.crawler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JournalStatusStorageTest {
+
+    static final String URL1 = "https://site/page1";
+    static final String URL2 = "https://site/page2";
+    static final String URL3 = "https://site/page3";
+
+    @Test
+    void testOnlyChangesAreAppended(@TempDir Path tempDir) throws Exception {
+        Path statusFile = tempDir.resolve("status.json");
+        Path journalFile = tempDir.resolve("status.json.journal");
+
+        JournalStatusStorage storage = new JournalStatusStorage(statusFile);
+        WebCrawlerStatus status = new WebCrawlerStatus();
+        status.reloadFrom(storage);
+        status.addUrl(URL1, URLReference.Type.PAGE, 0, true);
+        status.addUrl(URL2, URLReference.Type.PAGE, 1, true);
+        status.storeRobotsFile("https://site/robots.txt", "User-agent: *", "text/plain");
+        status.setLastIndexStartTimestamp(1234);
+        status.persist(storage);
+
+        assertFalse(Files.exists(statusFile));
+        // 2 urls, 1 robots file, 1 timestamps
+        assertEquals(4, Files.readAllLines(journalFile).size());
+
+        String url = status.nextUrl();
+        status.urlProcessed(url);
+        status.persist(storage);
+        assertEquals(6, Files.readAllLines(journalFile).size());
+
+        status = new WebCrawlerStatus();
+        status.reloadFrom(new JournalStatusStorage(statusFile));
+        assertEquals(2, status.getUrls().size());
+        assertEquals(List.of(URL2), List.copyOf(status.getRemainingUrls()));
+        assertEquals(URL2, status.nextUrl());
+        assertEquals(1, status.getReference(URL2).depth());
+        assertEquals(1234, status.getLastIndexStartTimestamp());
+        assertEquals(
+                "User-agent: *", status.getRobotsFiles().get("https://site/robots.txt").content());
+    }
+
+    @Test
+    void testCompaction(@TempDir Path tempDir) throws Exception {
+        Path statusFile = tempDir.resolve("status.json");
+        Path journalFile = tempDir.resolve("status.json.journal");
+
+        JournalStatusStorage storage = new JournalStatusStorage(statusFile, 4);
+        WebCrawlerStatus status = new WebCrawlerStatus();
+        status.reloadFrom(storage);
+        status.addUrl(URL1, URLReference.Type.PAGE, 0, true);
+        status.persist(storage);
+        assertFalse(Files.exists(statusFile));
+        assertTrue(Files.exists(journalFile));
+
+        status.addUrl(URL2, URLReference.Type.PAGE, 0, true);
+        status.persist(storage);
+
+        // the journal has been compacted into the snapshot
+        assertTrue(Files.exists(statusFile));
+        assertFalse(Files.exists(journalFile));
+
+        status.addUrl(URL3, URLReference.Type.PAGE, 0, true);
+        status.urlProcessed(URL1);
+        status.persist(storage);
+        assertTrue(Files.exists(journalFile));
+
+        status = new WebCrawlerStatus();
+        status.reloadFrom(new JournalStatusStorage(statusFile, 4));
+        assertEquals(3, status.getUrls().size());
+        assertEquals(List.of(URL2, URL3), List.copyOf(status.getRemainingUrls()));
+    }
+
+    @Test
+    void testFailedStoreKeepsTheChanges(@TempDir Path tempDir) throws Exception {
+        Path statusFile = tempDir.resolve("status.json");
+        AtomicBoolean fail = new AtomicBoolean();
+        JournalStatusStorage storage =
+                new JournalStatusStorage(statusFile) {
+                    @Override
+                    public void storeChanges(List<StatusChange> changes) throws Exception {
+                        if (fail.get()) {
+                            throw new IOException("disk full");
+                        }
+                        super.storeChanges(changes);
+                    }
+                };
+        WebCrawlerStatus status = new WebCrawlerStatus();
+        status.reloadFrom(storage);
+        status.addUrl(URL1, URLReference.Type.PAGE, 0, true);
+        fail.set(true);
+        assertThrows(IOException.class, () -> status.persist(storage));
+
+        status.addUrl(URL2, URLReference.Type.PAGE, 0, true);
+        fail.set(false);
+        status.persist(storage);
+
+        WebCrawlerStatus reloaded = new WebCrawlerStatus();
+        reloaded.reloadFrom(new JournalStatusStorage(statusFile));
+        assertEquals(List.of(URL1, URL2), List.copyOf(reloaded.getRemainingUrls()));
+    }
+
+    @Test
+    void testResetAndTruncatedJournal(@TempDir Path tempDir) throws Exception {
+        Path statusFile = tempDir.resolve("status.json");
+        Path journalFile = tempDir.resolve("status.json.journal");
+
+        JournalStatusStorage storage = new JournalStatusStorage(statusFile);
+        WebCrawlerStatus status = new WebCrawlerStatus();
+        status.reloadFrom(storage);
+        status.addUrl(URL1, URLReference.Type.PAGE, 0, true);
+        status.persist(storage);
+        status.reset();
+        status.addUrl(URL2, URLReference.Type.PAGE, 0, true);
+        status.persist(storage);
+
+        // simulate a crash while writing the journal
+        Files.writeString(
+                journalFile,
+                "{\"change\":\"URL_ADD",
+                StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+
+        status = new WebCrawlerStatus();
+        status.reloadFrom(new JournalStatusStorage(statusFile));
+        assertEquals(1, status.getUrls().size());
+        assertEquals(List.of(URL2), List.copyOf(status.getRemainingUrls()));
+    }
+
+    @Test
+    void testChangesAfterATruncatedJournal(@TempDir Path tempDir) throws Exception {
+        Path statusFile = tempDir.resolve("status.json");
+        Path journalFile = tempDir.resolve("status.json.journal");
+
+        JournalStatusStorage storage = new JournalStatusStorage(statusFile);
+        WebCrawlerStatus status = new WebCrawlerStatus();
+        status.reloadFrom(storage);
+        status.addUrl(URL1, URLReference.Type.PAGE, 0, true);
+        status.persist(storage);
+        long validLength = Files.size(journalFile);
+
+        // crash while writing the journal
+        Files.writeString(
+                journalFile,
+                "{\"change\":\"URL_ADD",
+                StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+
+        // restart, the changes after the crash are appended after the last complete one
+        storage = new JournalStatusStorage(statusFile);
+        status = new WebCrawlerStatus();
+        status.reloadFrom(storage);
+        assertEquals(validLength, Files.size(journalFile));
+        status.addUrl(URL2, URLReference.Type.PAGE, 0, true);
+        status.persist(storage);
+        status.addUrl(URL3, URLReference.Type.PAGE, 0, true);
+        status.persist(storage);
+
+        // crash again before the compaction
+        status = new WebCrawlerStatus();
+        status.reloadFrom(new JournalStatusStorage(statusFile));
+        assertEquals(3, status.getUrls().size());
+        assertEquals(List.of(URL1, URL2, URL3), List.copyOf(status.getRemainingUrls()));
+    }
+
+    @Test
+    void testCorruptedSnapshot(@TempDir Path tempDir) throws Exception {
+        Path statusFile = tempDir.resolve("status.json");
+        Path journalFile = tempDir.resolve("status.json.journal");
+        Files.writeString(statusFile, "{ not json");
+        Files.writeString(journalFile, "{\"change\":\"URL_PROCESSED\",\"url\":\"" + URL1 + "\"}\n");
+
+        WebCrawlerStatus status = new WebCrawlerStatus();
+        status.reloadFrom(new JournalStatusStorage(statusFile));
+        assertTrue(status.getUrls().isEmpty());
+        // the journal cannot be applied without its snapshot
+        assertFalse(Files.exists(statusFile));
+        assertFalse(Files.exists(journalFile));
+        assertTrue(Files.exists(tempDir.resolve("status.json.corrupted")));
+    }
+}
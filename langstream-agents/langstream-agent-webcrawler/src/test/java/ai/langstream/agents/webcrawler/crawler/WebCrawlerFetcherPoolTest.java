@@ -0,0 +1,115 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.agents.webcrawler.crawler;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.okForContentType;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.tomakehurst.wiremock.junit5.WireMockRuntimeInfo;
+import com.github.tomakehurst.wiremock.junit5.WireMockTest;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+
+@WireMockTest
+class WebCrawlerFetcherPoolTest {
+
+    @Test
+    void testCrawlWithManyFetchers(WireMockRuntimeInfo vmRuntimeInfo) throws Exception {
+        int numPages = 20;
+        StringBuilder index = new StringBuilder();
+        for (int i = 0; i < numPages; i++) {
+            index.append("<a href=\"page").append(i).append(".html\">link</a>\n");
+            stubFor(
+                    get("/page" + i + ".html")
+                            .willReturn(okForContentType("text/html", "page " + i)));
+        }
+        stubFor(get("/index.html").willReturn(okForContentType("text/html", index.toString())));
+
+        WebCrawlerConfiguration configuration =
+                WebCrawlerConfiguration.builder()
+                        .allowedDomains(Set.of(vmRuntimeInfo.getHttpBaseUrl()))
+                        .handleRobotsFile(false)
+                        .minTimeBetweenRequests(0)
+                        .maxConcurrentRequests(4)
+                        .maxConcurrentRequestsPerHost(4)
+                        .build();
+        WebCrawlerStatus status = new WebCrawlerStatus();
+        List<Document> documents = new CopyOnWriteArrayList<>();
+        WebCrawler crawler = new WebCrawler(configuration, status, documents::add);
+        crawler.crawl(vmRuntimeInfo.getHttpBaseUrl() + "/index.html");
+
+        try (WebCrawlerFetcherPool pool = new WebCrawlerFetcherPool(crawler)) {
+            pool.start();
+            Awaitility.await()
+                    .atMost(30, TimeUnit.SECONDS)
+                    .until(() -> documents.size() == numPages + 1 && pool.isIdle());
+            pool.throwIfFailed();
+        }
+
+        Set<String> urls = documents.stream().map(Document::url).collect(Collectors.toSet());
+        assertEquals(numPages + 1, urls.size());
+        assertEquals(0, status.getPendingUrls().size());
+        assertEquals(numPages + 1, status.getUrls().size());
+    }
+
+    @Test
+    void testDelayBetweenRequestsToTheSameHost(WireMockRuntimeInfo vmRuntimeInfo) throws Exception {
+        stubFor(
+                get("/index.html")
+                        .willReturn(
+                                okForContentType(
+                                        "text/html",
+                                        """
+                                  <a href="page1.html">link</a>
+                                  <a href="page2.html">link</a>
+                              """)));
+        stubFor(get("/page1.html").willReturn(okForContentType("text/html", "page 1")));
+        stubFor(get("/page2.html").willReturn(okForContentType("text/html", "page 2")));
+
+        WebCrawlerConfiguration configuration =
+                WebCrawlerConfiguration.builder()
+                        .allowedDomains(Set.of(vmRuntimeInfo.getHttpBaseUrl()))
+                        .handleRobotsFile(false)
+                        .minTimeBetweenRequests(300)
+                        .maxConcurrentRequests(4)
+                        .maxConcurrentRequestsPerHost(1)
+                        .build();
+        WebCrawlerStatus status = new WebCrawlerStatus();
+        List<Document> documents = new CopyOnWriteArrayList<>();
+        WebCrawler crawler = new WebCrawler(configuration, status, documents::add);
+        crawler.crawl(vmRuntimeInfo.getHttpBaseUrl() + "/index.html");
+
+        long start = System.currentTimeMillis();
+        try (WebCrawlerFetcherPool pool = new WebCrawlerFetcherPool(crawler)) {
+            pool.start();
+            Awaitility.await()
+                    .atMost(30, TimeUnit.SECONDS)
+                    .until(() -> documents.size() == 3 && pool.isIdle());
+        }
+        long elapsed = System.currentTimeMillis() - start;
+
+        // 3 requests to the same host, spaced by at least 300ms
+        assertTrue(elapsed >= 600, "elapsed " + elapsed);
+    }
+}
@@ -16,12 +16,16 @@
 package ai.langstream.agents.webcrawler.crawler;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.notFound;
 import static com.github.tomakehurst.wiremock.client.WireMock.okForContentType;
 import static com.github.tomakehurst.wiremock.client.WireMock.serviceUnavailable;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.temporaryRedirect;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
 import static org.junit.jupiter.api.Assertions.*;
 
 import com.github.tomakehurst.wiremock.http.Fault;
@@ -30,6 +34,7 @@ import com.github.tomakehurst.wiremock.junit5.WireMockTest;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import org.junit.jupiter.api.Test;
 
 @WireMockTest
@@ -369,4 +374,119 @@ class WebCrawlerTest {
         assertEquals(0, status.getPendingUrls().size());
         assertEquals(2, status.getUrls().size());
     }
+
+    @Test
+    void testSkipUnchangedPagesAndDetectDeletedPages(WireMockRuntimeInfo vmRuntimeInfo)
+            throws Exception {
+        stubFor(
+                get("/index.html")
+                        .willReturn(
+                                okForContentType(
+                                        "text/html",
+                                        """
+                                  <a href="page1.html">link</a>
+                                  <a href="page2.html">link</a>
+                              """)));
+        stubFor(get("/page1.html").willReturn(okForContentType("text/html", "page 1")));
+        stubFor(get("/page2.html").willReturn(okForContentType("text/html", "page 2")));
+
+        WebCrawlerConfiguration configuration =
+                WebCrawlerConfiguration.builder()
+                        .allowedDomains(Set.of(vmRuntimeInfo.getHttpBaseUrl()))
+                        .handleRobotsFile(false)
+                        .minTimeBetweenRequests(0)
+                        .skipUnchangedPages(true)
+                        .emitTombstones(true)
+                        .build();
+        WebCrawlerStatus status = new WebCrawlerStatus();
+        List<Document> documents = new ArrayList<>();
+        AtomicLong clock = new AtomicLong(1000);
+        WebCrawler crawler = new WebCrawler(configuration, status, documents::add, clock::get);
+        crawler.crawl(vmRuntimeInfo.getHttpBaseUrl() + "/index.html");
+        while (crawler.runCycle()) {}
+        assertEquals(3, documents.size());
+        assertTrue(status.getDeletedPages().isEmpty());
+        // page2 is not committed downstream
+        status.urlProcessed(documents.get(0).url());
+        status.urlProcessed(documents.get(1).url());
+
+        // nothing changed, the page that was not committed is emitted again
+        documents.clear();
+        clock.incrementAndGet();
+        crawler.restartIndexing(Set.of(vmRuntimeInfo.getHttpBaseUrl() + "/index.html"));
+        while (crawler.runCycle()) {}
+        assertEquals(1, documents.size());
+        assertEquals(vmRuntimeInfo.getHttpBaseUrl() + "/page2.html", documents.get(0).url());
+        assertTrue(status.getDeletedPages().isEmpty());
+        status.urlProcessed(documents.get(0).url());
+
+        documents.clear();
+        clock.incrementAndGet();
+        crawler.restartIndexing(Set.of(vmRuntimeInfo.getHttpBaseUrl() + "/index.html"));
+        while (crawler.runCycle()) {}
+        assertEquals(0, documents.size());
+        // the pages that are not emitted are not waiting for a commit
+        assertTrue(status.getRemainingUrls().isEmpty());
+        assertTrue(status.getDeletedPages().isEmpty());
+
+        // page1 changed, page2 is not linked anymore
+        stubFor(
+                get("/index.html")
+                        .willReturn(
+                                okForContentType(
+                                        "text/html",
+                                        """
+                                  <a href="page1.html">link</a>
+                              """)));
+        stubFor(get("/page1.html").willReturn(okForContentType("text/html", "page 1 changed")));
+        clock.incrementAndGet();
+        crawler.restartIndexing(Set.of(vmRuntimeInfo.getHttpBaseUrl() + "/index.html"));
+        while (crawler.runCycle()) {}
+        assertEquals(2, documents.size());
+        assertEquals(vmRuntimeInfo.getHttpBaseUrl() + "/index.html", documents.get(0).url());
+        assertEquals(vmRuntimeInfo.getHttpBaseUrl() + "/page1.html", documents.get(1).url());
+        documents.forEach(document -> status.urlProcessed(document.url()));
+        assertEquals(
+                List.of(vmRuntimeInfo.getHttpBaseUrl() + "/page2.html"), status.getDeletedPages());
+    }
+
+    @Test
+    void testConditionalRequests(WireMockRuntimeInfo vmRuntimeInfo) throws Exception {
+        stubFor(
+                get("/index.html")
+                        .willReturn(
+                                okForContentType("text/html", "hello")
+                                        .withHeader("ETag", "\"v1\"")));
+        stubFor(
+                get("/index.html")
+                        .withHeader("If-None-Match", equalTo("\"v1\""))
+                        .willReturn(aResponse().withStatus(304)));
+
+        WebCrawlerConfiguration configuration =
+                WebCrawlerConfiguration.builder()
+                        .allowedDomains(Set.of(vmRuntimeInfo.getHttpBaseUrl()))
+                        .handleRobotsFile(false)
+                        .scanHtmlDocuments(false)
+                        .minTimeBetweenRequests(0)
+                        .skipUnchangedPages(true)
+                        .build();
+        WebCrawlerStatus status = new WebCrawlerStatus();
+        List<Document> documents = new ArrayList<>();
+        AtomicLong clock = new AtomicLong(1000);
+        WebCrawler crawler = new WebCrawler(configuration, status, documents::add, clock::get);
+        crawler.crawl(vmRuntimeInfo.getHttpBaseUrl() + "/index.html");
+        while (crawler.runCycle()) {}
+        assertEquals(1, documents.size());
+        status.urlProcessed(documents.get(0).url());
+
+        clock.incrementAndGet();
+        crawler.restartIndexing(Set.of(vmRuntimeInfo.getHttpBaseUrl() + "/index.html"));
+        while (crawler.runCycle()) {}
+        assertEquals(1, documents.size());
+        verify(
+                getRequestedFor(urlEqualTo("/index.html"))
+                        .withHeader("If-None-Match", equalTo("\"v1\"")));
+        assertTrue(status.getRemainingUrls().isEmpty());
+        assertTrue(status.getDeletedPages().isEmpty());
+    }
 }
@@ -33,9 +33,10 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class DispatchAgent extends AbstractAgentCode implements AgentProcessor {
 
-    record Route(String destination, boolean drop, JstlPredicate predicate) {}
+    record Route(String destination, boolean drop, String when, JstlPredicate predicate) {}
 
     private final List<Route> routes = new ArrayList<>();
+    private RouteTable routeTable;
     private final Map<String, TopicProducer> producers = new HashMap<>();
 
     @SuppressWarnings("unchecked")
@@ -71,8 +72,9 @@ public class DispatchAgent extends AbstractAgentCode implements AgentProcessor {
                                 when,
                                 destination);
                     }
-                    this.routes.add(new Route(destination, drop, new JstlPredicate(when)));
+                    this.routes.add(new Route(destination, drop, when, new JstlPredicate(when)));
                 });
+        routeTable = new RouteTable(this.routes);
     }
 
     @Override
@@ -106,11 +108,10 @@ public class DispatchAgent extends AbstractAgentCode implements AgentProcessor {
 
     public void processRecord(Record record, RecordSink recordSink) {
         try {
-            MutableRecord context = MutableRecord.recordToMutableRecord(record, true);
-
-            for (Route r : routes) {
-                boolean test = r.predicate.test(context);
-                if (test) {
+            if (!routes.isEmpty()) {
+                MutableRecord context = MutableRecord.recordToMutableRecord(record, true);
+                Route r = routeTable.findRoute(context);
+                if (r != null) {
                     if (r.drop) {
                         if (log.isDebugEnabled()) {
                             log.debug("Discarding record {} - action=drop", record);
@@ -31,7 +31,9 @@ public class FlowControlAgentsCodeProvider implements AgentCodeProvider {
                     "timer-source",
                     TimerSource::new,
                     "log-event",
-                    LogEventProcessor::new);
+                    LogEventProcessor::new,
+                    "window",
+                    WindowProcessor::new);
 
     @Override
     public boolean supports(String agentType) {
@@ -0,0 +1,206 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.agents.flow;
+
+import ai.langstream.ai.agents.commons.MutableRecord;
+import ai.langstream.ai.agents.commons.jstl.JstlEvaluator;
+import jakarta.el.PropertyNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Finds the first route that matches a record.
+ *
+ * <p>The conditions like <code>value.type == 'x'</code> are compiled: consecutive routes that
+ * compare the same field with a string literal are grouped together, the field is evaluated once
+ * per record and the route is found with a hash lookup. The value of a field is shared by all the
+ * groups that use it. The other conditions are evaluated in order, as before. When the field is not
+ * a string the routes of the group are evaluated one by one, so the result is always the same as
+ * evaluating all the conditions in order.
+ */
+@Slf4j
+class RouteTable {
+
+    private static final Pattern ACCESSOR = Pattern.compile("[A-Za-z_]\\w*(?:\\.[A-Za-z_]\\w*)*");
+    private static final Pattern LITERAL = Pattern.compile("'([^'\\\\]*)'|\"([^\"\\\\]*)\"");
+    private static final Pattern EQUALS = Pattern.compile("\\s*(?:==|\\beq\\b)\\s*");
+
+    private static final Object NOT_EVALUATED = new Object();
+    private static final Object NOT_FOUND = new Object();
+
+    record Equality(String accessor, String literal) {}
+
+    private interface Step {
+        DispatchAgent.Route match(MutableRecord record, Object[] fields);
+    }
+
+    private record PredicateStep(DispatchAgent.Route route) implements Step {
+        @Override
+        public DispatchAgent.Route match(MutableRecord record, Object[] fields) {
+            return route.predicate().test(record) ? route : null;
+        }
+    }
+
+    private record EqualityStep(
+            Field field, Map<String, DispatchAgent.Route> routes, List<DispatchAgent.Route> all)
+            implements Step {
+        @Override
+        public DispatchAgent.Route match(MutableRecord record, Object[] fields) {
+            Object value = field.get(record, fields);
+            if (value instanceof String s) {
+                return routes.get(s);
+            }
+            if (value == null || value == NOT_FOUND) {
+                // null == 'x' is false, and a missing property doesn't match
+                return null;
+            }
+            // the expression language coerces numbers and booleans
+            for (DispatchAgent.Route route : all) {
+                if (route.predicate().test(record)) {
+                    return route;
+                }
+            }
+            return null;
+        }
+    }
+
+    private record Field(int index, JstlEvaluator<Object> evaluator) {
+        Object get(MutableRecord record, Object[] fields) {
+            Object value = fields[index];
+            if (value == NOT_EVALUATED) {
+                value = evaluate(record);
+                fields[index] = value;
+            }
+            return value;
+        }
+
+        private Object evaluate(MutableRecord record) {
+            try {
+                return evaluator.evaluate(record);
+            } catch (PropertyNotFoundException ex) {
+                return NOT_FOUND;
+            } catch (IllegalArgumentException ex) {
+                if (ex.getCause() instanceof PropertyNotFoundException) {
+                    return NOT_FOUND;
+                }
+                throw ex;
+            }
+        }
+    }
+
+    private final List<Step> steps;
+    private final int fieldCount;
+
+    RouteTable(List<DispatchAgent.Route> routes) {
+        Map<String, Field> fields = new HashMap<>();
+        List<Step> steps = new ArrayList<>();
+        int i = 0;
+        while (i < routes.size()) {
+            DispatchAgent.Route route = routes.get(i);
+            Equality equality = parseEquality(route.when());
+            if (equality == null) {
+                steps.add(new PredicateStep(route));
+                i++;
+                continue;
+            }
+            Field field =
+                    fields.computeIfAbsent(
+                            equality.accessor(),
+                            accessor ->
+                                    new Field(
+                                            fields.size(),
+                                            new JstlEvaluator<>(
+                                                    "${" + accessor + "}", Object.class)));
+            Map<String, DispatchAgent.Route> byLiteral = new HashMap<>();
+            List<DispatchAgent.Route> all = new ArrayList<>();
+            while (i < routes.size()) {
+                DispatchAgent.Route next = routes.get(i);
+                Equality nextEquality = parseEquality(next.when());
+                if (nextEquality == null || !nextEquality.accessor().equals(equality.accessor())) {
+                    break;
+                }
+                // the first route wins
+                byLiteral.putIfAbsent(nextEquality.literal(), next);
+                all.add(next);
+                i++;
+            }
+            steps.add(new EqualityStep(field, byLiteral, all));
+        }
+        this.steps = steps;
+        this.fieldCount = fields.size();
+        log.info(
+                "Compiled {} routes into {} steps, {} distinct fields",
+                routes.size(),
+                steps.size(),
+                fieldCount);
+    }
+
+    DispatchAgent.Route findRoute(MutableRecord record) {
+        Object[] fields = new Object[fieldCount];
+        Arrays.fill(fields, NOT_EVALUATED);
+        for (Step step : steps) {
+            DispatchAgent.Route route = step.match(record, fields);
+            if (route != null) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    int size() {
+        return steps.size();
+    }
+
+    /**
+     * Parses conditions like <code>value.type == 'x'</code> or <code>'x' eq key</code>. Returns
+     * null for any other condition.
+     */
+    static Equality parseEquality(String when) {
+        if (when == null) {
+            return null;
+        }
+        String[] parts = EQUALS.split(when.trim(), -1);
+        if (parts.length != 2) {
+            return null;
+        }
+        Equality equality = parseEquality(parts[0], parts[1]);
+        return equality != null ? equality : parseEquality(parts[1], parts[0]);
+    }
+
+    private static Equality parseEquality(String accessor, String literal) {
+        if (!ACCESSOR.matcher(accessor).matches()) {
+            return null;
+        }
+        if (accessor.equals("null")
+                || accessor.equals("true")
+                || accessor.equals("false")
+                || accessor.equals("empty")) {
+            return null;
+        }
+        Matcher matcher = LITERAL.matcher(literal);
+        if (!matcher.matches()) {
+            return null;
+        }
+        return new Equality(
+                accessor, matcher.group(1) != null ? matcher.group(1) : matcher.group(2));
+    }
+}
@@ -0,0 +1,503 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.agents.flow;
+
+import ai.langstream.ai.agents.commons.MutableRecord;
+import ai.langstream.ai.agents.commons.TransformSchemaType;
+import ai.langstream.ai.agents.commons.jstl.JstlEvaluator;
+import ai.langstream.api.runner.code.AbstractAgentCode;
+import ai.langstream.api.runner.code.AgentProcessor;
+import ai.langstream.api.runner.code.Record;
+import ai.langstream.api.runner.code.RecordSink;
+import ai.langstream.api.runtime.ComponentType;
+import ai.langstream.api.util.ConfigurationUtils;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Aggregates the records over tumbling, sliding or session windows, optionally grouped by key.
+ *
+ * <p>When a window closes, the aggregated record is emitted as the result of the last record of the
+ * window, and the other source records of the window are acknowledged with no result. So the source
+ * records are committed only when their window closes: after a restart the records of the open
+ * windows are read again from the source and the windows are rebuilt, there is no need to store the
+ * windows. Only the values of the fields are kept in memory, the number of records per window and
+ * the number of open windows are bounded.
+ *
+ * <p>The aggregated record has the "window-close-reason" property: "size", "duration" or "gap" when
+ * the window closed normally, "max-records" or "max-windows" when it was closed early to bound the
+ * memory. In the last two cases the aggregate doesn't cover the whole window.
+ */
+@Slf4j
+public class WindowProcessor extends AbstractAgentCode implements AgentProcessor {
+
+    enum WindowType {
+        TUMBLING,
+        SLIDING,
+        SESSION
+    }
+
+    enum CloseReason {
+        SIZE("size"),
+        DURATION("duration"),
+        GAP("gap"),
+        MAX_RECORDS("max-records"),
+        MAX_WINDOWS("max-windows");
+
+        private final String value;
+
+        CloseReason(String value) {
+            this.value = value;
+        }
+
+        boolean truncated() {
+            return this == MAX_RECORDS || this == MAX_WINDOWS;
+        }
+    }
+
+    enum Aggregate {
+        COLLECT,
+        COUNT,
+        SUM,
+        MIN,
+        MAX,
+        FIRST,
+        LAST
+    }
+
+    record FieldDefinition(
+            String name, JstlEvaluator<Object> expressionEvaluator, Aggregate aggregate) {}
+
+    /** A record in a window: the source record and the values of the fields. */
+    private record Entry(Record source, Object[] values) {}
+
+    private static final class Window {
+        private final Object key;
+        private final long start;
+        private long lastRecordTime;
+        private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+
+        Window(Object key, long start) {
+            this.key = key;
+            this.start = start;
+            this.lastRecordTime = start;
+        }
+    }
+
+    /** A window that has been closed and that must be emitted. */
+    private record ClosedWindow(
+            Record result, RuntimeException error, List<Entry> released, RecordSink sink) {}
+
+    private final List<FieldDefinition> fields = new ArrayList<>();
+    private JstlEvaluator<Object> keyEvaluator;
+    private WindowType windowType;
+    private int size;
+    private int slide;
+    private long durationMs;
+    private long gapMs;
+    private int maxRecords;
+    private int maxWindows;
+
+    // the open windows, in order of creation
+    private final Map<Object, Window> windows = new LinkedHashMap<>();
+    private RecordSink recordSink;
+    private long truncatedWindows;
+    private ScheduledExecutorService timer;
+    private final LongSupplier clock;
+
+    public WindowProcessor() {
+        this(System::currentTimeMillis);
+    }
+
+    WindowProcessor(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void init(Map<String, Object> configuration) {
+        String type = ConfigurationUtils.getString("window-type", "tumbling", configuration);
+        ConfigurationUtils.validateEnumValue(
+                "window-type", Set.of("tumbling", "sliding", "session"), type, () -> "window");
+        windowType = WindowType.valueOf(type.toUpperCase());
+        size = ConfigurationUtils.getInt("size", 0, configuration);
+        slide = ConfigurationUtils.getInt("slide", 1, configuration);
+        durationMs = ConfigurationUtils.getLong("duration-ms", 0L, configuration);
+        gapMs = ConfigurationUtils.getLong("gap-ms", 0L, configuration);
+        maxRecords = ConfigurationUtils.getInt("max-records", 10000, configuration);
+        maxWindows = ConfigurationUtils.getInt("max-windows", 10000, configuration);
+        switch (windowType) {
+            case TUMBLING -> {
+                if (size <= 0 && durationMs <= 0) {
+                    throw new IllegalArgumentException(
+                            "A tumbling window requires a size or a duration-ms");
+                }
+            }
+            case SLIDING -> {
+                if (size <= 0) {
+                    throw new IllegalArgumentException("A sliding window requires a size");
+                }
+                if (slide <= 0 || slide > size) {
+                    throw new IllegalArgumentException(
+                            "The slide must be between 1 and the size of the window");
+                }
+            }
+            case SESSION -> {
+                if (gapMs <= 0) {
+                    throw new IllegalArgumentException("A session window requires a gap-ms");
+                }
+            }
+        }
+        if (size > 0) {
+            maxRecords = Math.max(maxRecords, size);
+        }
+
+        String key = ConfigurationUtils.getString("key", "", configuration);
+        if (!key.isEmpty()) {
+            keyEvaluator = new JstlEvaluator<>("${" + key + "}", Object.class);
+        }
+        List<Map<String, Object>> fields =
+                (List<Map<String, Object>>) configuration.getOrDefault("fields", List.of());
+        fields.forEach(
+                r -> {
+                    String name = ConfigurationUtils.getString("name", "", r);
+                    String expression = ConfigurationUtils.getString("expression", "", r);
+                    String aggregate = ConfigurationUtils.getString("aggregate", "collect", r);
+                    Aggregate agg = Aggregate.valueOf(aggregate.toUpperCase());
+                    if (expression.isEmpty() && agg != Aggregate.COUNT) {
+                        throw new IllegalArgumentException(
+                                "Field " + name + " requires an expression");
+                    }
+                    log.info(
+                            "Aggregating field with name {} computed as {} with {}",
+                            name,
+                            expression,
+                            aggregate);
+                    this.fields.add(
+                            new FieldDefinition(
+                                    name,
+                                    expression.isEmpty()
+                                            ? null
+                                            : new JstlEvaluator<>(
+                                                    "${" + expression + "}", Object.class),
+                                    agg));
+                });
+    }
+
+    @Override
+    public ComponentType componentType() {
+        return ComponentType.PROCESSOR;
+    }
+
+    @Override
+    public void start() {
+        long period = timerPeriod();
+        if (period > 0) {
+            timer =
+                    Executors.newSingleThreadScheduledExecutor(
+                            r -> {
+                                Thread thread = new Thread(r, "window-timer");
+                                thread.setDaemon(true);
+                                return thread;
+                            });
+            timer.scheduleWithFixedDelay(
+                    this::closeExpiredWindows, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private long timerPeriod() {
+        long timeout =
+                switch (windowType) {
+                    case SESSION -> gapMs;
+                    case TUMBLING, SLIDING -> durationMs;
+                };
+        if (timeout <= 0) {
+            return 0;
+        }
+        return Math.min(1000, Math.max(10, timeout / 4));
+    }
+
+    @Override
+    public void process(List<Record> records, RecordSink recordSink) {
+        List<ClosedWindow> closed = new ArrayList<>();
+        for (Record record : records) {
+            Entry entry;
+            Object key;
+            try {
+                MutableRecord mutableRecord = MutableRecord.recordToMutableRecord(record, true);
+                key = keyEvaluator != null ? keyEvaluator.evaluate(mutableRecord) : null;
+                Object[] values = new Object[fields.size()];
+                for (int i = 0; i < values.length; i++) {
+                    FieldDefinition field = fields.get(i);
+                    if (field.expressionEvaluator != null) {
+                        values[i] = field.expressionEvaluator.evaluate(mutableRecord);
+                    }
+                }
+                entry = new Entry(record, values);
+            } catch (RuntimeException error) {
+                recordSink.emitError(record, error);
+                continue;
+            }
+            synchronized (this) {
+                this.recordSink = recordSink;
+                add(key, entry, closed);
+            }
+        }
+        emit(closed);
+    }
+
+    private void add(Object key, Entry entry, List<ClosedWindow> closed) {
+        long now = clock.getAsLong();
+        Window window = windows.get(key);
+        if (window == null) {
+            if (windows.size() >= maxWindows) {
+                // bound the memory, close the oldest window
+                Iterator<Window> oldest = windows.values().iterator();
+                Window evicted = oldest.next();
+                oldest.remove();
+                closed.add(close(evicted, evicted.entries.size(), now, CloseReason.MAX_WINDOWS));
+            }
+            window = new Window(key, now);
+            windows.put(key, window);
+        }
+        window.entries.add(entry);
+        window.lastRecordTime = now;
+
+        switch (windowType) {
+            case TUMBLING, SESSION -> {
+                if (size > 0 && window.entries.size() >= size) {
+                    windows.remove(key);
+                    closed.add(close(window, window.entries.size(), now, CloseReason.SIZE));
+                } else if (window.entries.size() >= maxRecords) {
+                    windows.remove(key);
+                    closed.add(close(window, window.entries.size(), now, CloseReason.MAX_RECORDS));
+                }
+            }
+            case SLIDING -> {
+                if (window.entries.size() >= size) {
+                    closed.add(close(window, slide, now, CloseReason.SIZE));
+                    if (window.entries.isEmpty()) {
+                        windows.remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    void closeExpiredWindows() {
+        List<ClosedWindow> closed = new ArrayList<>();
+        synchronized (this) {
+            long now = clock.getAsLong();
+            Iterator<Window> it = windows.values().iterator();
+            while (it.hasNext()) {
+                Window window = it.next();
+                boolean expired =
+                        switch (windowType) {
+                            case TUMBLING -> durationMs > 0 && now - window.start >= durationMs;
+                            case SESSION -> now - window.lastRecordTime >= gapMs;
+                            case SLIDING -> durationMs > 0
+                                    && now - window.lastRecordTime >= durationMs;
+                        };
+                if (expired) {
+                    it.remove();
+                    closed.add(
+                            close(
+                                    window,
+                                    window.entries.size(),
+                                    now,
+                                    windowType == WindowType.SESSION
+                                            ? CloseReason.GAP
+                                            : CloseReason.DURATION));
+                }
+            }
+        }
+        emit(closed);
+    }
+
+    /**
+     * Computes the aggregated record of the window and removes the first records from the window.
+     */
+    private ClosedWindow close(Window window, int release, long now, CloseReason reason) {
+        if (reason.truncated()) {
+            truncatedWindows++;
+            log.warn(
+                    "Closing a window with {} records because of {}, the aggregate is truncated",
+                    window.entries.size(),
+                    reason.value);
+        }
+        Record result = null;
+        RuntimeException error = null;
+        try {
+            result = aggregate(window, now, reason);
+        } catch (RuntimeException e) {
+            log.error("Cannot aggregate the window", e);
+            error = e;
+        }
+        List<Entry> released = new ArrayList<>(release);
+        for (int i = 0; i < release && !window.entries.isEmpty(); i++) {
+            released.add(window.entries.poll());
+        }
+        return new ClosedWindow(result, error, released, recordSink);
+    }
+
+    private Record aggregate(Window window, long now, CloseReason reason) {
+        Entry last = window.entries.peekLast();
+        MutableRecord mutableRecord =
+                MutableRecord.recordToMutableRecord(last.source(), true).copy();
+        if (fields.stream().anyMatch(f -> f.name.startsWith("value."))) {
+            mutableRecord.setValueObject(new HashMap<String, Object>());
+            mutableRecord.setValueSchemaType(TransformSchemaType.MAP);
+            mutableRecord.setValueNativeSchema(null);
+        }
+        for (int i = 0; i < fields.size(); i++) {
+            FieldDefinition field = fields.get(i);
+            mutableRecord.setResultField(
+                    aggregate(field.aggregate, window.entries, i), field.name, null, null, null);
+        }
+        mutableRecord.setProperty("window-start", String.valueOf(window.start));
+        mutableRecord.setProperty("window-end", String.valueOf(now));
+        mutableRecord.setProperty("window-close-reason", reason.value);
+        return MutableRecord.mutableRecordToRecord(mutableRecord).orElseThrow();
+    }
+
+    static Object aggregate(Aggregate aggregate, Iterable<Entry> entries, int index) {
+        switch (aggregate) {
+            case COLLECT -> {
+                List<Object> values = new ArrayList<>();
+                entries.forEach(e -> values.add(e.values()[index]));
+                return values;
+            }
+            case COUNT -> {
+                long count = 0;
+                for (Entry ignored : entries) {
+                    count++;
+                }
+                return count;
+            }
+            case FIRST -> {
+                return entries.iterator().next().values()[index];
+            }
+            case LAST -> {
+                Object last = null;
+                for (Entry e : entries) {
+                    last = e.values()[index];
+                }
+                return last;
+            }
+            case SUM, MIN, MAX -> {
+                double result = 0;
+                boolean integral = true;
+                boolean first = true;
+                for (Entry e : entries) {
+                    Object value = e.values()[index];
+                    if (value == null) {
+                        continue;
+                    }
+                    double number = toNumber(value);
+                    integral &= value instanceof Integer || value instanceof Long;
+                    if (first) {
+                        result = number;
+                        first = false;
+                    } else {
+                        result =
+                                switch (aggregate) {
+                                    case SUM -> result + number;
+                                    case MIN -> Math.min(result, number);
+                                    default -> Math.max(result, number);
+                                };
+                    }
+                }
+                if (first && aggregate != Aggregate.SUM) {
+                    return null;
+                }
+                return integral ? (Object) (long) result : (Object) result;
+            }
+            default -> throw new IllegalStateException();
+        }
+    }
+
+    private static double toNumber(Object value) {
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        try {
+            return Double.parseDouble(value.toString());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Cannot aggregate non numeric value " + value);
+        }
+    }
+
+    private static void emit(List<ClosedWindow> closed) {
+        for (ClosedWindow window : closed) {
+            List<Entry> released = window.released();
+            if (window.error() != null) {
+                released.forEach(e -> window.sink().emitError(e.source(), window.error()));
+                continue;
+            }
+            for (int i = 0; i < released.size() - 1; i++) {
+                window.sink().emitEmptyList(released.get(i).source());
+            }
+            if (!released.isEmpty()) {
+                window.sink()
+                        .emitSingleResult(
+                                released.get(released.size() - 1).source(), window.result());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (timer != null) {
+            timer.shutdownNow();
+            timer = null;
+        }
+        synchronized (this) {
+            // the records of the open windows are not committed, they will be processed again
+            if (!windows.isEmpty()) {
+                log.info("Discarding {} open windows", windows.size());
+            }
+            windows.clear();
+        }
+    }
+
+    @Override
+    protected Map<String, Object> buildAdditionalInfo() {
+        synchronized (this) {
+            int records = 0;
+            for (Window window : windows.values()) {
+                records += window.entries.size();
+            }
+            return Map.of(
+                    "open-windows",
+                    windows.size(),
+                    "records-in-windows",
+                    records,
+                    "truncated-windows",
+                    truncatedWindows);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.agents.flow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import ai.langstream.ai.agents.commons.MutableRecord;
+import ai.langstream.ai.agents.commons.jstl.predicate.JstlPredicate;
+import ai.langstream.api.runner.code.SimpleRecord;
+import jakarta.el.ELException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+@Slf4j
+class RouteTableTest {
+
+    private static DispatchAgent.Route route(String destination, String when) {
+        return new DispatchAgent.Route(destination, false, when, new JstlPredicate(when));
+    }
+
+    private static MutableRecord record(String value) {
+        return MutableRecord.recordToMutableRecord(
+                SimpleRecord.builder().key("k").value(value).build(), true);
+    }
+
+    private static DispatchAgent.Route sequential(
+            List<DispatchAgent.Route> routes, MutableRecord record) {
+        for (DispatchAgent.Route route : routes) {
+            if (route.predicate().test(record)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    /** The route, or the error, so that the errors can be compared too. */
+    private static Object outcome(Supplier<DispatchAgent.Route> evaluation) {
+        try {
+            return evaluation.get();
+        } catch (RuntimeException error) {
+            return error.getClass();
+        }
+    }
+
+    @Test
+    void testParseEquality() {
+        assertEquals(
+                new RouteTable.Equality("value.type", "x"),
+                RouteTable.parseEquality("value.type == 'x'"));
+        assertEquals(
+                new RouteTable.Equality("key", "a b"), RouteTable.parseEquality("\"a b\" eq key"));
+        assertEquals(
+                new RouteTable.Equality("properties.tenant", ""),
+                RouteTable.parseEquality("properties.tenant==''"));
+        assertNull(RouteTable.parseEquality("value.type == 'x' && key == 'y'"));
+        assertNull(RouteTable.parseEquality("value.type != 'x'"));
+        assertNull(RouteTable.parseEquality("value.count == 1"));
+        assertNull(RouteTable.parseEquality("fn:lowercase(value.type) == 'x'"));
+        assertNull(RouteTable.parseEquality("value.type == 'it\\'s'"));
+        assertNull(RouteTable.parseEquality("value.type == 'a==b'"));
+        assertNull(RouteTable.parseEquality("null == 'x'"));
+    }
+
+    @Test
+    void testSameResultAsSequentialEvaluation() {
+        List<DispatchAgent.Route> routes =
+                List.of(
+                        route("a", "value.type == 'a'"),
+                        route("b", "value.type == 'b'"),
+                        route("a2", "value.type == 'a'"),
+                        route("num", "value.type == '1'"),
+                        route("complex", "value.count > 10"),
+                        route("c", "'c' == value.type"),
+                        route("key", "key == 'other'"),
+                        route("d", "value.type eq 'd'"),
+                        route("missing", "value.missing == 'x'"),
+                        route("flag", "value.type == 'true'"));
+        RouteTable table = new RouteTable(routes);
+        // two equality groups on value.type, one complex route, the other groups
+        assertEquals(7, table.size());
+
+        List<String> values =
+                List.of(
+                        "{\"type\": \"a\"}",
+                        "{\"type\": \"b\", \"count\": 20}",
+                        "{\"type\": \"c\", \"count\": 20}",
+                        "{\"type\": \"c\"}",
+                        "{\"type\": \"d\"}",
+                        "{\"type\": 1}",
+                        "{\"type\": 1.0}",
+                        "{\"type\": true}",
+                        "{\"type\": null}",
+                        "{\"other\": \"a\"}",
+                        "{\"type\": \"unknown\"}",
+                        "not json");
+        for (String value : values) {
+            MutableRecord record = record(value);
+            assertEquals(
+                    outcome(() -> sequential(routes, record)),
+                    outcome(() -> table.findRoute(record)),
+                    value);
+        }
+        assertEquals("a", table.findRoute(record("{\"type\": \"a\"}")).destination());
+        // like the expression language, a number cannot be compared with a non numeric string
+        assertEquals(ELException.class, outcome(() -> table.findRoute(record("{\"type\": 1}"))));
+        assertEquals(
+                "complex",
+                table.findRoute(record("{\"type\": \"c\", \"count\": 20}")).destination());
+        assertEquals("flag", table.findRoute(record("{\"type\": true}")).destination());
+        assertNull(table.findRoute(record("{\"type\": \"unknown\"}")));
+    }
+
+    @Test
+    void testBenchmark() {
+        Random random = new Random(42);
+        for (int size : new int[] {10, 100, 1000}) {
+            List<DispatchAgent.Route> routes = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                if (i % 10 == 9) {
+                    routes.add(route("complex-" + i, "value.amount > " + (1000 + i)));
+                } else {
+                    routes.add(route("tenant-" + i, "value.tenant == 'tenant-" + i + "'"));
+                }
+            }
+            RouteTable table = new RouteTable(routes);
+            List<MutableRecord> records = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                records.add(
+                        record(
+                                "{\"tenant\": \"tenant-%d\", \"amount\": %d}"
+                                        .formatted(random.nextInt(size * 2), random.nextInt(50))));
+            }
+
+            long start = System.nanoTime();
+            List<DispatchAgent.Route> expected = new ArrayList<>();
+            for (MutableRecord record : records) {
+                expected.add(sequential(routes, record));
+            }
+            long sequentialNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            List<DispatchAgent.Route> actual = new ArrayList<>();
+            for (MutableRecord record : records) {
+                actual.add(table.findRoute(record));
+            }
+            long compiledNanos = System.nanoTime() - start;
+
+            assertEquals(expected, actual);
+            log.info(
+                    "{} routes: sequential {} us/record, compiled {} us/record",
+                    size,
+                    sequentialNanos / records.size() / 1000,
+                    compiledNanos / records.size() / 1000);
+        }
+    }
+}
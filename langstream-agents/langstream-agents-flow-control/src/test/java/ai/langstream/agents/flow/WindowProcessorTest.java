@@ -0,0 +1,250 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.agents.flow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import ai.langstream.api.runner.code.AgentContext;
+import ai.langstream.api.runner.code.AgentProcessor;
+import ai.langstream.api.runner.code.Record;
+import ai.langstream.api.runner.code.SimpleRecord;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class WindowProcessorTest {
+
+    private final AtomicLong now = new AtomicLong(1000);
+    private final List<AgentProcessor.SourceRecordAndResult> results = new CopyOnWriteArrayList<>();
+
+    private WindowProcessor start(Map<String, Object> configuration) throws Exception {
+        WindowProcessor processor = new WindowProcessor(now::get);
+        processor.init(configuration);
+        processor.setContext(mock(AgentContext.class));
+        processor.start();
+        return processor;
+    }
+
+    private static Record record(String key, int amount) {
+        return SimpleRecord.builder()
+                .key(key)
+                .value(
+                        """
+                        {"user": "%s", "amount": %s}
+                        """
+                                .formatted(key, amount))
+                .build();
+    }
+
+    private List<Record> emitted() {
+        List<Record> emitted = new ArrayList<>();
+        for (AgentProcessor.SourceRecordAndResult result : results) {
+            assertNull(result.error());
+            emitted.addAll(result.resultRecords());
+        }
+        return emitted;
+    }
+
+    private static Map<String, Object> fields() {
+        return Map.of(
+                "fields",
+                List.of(
+                        Map.of("name", "value.amounts", "expression", "value.amount"),
+                        Map.of(
+                                "name",
+                                "value.total",
+                                "expression",
+                                "value.amount",
+                                "aggregate",
+                                "sum"),
+                        Map.of("name", "value.count", "aggregate", "count"),
+                        Map.of(
+                                "name",
+                                "value.max",
+                                "expression",
+                                "value.amount",
+                                "aggregate",
+                                "max")));
+    }
+
+    private static Map<String, Object> config(Object... keyValues) {
+        Map<String, Object> configuration = new HashMap<>(fields());
+        for (int i = 0; i < keyValues.length; i += 2) {
+            configuration.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return configuration;
+    }
+
+    @Test
+    void testTumblingWindowBySize() throws Exception {
+        try (WindowProcessor processor = start(config("size", 3))) {
+            List<Record> records = new ArrayList<>();
+            for (int i = 1; i <= 7; i++) {
+                records.add(record("a", i));
+            }
+            processor.process(records, results::add);
+
+            // only the records of the closed windows are acknowledged
+            assertEquals(6, results.size());
+            List<Record> emitted = emitted();
+            assertEquals(2, emitted.size());
+            Map<String, Object> first = (Map<String, Object>) emitted.get(0).value();
+            assertEquals(List.of(1, 2, 3), first.get("amounts"));
+            assertEquals(6L, first.get("total"));
+            assertEquals(3L, first.get("count"));
+            assertEquals(3L, first.get("max"));
+            Map<String, Object> second = (Map<String, Object>) emitted.get(1).value();
+            assertEquals(List.of(4, 5, 6), second.get("amounts"));
+            assertNotNull(emitted.get(1).getHeader("window-start"));
+            assertNotNull(emitted.get(1).getHeader("window-end"));
+
+            // the aggregated record is the result of the last record of the window
+            assertSame(records.get(2), results.get(2).sourceRecord());
+            assertEquals(1, results.get(2).resultRecords().size());
+            assertEquals(0, results.get(0).resultRecords().size());
+            assertEquals(0, results.get(1).resultRecords().size());
+            assertEquals(
+                    Map.of("open-windows", 1, "records-in-windows", 1, "truncated-windows", 0L),
+                    processor.buildAdditionalInfo());
+        }
+    }
+
+    @Test
+    void testTumblingWindowByDuration() throws Exception {
+        try (WindowProcessor processor = start(config("duration-ms", 1000))) {
+            processor.process(List.of(record("a", 1), record("a", 2)), results::add);
+            now.addAndGet(500);
+            processor.closeExpiredWindows();
+            assertEquals(0, results.size());
+            processor.process(List.of(record("a", 3)), results::add);
+            now.addAndGet(500);
+            processor.closeExpiredWindows();
+            assertEquals(3, results.size());
+            Map<String, Object> value = (Map<String, Object>) emitted().get(0).value();
+            assertEquals(List.of(1, 2, 3), value.get("amounts"));
+            assertEquals("1000", emitted().get(0).getHeader("window-start").valueAsString());
+            assertEquals("2000", emitted().get(0).getHeader("window-end").valueAsString());
+            assertEquals(
+                    "duration", emitted().get(0).getHeader("window-close-reason").valueAsString());
+        }
+    }
+
+    @Test
+    void testKeyedWindows() throws Exception {
+        try (WindowProcessor processor = start(config("size", 2, "key", "value.user"))) {
+            processor.process(
+                    List.of(record("a", 1), record("b", 10), record("b", 20), record("a", 2)),
+                    results::add);
+            List<Record> emitted = emitted();
+            assertEquals(2, emitted.size());
+            assertEquals(
+                    List.of(10, 20), ((Map<String, Object>) emitted.get(0).value()).get("amounts"));
+            assertEquals(
+                    List.of(1, 2), ((Map<String, Object>) emitted.get(1).value()).get("amounts"));
+        }
+    }
+
+    @Test
+    void testMaxWindows() throws Exception {
+        try (WindowProcessor processor =
+                start(config("size", 10, "key", "value.user", "max-windows", 2))) {
+            processor.process(
+                    List.of(record("a", 1), record("b", 2), record("c", 3)), results::add);
+            // the oldest window is closed to make room for the new one
+            List<Record> emitted = emitted();
+            assertEquals(1, emitted.size());
+            assertEquals(List.of(1), ((Map<String, Object>) emitted.get(0).value()).get("amounts"));
+            assertEquals(
+                    "max-windows", emitted.get(0).getHeader("window-close-reason").valueAsString());
+        }
+    }
+
+    @Test
+    void testSessionWindow() throws Exception {
+        try (WindowProcessor processor = start(config("window-type", "session", "gap-ms", 100))) {
+            processor.process(List.of(record("a", 1)), results::add);
+            now.addAndGet(60);
+            processor.closeExpiredWindows();
+            processor.process(List.of(record("a", 2)), results::add);
+            now.addAndGet(60);
+            processor.closeExpiredWindows();
+            assertEquals(0, results.size());
+            now.addAndGet(40);
+            processor.closeExpiredWindows();
+            assertEquals(2, results.size());
+            assertEquals(
+                    List.of(1, 2), ((Map<String, Object>) emitted().get(0).value()).get("amounts"));
+        }
+    }
+
+    @Test
+    void testSlidingWindow() throws Exception {
+        try (WindowProcessor processor =
+                start(config("window-type", "sliding", "size", 3, "slide", 1))) {
+            List<Record> records = new ArrayList<>();
+            for (int i = 1; i <= 5; i++) {
+                records.add(record("a", i));
+            }
+            processor.process(records, results::add);
+            List<Record> emitted = emitted();
+            assertEquals(3, emitted.size());
+            assertEquals(
+                    List.of(1, 2, 3),
+                    ((Map<String, Object>) emitted.get(0).value()).get("amounts"));
+            assertEquals(
+                    List.of(2, 3, 4),
+                    ((Map<String, Object>) emitted.get(1).value()).get("amounts"));
+            assertEquals(
+                    List.of(3, 4, 5),
+                    ((Map<String, Object>) emitted.get(2).value()).get("amounts"));
+            // a record is acknowledged when it leaves the window
+            assertEquals(3, results.size());
+            assertSame(records.get(0), results.get(0).sourceRecord());
+        }
+    }
+
+    @Test
+    void testInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> start(Map.of()));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> start(Map.of("window-type", "sliding", "size", 2, "slide", 3)));
+        assertThrows(IllegalArgumentException.class, () -> start(Map.of("window-type", "session")));
+    }
+
+    @Test
+    void testNonNumericValue() throws Exception {
+        try (WindowProcessor processor = start(config("size", 2))) {
+            processor.process(
+                    List.of(
+                            SimpleRecord.builder().value("{\"amount\": \"not a number\"}").build(),
+                            record("a", 1)),
+                    results::add);
+            assertEquals(2, results.size());
+            assertTrue(results.stream().allMatch(r -> r.error() != null));
+        }
+    }
+}
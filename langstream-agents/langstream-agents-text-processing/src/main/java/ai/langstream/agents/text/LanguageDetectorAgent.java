@@ -18,16 +18,29 @@ package ai.langstream.agents.text;
 import ai.langstream.api.runner.code.Record;
 import ai.langstream.api.runner.code.SimpleRecord;
 import ai.langstream.api.runner.code.SingleRecordAgentProcessor;
+import ai.langstream.api.util.ConfigurationUtils;
+import java.io.IOException;
+import java.io.Reader;
 import java.util.List;
 import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.tika.langdetect.tika.LanguageIdentifier;
+import org.apache.tika.langdetect.tika.ProfilingWriter;
 
 @Slf4j
 public class LanguageDetectorAgent extends SingleRecordAgentProcessor {
 
+    static {
+        // the language profiles are loaded once, the first detection also computes
+        // some lazy state of the profiles, after that they are only read and the detection is
+        // thread safe
+        new LanguageIdentifier("warm up the language profiles");
+    }
+
     private String property = "language";
-    private List<String> allowedLanguages;
+    private List<String> allowedLanguages = List.of();
+    private int maxCharacters = 10_000;
+    private int sampleWindows = 1;
 
     @Override
     public void init(Map<String, Object> configuration) {
@@ -39,21 +52,22 @@ public class LanguageDetectorAgent extends SingleRecordAgentProcessor {
         } else {
             allowedLanguages = List.of();
         }
+        maxCharacters = ConfigurationUtils.getInt("max-characters", 10_000, configuration);
+        sampleWindows = Math.max(1, ConfigurationUtils.getInt("sample-windows", 1, configuration));
         log.info(
-                "Configuring Language Detectors with field {} and allowed languages {}",
+                "Configuring Language Detectors with field {}, allowed languages {}, max characters {}, sample windows {}",
                 property,
-                allowedLanguages);
+                allowedLanguages,
+                maxCharacters,
+                sampleWindows);
     }
 
     @Override
-    public List<Record> processRecord(Record record) {
+    public List<Record> processRecord(Record record) throws Exception {
         if (record == null) {
             return List.of();
         }
-        String inputText = Utils.toText(record.value());
-
-        LanguageIdentifier identifier = new LanguageIdentifier(inputText);
-        String language = identifier.getLanguage();
+        String language = detectLanguage(record.value());
 
         if (!allowedLanguages.isEmpty() && !allowedLanguages.contains(language)) {
             log.info(
@@ -73,4 +87,43 @@ public class LanguageDetectorAgent extends SingleRecordAgentProcessor {
 
         return List.of(result);
     }
+
+    String detectLanguage(Object value) throws IOException {
+        ProfilingWriter profile = new ProfilingWriter();
+        if (maxCharacters <= 0 || sampleWindows == 1) {
+            // read only the beginning of the text, without loading all of it
+            try (Reader reader = Utils.toReader(value)) {
+                copy(reader, profile, maxCharacters <= 0 ? Long.MAX_VALUE : maxCharacters);
+            }
+        } else {
+            String text = Utils.toText(value);
+            if (text == null || text.length() <= maxCharacters) {
+                profile.write(text == null ? "" : text);
+            } else {
+                // sample windows spread over the whole text
+                int windowSize = Math.max(1, maxCharacters / sampleWindows);
+                long step = (text.length() - windowSize) / (sampleWindows - 1);
+                for (int i = 0; i < sampleWindows; i++) {
+                    profile.write(text, (int) (i * step), windowSize);
+                    profile.write(' ');
+                }
+            }
+        }
+        profile.close();
+        return profile.getLanguage().getLanguage();
+    }
+
+    private static void copy(Reader reader, ProfilingWriter profile, long maxCharacters)
+            throws IOException {
+        char[] buffer = new char[4096];
+        long remaining = maxCharacters;
+        while (remaining > 0) {
+            int read = reader.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) {
+                break;
+            }
+            profile.write(buffer, 0, read);
+            remaining -= read;
+        }
+    }
 }
@@ -39,7 +39,7 @@ public class TextNormaliserAgent extends SingleRecordAgentProcessor {
     }
 
     @Override
-    public List<Record> processRecord(Record record) {
+    public List<Record> processRecord(Record record) throws Exception {
         if (record == null) {
             return List.of();
         }
@@ -15,10 +15,13 @@
  */
 package ai.langstream.agents.text;
 
+import ai.langstream.api.runner.code.BlobValue;
 import ai.langstream.api.runner.code.Header;
 import ai.langstream.api.runner.code.Record;
 import ai.langstream.api.runner.code.SimpleRecord;
 import ai.langstream.api.runner.code.SingleRecordAgentProcessor;
+import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -28,6 +31,9 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class TextSplitterAgent extends SingleRecordAgentProcessor {
 
+    /** Number of characters read at once when the text is streamed. */
+    static final int STREAMING_WINDOW_SIZE = 64 * 1024;
+
     /** Number of characters per chunk. */
     private TextSplitter textSplitter;
 
@@ -88,13 +94,20 @@ public class TextSplitterAgent extends SingleRecordAgentProcessor {
     }
 
     @Override
-    public List<Record> processRecord(Record record) {
+    public List<Record> processRecord(Record record) throws Exception {
         if (record == null) {
             return List.of();
         }
         Object value = record.value();
-        String text = Utils.toText(value);
-        List<String> chunks = textSplitter.splitText(text);
+        List<String> chunks;
+        if (value instanceof BlobValue) {
+            try (Reader reader = Utils.toReader(value)) {
+                chunks = splitText(reader);
+            }
+        } else {
+            String text = Utils.toText(value);
+            chunks = textSplitter.splitText(text);
+        }
         int chunkId = 0;
         int numChunks = chunks.size();
         List<Record> result = new ArrayList<>();
@@ -123,4 +136,45 @@ public class TextSplitterAgent extends SingleRecordAgentProcessor {
         }
         return result;
     }
+
+    /**
+     * Split a text that is too big to be loaded in memory. The text is read in windows, all the
+     * chunks but the last one are final, the text of the last chunk is split again together with
+     * the next window.
+     *
+     * <p>Only the reading is incremental: the chunks are the records emitted for the source record,
+     * that are emitted all together and carry the total number of chunks, so all the chunks of the
+     * text are kept in memory until the record is processed. The text must fit in memory once, plus
+     * the overlap of the chunks.
+     */
+    private List<String> splitText(Reader reader) throws IOException {
+        List<String> chunks = new ArrayList<>();
+        StringBuilder buffer = new StringBuilder();
+        char[] window = new char[STREAMING_WINDOW_SIZE];
+        while (true) {
+            int read = reader.read(window);
+            if (read < 0) {
+                if (!buffer.isEmpty()) {
+                    chunks.addAll(textSplitter.splitText(buffer.toString()));
+                }
+                return chunks;
+            }
+            buffer.append(window, 0, read);
+            if (buffer.length() < STREAMING_WINDOW_SIZE) {
+                continue;
+            }
+            String text = buffer.toString();
+            List<String> split = textSplitter.splitText(text);
+            if (split.size() < 2) {
+                continue;
+            }
+            String last = split.get(split.size() - 1);
+            int lastStart = text.lastIndexOf(last);
+            if (lastStart <= 0) {
+                continue;
+            }
+            chunks.addAll(split.subList(0, split.size() - 1));
+            buffer.delete(0, lastStart);
+        }
+    }
 }
@@ -18,46 +18,196 @@ package ai.langstream.agents.text;
 import ai.langstream.api.runner.code.Record;
 import ai.langstream.api.runner.code.SimpleRecord;
 import ai.langstream.api.runner.code.SingleRecordAgentProcessor;
+import ai.langstream.api.util.ConfigurationUtils;
 import java.io.InputStream;
-import java.io.Reader;
-import java.io.StringWriter;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.tika.exception.WriteLimitReachedException;
 import org.apache.tika.metadata.Metadata;
 import org.apache.tika.parser.AutoDetectParser;
 import org.apache.tika.parser.ParseContext;
-import org.apache.tika.parser.ParsingReader;
+import org.apache.tika.sax.BodyContentHandler;
+import org.apache.tika.sax.WriteOutContentHandler;
 
 @Slf4j
 public class TikaTextExtractorAgent extends SingleRecordAgentProcessor {
+
+    // the parser is thread safe and loading the Tika configuration is expensive
+    private static final AutoDetectParser PARSER = new AutoDetectParser();
+
+    // parsing with a timeout happens in a pool shared by all the instances of the agent,
+    // this way we don't start a new thread for every document
+    private static final ExecutorService PARSERS_POOL = createParsersPool();
+
+    // a parse that timed out can't be stopped if it is not waiting for the input,
+    // it keeps its permit until it really ends, so the stuck parses can't take more
+    // threads than the number of permits
+    private static final int MAX_RUNNING_PARSES = Runtime.getRuntime().availableProcessors();
+    private static final Semaphore RUNNING_PARSES = new Semaphore(MAX_RUNNING_PARSES);
+    private static final AtomicInteger ABANDONED_PARSES = new AtomicInteger();
+
+    private int maxCharacters = -1;
+    private long timeoutMs = 0;
+
+    private static ExecutorService createParsersPool() {
+        AtomicInteger threadCount = new AtomicInteger();
+        // no queue: the parse starts as soon as it is submitted, on an idle thread or on a new
+        // one, the number of threads is bounded by RUNNING_PARSES
+        return new ThreadPoolExecutor(
+                0,
+                Integer.MAX_VALUE,
+                60,
+                TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                r -> {
+                    Thread thread = new Thread(r, "tika-parser-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @Override
+    public void init(Map<String, Object> configuration) {
+        maxCharacters = ConfigurationUtils.getInt("max-characters", -1, configuration);
+        timeoutMs = ConfigurationUtils.getLong("timeout-ms", 0L, configuration);
+    }
+
     @Override
     public List<Record> processRecord(Record record) throws Exception {
         if (record == null) {
             return List.of();
         }
-        AutoDetectParser parser = new AutoDetectParser();
-        Object value = record.value();
-        final InputStream stream = Utils.toStream(value);
         Metadata metadata = new Metadata();
-        ParseContext parseContext = new ParseContext();
-        StringWriter valueAsString;
-
-        // ParsingReader starts new threads, so we need to make sure they are cleaned up
-        try (Reader reader = new ParsingReader(parser, stream, metadata, parseContext)) {
-            valueAsString = new StringWriter();
-            reader.transferTo(valueAsString);
+        String text;
+        try (InputStream stream = Utils.toStream(record.value())) {
+            if (timeoutMs > 0) {
+                // wait for a parse to end, if all the permits are held by parses that timed out
+                // for longer than the timeout then the document fails instead of waiting forever
+                if (!RUNNING_PARSES.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+                    throw new TimeoutException(
+                            "Text extraction of "
+                                    + record.key()
+                                    + " could not start in "
+                                    + timeoutMs
+                                    + " ms, "
+                                    + ABANDONED_PARSES.get()
+                                    + " of the "
+                                    + MAX_RUNNING_PARSES
+                                    + " parsers are still running documents that timed out");
+                }
+                ParseTask task = new ParseTask(stream, metadata);
+                Future<String> result;
+                try {
+                    result = PARSERS_POOL.submit(task);
+                } catch (RuntimeException e) {
+                    RUNNING_PARSES.release();
+                    throw e;
+                }
+                try {
+                    text = result.get(timeoutMs, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    task.abandon();
+                    throw new TimeoutException(
+                            "Text extraction of "
+                                    + record.key()
+                                    + " took more than "
+                                    + timeoutMs
+                                    + " ms");
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception cause) {
+                        throw cause;
+                    }
+                    throw e;
+                }
+            } else {
+                text = parse(stream, metadata);
+            }
         }
 
-        String[] names = metadata.names();
         if (log.isDebugEnabled()) {
             log.debug(
                     "Document type: {} Content {}",
-                    Stream.of(names).collect(Collectors.toMap(Function.identity(), metadata::get)),
-                    valueAsString);
+                    Stream.of(metadata.names())
+                            .collect(Collectors.toMap(Function.identity(), metadata::get)),
+                    text);
+        }
+        return List.of(SimpleRecord.copyFrom(record).value(text).build());
+    }
+
+    private final class ParseTask implements Callable<String> {
+        private final InputStream stream;
+        private final Metadata metadata;
+        private Thread thread;
+        private boolean done;
+        private boolean abandoned;
+
+        ParseTask(InputStream stream, Metadata metadata) {
+            this.stream = stream;
+            this.metadata = metadata;
+        }
+
+        @Override
+        public String call() throws Exception {
+            synchronized (this) {
+                thread = Thread.currentThread();
+            }
+            try {
+                return parse(stream, metadata);
+            } finally {
+                synchronized (this) {
+                    done = true;
+                    if (abandoned) {
+                        ABANDONED_PARSES.decrementAndGet();
+                        // clear the interruption, the thread goes back to the pool
+                        Thread.interrupted();
+                    }
+                }
+                RUNNING_PARSES.release();
+            }
+        }
+
+        /** Interrupts the parse, it stops only if it is waiting for the input. */
+        synchronized void abandon() {
+            if (done) {
+                return;
+            }
+            abandoned = true;
+            ABANDONED_PARSES.incrementAndGet();
+            if (thread != null) {
+                thread.interrupt();
+            }
+            log.warn(
+                    "Abandoned a text extraction that timed out, {} parsers of {} are still"
+                            + " running documents that timed out",
+                    ABANDONED_PARSES.get(),
+                    MAX_RUNNING_PARSES);
+        }
+    }
+
+    private String parse(InputStream stream, Metadata metadata) throws Exception {
+        WriteOutContentHandler output = new WriteOutContentHandler(maxCharacters);
+        try {
+            PARSER.parse(stream, new BodyContentHandler(output), metadata, new ParseContext());
+        } catch (Exception e) {
+            if (!WriteLimitReachedException.isWriteLimitReached(e)) {
+                throw e;
+            }
+            log.info("The extracted text has been truncated to {} characters", maxCharacters);
         }
-        return List.of(SimpleRecord.copyFrom(record).value(valueAsString.toString()).build());
+        return output.toString();
     }
 }
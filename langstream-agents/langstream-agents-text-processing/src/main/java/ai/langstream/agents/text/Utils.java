@@ -15,8 +15,10 @@
  */
 package ai.langstream.agents.text;
 
+import ai.langstream.api.runner.code.BlobValue;
 import ai.langstream.api.runner.code.Header;
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
@@ -27,9 +29,11 @@ import java.util.Collection;
 import java.util.List;
 
 public class Utils {
-    public static InputStream toStream(Object value) {
+    public static InputStream toStream(Object value) throws IOException {
         final InputStream stream;
-        if (value instanceof byte[] array) {
+        if (value instanceof BlobValue blobValue) {
+            stream = blobValue.openStream();
+        } else if (value instanceof byte[] array) {
             stream = new ByteArrayInputStream(array);
         } else {
             stream = new ByteArrayInputStream(value.toString().getBytes(StandardCharsets.UTF_8));
@@ -37,10 +41,13 @@ public class Utils {
         return stream;
     }
 
-    public static Reader toReader(Object value) {
+    public static Reader toReader(Object value) throws IOException {
         if (value == null) {
             return new StringReader("");
         }
+        if (value instanceof BlobValue blobValue) {
+            return new InputStreamReader(blobValue.openStream(), StandardCharsets.UTF_8);
+        }
         if (value instanceof byte[] array) {
             return new InputStreamReader(new ByteArrayInputStream(array), StandardCharsets.UTF_8);
         } else {
@@ -48,11 +55,14 @@ public class Utils {
         }
     }
 
-    public static String toText(Object value) {
+    public static String toText(Object value) throws IOException {
 
         if (value == null) {
             return null;
         }
+        if (value instanceof BlobValue blobValue) {
+            return new String(blobValue.toByteArray(), StandardCharsets.UTF_8);
+        }
         if (value instanceof byte[] array) {
             return new String(array, StandardCharsets.UTF_8);
         } else {
@@ -39,6 +39,31 @@ public class LanguageDetectorTest {
         assertEquals("fr", detectLanguage(instance, "Parlez-vous français?"));
     }
 
+    @Test
+    public void textDetectOnSample() throws Exception {
+        String italian = "Questo é un testo scritto in lingua italiana. ";
+        String english = "This is a text written in the English language. ";
+        String text = italian.repeat(10) + english.repeat(200);
+
+        TextProcessingAgentsCodeProvider provider = new TextProcessingAgentsCodeProvider();
+        SingleRecordAgentProcessor instance = provider.createInstance("language-detector");
+        instance.init(Map.of("property", "detected-language", "max-characters", 200));
+        assertEquals("it", detectLanguage(instance, text));
+
+        instance.init(Map.of("property", "detected-language", "max-characters", -1));
+        assertEquals("en", detectLanguage(instance, text));
+
+        instance.init(
+                Map.of(
+                        "property",
+                        "detected-language",
+                        "max-characters",
+                        600,
+                        "sample-windows",
+                        3));
+        assertEquals("en", detectLanguage(instance, text));
+    }
+
     private static String detectLanguage(SingleRecordAgentProcessor instance, String text)
             throws Exception {
         Record fromSource =
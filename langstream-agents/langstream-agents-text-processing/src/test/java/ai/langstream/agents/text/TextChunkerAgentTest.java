@@ -17,9 +17,12 @@ package ai.langstream.agents.text;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import ai.langstream.api.runner.code.BlobValue;
 import ai.langstream.api.runner.code.Record;
 import ai.langstream.api.runner.code.SimpleRecord;
 import ai.langstream.api.runner.code.SingleRecordAgentProcessor;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
@@ -168,4 +171,53 @@ class TextChunkerAgentTest {
             assertEquals(expectedChunk, chunks.get(i++));
         }
     }
+
+    @Test
+    public void testChunksFromStreamedValue() throws Exception {
+        TextProcessingAgentsCodeProvider provider = new TextProcessingAgentsCodeProvider();
+        SingleRecordAgentProcessor instance = provider.createInstance("text-splitter");
+        instance.init(
+                Map.of(
+                        "splitter_type",
+                        "RecursiveCharacterTextSplitter",
+                        "separators",
+                        List.of("\n\n", "\n", " ", ""),
+                        "keep_separator",
+                        false,
+                        "chunk_size",
+                        100,
+                        "chunk_overlap",
+                        20,
+                        "length_function",
+                        "length"));
+
+        StringBuilder text = new StringBuilder();
+        int paragraph = 0;
+        while (text.length() < TextSplitterAgent.STREAMING_WINDOW_SIZE * 3) {
+            text.append("This is the paragraph number ").append(paragraph++);
+            text.append(", it contains some words.\n\n");
+        }
+        byte[] content = text.toString().getBytes(StandardCharsets.UTF_8);
+
+        List<String> expected = doChunking(instance, text.toString());
+        Record fromSource =
+                SimpleRecord.builder()
+                        .key("filename.txt")
+                        .value(
+                                new BlobValue() {
+                                    @Override
+                                    public InputStream openStream() {
+                                        return new ByteArrayInputStream(content);
+                                    }
+
+                                    @Override
+                                    public long size() {
+                                        return content.length;
+                                    }
+                                })
+                        .build();
+        List<String> chunks =
+                instance.processRecord(fromSource).stream().map(r -> r.value().toString()).toList();
+        assertEquals(expected, chunks);
+    }
 }
@@ -16,13 +16,23 @@
 package ai.langstream.agents.text;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import ai.langstream.api.runner.code.BlobValue;
 import ai.langstream.api.runner.code.Record;
 import ai.langstream.api.runner.code.SimpleRecord;
 import ai.langstream.api.runner.code.SingleRecordAgentProcessor;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
 
@@ -88,4 +98,114 @@ public class TextExtractorTest {
 
         assertEquals("This is a very simple Word Document", result.value().toString().trim());
     }
+
+    @Test
+    public void textExtractFromStreamedValue() throws Exception {
+        TextProcessingAgentsCodeProvider provider = new TextProcessingAgentsCodeProvider();
+        SingleRecordAgentProcessor instance = provider.createInstance("text-extractor");
+
+        Path file = Paths.get("src/test/resources/simple.pdf");
+        Record fromSource =
+                SimpleRecord.builder()
+                        .key("filename.pdf")
+                        .value(
+                                new BlobValue() {
+                                    @Override
+                                    public InputStream openStream() throws IOException {
+                                        return Files.newInputStream(file);
+                                    }
+
+                                    @Override
+                                    public long size() {
+                                        return -1;
+                                    }
+                                })
+                        .origin("origin")
+                        .timestamp(System.currentTimeMillis())
+                        .build();
+
+        Record result = instance.processRecord(fromSource).get(0);
+        assertEquals("This is a very simple PDF", result.value().toString().trim());
+    }
+
+    @Test
+    public void textExtractMaxCharacters() throws Exception {
+        TextProcessingAgentsCodeProvider provider = new TextProcessingAgentsCodeProvider();
+        SingleRecordAgentProcessor instance = provider.createInstance("text-extractor");
+        instance.init(Map.of("max-characters", 9, "timeout-ms", 30000));
+
+        byte[] content = Files.readAllBytes(Paths.get("src/test/resources/simple.pdf"));
+        Record fromSource =
+                SimpleRecord.builder()
+                        .key("filename.pdf")
+                        .value(content)
+                        .origin("origin")
+                        .timestamp(System.currentTimeMillis())
+                        .build();
+
+        Record result = instance.processRecord(fromSource).get(0);
+        assertTrue(result.value().toString().length() <= 9, result.value().toString());
+        assertTrue(
+                "This is a very simple PDF".startsWith(result.value().toString().trim()),
+                result.value().toString());
+    }
+
+    @Test
+    public void textExtractTimeout() throws Exception {
+        TextProcessingAgentsCodeProvider provider = new TextProcessingAgentsCodeProvider();
+        SingleRecordAgentProcessor instance = provider.createInstance("text-extractor");
+        instance.init(Map.of("timeout-ms", 100));
+
+        CountDownLatch closed = new CountDownLatch(1);
+        Record fromSource = neverEndingDocument(closed);
+
+        assertThrows(TimeoutException.class, () -> instance.processRecord(fromSource));
+        assertTrue(closed.await(10, TimeUnit.SECONDS));
+
+        // the parses that timed out give back their thread when they end
+        for (int i = 0; i <= Runtime.getRuntime().availableProcessors(); i++) {
+            Record other = neverEndingDocument(new CountDownLatch(1));
+            assertThrows(TimeoutException.class, () -> instance.processRecord(other));
+        }
+        Record document =
+                SimpleRecord.builder()
+                        .key("filename.txt")
+                        .value("This is a test".getBytes(StandardCharsets.UTF_8))
+                        .build();
+        assertEquals(
+                "This is a test",
+                instance.processRecord(document).get(0).value().toString().trim());
+    }
+
+    private static Record neverEndingDocument(CountDownLatch closed) {
+        return SimpleRecord.builder()
+                .key("filename.txt")
+                .value(
+                        new BlobValue() {
+                            @Override
+                            public InputStream openStream() {
+                                // a stream that never ends
+                                return new InputStream() {
+                                    @Override
+                                    public int read() throws IOException {
+                                        if (closed.getCount() == 0) {
+                                            throw new IOException("closed");
+                                        }
+                                        return 'a';
+                                    }
+
+                                    @Override
+                                    public void close() {
+                                        closed.countDown();
+                                    }
+                                };
+                            }
+
+                            @Override
+                            public long size() {
+                                return -1;
+                            }
+                        })
+                .build();
+    }
 }
@@ -39,6 +39,8 @@ import com.datastax.oss.streaming.ai.streaming.StreamingAnswersConsumer;
 import com.datastax.oss.streaming.ai.streaming.StreamingAnswersConsumerFactory;
 import com.datastax.oss.streaming.ai.util.TransformFunctionUtil;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -156,7 +158,8 @@ public class GenAIToolKitAgent extends AbstractAgentCode implements AgentProcess
                         serviceProvider,
                         dataSource,
                         streamingAnswersConsumerFactory,
-                        stepsConfig.get(0));
+                        stepsConfig.get(0),
+                        reporter);
         streamingAnswersConsumerFactory.setAgentContext(agentContext);
         step.getTransformStep().start();
     }
@@ -195,8 +198,14 @@ public class GenAIToolKitAgent extends AbstractAgentCode implements AgentProcess
         }
     }
 
-    private static class TopicStreamingAnswersConsumer implements StreamingAnswersConsumer {
-        private TopicProducer topicProducer;
+    static class TopicStreamingAnswersConsumer implements StreamingAnswersConsumer {
+
+        // the number of chunks that can be written to the topic at the same time,
+        // when the limit is reached the AI service stream is not read until a write completes
+        static final int MAX_PENDING_WRITES = 64;
+
+        private final TopicProducer topicProducer;
+        private final Deque<CompletableFuture<?>> pendingWrites = new ArrayDeque<>();
 
         public TopicStreamingAnswersConsumer(TopicProducer topicProducer) {
             this.topicProducer = topicProducer;
@@ -205,24 +214,41 @@ public class GenAIToolKitAgent extends AbstractAgentCode implements AgentProcess
         @Override
         public void streamAnswerChunk(
                 int index, String message, boolean last, MutableRecord outputMessage) {
+            streamAnswerChunkAsync(index, message, last, outputMessage);
+        }
+
+        @Override
+        public synchronized CompletableFuture<?> streamAnswerChunkAsync(
+                int index, String message, boolean last, MutableRecord outputMessage) {
             Optional<Record> record = mutableRecordToRecord(outputMessage);
-            if (record.isPresent()) {
-                if (log.isDebugEnabled()) {
-                    log.debug(
-                            "index: {}, message: {}, last: {}: record {}",
-                            index,
-                            message,
-                            last,
-                            record);
-                }
-                topicProducer
-                        .write(record.get())
-                        .exceptionally(
-                                e -> {
-                                    log.error("Error writing chunk to topic", e);
-                                    return null;
-                                });
+            if (record.isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            if (log.isDebugEnabled()) {
+                log.debug(
+                        "index: {}, message: {}, last: {}: record {}",
+                        index,
+                        message,
+                        last,
+                        record);
+            }
+            CompletableFuture<?> write =
+                    topicProducer
+                            .write(record.get())
+                            .exceptionally(
+                                    e -> {
+                                        log.error("Error writing chunk to topic", e);
+                                        return null;
+                                    });
+            while (!pendingWrites.isEmpty() && pendingWrites.peekFirst().isDone()) {
+                pendingWrites.pollFirst();
+            }
+            pendingWrites.addLast(write);
+            if (pendingWrites.size() <= MAX_PENDING_WRITES) {
+                return CompletableFuture.completedFuture(null);
             }
+            // wait for the oldest write, the writes complete in order
+            return pendingWrites.pollFirst();
         }
 
         @Override
@@ -0,0 +1,191 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.ai.agents.rerank;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Maximal Marginal Relevance re-ranking, using BM25 for the relevance and the average cosine
+ * similarity with the documents already selected for the diversity.
+ *
+ * <p>The documents are extracted and tokenised only once. The BM25 statistics (document frequency
+ * of the query terms and average document length) refer to the documents that are not selected yet,
+ * they are updated when a document is selected. The sum of the similarities with the selected
+ * documents is kept for every candidate, so each step only computes the similarities with the last
+ * selected document.
+ */
+final class MMRReRanker {
+
+    private final double lambda;
+    private final double k1;
+    private final double b;
+
+    MMRReRanker(double lambda, double k1, double b) {
+        this.lambda = lambda;
+        this.k1 = k1;
+        this.b = b;
+    }
+
+    private static final class Candidate {
+        private final Object document;
+        private final float[] embeddings;
+        private final float norm;
+        private final int length;
+
+        /** Frequency of each query term in the document. */
+        private final int[] queryTermFrequencies;
+
+        private double sumSimilarity;
+        private boolean selected;
+
+        Candidate(Object document, String[] terms, float[] embeddings, String[] queryTerms) {
+            this.document = document;
+            this.embeddings = embeddings;
+            this.norm = euclideanNorm(embeddings);
+            this.length = terms.length;
+            Map<String, Integer> termFrequencies = new HashMap<>();
+            for (String term : terms) {
+                termFrequencies.merge(term, 1, Integer::sum);
+            }
+            this.queryTermFrequencies = new int[queryTerms.length];
+            for (int q = 0; q < queryTerms.length; q++) {
+                queryTermFrequencies[q] = termFrequencies.getOrDefault(queryTerms[q], 0);
+            }
+        }
+    }
+
+    List<Object> rerank(
+            List<Object> documents,
+            int max,
+            ReRankAgent.TextWithEmbeddings query,
+            Function<Object, ReRankAgent.TextWithEmbeddings> recordExtractor) {
+        String[] queryTerms = tokenise(query.text());
+
+        List<Candidate> candidates = new ArrayList<>(documents.size());
+        for (Object document : documents) {
+            ReRankAgent.TextWithEmbeddings text = recordExtractor.apply(document);
+            if (text.text().isEmpty() || text.embeddings().length == 0) {
+                continue;
+            }
+            candidates.add(
+                    new Candidate(document, tokenise(text.text()), text.embeddings(), queryTerms));
+        }
+
+        // BM25 statistics over the candidates that are not selected yet
+        int remaining = candidates.size();
+        long totalLength = 0;
+        int[] documentFrequencies = new int[queryTerms.length];
+        for (Candidate candidate : candidates) {
+            totalLength += candidate.length;
+            for (int q = 0; q < queryTerms.length; q++) {
+                if (candidate.queryTermFrequencies[q] > 0) {
+                    documentFrequencies[q]++;
+                }
+            }
+        }
+        double[] idf = new double[queryTerms.length];
+
+        List<Object> rankedDocuments = new ArrayList<>(Math.min(max, candidates.size()));
+        while (remaining > 0 && rankedDocuments.size() < max) {
+            double averageLength = (double) totalLength / remaining;
+            for (int q = 0; q < queryTerms.length; q++) {
+                int df = documentFrequencies[q];
+                idf[q] = Math.log((remaining - df + 0.5) / (df + 0.5) + 1.0);
+            }
+            int numSelected = rankedDocuments.size();
+
+            Candidate top = null;
+            double topScore = Double.NEGATIVE_INFINITY;
+            for (Candidate candidate : candidates) {
+                if (candidate.selected) {
+                    continue;
+                }
+                double relevance = bm25(candidate, idf, averageLength);
+                double diversity = numSelected == 0 ? 0 : candidate.sumSimilarity / numSelected;
+                double score = lambda * relevance - (1 - lambda) * diversity;
+                if (score > topScore) {
+                    topScore = score;
+                    top = candidate;
+                }
+            }
+            if (top == null) {
+                throw new IllegalStateException("topDocument is null, among " + documents);
+            }
+
+            top.selected = true;
+            rankedDocuments.add(top.document);
+            remaining--;
+            totalLength -= top.length;
+            for (int q = 0; q < queryTerms.length; q++) {
+                if (top.queryTermFrequencies[q] > 0) {
+                    documentFrequencies[q]--;
+                }
+            }
+            for (Candidate candidate : candidates) {
+                if (!candidate.selected) {
+                    candidate.sumSimilarity += cosineSimilarity(candidate, top);
+                }
+            }
+        }
+        return rankedDocuments;
+    }
+
+    private double bm25(Candidate candidate, double[] idf, double averageLength) {
+        double score = 0;
+        double lengthNormalization = k1 * (1 - b + b * (candidate.length / averageLength));
+        for (int q = 0; q < idf.length; q++) {
+            int tf = candidate.queryTermFrequencies[q];
+            score += idf[q] * ((tf * (k1 + 1)) / (tf + lengthNormalization));
+        }
+        return score;
+    }
+
+    private static float cosineSimilarity(Candidate candidate, Candidate other) {
+        if (candidate.norm == 0 || other.norm == 0) {
+            return 0;
+        }
+        return dotProduct(candidate.embeddings, other.embeddings) / (candidate.norm * other.norm);
+    }
+
+    static String[] tokenise(String text) {
+        return text.split("\\s+");
+    }
+
+    static float euclideanNorm(float[] arr) {
+        float sumOfSquares = 0.0f;
+        for (float value : arr) {
+            sumOfSquares += value * value;
+        }
+        return (float) Math.sqrt(sumOfSquares);
+    }
+
+    static float dotProduct(float[] arr1, float[] arr2) {
+        if (arr1.length != arr2.length) {
+            throw new IllegalArgumentException("Arrays must have the same length");
+        }
+
+        float result = 0.0f;
+        for (int i = 0; i < arr1.length; i++) {
+            result += arr1[i] * arr2[i];
+        }
+
+        return result;
+    }
+}
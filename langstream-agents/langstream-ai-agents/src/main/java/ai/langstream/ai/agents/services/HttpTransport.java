@@ -0,0 +1,421 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.ai.agents.services;
+
+import static ai.langstream.api.util.ConfigurationUtils.getInt;
+
+import ai.langstream.api.runner.code.MetricsReporter;
+import com.datastax.oss.streaming.ai.completions.ChatCompletions;
+import com.datastax.oss.streaming.ai.completions.ChatMessage;
+import com.datastax.oss.streaming.ai.completions.CompletionsService;
+import com.datastax.oss.streaming.ai.completions.TextCompletionResult;
+import com.datastax.oss.streaming.ai.embeddings.EmbeddingsService;
+import com.datastax.oss.streaming.ai.services.RequestCoalescer;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * HTTP transport shared by the AI service providers.
+ *
+ * <p>All the providers use the same {@link HttpClient}, so the connections are pooled and kept
+ * alive across the agents of the pod, and HTTP/2 is negotiated with the servers that support it.
+ * The client runs on a small fixed pool of threads: the requests are asynchronous and no thread is
+ * blocked while waiting for a response.
+ *
+ * <p>Every resource limits the number of concurrent requests with "max-concurrent-requests". The
+ * transport is shared by all the agents of the pod that use the same resource, so the limit and the
+ * metrics are per resource and not per agent: the metrics are registered by the first agent that
+ * creates the transport. The requests over the limit wait in a queue, without holding a thread,
+ * until a running request completes. Before taking a slot the requests are paced by the {@link
+ * RateLimiter} of the resource, configured with "requests-per-minute" and "tokens-per-minute".
+ */
+@Slf4j
+public class HttpTransport {
+
+    public static final String MAX_CONCURRENT_REQUESTS = "max-concurrent-requests";
+    static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 64;
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+    private static final ExecutorService EXECUTOR =
+            Executors.newFixedThreadPool(
+                    Math.max(2, Runtime.getRuntime().availableProcessors()),
+                    r -> {
+                        Thread thread =
+                                new Thread(r, "ai-http-client-" + THREAD_COUNTER.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+    private static final Map<String, HttpTransport> SHARED = new ConcurrentHashMap<>();
+
+    private static final HttpClient HTTP_CLIENT =
+            HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .connectTimeout(Duration.ofSeconds(30))
+                    .executor(EXECUTOR)
+                    .build();
+
+    private final String name;
+    private final int maxConcurrentRequests;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger waitingCount = new AtomicInteger();
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    private final MetricsReporter.Gauge inFlightGauge;
+    private final MetricsReporter.Gauge waitingGauge;
+    private final MetricsReporter.Counter saturatedCounter;
+
+    private final RateLimiter rateLimiter;
+    private final MetricsReporter.Counter throttledCounter;
+    private final MetricsReporter.Histogram throttleDelayHistogram;
+    private volatile Predicate<Throwable> throttlingErrors = error -> false;
+
+    public HttpTransport(String name, int maxConcurrentRequests, MetricsReporter metricsReporter) {
+        this(name, maxConcurrentRequests, new RateLimiter(0, 0, System::nanoTime), metricsReporter);
+    }
+
+    public HttpTransport(
+            String name,
+            int maxConcurrentRequests,
+            RateLimiter rateLimiter,
+            MetricsReporter metricsReporter) {
+        if (maxConcurrentRequests <= 0) {
+            throw new IllegalArgumentException(
+                    MAX_CONCURRENT_REQUESTS + " must be positive for " + name);
+        }
+        this.name = name;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.inFlightGauge =
+                metricsReporter.gauge(
+                        name + "_http_in_flight_requests",
+                        "Number of requests to " + name + " waiting for a response");
+        this.waitingGauge =
+                metricsReporter.gauge(
+                        name + "_http_queued_requests",
+                        "Number of requests to " + name + " waiting for a free connection slot");
+        this.saturatedCounter =
+                metricsReporter.counter(
+                        name + "_http_saturated_requests",
+                        "Total number of requests to "
+                                + name
+                                + " that waited because max-concurrent-requests was reached");
+        this.rateLimiter = rateLimiter;
+        this.throttledCounter =
+                metricsReporter.counter(
+                        name + "_rate_limit_throttled_requests",
+                        "Total number of requests to "
+                                + name
+                                + " delayed to stay under the requests and tokens per minute");
+        this.throttleDelayHistogram =
+                metricsReporter.histogram(
+                        name + "_rate_limit_delay_ms",
+                        "Time the requests to " + name + " waited for the rate limiter");
+    }
+
+    /** Returns the transport of the resource, shared with the other agents that use it. */
+    public static HttpTransport create(
+            String name,
+            Map<String, Object> providerConfiguration,
+            MetricsReporter metricsReporter) {
+        Map<String, Object> configuration =
+                providerConfiguration == null ? Map.of() : providerConfiguration;
+        int maxConcurrentRequests =
+                getInt(MAX_CONCURRENT_REQUESTS, DEFAULT_MAX_CONCURRENT_REQUESTS, configuration);
+        return SHARED.computeIfAbsent(
+                name + "-" + RequestCoalescer.computeKey(configuration),
+                k ->
+                        new HttpTransport(
+                                name,
+                                maxConcurrentRequests,
+                                RateLimiter.forResource(name, configuration),
+                                metricsReporter));
+    }
+
+    /**
+     * Tells which errors of the calls are rejections because of the rate limits of the service, for
+     * the clients that don't expose the HTTP responses.
+     */
+    public HttpTransport withThrottlingErrors(Predicate<Throwable> throttlingErrors) {
+        this.throttlingErrors = throttlingErrors;
+        return this;
+    }
+
+    public RateLimiter rateLimiter() {
+        return rateLimiter;
+    }
+
+    /** Estimates the tokens of the request, only if the rate limiter counts them. */
+    public long estimateTokens(List<String> texts, Map<String, Object> options) {
+        return rateLimiter.countsTokens(model(options))
+                ? RateLimiter.estimateTokens(texts, options)
+                : 0;
+    }
+
+    public long estimateChatTokens(List<ChatMessage> messages, Map<String, Object> options) {
+        return rateLimiter.countsTokens(model(options))
+                ? RateLimiter.estimateChatTokens(messages, options)
+                : 0;
+    }
+
+    private static String model(Map<String, Object> options) {
+        return options != null && options.get("model") instanceof String model ? model : null;
+    }
+
+    /** The client shared by all the providers, to use for the calls that don't need a limit. */
+    public static HttpClient httpClient() {
+        return HTTP_CLIENT;
+    }
+
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(
+            HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+        return sendAsync(request, bodyHandler, 0);
+    }
+
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(
+            HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler, long estimatedTokens) {
+        final HttpRequest finalRequest = withDefaultVersion(request);
+        return execute(
+                estimatedTokens,
+                () ->
+                        HTTP_CLIENT
+                                .sendAsync(finalRequest, bodyHandler)
+                                .whenComplete(
+                                        (response, error) -> {
+                                            if (response != null) {
+                                                rateLimiter.onResponse(
+                                                        response.statusCode(),
+                                                        header ->
+                                                                response.headers()
+                                                                        .firstValue(header)
+                                                                        .orElse(null));
+                                            }
+                                        }));
+    }
+
+    /**
+     * HTTP/2 is negotiated with TLS. On plain HTTP the requests use HTTP/1.1 unless they ask for a
+     * version, because not all the servers accept the h2c upgrade.
+     */
+    public static HttpRequest withDefaultVersion(HttpRequest request) {
+        if (request.version().isPresent() || !"http".equals(request.uri().getScheme())) {
+            return request;
+        }
+        return HttpRequest.newBuilder(request, (name, value) -> true)
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+    }
+
+    public <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> call) {
+        return execute(0, call);
+    }
+
+    /**
+     * Runs the call when the rate limiter allows it and there are less than max-concurrent-requests
+     * calls running. The slot is released when the future returned by the call completes.
+     */
+    public <T> CompletableFuture<T> execute(
+            long estimatedTokens, Supplier<CompletableFuture<T>> call) {
+        return execute(null, estimatedTokens, call);
+    }
+
+    /**
+     * Runs the call of the model when the rate limiter allows it, see {@link #execute(long,
+     * Supplier)}.
+     */
+    public <T> CompletableFuture<T> execute(
+            String model, long estimatedTokens, Supplier<CompletableFuture<T>> call) {
+        long delay = rateLimiter.reserve(model, estimatedTokens);
+        if (delay <= 0) {
+            return executeLimited(call);
+        }
+        throttledCounter.count(1);
+        throttleDelayHistogram.observe(delay / 1_000_000.0);
+        // the request doesn't hold a slot while it waits
+        Executor delayed = CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS, EXECUTOR);
+        return CompletableFuture.supplyAsync(() -> executeLimited(call), delayed)
+                .thenCompose(Function.identity());
+    }
+
+    private <T> CompletableFuture<T> executeLimited(Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable task =
+                () -> {
+                    inFlightGauge.set(inFlight.get());
+                    CompletableFuture<T> response;
+                    try {
+                        response = call.get();
+                    } catch (Throwable error) {
+                        response = CompletableFuture.failedFuture(error);
+                    }
+                    response.whenComplete(
+                            (value, error) -> {
+                                release();
+                                if (error != null) {
+                                    if (throttlingErrors.test(unwrap(error))) {
+                                        rateLimiter.onThrottled();
+                                    }
+                                    result.completeExceptionally(error);
+                                } else {
+                                    result.complete(value);
+                                }
+                            });
+                };
+        if (tryAcquire()) {
+            task.run();
+        } else {
+            saturatedCounter.count(1);
+            waiting.add(task);
+            waitingGauge.set(waitingCount.incrementAndGet());
+            runWaiting();
+        }
+        return result;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    private boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= maxConcurrentRequests) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void release() {
+        inFlightGauge.set(inFlight.decrementAndGet());
+        runWaiting();
+    }
+
+    private void runWaiting() {
+        // a slot may be released while a task is being queued, so the queue is checked again
+        // after every release and every insertion. Only one thread runs the queued tasks at a
+        // time, a task that completes immediately doesn't recurse into this method
+        while (!waiting.isEmpty() && draining.compareAndSet(false, true)) {
+            try {
+                while (!waiting.isEmpty() && tryAcquire()) {
+                    Runnable task = waiting.poll();
+                    if (task == null) {
+                        inFlight.decrementAndGet();
+                        continue;
+                    }
+                    waitingGauge.set(waitingCount.decrementAndGet());
+                    task.run();
+                }
+            } finally {
+                draining.set(false);
+            }
+            if (inFlight.get() >= maxConcurrentRequests) {
+                // the next release will run the queued tasks
+                return;
+            }
+        }
+    }
+
+    public CompletionsService limit(CompletionsService completionsService) {
+        return new CompletionsService() {
+            @Override
+            public CompletableFuture<ChatCompletions> getChatCompletions(
+                    List<ChatMessage> messages,
+                    StreamingChunksConsumer streamingChunksConsumer,
+                    Map<String, Object> options) {
+                return execute(
+                        model(options),
+                        estimateChatTokens(messages, options),
+                        () ->
+                                completionsService.getChatCompletions(
+                                        messages, streamingChunksConsumer, options));
+            }
+
+            @Override
+            public CompletableFuture<TextCompletionResult> getTextCompletions(
+                    List<String> prompt,
+                    StreamingChunksConsumer streamingChunksConsumer,
+                    Map<String, Object> options) {
+                return execute(
+                        model(options),
+                        estimateTokens(prompt, options),
+                        () ->
+                                completionsService.getTextCompletions(
+                                        prompt, streamingChunksConsumer, options));
+            }
+        };
+    }
+
+    public EmbeddingsService limit(EmbeddingsService embeddingsService) {
+        return limit(embeddingsService, null);
+    }
+
+    /** Limits the embeddings computed by the model, or by an unknown model if it is null. */
+    public EmbeddingsService limit(EmbeddingsService embeddingsService, String model) {
+        Map<String, Object> options = model != null ? Map.of("model", model) : null;
+        return new EmbeddingsService() {
+            @Override
+            public CompletableFuture<List<List<Double>>> computeEmbeddings(List<String> texts) {
+                return execute(
+                        model,
+                        estimateTokens(texts, options),
+                        () -> embeddingsService.computeEmbeddings(texts));
+            }
+
+            @Override
+            public void close() throws Exception {
+                embeddingsService.close();
+            }
+        };
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    int waiting() {
+        return waitingCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "HttpTransport{" + name + ", max-concurrent-requests=" + maxConcurrentRequests + "}";
+    }
+}
@@ -0,0 +1,386 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.ai.agents.services;
+
+import static ai.langstream.api.util.ConfigurationUtils.getDouble;
+
+import com.datastax.oss.streaming.ai.completions.ChatMessage;
+import com.datastax.oss.streaming.ai.services.RequestCoalescer;
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.EncodingRegistry;
+import com.knuddels.jtokkit.api.EncodingType;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Client side limit of the requests and of the tokens sent every minute to an AI service.
+ *
+ * <p>Every budget is a bucket that refills continuously and holds at most one second of quota. A
+ * request waits only for the debt left by the previous requests, its own cost is paid by the
+ * following ones: the calls are spread evenly over the minute instead of failing with 429 and going
+ * through the retries of the errors handler. The tokens of a request are estimated with the
+ * cl100k_base encoding, plus the "max-tokens" of the completion.
+ *
+ * <p>The limiter is shared by all the agents of the pod that use the same resource. The configured
+ * budgets are the ones of the resource, whatever the model of the requests. The x-ratelimit-*
+ * headers of OpenAI describe the quota of the model of the request instead: when the model of the
+ * response is known, like the deployment in the URL of Azure OpenAI, the limits of the model are
+ * learned from them and its budgets follow the remaining quota. A 429 response pauses the requests
+ * of its model, or all the requests of the resource if the model is not known, for the time
+ * suggested by the service.
+ */
+@Slf4j
+public class RateLimiter {
+
+    public static final String REQUESTS_PER_MINUTE = "requests-per-minute";
+    public static final String TOKENS_PER_MINUTE = "tokens-per-minute";
+
+    static final long DEFAULT_RETRY_AFTER_MILLIS = 1000;
+    // tokens added by the chat format to every message
+    private static final int TOKENS_PER_MESSAGE = 4;
+
+    private static final Map<String, RateLimiter> SHARED = new ConcurrentHashMap<>();
+    private static final EncodingRegistry ENCODINGS = Encodings.newDefaultEncodingRegistry();
+    private static final Pattern DURATION = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+    private static final Pattern AZURE_DEPLOYMENT = Pattern.compile("/deployments/([^/]+)/");
+
+    private final LongSupplier nanoClock;
+    private final Budget requests;
+    private final Budget tokens;
+    private long pausedUntil;
+    // quota of the models reported by the service, by model
+    private final Map<String, Quota> models = new HashMap<>();
+
+    RateLimiter(double requestsPerMinute, double tokensPerMinute, LongSupplier nanoClock) {
+        if (requestsPerMinute < 0 || tokensPerMinute < 0) {
+            throw new IllegalArgumentException(
+                    REQUESTS_PER_MINUTE + " and " + TOKENS_PER_MINUTE + " must not be negative");
+        }
+        this.nanoClock = nanoClock;
+        long now = nanoClock.getAsLong();
+        this.requests = new Budget(requestsPerMinute, now);
+        this.tokens = new Budget(tokensPerMinute, now);
+        this.pausedUntil = now;
+    }
+
+    /** Returns the Azure OpenAI deployment in the path of the request, or null. */
+    public static String azureDeployment(String path) {
+        if (path == null) {
+            return null;
+        }
+        Matcher matcher = AZURE_DEPLOYMENT.matcher(path);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    /** Returns the limiter of the resource, shared with the other agents that use it. */
+    public static RateLimiter forResource(String name, Map<String, Object> providerConfiguration) {
+        Map<String, Object> configuration =
+                providerConfiguration == null ? Map.of() : providerConfiguration;
+        double requestsPerMinute = getDouble(REQUESTS_PER_MINUTE, 0d, configuration);
+        double tokensPerMinute = getDouble(TOKENS_PER_MINUTE, 0d, configuration);
+        return SHARED.computeIfAbsent(
+                name + "-" + RequestCoalescer.computeKey(configuration),
+                k -> {
+                    if (requestsPerMinute > 0 || tokensPerMinute > 0) {
+                        log.info(
+                                "Limiting {} to {} requests and {} tokens per minute",
+                                name,
+                                requestsPerMinute,
+                                tokensPerMinute);
+                    }
+                    return new RateLimiter(requestsPerMinute, tokensPerMinute, System::nanoTime);
+                });
+    }
+
+    /**
+     * Reserves a request and its tokens.
+     *
+     * @return how long the caller has to wait before sending the request, in nanoseconds
+     */
+    public long reserve(long estimatedTokens) {
+        return reserve(null, estimatedTokens);
+    }
+
+    /**
+     * Reserves a request of the model and its tokens, from the budgets of the resource and from the
+     * ones learned for the model.
+     *
+     * @param model the model of the request, or null if it is not known
+     * @return how long the caller has to wait before sending the request, in nanoseconds
+     */
+    public synchronized long reserve(String model, long estimatedTokens) {
+        long now = nanoClock.getAsLong();
+        long delay = Math.max(0, pausedUntil - now);
+        delay = Math.max(delay, requests.reserve(1, now));
+        delay = Math.max(delay, tokens.reserve(estimatedTokens, now));
+        Quota quota = model != null ? models.get(model) : null;
+        return quota != null ? Math.max(delay, quota.reserve(estimatedTokens, now)) : delay;
+    }
+
+    /** Whether the requests have to estimate their tokens. */
+    public boolean countsTokens() {
+        return countsTokens(null);
+    }
+
+    /** Whether the requests of the model have to estimate their tokens. */
+    public synchronized boolean countsTokens(String model) {
+        if (tokens.enabled()) {
+            return true;
+        }
+        Quota quota = model != null ? models.get(model) : null;
+        return quota != null && quota.tokens.enabled();
+    }
+
+    public void onResponse(int statusCode, Function<String, String> headers) {
+        onResponse(null, statusCode, headers);
+    }
+
+    /**
+     * Follows the quota of the model reported by the service. The headers are the ones of OpenAI
+     * and Azure OpenAI, the missing ones are ignored. If the service rejected the request because
+     * of its rate limits the requests are paused for the time given by the retry-after-ms or
+     * retry-after headers.
+     *
+     * @param model the model of the request, or null if it is not known
+     * @param headers returns the value of a header, or null
+     */
+    public synchronized void onResponse(
+            String model, int statusCode, Function<String, String> headers) {
+        long now = nanoClock.getAsLong();
+        Quota quota = null;
+        if (model != null) {
+            quota = models.get(model);
+            Double limitRequests = parseNumber(headers.apply("x-ratelimit-limit-requests"));
+            Double limitTokens = parseNumber(headers.apply("x-ratelimit-limit-tokens"));
+            if (quota == null && (limitRequests != null || limitTokens != null)) {
+                log.info(
+                        "Learned the limits of {}: {} requests and {} tokens per minute",
+                        model,
+                        limitRequests,
+                        limitTokens);
+                quota = new Quota(now);
+                models.put(model, quota);
+            }
+            if (quota != null) {
+                quota.update(limitRequests, limitTokens, headers, now);
+            }
+        }
+        if (statusCode != 429) {
+            return;
+        }
+        Double retryAfterMillis = parseNumber(headers.apply("retry-after-ms"));
+        Long retryAfter =
+                retryAfterMillis != null
+                        ? Long.valueOf(retryAfterMillis.longValue())
+                        : parseDuration(headers.apply("retry-after"));
+        if (log.isDebugEnabled()) {
+            log.debug("Rate limited by the service for {}, retry after {} ms", model, retryAfter);
+        }
+        if (model == null) {
+            pausedUntil = pauseUntil(pausedUntil, retryAfter, now);
+        } else {
+            if (quota == null) {
+                quota = new Quota(now);
+                models.put(model, quota);
+            }
+            quota.pausedUntil = pauseUntil(quota.pausedUntil, retryAfter, now);
+        }
+    }
+
+    /** The service rejected a request because of its rate limits. */
+    public synchronized void onThrottled() {
+        pausedUntil = pauseUntil(pausedUntil, null, nanoClock.getAsLong());
+    }
+
+    private static long pauseUntil(long pausedUntil, Long millis, long now) {
+        long duration = millis != null && millis > 0 ? millis : DEFAULT_RETRY_AFTER_MILLIS;
+        return Math.max(pausedUntil, now + TimeUnit.MILLISECONDS.toNanos(duration));
+    }
+
+    public static long estimateTokens(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        // Encoding is stateful and it retains references to internal tokens
+        return ENCODINGS.getEncoding(EncodingType.CL100K_BASE).countTokens(text);
+    }
+
+    public static long estimateTokens(List<String> texts, Map<String, Object> options) {
+        long result = maxTokens(options);
+        for (String text : texts) {
+            result += estimateTokens(text);
+        }
+        return result;
+    }
+
+    public static long estimateChatTokens(List<ChatMessage> messages, Map<String, Object> options) {
+        long result = maxTokens(options);
+        for (ChatMessage message : messages) {
+            result += TOKENS_PER_MESSAGE + estimateTokens(message.getContent());
+        }
+        return result;
+    }
+
+    private static long maxTokens(Map<String, Object> options) {
+        if (options == null) {
+            return 0;
+        }
+        Double maxTokens = getDouble("max-tokens", null, options);
+        return maxTokens != null ? maxTokens.longValue() : 0;
+    }
+
+    static Double parseNumber(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /** Parses durations like "20ms", "1s" or "6m0s", a plain number is in seconds. */
+    static Long parseDuration(String value) {
+        Double seconds = parseNumber(value);
+        if (seconds != null) {
+            return (long) (seconds * 1000);
+        }
+        if (value == null) {
+            return null;
+        }
+        Matcher matcher = DURATION.matcher(value.trim());
+        double millis = 0;
+        boolean found = false;
+        while (matcher.find()) {
+            found = true;
+            double amount = Double.parseDouble(matcher.group(1));
+            millis +=
+                    switch (matcher.group(2)) {
+                        case "h" -> amount * 3_600_000;
+                        case "m" -> amount * 60_000;
+                        case "s" -> amount * 1000;
+                        default -> amount;
+                    };
+        }
+        return found ? (long) Math.ceil(millis) : null;
+    }
+
+    /** Budgets of a model, learned from the responses of the service. */
+    private static final class Quota {
+        private final Budget requests;
+        private final Budget tokens;
+        private long pausedUntil;
+
+        Quota(long now) {
+            this.requests = new Budget(0, now);
+            this.tokens = new Budget(0, now);
+            this.pausedUntil = now;
+        }
+
+        long reserve(long estimatedTokens, long now) {
+            long delay = Math.max(0, pausedUntil - now);
+            delay = Math.max(delay, requests.reserve(1, now));
+            return Math.max(delay, tokens.reserve(estimatedTokens, now));
+        }
+
+        void update(
+                Double limitRequests,
+                Double limitTokens,
+                Function<String, String> headers,
+                long now) {
+            Double remainingRequests = parseNumber(headers.apply("x-ratelimit-remaining-requests"));
+            Double remainingTokens = parseNumber(headers.apply("x-ratelimit-remaining-tokens"));
+            requests.update(limitRequests, remainingRequests, now);
+            tokens.update(limitTokens, remainingTokens, now);
+            if (remainingRequests != null && remainingRequests <= 0) {
+                pausedUntil =
+                        pauseUntil(
+                                pausedUntil,
+                                parseDuration(headers.apply("x-ratelimit-reset-requests")),
+                                now);
+            }
+            if (remainingTokens != null && remainingTokens <= 0) {
+                pausedUntil =
+                        pauseUntil(
+                                pausedUntil,
+                                parseDuration(headers.apply("x-ratelimit-reset-tokens")),
+                                now);
+            }
+        }
+    }
+
+    private static final class Budget {
+        private double perMinute;
+        private double perNano;
+        private double capacity;
+        private double available;
+        private long last;
+
+        Budget(double perMinute, long now) {
+            configure(perMinute);
+            this.available = capacity;
+            this.last = now;
+        }
+
+        private void configure(double perMinute) {
+            this.perMinute = perMinute;
+            this.perNano = perMinute / TimeUnit.MINUTES.toNanos(1);
+            this.capacity = perMinute / 60;
+        }
+
+        boolean enabled() {
+            return perNano > 0;
+        }
+
+        long reserve(double cost, long now) {
+            if (!enabled()) {
+                return 0;
+            }
+            refill(now);
+            long wait = available >= 0 ? 0 : (long) Math.ceil(-available / perNano);
+            available -= cost;
+            return wait;
+        }
+
+        /** Follows the limit and the remaining quota reported by the service. */
+        void update(Double limit, Double remaining, long now) {
+            if (limit != null && limit > 0 && limit != perMinute) {
+                boolean wasEnabled = enabled();
+                refill(now);
+                configure(limit);
+                available = wasEnabled ? Math.min(available, capacity) : capacity;
+            }
+            if (remaining != null && enabled()) {
+                refill(now);
+                available = Math.min(available, remaining);
+            }
+        }
+
+        private void refill(long now) {
+            available = Math.min(capacity, available + (now - last) * perNano);
+            last = now;
+        }
+    }
+}
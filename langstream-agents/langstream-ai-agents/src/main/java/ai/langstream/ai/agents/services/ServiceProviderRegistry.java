@@ -18,6 +18,7 @@ package ai.langstream.ai.agents.services;
 import ai.langstream.api.runner.code.MetricsReporter;
 import com.datastax.oss.streaming.ai.completions.CompletionsService;
 import com.datastax.oss.streaming.ai.embeddings.EmbeddingsService;
+import com.datastax.oss.streaming.ai.services.CoalescingServiceProvider;
 import com.datastax.oss.streaming.ai.services.ServiceProvider;
 import java.util.Map;
 import java.util.Optional;
@@ -60,7 +61,9 @@ public class ServiceProviderRegistry {
         Optional<ServiceLoader.Provider<ServiceProviderProvider>> provider =
                 loader.stream().filter(p -> p.get().supports(agentConfiguration)).findFirst();
         if (provider.isPresent()) {
-            return provider.get().get().createImplementation(agentConfiguration, metricsReporter);
+            return new CoalescingServiceProvider(
+                    provider.get().get().createImplementation(agentConfiguration, metricsReporter),
+                    metricsReporter);
         } else {
             return NoServiceProvider.INSTANCE;
         }
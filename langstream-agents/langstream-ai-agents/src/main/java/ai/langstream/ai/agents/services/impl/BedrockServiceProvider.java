@@ -16,6 +16,7 @@
 package ai.langstream.ai.agents.services.impl;
 
 import ai.langstream.ai.agents.commons.jstl.JstlEvaluator;
+import ai.langstream.ai.agents.services.HttpTransport;
 import ai.langstream.ai.agents.services.ServiceProviderProvider;
 import ai.langstream.ai.agents.services.impl.bedrock.BaseInvokeModelRequest;
 import ai.langstream.ai.agents.services.impl.bedrock.BedrockClient;
@@ -42,6 +43,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.core.exception.SdkServiceException;
 
 @Slf4j
 public class BedrockServiceProvider implements ServiceProviderProvider {
@@ -63,21 +65,29 @@ public class BedrockServiceProvider implements ServiceProviderProvider {
                         new BedrockClient(
                                 AwsBasicCredentials.create(accessKey, secretKey),
                                 region,
-                                endpointOverride));
+                                endpointOverride),
+                HttpTransport.create("bedrock", config, metricsReporter)
+                        .withThrottlingErrors(
+                                error ->
+                                        error instanceof SdkServiceException serviceException
+                                                && serviceException.isThrottlingException()));
     }
 
     private static class BedrockService implements ServiceProvider {
 
         private final BedrockClient client;
+        // the AWS client blocks a thread per call, the transport bounds the number of threads
+        private final HttpTransport httpTransport;
 
-        public BedrockService(Supplier<BedrockClient> client) {
+        public BedrockService(Supplier<BedrockClient> client, HttpTransport httpTransport) {
             this.client = client.get();
+            this.httpTransport = httpTransport;
         }
 
         @Override
         public CompletionsService getCompletionsService(Map<String, Object> additionalConfiguration)
                 throws Exception {
-            return new BedrockCompletionsService(client);
+            return httpTransport.limit(new BedrockCompletionsService(client));
         }
 
         @Override
@@ -93,13 +103,16 @@ public class BedrockServiceProvider implements ServiceProviderProvider {
                 List<CompletableFuture<List<Double>>> all = new ArrayList<>();
                 for (String text : texts) {
                     all.add(
-                            client.invokeModel(
-                                            TitanEmbeddingsModel.builder()
-                                                    .modelId(model)
-                                                    .inputText(text)
-                                                    .build(),
-                                            TitanEmbeddingsModel.ResponseBody.class)
-                                    .thenApply(r -> r.embedding()));
+                            httpTransport.execute(
+                                    httpTransport.estimateTokens(List.of(text), null),
+                                    () ->
+                                            client.invokeModel(
+                                                            TitanEmbeddingsModel.builder()
+                                                                    .modelId(model)
+                                                                    .inputText(text)
+                                                                    .build(),
+                                                            TitanEmbeddingsModel.ResponseBody.class)
+                                                    .thenApply(r -> r.embedding())));
                 }
                 CompletableFuture<Void> joinedPromise =
                         CompletableFuture.allOf(all.toArray(CompletableFuture[]::new));
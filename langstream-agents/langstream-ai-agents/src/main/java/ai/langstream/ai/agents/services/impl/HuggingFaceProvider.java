@@ -15,6 +15,9 @@
  */
 package ai.langstream.ai.agents.services.impl;
 
+import static ai.langstream.api.util.ConfigurationUtils.getInt;
+
+import ai.langstream.ai.agents.services.HttpTransport;
 import ai.langstream.ai.agents.services.ServiceProviderProvider;
 import ai.langstream.api.runner.code.MetricsReporter;
 import com.datastax.oss.streaming.ai.completions.ChatChoice;
@@ -23,6 +26,7 @@ import com.datastax.oss.streaming.ai.completions.ChatMessage;
 import com.datastax.oss.streaming.ai.completions.CompletionsService;
 import com.datastax.oss.streaming.ai.completions.TextCompletionResult;
 import com.datastax.oss.streaming.ai.embeddings.AbstractHuggingFaceEmbeddingService;
+import com.datastax.oss.streaming.ai.embeddings.BatchingHuggingFaceEmbeddingService;
 import com.datastax.oss.streaming.ai.embeddings.EmbeddingsService;
 import com.datastax.oss.streaming.ai.embeddings.HuggingFaceEmbeddingService;
 import com.datastax.oss.streaming.ai.embeddings.HuggingFaceRestEmbeddingService;
@@ -33,9 +37,9 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -58,15 +62,25 @@ public class HuggingFaceProvider implements ServiceProviderProvider {
     public ServiceProvider createImplementation(
             Map<String, Object> agentConfiguration, MetricsReporter metricsReporter) {
         return new HuggingFaceServiceProvider(
-                (Map<String, Object>) agentConfiguration.get("huggingface"));
+                (Map<String, Object>) agentConfiguration.get("huggingface"), metricsReporter);
     }
 
     @Slf4j
     static class HuggingFaceServiceProvider implements ServiceProvider {
         private final Map<String, Object> providerConfiguration;
+        private final MetricsReporter metricsReporter;
+        private final HttpTransport httpTransport;
 
         public HuggingFaceServiceProvider(Map<String, Object> providerConfiguration) {
+            this(providerConfiguration, MetricsReporter.DISABLED);
+        }
+
+        public HuggingFaceServiceProvider(
+                Map<String, Object> providerConfiguration, MetricsReporter metricsReporter) {
             this.providerConfiguration = providerConfiguration;
+            this.metricsReporter = metricsReporter;
+            this.httpTransport =
+                    HttpTransport.create("huggingface", providerConfiguration, metricsReporter);
         }
 
         public CompletionsService getCompletionsService(
@@ -76,7 +90,7 @@ public class HuggingFaceProvider implements ServiceProviderProvider {
                     (String)
                             providerConfiguration.getOrDefault(
                                     "inference-url", "https://api-inference.huggingface.co");
-            return new HuggingFaceCompletionsService(url, accessKey, additionalConfiguration);
+            return new HuggingFaceCompletionsService(url, accessKey, httpTransport);
         }
 
         public EmbeddingsService getEmbeddingsService(Map<String, Object> additionalConfiguration)
@@ -105,7 +119,22 @@ public class HuggingFaceProvider implements ServiceProviderProvider {
                         }
                     }
                     builder.modelUrl(modelUrl);
-                    return new HuggingFaceEmbeddingService(builder.build());
+                    int batchSize = getInt("inference-batch-size", 0, additionalConfiguration);
+                    if (batchSize <= 0) {
+                        return new HuggingFaceEmbeddingService(builder.build());
+                    }
+                    // the texts of a batch must be padded to the same length
+                    Map<String, String> batchArguments =
+                            new HashMap<>(arguments != null ? arguments : Map.of());
+                    batchArguments.putIfAbsent("padding", "true");
+                    builder.arguments(batchArguments);
+                    // an inference already runs on all the processors: more workers would only
+                    // compete for them
+                    int threads =
+                            Math.max(1, getInt("inference-threads", 1, additionalConfiguration));
+                    int latency = getInt("inference-batch-latency-ms", 5, additionalConfiguration);
+                    return new BatchingHuggingFaceEmbeddingService(
+                            builder.build(), threads, batchSize, latency, metricsReporter);
                 }
                 case "API" -> {
                     Objects.requireNonNull(model, "model name is required");
@@ -131,7 +160,7 @@ public class HuggingFaceProvider implements ServiceProviderProvider {
                     } else {
                         apiBuilder.options(Map.of("wait_for_model", "true"));
                     }
-                    return new HuggingFaceRestEmbeddingService(apiBuilder.build());
+                    return new HuggingFaceRestEmbeddingService(apiBuilder.build(), httpTransport);
                 }
                 default -> throw new IllegalArgumentException(
                         "Unsupported HuggingFace service type: " + provider);
@@ -142,15 +171,15 @@ public class HuggingFaceProvider implements ServiceProviderProvider {
 
         private static class HuggingFaceCompletionsService implements CompletionsService {
 
-            final HttpClient httpClient;
+            final HttpTransport httpTransport;
             final String url;
             final String accessKey;
 
             public HuggingFaceCompletionsService(
-                    String url, String accessKey, Map<String, Object> additionalConfiguration) {
+                    String url, String accessKey, HttpTransport httpTransport) {
                 this.url = url;
                 this.accessKey = accessKey;
-                this.httpClient = HttpClient.newHttpClient();
+                this.httpTransport = httpTransport;
             }
 
             @Override
@@ -188,7 +217,7 @@ public class HuggingFaceProvider implements ServiceProviderProvider {
                 log.info("URL: {}", finalUrl);
                 log.info("Request: {}", request);
                 CompletableFuture<HttpResponse<String>> responseHandle =
-                        httpClient.sendAsync(
+                        httpTransport.sendAsync(
                                 HttpRequest.newBuilder()
                                         .uri(URI.create(finalUrl))
                                         .header("Authorization", "Bearer " + accessKey)
@@ -15,9 +15,9 @@
  */
 package ai.langstream.ai.agents.services.impl;
 
+import ai.langstream.ai.agents.services.HttpTransport;
 import ai.langstream.ai.agents.services.ServiceProviderProvider;
 import ai.langstream.api.runner.code.MetricsReporter;
-import ai.langstream.api.util.ConfigurationUtils;
 import com.datastax.oss.streaming.ai.completions.ChatChoice;
 import com.datastax.oss.streaming.ai.completions.ChatCompletions;
 import com.datastax.oss.streaming.ai.completions.ChatMessage;
@@ -25,6 +25,7 @@ import com.datastax.oss.streaming.ai.completions.CompletionsService;
 import com.datastax.oss.streaming.ai.completions.TextCompletionResult;
 import com.datastax.oss.streaming.ai.embeddings.EmbeddingsService;
 import com.datastax.oss.streaming.ai.services.ServiceProvider;
+import com.datastax.oss.streaming.ai.streaming.ChunksCoalescer;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -64,18 +65,19 @@ public class OllamaProvider implements ServiceProviderProvider {
 
         Map<String, Object> config = (Map<String, Object>) agentConfiguration.get("ollama");
         String url = (String) config.get("url");
-        return new OllamaServiceProvider(url);
+        return new OllamaServiceProvider(
+                url, HttpTransport.create("ollama", config, metricsReporter));
     }
 
     private static class OllamaServiceProvider implements ServiceProvider {
 
-        final HttpClient httpClient;
+        final HttpTransport httpTransport;
         private final String url;
 
         @SneakyThrows
-        public OllamaServiceProvider(String url) {
+        public OllamaServiceProvider(String url, HttpTransport httpTransport) {
             this.url = url;
-            this.httpClient = HttpClient.newHttpClient();
+            this.httpTransport = httpTransport;
         }
 
         @Override
@@ -84,8 +86,7 @@ public class OllamaProvider implements ServiceProviderProvider {
             if (model == null) {
                 throw new IllegalArgumentException("'model' is required for completions service");
             }
-            int minChunksPerMessage = ConfigurationUtils.getInt("min-chunks-per-message", 20, map);
-            return new OllamaCompletionsService(model, minChunksPerMessage);
+            return new OllamaCompletionsService(model, map);
         }
 
         @Override
@@ -135,7 +136,7 @@ public class OllamaProvider implements ServiceProviderProvider {
                                     .method("POST", bodyPublisher);
                     final HttpRequest httpRequest = requestBuilder.build();
 
-                    return httpClient
+                    return httpTransport
                             .sendAsync(httpRequest, HttpResponse.BodyHandlers.ofString())
                             .thenApply(
                                     response -> {
@@ -169,11 +170,7 @@ public class OllamaProvider implements ServiceProviderProvider {
 
             private final StringWriter totalAnswer = new StringWriter();
 
-            private final StringWriter writer = new StringWriter();
-            private final AtomicInteger numberOfChunks = new AtomicInteger();
-            private final int minChunksPerMessage;
-
-            private final AtomicInteger currentChunkSize = new AtomicInteger(1);
+            private final ChunksCoalescer coalescer;
             private final AtomicInteger index = new AtomicInteger();
 
             private final CompletionsService.StreamingChunksConsumer streamingChunksConsumer;
@@ -181,9 +178,9 @@ public class OllamaProvider implements ServiceProviderProvider {
             private final String answerId = java.util.UUID.randomUUID().toString();
 
             public StreamResponseProcessor(
-                    int minChunksPerMessage,
+                    ChunksCoalescer coalescer,
                     CompletionsService.StreamingChunksConsumer streamingChunksConsumer) {
-                this.minChunksPerMessage = minChunksPerMessage;
+                this.coalescer = coalescer;
                 this.streamingChunksConsumer = streamingChunksConsumer;
             }
 
@@ -210,31 +207,29 @@ public class OllamaProvider implements ServiceProviderProvider {
                 }
 
                 if (content != null && !content.isEmpty()) {
-                    writer.write(content);
+                    coalescer.append(content);
                     totalAnswer.write(content);
-                    numberOfChunks.incrementAndGet();
                 }
 
-                // start from 1 chunk, then double the size until we reach the minChunksPerMessage
-                // this gives better latencies for the first message
-                int currentMinChunksPerMessage = currentChunkSize.get();
-
-                if (numberOfChunks.get() >= currentMinChunksPerMessage || last) {
-                    currentChunkSize.set(
-                            Math.min(currentMinChunksPerMessage * 2, minChunksPerMessage));
-                    streamingChunksConsumer.consumeChunk(
-                            answerId,
-                            index.incrementAndGet(),
-                            new ChatChoice(new ChatMessage("system", writer.toString())),
-                            last);
-                    writer.getBuffer().setLength(0);
-                    numberOfChunks.set(0);
+                CompletableFuture<?> ready = CompletableFuture.completedFuture(null);
+                if (coalescer.isReady(last)) {
+                    ready =
+                            streamingChunksConsumer.consumeChunkAsync(
+                                    answerId,
+                                    index.incrementAndGet(),
+                                    new ChatChoice(new ChatMessage("system", coalescer.flush())),
+                                    last);
                 }
                 if (last) {
                     this.complete(buildTotalAnswerMessage());
                 }
 
-                subscription.request(1);
+                // read the next line only when the chunk has been consumed
+                if (ready.isDone()) {
+                    subscription.request(1);
+                } else {
+                    ready.whenComplete((__, error) -> subscription.request(1));
+                }
             }
 
             @Override
@@ -262,11 +257,11 @@ public class OllamaProvider implements ServiceProviderProvider {
 
         private class OllamaCompletionsService implements CompletionsService {
             private final String model;
-            private final int minChunksPerMessage;
+            private final Map<String, Object> options;
 
-            public OllamaCompletionsService(String model, int minChunksPerMessage) {
+            public OllamaCompletionsService(String model, Map<String, Object> options) {
                 this.model = model;
-                this.minChunksPerMessage = minChunksPerMessage;
+                this.options = options;
             }
 
             @Override
@@ -293,18 +288,36 @@ public class OllamaProvider implements ServiceProviderProvider {
 
                     StreamResponseProcessor streamResponseProcessor =
                             new StreamResponseProcessor(
-                                    minChunksPerMessage, streamingChunksConsumer);
-                    httpClient.sendAsync(
-                            httpRequest,
-                            HttpResponse.BodyHandlers.fromLineSubscriber(streamResponseProcessor));
-
-                    return streamResponseProcessor.thenApply(
-                            s -> {
-                                ChatCompletions result = new ChatCompletions();
-                                result.setChoices(
-                                        List.of(new ChatChoice(new ChatMessage("system", s))));
-                                return result;
-                            });
+                                    ChunksCoalescer.fromOptions(options), streamingChunksConsumer);
+                    // the slot is released when the whole answer has been streamed
+                    return httpTransport
+                            .execute(
+                                    () -> {
+                                        HttpTransport.httpClient()
+                                                .sendAsync(
+                                                        httpRequest,
+                                                        HttpResponse.BodyHandlers
+                                                                .fromLineSubscriber(
+                                                                        streamResponseProcessor))
+                                                .whenComplete(
+                                                        (response, error) -> {
+                                                            if (error != null) {
+                                                                streamResponseProcessor
+                                                                        .completeExceptionally(
+                                                                                error);
+                                                            }
+                                                        });
+                                        return streamResponseProcessor;
+                                    })
+                            .thenApply(
+                                    s -> {
+                                        ChatCompletions result = new ChatCompletions();
+                                        result.setChoices(
+                                                List.of(
+                                                        new ChatChoice(
+                                                                new ChatMessage("system", s))));
+                                        return result;
+                                    });
                 } catch (Exception e) {
                     return CompletableFuture.failedFuture(e);
                 }
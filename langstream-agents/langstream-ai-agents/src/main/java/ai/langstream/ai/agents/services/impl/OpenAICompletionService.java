@@ -33,6 +33,7 @@ import com.datastax.oss.streaming.ai.completions.ChatMessage;
 import com.datastax.oss.streaming.ai.completions.Chunk;
 import com.datastax.oss.streaming.ai.completions.CompletionsService;
 import com.datastax.oss.streaming.ai.completions.TextCompletionResult;
+import com.datastax.oss.streaming.ai.streaming.ChunksCoalescer;
 import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.List;
@@ -41,11 +42,13 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import lombok.Getter;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
 import reactor.core.publisher.Flux;
 
 @Slf4j
@@ -123,7 +126,6 @@ public class OpenAICompletionService implements CompletionsService {
             List<ChatMessage> messages,
             StreamingChunksConsumer streamingChunksConsumer,
             Map<String, Object> options) {
-        int minChunksPerMessage = getInteger("min-chunks-per-message", 20, options);
         ChatCompletionsOptions chatCompletionsOptions =
                 new ChatCompletionsOptions(
                                 messages.stream()
@@ -155,7 +157,9 @@ public class OpenAICompletionService implements CompletionsService {
 
             ChatCompletionsConsumer chatCompletionsConsumer =
                     new ChatCompletionsConsumer(
-                            streamingChunksConsumer, minChunksPerMessage, finished);
+                            streamingChunksConsumer,
+                            ChunksCoalescer.fromOptions(options),
+                            finished);
 
             flux.doOnError(
                             error -> {
@@ -165,8 +169,7 @@ public class OpenAICompletionService implements CompletionsService {
                                 chatNumErrors.count(1);
                                 finished.completeExceptionally(error);
                             })
-                    .doOnNext(chatCompletionsConsumer)
-                    .subscribe();
+                    .subscribe(new ChunksSubscriber<>(chatCompletionsConsumer));
 
             return finished.thenApply(
                     ___ -> {
@@ -220,8 +223,40 @@ public class OpenAICompletionService implements CompletionsService {
                 message.getContent());
     }
 
+    /**
+     * Requests the next element of the stream only when the consumer of the chunks is ready, so
+     * that the response is not read faster than the chunks can be written.
+     */
+    private static class ChunksSubscriber<T> extends BaseSubscriber<T> {
+        private final Function<T, CompletableFuture<?>> consumer;
+
+        ChunksSubscriber(Function<T, CompletableFuture<?>> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            request(1);
+        }
+
+        @Override
+        protected void hookOnNext(T value) {
+            CompletableFuture<?> ready = consumer.apply(value);
+            if (ready.isDone()) {
+                request(1);
+            } else {
+                ready.whenComplete((__, error) -> request(1));
+            }
+        }
+
+        @Override
+        protected void hookOnError(Throwable throwable) {
+            // already handled by doOnError
+        }
+    }
+
     private static class ChatCompletionsConsumer
-            implements Consumer<com.azure.ai.openai.models.ChatCompletions> {
+            implements Function<com.azure.ai.openai.models.ChatCompletions, CompletableFuture<?>> {
         private final StreamingChunksConsumer streamingChunksConsumer;
         private final CompletableFuture<?> finished;
 
@@ -233,18 +268,14 @@ public class OpenAICompletionService implements CompletionsService {
 
         @Getter private final AtomicInteger completionTokens = new AtomicInteger();
 
-        private final StringWriter writer = new StringWriter();
-        private final AtomicInteger numberOfChunks = new AtomicInteger();
-        private final int minChunksPerMessage;
-
-        private final AtomicInteger currentChunkSize = new AtomicInteger(1);
+        private final ChunksCoalescer coalescer;
         private final AtomicInteger index = new AtomicInteger();
 
         public ChatCompletionsConsumer(
                 StreamingChunksConsumer streamingChunksConsumer,
-                int minChunksPerMessage,
+                ChunksCoalescer coalescer,
                 CompletableFuture<?> finished) {
-            this.minChunksPerMessage = minChunksPerMessage;
+            this.coalescer = coalescer;
             this.streamingChunksConsumer =
                     streamingChunksConsumer != null
                             ? streamingChunksConsumer
@@ -253,7 +284,7 @@ public class OpenAICompletionService implements CompletionsService {
         }
 
         @Override
-        public synchronized void accept(
+        public synchronized CompletableFuture<?> apply(
                 com.azure.ai.openai.models.ChatCompletions chatCompletions) {
             List<com.azure.ai.openai.models.ChatChoice> choices = chatCompletions.getChoices();
             String answerId = chatCompletions.getId();
@@ -270,7 +301,7 @@ public class OpenAICompletionService implements CompletionsService {
                 ChatChoice converted = new ChatChoice(convertMessage(first));
                 ChatMessage message = converted.getMessage();
                 if (message == null) {
-                    return;
+                    return CompletableFuture.completedFuture(null);
                 }
 
                 // the "role" is set only on the first message
@@ -280,29 +311,24 @@ public class OpenAICompletionService implements CompletionsService {
                     message.setRole(role.get());
                 }
                 if (message.getContent() != null && !message.getContent().isEmpty()) {
-                    writer.write(message.getContent());
+                    coalescer.append(message.getContent());
                     totalAnswer.write(message.getContent());
-                    numberOfChunks.incrementAndGet();
                 }
 
-                // start from 1 chunk, then double the size until we reach the minChunksPerMessage
-                // this gives better latencies for the first message
-                int currentMinChunksPerMessage = currentChunkSize.get();
-
-                if (numberOfChunks.get() >= currentMinChunksPerMessage || last) {
-                    currentChunkSize.set(
-                            Math.min(currentMinChunksPerMessage * 2, minChunksPerMessage));
+                CompletableFuture<?> ready = CompletableFuture.completedFuture(null);
+                if (coalescer.isReady(last)) {
                     ChatChoice chunk =
-                            new ChatChoice(new ChatMessage(role.get(), writer.toString()));
-                    streamingChunksConsumer.consumeChunk(
-                            answerId, index.incrementAndGet(), chunk, last);
-                    writer.getBuffer().setLength(0);
-                    numberOfChunks.set(0);
+                            new ChatChoice(new ChatMessage(role.get(), coalescer.flush()));
+                    ready =
+                            streamingChunksConsumer.consumeChunkAsync(
+                                    answerId, index.incrementAndGet(), chunk, last);
                 }
                 if (last) {
                     finished.complete(null);
                 }
+                return ready;
             }
+            return CompletableFuture.completedFuture(null);
         }
 
         public ChatMessage buildTotalAnswerMessage() {
@@ -315,7 +341,6 @@ public class OpenAICompletionService implements CompletionsService {
             List<String> prompt,
             StreamingChunksConsumer streamingChunksConsumer,
             Map<String, Object> options) {
-        int minChunksPerMessage = getInteger("min-chunks-per-message", 20, options);
         CompletionsOptions completionsOptions =
                 new CompletionsOptions(prompt)
                         .setMaxTokens(getInteger("max-tokens", null, options))
@@ -340,7 +365,9 @@ public class OpenAICompletionService implements CompletionsService {
 
             TextCompletionsConsumer textCompletionsConsumer =
                     new TextCompletionsConsumer(
-                            streamingChunksConsumer, minChunksPerMessage, finished);
+                            streamingChunksConsumer,
+                            ChunksCoalescer.fromOptions(options),
+                            finished);
 
             flux.doOnError(
                             error -> {
@@ -350,8 +377,7 @@ public class OpenAICompletionService implements CompletionsService {
                                 textNumErrors.count(1);
                                 finished.completeExceptionally(error);
                             })
-                    .doOnNext(textCompletionsConsumer)
-                    .subscribe();
+                    .subscribe(new ChunksSubscriber<>(textCompletionsConsumer));
 
             return finished.thenApply(
                     ___ -> {
@@ -404,7 +430,7 @@ public class OpenAICompletionService implements CompletionsService {
     }
 
     private static class TextCompletionsConsumer
-            implements Consumer<com.azure.ai.openai.models.Completions> {
+            implements Function<com.azure.ai.openai.models.Completions, CompletableFuture<?>> {
         private final StreamingChunksConsumer streamingChunksConsumer;
         private final CompletableFuture<?> finished;
 
@@ -415,22 +441,19 @@ public class OpenAICompletionService implements CompletionsService {
 
         @Getter private final AtomicInteger completionTokens = new AtomicInteger();
 
-        private final StringWriter writer = new StringWriter();
-        private final AtomicInteger numberOfChunks = new AtomicInteger();
-        private final int minChunksPerMessage;
+        private final ChunksCoalescer coalescer;
         public List<String> logProbsTokens = new ArrayList<>();
         public List<Double> logProbsTokenLogProbabilities = new ArrayList<>();
 
-        private final AtomicInteger currentChunkSize = new AtomicInteger(1);
         private final AtomicInteger index = new AtomicInteger();
 
         private final AtomicBoolean firstChunk = new AtomicBoolean(true);
 
         public TextCompletionsConsumer(
                 StreamingChunksConsumer streamingChunksConsumer,
-                int minChunksPerMessage,
+                ChunksCoalescer coalescer,
                 CompletableFuture<?> finished) {
-            this.minChunksPerMessage = minChunksPerMessage;
+            this.coalescer = coalescer;
             this.streamingChunksConsumer =
                     streamingChunksConsumer != null
                             ? streamingChunksConsumer
@@ -440,7 +463,8 @@ public class OpenAICompletionService implements CompletionsService {
 
         @Override
         @SneakyThrows
-        public synchronized void accept(com.azure.ai.openai.models.Completions completions) {
+        public synchronized CompletableFuture<?> apply(
+                com.azure.ai.openai.models.Completions completions) {
             List<com.azure.ai.openai.models.Choice> choices = completions.getChoices();
             String answerId = completions.getId();
             if (completions.getUsage() != null) {
@@ -455,17 +479,17 @@ public class OpenAICompletionService implements CompletionsService {
                 boolean last = finishReason != null;
                 final String content = first.getText();
                 if (content == null) {
-                    return;
+                    return CompletableFuture.completedFuture(null);
                 }
                 if (firstChunk.compareAndSet(true, false)) {
                     // Some models return two line break at the beginning of the first response,
                     // even though this is not documented
                     // https://community.openai.com/t/output-starts-often-with-linebreaks/36333/4
                     if (content.isBlank()) {
-                        return;
+                        return CompletableFuture.completedFuture(null);
                     }
                 }
-                writer.write(content);
+                coalescer.append(content);
                 totalAnswer.write(content);
 
                 CompletionsLogProbabilityModel logprobs = first.getLogprobs();
@@ -474,26 +498,20 @@ public class OpenAICompletionService implements CompletionsService {
                     logProbsTokenLogProbabilities.addAll(logprobs.getTokenLogProbabilities());
                 }
 
-                numberOfChunks.incrementAndGet();
-
-                // start from 1 chunk, then double the size until we reach the minChunksPerMessage
-                // this gives better latencies for the first message
-                int currentMinChunksPerMessage = currentChunkSize.get();
-
-                if (numberOfChunks.get() >= currentMinChunksPerMessage || last) {
-                    currentChunkSize.set(
-                            Math.min(currentMinChunksPerMessage * 2, minChunksPerMessage));
-                    final String chunkContent = writer.toString();
+                CompletableFuture<?> ready = CompletableFuture.completedFuture(null);
+                if (coalescer.isReady(last)) {
+                    final String chunkContent = coalescer.flush();
                     final Chunk chunk = () -> chunkContent;
-                    streamingChunksConsumer.consumeChunk(
-                            answerId, index.incrementAndGet(), chunk, last);
-                    writer.getBuffer().setLength(0);
-                    numberOfChunks.set(0);
+                    ready =
+                            streamingChunksConsumer.consumeChunkAsync(
+                                    answerId, index.incrementAndGet(), chunk, last);
                 }
                 if (last) {
                     finished.complete(null);
                 }
+                return ready;
             }
+            return CompletableFuture.completedFuture(null);
         }
     }
 }
@@ -15,6 +15,7 @@
  */
 package ai.langstream.ai.agents.services.impl;
 
+import ai.langstream.ai.agents.services.HttpTransport;
 import ai.langstream.ai.agents.services.ServiceProviderProvider;
 import ai.langstream.api.runner.code.MetricsReporter;
 import com.azure.ai.openai.OpenAIAsyncClient;
@@ -32,11 +33,15 @@ public class OpenAIServiceProvider implements ServiceProviderProvider {
     @Override
     public ServiceProvider createImplementation(
             Map<String, Object> agentConfiguration, MetricsReporter metricsReporter) {
+        Map<String, Object> providerConfiguration =
+                (Map<String, Object>) agentConfiguration.get("openai");
         OpenAIConfig config =
-                TransformFunctionUtil.convertFromMap(
-                        (Map<String, Object>) agentConfiguration.get("openai"), OpenAIConfig.class);
-        OpenAIAsyncClient client = TransformFunctionUtil.buildOpenAsyncAIClient(config);
+                TransformFunctionUtil.convertFromMap(providerConfiguration, OpenAIConfig.class);
+        HttpTransport httpTransport =
+                HttpTransport.create("openai", providerConfiguration, metricsReporter);
+        OpenAIAsyncClient client =
+                TransformFunctionUtil.buildOpenAsyncAIClient(config, httpTransport.rateLimiter());
         return new com.datastax.oss.streaming.ai.services.OpenAIServiceProvider(
-                client, metricsReporter);
+                client, metricsReporter, httpTransport);
     }
 }
@@ -15,6 +15,7 @@
  */
 package ai.langstream.ai.agents.services.impl;
 
+import ai.langstream.ai.agents.services.HttpTransport;
 import ai.langstream.ai.agents.services.ServiceProviderProvider;
 import ai.langstream.api.runner.code.MetricsReporter;
 import ai.langstream.api.util.ConfigurationUtils;
@@ -36,7 +37,6 @@ import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
@@ -79,12 +79,18 @@ public class VertexAIProvider implements ServiceProviderProvider {
         String project = (String) config.get("project");
         String region = (String) config.get("region");
 
-        return new VertexAIServiceProvider(url, project, region, token, serviceAccountJson);
+        return new VertexAIServiceProvider(
+                url,
+                project,
+                region,
+                token,
+                serviceAccountJson,
+                HttpTransport.create("vertex", config, metricsReporter));
     }
 
     private static class VertexAIServiceProvider implements ServiceProvider {
 
-        final HttpClient httpClient;
+        final HttpTransport httpTransport;
         private final String url;
         private final String project;
         private final String region;
@@ -100,7 +106,8 @@ public class VertexAIProvider implements ServiceProviderProvider {
                 String project,
                 String region,
                 String token,
-                String serviceAccountJson) {
+                String serviceAccountJson,
+                HttpTransport httpTransport) {
             if (url == null || url.isEmpty()) {
                 url = "https://" + region + "-aiplatform.googleapis.com";
             }
@@ -165,7 +172,7 @@ public class VertexAIProvider implements ServiceProviderProvider {
                         "You have to pass the access token or the service account json file");
             }
 
-            this.httpClient = HttpClient.newHttpClient();
+            this.httpTransport = httpTransport;
         }
 
         private void scheduleRefreshToken(long refresh) {
@@ -214,7 +221,7 @@ public class VertexAIProvider implements ServiceProviderProvider {
         }
 
         private <R, T> CompletableFuture<T> executeVertexCall(
-                R requestEmbeddings, Class<T> responseType, String model) {
+                R requestEmbeddings, Class<T> responseType, String model, long estimatedTokens) {
             String finalUrl = VERTEX_URL_TEMPLATE.formatted(url, project, region, model);
             String request;
             try {
@@ -226,14 +233,15 @@ public class VertexAIProvider implements ServiceProviderProvider {
             log.info("Request: {}", request);
 
             CompletableFuture<HttpResponse<String>> responseHandle =
-                    httpClient.sendAsync(
+                    httpTransport.sendAsync(
                             HttpRequest.newBuilder()
                                     .uri(URI.create(finalUrl))
                                     .header("Authorization", "Bearer " + getCurrentToken())
                                     .header("Content-Type", "application/json")
                                     .POST(HttpRequest.BodyPublishers.ofString(request))
                                     .build(),
-                            HttpResponse.BodyHandlers.ofString());
+                            HttpResponse.BodyHandlers.ofString(),
+                            estimatedTokens);
 
             return responseHandle.thenApply(
                     response -> {
@@ -280,7 +288,11 @@ public class VertexAIProvider implements ServiceProviderProvider {
                 appendRequestParameters(additionalConfiguration, request);
 
                 CompletableFuture<ChatPredictions> predictionsResult =
-                        executeVertexCall(request, ChatPredictions.class, model);
+                        executeVertexCall(
+                                request,
+                                ChatPredictions.class,
+                                model,
+                                httpTransport.estimateChatTokens(list, additionalConfiguration));
                 return predictionsResult.thenApply(
                         predictions -> {
                             ChatCompletions completions = new ChatCompletions();
@@ -397,7 +409,11 @@ public class VertexAIProvider implements ServiceProviderProvider {
                 appendRequestParameters(options, request);
 
                 CompletableFuture<TextPredictions> predictionsResult =
-                        executeVertexCall(request, TextPredictions.class, model);
+                        executeVertexCall(
+                                request,
+                                TextPredictions.class,
+                                model,
+                                httpTransport.estimateTokens(prompt, options));
                 return predictionsResult.thenApply(
                         predictions ->
                                 new TextCompletionResult(
@@ -448,7 +464,11 @@ public class VertexAIProvider implements ServiceProviderProvider {
                 // https://cloud.google.com/vertex-ai/docs/generative-ai/embeddings/get-text-embeddings#generative-ai-get-text-embedding-drest
                 RequestEmbeddings requestEmbeddings = new RequestEmbeddings(list);
                 CompletableFuture<Predictions> predictionsHandle =
-                        executeVertexCall(requestEmbeddings, Predictions.class, model);
+                        executeVertexCall(
+                                requestEmbeddings,
+                                Predictions.class,
+                                model,
+                                httpTransport.estimateTokens(list, null));
                 return predictionsHandle.thenApply(
                         predictions ->
                                 predictions.predictions.stream()
@@ -19,6 +19,7 @@ import static com.datastax.oss.streaming.ai.util.TransformFunctionUtil.convertTo
 
 import ai.langstream.ai.agents.commons.JsonRecord;
 import ai.langstream.ai.agents.commons.MutableRecord;
+import ai.langstream.api.runner.code.MetricsReporter;
 import com.datastax.oss.streaming.ai.completions.ChatChoice;
 import com.datastax.oss.streaming.ai.completions.ChatCompletions;
 import com.datastax.oss.streaming.ai.completions.ChatMessage;
@@ -34,6 +35,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.avro.Schema;
@@ -54,6 +56,9 @@ public class ChatCompletionsStep implements TransformStep {
 
     private StreamingAnswersConsumer streamingAnswersConsumer;
 
+    private final MetricsReporter.Histogram completionLatency;
+    private final MetricsReporter.Histogram firstChunkLatency;
+
     // for tests
     public ChatCompletionsStep(
             CompletionsService completionsService, ChatCompletionsConfig config) {
@@ -78,7 +83,23 @@ public class ChatCompletionsStep implements TransformStep {
             CompletionsService completionsService,
             StreamingAnswersConsumerFactory streamingAnswersConsumerFactory,
             ChatCompletionsConfig config) {
+        this(completionsService, streamingAnswersConsumerFactory, config, MetricsReporter.DISABLED);
+    }
+
+    public ChatCompletionsStep(
+            CompletionsService completionsService,
+            StreamingAnswersConsumerFactory streamingAnswersConsumerFactory,
+            ChatCompletionsConfig config,
+            MetricsReporter metricsReporter) {
         this.streamingAnswersConsumerFactory = streamingAnswersConsumerFactory;
+        this.completionLatency =
+                metricsReporter.histogram(
+                        "ai_chat_completions_latency_ms",
+                        "Duration of the chat completions calls, in milliseconds");
+        this.firstChunkLatency =
+                metricsReporter.histogram(
+                        "ai_chat_completions_first_chunk_latency_ms",
+                        "Time to receive the first streamed chunk of a chat completion, in milliseconds");
         this.completionsService = completionsService;
         this.config = config;
         this.streamingAnswersConsumer = (index, message, last, record) -> {};
@@ -129,6 +150,9 @@ public class ChatCompletionsStep implements TransformStep {
         Map<String, Object> options = convertToMap(config);
         options.put("min-chunks-per-message", config.getMinChunksPerMessage());
 
+        long start = System.nanoTime();
+        // the providers don't agree on the index of the first chunk
+        AtomicBoolean firstChunkSeen = new AtomicBoolean();
         CompletableFuture<ChatCompletions> chatCompletionsHandle =
                 completionsService.getChatCompletions(
                         messages,
@@ -136,6 +160,15 @@ public class ChatCompletionsStep implements TransformStep {
                             @Override
                             public void consumeChunk(
                                     String answerId, int index, Chunk chunk, boolean last) {
+                                consumeChunkAsync(answerId, index, chunk, last);
+                            }
+
+                            @Override
+                            public CompletableFuture<?> consumeChunkAsync(
+                                    String answerId, int index, Chunk chunk, boolean last) {
+                                if (firstChunkSeen.compareAndSet(false, true)) {
+                                    firstChunkLatency.observeMillisSince(start);
+                                }
 
                                 // we must copy the context because the same context is used for all
                                 // chunks
@@ -148,7 +181,7 @@ public class ChatCompletionsStep implements TransformStep {
 
                                 final String content = chunk.content();
                                 applyResultFieldToContext(copy, content, true);
-                                streamingAnswersConsumer.streamAnswerChunk(
+                                return streamingAnswersConsumer.streamAnswerChunkAsync(
                                         index, content, last, copy);
                             }
                         },
@@ -156,6 +189,7 @@ public class ChatCompletionsStep implements TransformStep {
 
         return chatCompletionsHandle.thenApply(
                 chatCompletions -> {
+                    completionLatency.observeMillisSince(start);
                     ChatChoice chatChoice = chatCompletions.getChoices().get(0);
                     applyResultFieldToContext(mutableRecord, chatChoice.content(), false);
 
@@ -18,6 +18,7 @@ package com.datastax.oss.streaming.ai;
 import ai.langstream.ai.agents.commons.JsonRecord;
 import ai.langstream.ai.agents.commons.MutableRecord;
 import ai.langstream.ai.agents.commons.jstl.JstlEvaluator;
+import ai.langstream.api.runner.code.MetricsReporter;
 import ai.langstream.api.util.OrderedAsyncBatchExecutor;
 import com.datastax.oss.streaming.ai.embeddings.EmbeddingsService;
 import com.samskivert.mustache.Mustache;
@@ -53,6 +54,8 @@ public class ComputeAIEmbeddingsStep implements TransformStep {
     private final String loopOverFieldName;
     private final String fieldInRecord;
     private final EmbeddingsService embeddingsService;
+    private final MetricsReporter.Histogram embeddingsLatency;
+    private final MetricsReporter.Histogram embeddingsBatchSize;
 
     private final OrderedAsyncBatchExecutor<RecordHolder> batchExecutor;
 
@@ -71,6 +74,26 @@ public class ComputeAIEmbeddingsStep implements TransformStep {
             long flushInterval,
             int concurrency,
             EmbeddingsService embeddingsService) {
+        this(
+                text,
+                embeddingsFieldName,
+                loopOver,
+                batchSize,
+                flushInterval,
+                concurrency,
+                embeddingsService,
+                MetricsReporter.DISABLED);
+    }
+
+    public ComputeAIEmbeddingsStep(
+            String text,
+            String embeddingsFieldName,
+            String loopOver,
+            int batchSize,
+            long flushInterval,
+            int concurrency,
+            EmbeddingsService embeddingsService,
+            MetricsReporter metricsReporter) {
         this.template =
                 Mustache.compiler().compile(MustacheCompatibilityUtils.handleLegacyTemplate(text));
         this.loopOverFieldName = loopOver;
@@ -92,6 +115,14 @@ public class ComputeAIEmbeddingsStep implements TransformStep {
             this.fieldInRecord = null;
         }
         this.embeddingsService = embeddingsService;
+        this.embeddingsLatency =
+                metricsReporter.histogram(
+                        "compute_ai_embeddings_latency_ms",
+                        "Duration of the calls to the embeddings service, in milliseconds");
+        this.embeddingsBatchSize =
+                metricsReporter.histogram(
+                        "compute_ai_embeddings_batch_size",
+                        "Number of texts sent to the embeddings service in each call");
         this.executorService =
                 flushInterval > 0 ? Executors.newSingleThreadScheduledExecutor() : null;
         int numBuckets = concurrency > 0 ? concurrency : 1;
@@ -201,10 +232,13 @@ public class ComputeAIEmbeddingsStep implements TransformStep {
             return;
         }
 
+        embeddingsBatchSize.observe(texts.size());
+        long start = System.nanoTime();
         CompletableFuture<List<List<Double>>> embeddings =
                 embeddingsService.computeEmbeddings(texts);
 
         embeddings
+                .whenComplete((r, e) -> embeddingsLatency.observeMillisSince(start))
                 .thenAccept(
                         (result) -> {
                             for (int i = 0; i < textsAndCompletions.size(); i++) {
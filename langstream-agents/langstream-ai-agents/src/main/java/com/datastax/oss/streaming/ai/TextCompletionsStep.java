@@ -98,6 +98,12 @@ public class TextCompletionsStep implements TransformStep {
                             @Override
                             public void consumeChunk(
                                     String answerId, int index, Chunk chunk, boolean last) {
+                                consumeChunkAsync(answerId, index, chunk, last);
+                            }
+
+                            @Override
+                            public CompletableFuture<?> consumeChunkAsync(
+                                    String answerId, int index, Chunk chunk, boolean last) {
 
                                 // we must copy the context because the same context is used for all
                                 // chunks
@@ -110,7 +116,7 @@ public class TextCompletionsStep implements TransformStep {
 
                                 final String content = chunk.content();
                                 applyResultFieldToContext(copy, content, true);
-                                streamingAnswersConsumer.streamAnswerChunk(
+                                return streamingAnswersConsumer.streamAnswerChunkAsync(
                                         index, content, last, copy);
                             }
                         },
@@ -32,5 +32,15 @@ public interface CompletionsService {
 
     interface StreamingChunksConsumer {
         void consumeChunk(String answerId, int index, Chunk chunk, boolean last);
+
+        /**
+         * Consumes a chunk and returns a future that completes when the consumer is ready to
+         * receive more chunks. The services stop reading the response until then.
+         */
+        default CompletableFuture<?> consumeChunkAsync(
+                String answerId, int index, Chunk chunk, boolean last) {
+            consumeChunk(answerId, index, chunk, last);
+            return CompletableFuture.completedFuture(null);
+        }
     }
 }
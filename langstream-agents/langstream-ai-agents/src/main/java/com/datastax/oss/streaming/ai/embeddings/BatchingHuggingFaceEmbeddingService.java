@@ -0,0 +1,136 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.streaming.ai.embeddings;
+
+import ai.djl.MalformedModelException;
+import ai.djl.inference.Predictor;
+import ai.djl.repository.zoo.ModelNotFoundException;
+import ai.djl.translate.TranslateException;
+import ai.langstream.api.runner.code.MetricsReporter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Local HuggingFace model that computes the embeddings of many texts with a single inference.
+ *
+ * <p>The texts of concurrent calls are batched by a {@link LocalEmbeddingsEngine}, every worker of
+ * the engine owns a predictor of the shared model. The tokenizer is loaded once with the model and
+ * pads the texts of a batch to the longest one, the embeddings are mean pooled using the attention
+ * mask, so padding doesn't change the result.
+ */
+@Slf4j
+public class BatchingHuggingFaceEmbeddingService
+        extends AbstractHuggingFaceEmbeddingService<String[], float[][]> {
+
+    private final LocalEmbeddingsEngine engine;
+
+    public BatchingHuggingFaceEmbeddingService(
+            HuggingFaceConfig conf,
+            int numWorkers,
+            int maxBatchSize,
+            long maxBatchLatencyMillis,
+            MetricsReporter metricsReporter)
+            throws IOException,
+                    ModelNotFoundException,
+                    MalformedModelException,
+                    IllegalAccessException,
+                    InterruptedException {
+        super(conf);
+        try {
+            this.engine =
+                    new LocalEmbeddingsEngine(
+                            "embeddings-" + conf.modelName,
+                            numWorkers,
+                            maxBatchSize,
+                            maxBatchLatencyMillis,
+                            this::newBatchPredictor,
+                            metricsReporter);
+        } catch (RuntimeException error) {
+            model.close();
+            throw error;
+        }
+    }
+
+    private LocalEmbeddingsEngine.BatchPredictor newBatchPredictor() {
+        Predictor<String[], float[][]> predictor = model.newPredictor();
+        return new LocalEmbeddingsEngine.BatchPredictor() {
+            @Override
+            public float[][] predict(String[] texts) throws TranslateException {
+                try {
+                    return predictor.predict(texts);
+                } catch (TranslateException error) {
+                    if (error.getCause() instanceof IllegalArgumentException) {
+                        throw new TranslateException(
+                                "Illegal input, maybe the number of tokens is too high", error);
+                    }
+                    throw error;
+                }
+            }
+
+            @Override
+            public void close() {
+                predictor.close();
+            }
+        };
+    }
+
+    @Override
+    List<String[]> convertInput(List<String> texts) {
+        return List.<String[]>of(texts.toArray(new String[0]));
+    }
+
+    @Override
+    List<List<Double>> convertOutput(List<float[][]> result) {
+        List<List<Double>> out = new ArrayList<>();
+        for (float[][] batch : result) {
+            for (float[] floats : batch) {
+                out.add(toDoubles(floats));
+            }
+        }
+        return out;
+    }
+
+    private static List<Double> toDoubles(float[] floats) {
+        List<Double> l = new ArrayList<>(floats.length);
+        for (float aFloat : floats) {
+            l.add((double) aFloat);
+        }
+        return l;
+    }
+
+    @Override
+    public CompletableFuture<List<List<Double>>> computeEmbeddings(List<String> texts) {
+        return engine.compute(texts)
+                .thenApply(
+                        embeddings -> {
+                            List<List<Double>> out = new ArrayList<>(embeddings.size());
+                            for (float[] floats : embeddings) {
+                                out.add(toDoubles(floats));
+                            }
+                            return out;
+                        });
+    }
+
+    @Override
+    public void close() throws Exception {
+        // the workers close their predictors
+        engine.close();
+        super.close();
+    }
+}
@@ -15,11 +15,12 @@
  */
 package com.datastax.oss.streaming.ai.embeddings;
 
+import ai.langstream.ai.agents.services.HttpTransport;
+import ai.langstream.api.runner.code.MetricsReporter;
 import com.fasterxml.jackson.annotation.JsonAlias;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.util.HashSet;
@@ -66,7 +67,7 @@ public class HuggingFaceRestEmbeddingService implements EmbeddingsService {
     private final URL modelUrl;
     private final URL checkUrl;
 
-    private final HttpClient httpClient;
+    private final HttpTransport httpTransport;
 
     @Data
     @Builder
@@ -79,13 +80,18 @@ public class HuggingFaceRestEmbeddingService implements EmbeddingsService {
     }
 
     public HuggingFaceRestEmbeddingService(HuggingFaceApiConfig conf) throws MalformedURLException {
+        this(conf, HttpTransport.create("huggingface", Map.of(), MetricsReporter.DISABLED));
+    }
+
+    public HuggingFaceRestEmbeddingService(HuggingFaceApiConfig conf, HttpTransport httpTransport)
+            throws MalformedURLException {
         this.conf = conf;
         this.model = conf.model;
         this.token = conf.accessKey;
         this.checkUrl = new URL(conf.hfCheckUrl + model);
         this.modelUrl = new URL(conf.hfUrl + model);
 
-        this.httpClient = HttpClient.newHttpClient();
+        this.httpTransport = httpTransport;
 
         try {
             HttpRequest request =
@@ -95,7 +101,7 @@ public class HuggingFaceRestEmbeddingService implements EmbeddingsService {
                             .GET()
                             .build();
             HttpResponse<String> response =
-                    httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                    httpTransport.sendAsync(request, HttpResponse.BodyHandlers.ofString()).get();
             if (log.isDebugEnabled()) {
                 log.debug(
                         "Model {} check http response is {} {}", model, response, response.body());
@@ -158,7 +164,7 @@ public class HuggingFaceRestEmbeddingService implements EmbeddingsService {
                         .POST(HttpRequest.BodyPublishers.ofString(jsonPayload))
                         .build();
         CompletableFuture<HttpResponse<String>> responseHandle =
-                httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+                httpTransport.sendAsync(request, HttpResponse.BodyHandlers.ofString());
         return responseHandle.thenApply(
                 response -> {
                     if (log.isDebugEnabled()) {
@@ -0,0 +1,277 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.streaming.ai.embeddings;
+
+import ai.langstream.api.runner.code.MetricsReporter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Computes the embeddings on a pool of worker threads, batching together the texts of concurrent
+ * callers.
+ *
+ * <p>Every worker owns a predictor, that is created and warmed up when the engine starts, so the
+ * first requests don't pay the initialization of the model. The predictors usually share the same
+ * model: if the inference is multi-threaded, a single worker already keeps all the processors busy.
+ * A worker takes the oldest request from the queue and adds the following requests to the same
+ * batch until the batch contains {@code maxBatchSize} texts or the oldest request waited {@code
+ * maxBatchLatencyMillis}.
+ */
+@Slf4j
+public class LocalEmbeddingsEngine implements AutoCloseable {
+
+    static final String WARMUP_TEXT = "warm up";
+
+    /** Computes the embeddings of a batch of texts. A predictor is used by one thread at a time. */
+    public interface BatchPredictor extends AutoCloseable {
+        float[][] predict(String[] texts) throws Exception;
+
+        @Override
+        default void close() throws Exception {}
+    }
+
+    private record Request(
+            List<String> texts, CompletableFuture<List<float[]>> result, long enqueuedNanos) {}
+
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private final int maxBatchSize;
+    private final long maxBatchLatencyNanos;
+    private volatile boolean closed;
+
+    private final MetricsReporter.Counter textsCounter;
+    private final MetricsReporter.Counter errorsCounter;
+    private final MetricsReporter.Histogram batchSizeHistogram;
+    private final MetricsReporter.Histogram inferenceLatencyHistogram;
+    private final MetricsReporter.Histogram requestLatencyHistogram;
+
+    public LocalEmbeddingsEngine(
+            String name,
+            int numWorkers,
+            int maxBatchSize,
+            long maxBatchLatencyMillis,
+            Supplier<BatchPredictor> predictorFactory,
+            MetricsReporter metricsReporter) {
+        if (numWorkers <= 0) {
+            throw new IllegalArgumentException("The number of workers must be positive");
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("The max batch size must be positive");
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchLatencyNanos = TimeUnit.MILLISECONDS.toNanos(maxBatchLatencyMillis);
+        this.textsCounter =
+                metricsReporter.counter(
+                        "local_embeddings_texts", "Total number of texts embedded locally");
+        this.errorsCounter =
+                metricsReporter.counter(
+                        "local_embeddings_errors",
+                        "Total number of failed batches while computing embeddings locally");
+        this.batchSizeHistogram =
+                metricsReporter.histogram(
+                        "local_embeddings_batch_size",
+                        "Number of texts in a batch computed by the local embeddings engine");
+        this.inferenceLatencyHistogram =
+                metricsReporter.histogram(
+                        "local_embeddings_inference_latency_ms",
+                        "Time spent computing a batch of embeddings locally");
+        this.requestLatencyHistogram =
+                metricsReporter.histogram(
+                        "local_embeddings_request_latency_ms",
+                        "Time between the submission of the texts and the embeddings being ready");
+
+        List<CompletableFuture<?>> warmups = new ArrayList<>();
+        for (int i = 0; i < numWorkers; i++) {
+            CompletableFuture<?> ready = new CompletableFuture<>();
+            Thread worker = new Thread(() -> runWorker(predictorFactory, ready), name + "-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            warmups.add(ready);
+            worker.start();
+        }
+        try {
+            CompletableFuture.allOf(warmups.toArray(new CompletableFuture[0])).join();
+        } catch (RuntimeException error) {
+            close();
+            throw error;
+        }
+        log.info(
+                "Started local embeddings engine {} with {} workers, max batch size {}, max batch latency {} ms",
+                name,
+                numWorkers,
+                maxBatchSize,
+                maxBatchLatencyMillis);
+    }
+
+    public CompletableFuture<List<float[]>> compute(List<String> texts) {
+        if (closed) {
+            return CompletableFuture.failedFuture(closedError());
+        }
+        if (texts.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        Request request = new Request(texts, new CompletableFuture<>(), System.nanoTime());
+        queue.add(request);
+        if (closed && queue.remove(request)) {
+            request.result().completeExceptionally(closedError());
+        }
+        return request.result();
+    }
+
+    private static BatchPredictor startPredictor(
+            Supplier<BatchPredictor> predictorFactory, CompletableFuture<?> ready) {
+        BatchPredictor predictor = null;
+        try {
+            predictor = predictorFactory.get();
+            predictor.predict(new String[] {WARMUP_TEXT});
+            ready.complete(null);
+            return predictor;
+        } catch (Throwable error) {
+            log.error("Cannot start the embeddings worker", error);
+            ready.completeExceptionally(error);
+            closeQuietly(predictor);
+            return null;
+        }
+    }
+
+    private void runWorker(Supplier<BatchPredictor> predictorFactory, CompletableFuture<?> ready) {
+        final BatchPredictor predictor = startPredictor(predictorFactory, ready);
+        if (predictor == null) {
+            return;
+        }
+        try (predictor) {
+            Request next = null;
+            while (!closed) {
+                Request first = next != null ? next : queue.poll(100, TimeUnit.MILLISECONDS);
+                next = null;
+                if (first == null) {
+                    continue;
+                }
+                List<Request> batch = new ArrayList<>();
+                batch.add(first);
+                int size = first.texts().size();
+                long deadline = first.enqueuedNanos() + maxBatchLatencyNanos;
+                while (size < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Request request =
+                            remaining > 0
+                                    ? queue.poll(remaining, TimeUnit.NANOSECONDS)
+                                    : queue.poll();
+                    if (request == null) {
+                        break;
+                    }
+                    if (size + request.texts().size() > maxBatchSize) {
+                        // it will be the first request of the next batch
+                        next = request;
+                        break;
+                    }
+                    batch.add(request);
+                    size += request.texts().size();
+                }
+                execute(predictor, batch, size);
+            }
+            if (next != null) {
+                next.result().completeExceptionally(closedError());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Error closing the embeddings predictor", e);
+        }
+    }
+
+    private void execute(BatchPredictor predictor, List<Request> batch, int size) {
+        String[] texts = new String[size];
+        int pos = 0;
+        for (Request request : batch) {
+            for (String text : request.texts()) {
+                texts[pos++] = text;
+            }
+        }
+        float[][] embeddings = new float[size][];
+        long start = System.nanoTime();
+        try {
+            // a single request may be larger than the batch
+            for (int from = 0; from < size; from += maxBatchSize) {
+                int to = Math.min(size, from + maxBatchSize);
+                String[] slice =
+                        from == 0 && to == size ? texts : Arrays.copyOfRange(texts, from, to);
+                float[][] result = predictor.predict(slice);
+                if (result.length != slice.length) {
+                    throw new IllegalStateException(
+                            "Expected %d embeddings, got %d"
+                                    .formatted(slice.length, result.length));
+                }
+                System.arraycopy(result, 0, embeddings, from, result.length);
+                batchSizeHistogram.observe(slice.length);
+            }
+        } catch (Throwable error) {
+            errorsCounter.count(1);
+            for (Request request : batch) {
+                request.result().completeExceptionally(error);
+            }
+            return;
+        }
+        inferenceLatencyHistogram.observeMillisSince(start);
+        textsCounter.count(size);
+        pos = 0;
+        for (Request request : batch) {
+            int count = request.texts().size();
+            List<float[]> result = Arrays.asList(embeddings).subList(pos, pos + count);
+            pos += count;
+            requestLatencyHistogram.observeMillisSince(request.enqueuedNanos());
+            request.result().complete(result);
+        }
+    }
+
+    private static void closeQuietly(BatchPredictor predictor) {
+        if (predictor != null) {
+            try {
+                predictor.close();
+            } catch (Exception e) {
+                log.error("Error closing the embeddings predictor", e);
+            }
+        }
+    }
+
+    private static IllegalStateException closedError() {
+        return new IllegalStateException("The embeddings engine is closed");
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        Request request;
+        while ((request = queue.poll()) != null) {
+            request.result().completeExceptionally(closedError());
+        }
+    }
+}
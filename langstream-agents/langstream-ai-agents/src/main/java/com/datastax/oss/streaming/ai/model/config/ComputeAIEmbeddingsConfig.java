@@ -55,4 +55,19 @@ public class ComputeAIEmbeddingsConfig extends StepConfig {
 
     @JsonProperty(value = "model-url")
     String modelUrl;
+
+    @JsonProperty(value = "inference-batch-size")
+    private int inferenceBatchSize = 0;
+
+    @JsonProperty(value = "inference-batch-latency-ms")
+    private int inferenceBatchLatencyMs = 5;
+
+    @JsonProperty(value = "inference-threads")
+    private int inferenceThreads = 1;
+
+    @JsonProperty(value = "coalesce-requests")
+    private boolean coalesceRequests;
+
+    @JsonProperty(value = "response-cache-ttl-ms")
+    private long responseCacheTtlMs;
 }
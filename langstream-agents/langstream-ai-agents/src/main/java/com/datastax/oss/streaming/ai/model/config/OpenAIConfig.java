@@ -26,4 +26,13 @@ public class OpenAIConfig {
     private String accessKey;
 
     @JsonProperty OpenAIProvider provider = OpenAIProvider.OPENAI;
+
+    @JsonProperty(value = "max-concurrent-requests")
+    private int maxConcurrentRequests;
+
+    @JsonProperty(value = "requests-per-minute")
+    private double requestsPerMinute;
+
+    @JsonProperty(value = "tokens-per-minute")
+    private double tokensPerMinute;
 }
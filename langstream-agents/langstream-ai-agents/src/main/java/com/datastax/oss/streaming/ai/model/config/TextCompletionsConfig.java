@@ -38,6 +38,18 @@ public class TextCompletionsConfig extends StepConfig {
     @JsonProperty(value = "min-chunks-per-message")
     private int minChunksPerMessage = 20;
 
+    @JsonProperty(value = "max-chunk-size")
+    private int maxChunkSize;
+
+    @JsonProperty(value = "max-chunk-delay-ms")
+    private long maxChunkDelayMs;
+
+    @JsonProperty(value = "coalesce-requests")
+    private boolean coalesceRequests;
+
+    @JsonProperty(value = "response-cache-ttl-ms")
+    private long responseCacheTtlMs;
+
     @JsonProperty(value = "completion-field")
     private String fieldName;
 
@@ -0,0 +1,214 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.streaming.ai.services;
+
+import static ai.langstream.api.util.ConfigurationUtils.getBoolean;
+import static ai.langstream.api.util.ConfigurationUtils.getDouble;
+import static ai.langstream.api.util.ConfigurationUtils.getLong;
+import static ai.langstream.api.util.ConfigurationUtils.getString;
+
+import ai.langstream.api.runner.code.MetricsReporter;
+import com.datastax.oss.streaming.ai.completions.ChatCompletions;
+import com.datastax.oss.streaming.ai.completions.ChatMessage;
+import com.datastax.oss.streaming.ai.completions.CompletionsService;
+import com.datastax.oss.streaming.ai.completions.TextCompletionResult;
+import com.datastax.oss.streaming.ai.embeddings.EmbeddingsService;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Wraps a {@link ServiceProvider} so that concurrent identical requests share the same call to the
+ * AI service.
+ *
+ * <p>The feature is enabled per step with "coalesce-requests". With "response-cache-ttl-ms" the
+ * responses are also cached for the given time, only for the deterministic requests: the embeddings
+ * and the completions with temperature 0. The completions streamed to a topic are never coalesced,
+ * because only one of the callers would receive the chunks.
+ */
+@Slf4j
+public class CoalescingServiceProvider implements ServiceProvider {
+
+    private final ServiceProvider delegate;
+    private final MetricsReporter metricsReporter;
+
+    public CoalescingServiceProvider(ServiceProvider delegate, MetricsReporter metricsReporter) {
+        this.delegate = delegate;
+        this.metricsReporter = metricsReporter;
+    }
+
+    @Override
+    public CompletionsService getCompletionsService(Map<String, Object> additionalConfiguration)
+            throws Exception {
+        CompletionsService completionsService =
+                delegate.getCompletionsService(additionalConfiguration);
+        if (!getBoolean("coalesce-requests", false, additionalConfiguration)) {
+            return completionsService;
+        }
+        long ttl = getLong("response-cache-ttl-ms", 0L, additionalConfiguration);
+        log.info("Coalescing the completions requests, responses cache ttl {} ms", ttl);
+        return new CoalescingCompletionsService(completionsService, ttl, metricsReporter);
+    }
+
+    @Override
+    public EmbeddingsService getEmbeddingsService(Map<String, Object> additionalConfiguration)
+            throws Exception {
+        EmbeddingsService embeddingsService =
+                delegate.getEmbeddingsService(additionalConfiguration);
+        if (!getBoolean("coalesce-requests", false, additionalConfiguration)) {
+            return embeddingsService;
+        }
+        long ttl = getLong("response-cache-ttl-ms", 0L, additionalConfiguration);
+        log.info("Coalescing the embeddings requests, responses cache ttl {} ms", ttl);
+        return new CoalescingEmbeddingsService(embeddingsService, ttl, metricsReporter);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    static class CoalescingCompletionsService implements CompletionsService {
+        private final CompletionsService delegate;
+        private final RequestCoalescer<ChatCompletions> chatCompletions;
+        private final RequestCoalescer<TextCompletionResult> textCompletions;
+
+        CoalescingCompletionsService(
+                CompletionsService delegate, long cacheTtlMillis, MetricsReporter metricsReporter) {
+            this.delegate = delegate;
+            this.chatCompletions = new RequestCoalescer<>(cacheTtlMillis, metricsReporter);
+            this.textCompletions = new RequestCoalescer<>(cacheTtlMillis, metricsReporter);
+        }
+
+        @Override
+        public CompletableFuture<ChatCompletions> getChatCompletions(
+                List<ChatMessage> messages,
+                StreamingChunksConsumer streamingChunksConsumer,
+                Map<String, Object> options) {
+            if (isStreamedToTopic(options)) {
+                return delegate.getChatCompletions(messages, streamingChunksConsumer, options);
+            }
+            List<List<String>> request = new ArrayList<>(messages.size());
+            for (ChatMessage message : messages) {
+                request.add(List.of(nonNull(message.getRole()), nonNull(message.getContent())));
+            }
+            return chatCompletions.execute(
+                    RequestCoalescer.computeKey(List.of(request, options)),
+                    isDeterministic(options),
+                    () -> delegate.getChatCompletions(messages, streamingChunksConsumer, options));
+        }
+
+        @Override
+        public CompletableFuture<TextCompletionResult> getTextCompletions(
+                List<String> prompt,
+                StreamingChunksConsumer streamingChunksConsumer,
+                Map<String, Object> options) {
+            if (isStreamedToTopic(options)) {
+                return delegate.getTextCompletions(prompt, streamingChunksConsumer, options);
+            }
+            return textCompletions.execute(
+                    RequestCoalescer.computeKey(List.of(prompt, options)),
+                    isDeterministic(options),
+                    () -> delegate.getTextCompletions(prompt, streamingChunksConsumer, options));
+        }
+
+        private static boolean isStreamedToTopic(Map<String, Object> options) {
+            return !getString("stream-to-topic", "", options).isEmpty();
+        }
+
+        private static boolean isDeterministic(Map<String, Object> options) {
+            Double temperature = getDouble("temperature", null, options);
+            return temperature != null && temperature == 0;
+        }
+
+        private static String nonNull(String value) {
+            return value == null ? "" : value;
+        }
+    }
+
+    static class CoalescingEmbeddingsService implements EmbeddingsService {
+        private final EmbeddingsService delegate;
+        private final RequestCoalescer<List<Double>> embeddings;
+
+        CoalescingEmbeddingsService(
+                EmbeddingsService delegate, long cacheTtlMillis, MetricsReporter metricsReporter) {
+            this.delegate = delegate;
+            this.embeddings = new RequestCoalescer<>(cacheTtlMillis, metricsReporter);
+        }
+
+        @Override
+        public CompletableFuture<List<List<Double>>> computeEmbeddings(List<String> texts) {
+            // the texts are coalesced one by one, the service computes only the texts that are
+            // neither in flight nor cached
+            Map<String, CompletableFuture<List<Double>>> toCompute = new LinkedHashMap<>();
+            List<CompletableFuture<List<Double>>> results = new ArrayList<>(texts.size());
+            for (String text : texts) {
+                results.add(
+                        embeddings.execute(
+                                RequestCoalescer.computeKey(text),
+                                true,
+                                () -> {
+                                    CompletableFuture<List<Double>> result =
+                                            new CompletableFuture<>();
+                                    toCompute.put(text, result);
+                                    return result;
+                                }));
+            }
+            if (!toCompute.isEmpty()) {
+                List<String> missing = new ArrayList<>(toCompute.keySet());
+                CompletableFuture<List<List<Double>>> computed;
+                try {
+                    computed = delegate.computeEmbeddings(missing);
+                } catch (Throwable error) {
+                    computed = CompletableFuture.failedFuture(error);
+                }
+                computed.whenComplete(
+                        (values, error) -> {
+                            int i = 0;
+                            for (CompletableFuture<List<Double>> result : toCompute.values()) {
+                                if (error != null) {
+                                    result.completeExceptionally(error);
+                                } else if (values == null || values.size() != missing.size()) {
+                                    result.completeExceptionally(
+                                            new IllegalStateException(
+                                                    "Unexpected number of embeddings"));
+                                } else {
+                                    result.complete(values.get(i));
+                                }
+                                i++;
+                            }
+                        });
+            }
+            return CompletableFuture.allOf(results.toArray(new CompletableFuture[0]))
+                    .thenApply(
+                            ignored -> {
+                                List<List<Double>> values = new ArrayList<>(results.size());
+                                for (CompletableFuture<List<Double>> result : results) {
+                                    values.add(result.join());
+                                }
+                                return values;
+                            });
+        }
+
+        @Override
+        public void close() throws Exception {
+            delegate.close();
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package com.datastax.oss.streaming.ai.services;
 
+import ai.langstream.ai.agents.services.HttpTransport;
 import ai.langstream.ai.agents.services.impl.OpenAICompletionService;
 import ai.langstream.api.runner.code.MetricsReporter;
 import com.azure.ai.openai.OpenAIAsyncClient;
@@ -29,26 +30,42 @@ public class OpenAIServiceProvider implements ServiceProvider {
 
     private final OpenAIAsyncClient client;
     private final MetricsReporter metricsReporter;
+    private final HttpTransport httpTransport;
 
     public OpenAIServiceProvider(TransformStepConfig config) {
         client = TransformFunctionUtil.buildOpenAsyncAIClient(config.getOpenai());
         metricsReporter = MetricsReporter.DISABLED;
+        httpTransport = null;
     }
 
     public OpenAIServiceProvider(OpenAIAsyncClient client, MetricsReporter metricsReporter) {
+        this(client, metricsReporter, null);
+    }
+
+    public OpenAIServiceProvider(
+            OpenAIAsyncClient client,
+            MetricsReporter metricsReporter,
+            HttpTransport httpTransport) {
         this.client = client;
         this.metricsReporter = metricsReporter;
+        this.httpTransport = httpTransport;
     }
 
     @Override
     public CompletionsService getCompletionsService(Map<String, Object> additionalConfiguration) {
-        return new OpenAICompletionService(client, metricsReporter);
+        CompletionsService completionsService =
+                new OpenAICompletionService(client, metricsReporter);
+        return httpTransport != null ? httpTransport.limit(completionsService) : completionsService;
     }
 
     @Override
     public EmbeddingsService getEmbeddingsService(Map<String, Object> additionalConfiguration) {
         String model = (String) additionalConfiguration.get("model");
-        return new OpenAIEmbeddingsService(client, model, metricsReporter);
+        EmbeddingsService embeddingsService =
+                new OpenAIEmbeddingsService(client, model, metricsReporter);
+        return httpTransport != null
+                ? httpTransport.limit(embeddingsService, model)
+                : embeddingsService;
     }
 
     @Override
@@ -0,0 +1,149 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.streaming.ai.services;
+
+import ai.langstream.api.runner.code.MetricsReporter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Shares a single in-flight call between the concurrent requests with the same key.
+ *
+ * <p>Optionally the results of the cacheable requests are kept for a short time, so that the same
+ * request in the following moments doesn't call the service again. Failures are never cached.
+ */
+public class RequestCoalescer<V> {
+
+    static final int MAX_CACHED_RESPONSES = 1000;
+
+    private static final ObjectMapper MAPPER =
+            new ObjectMapper().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    private record CachedResponse<V>(V value, long expiresAt) {}
+
+    private final Map<String, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, CachedResponse<V>> cache =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedResponse<V>> eldest) {
+                    return size() > MAX_CACHED_RESPONSES;
+                }
+            };
+    private final long cacheTtlMillis;
+    private final LongSupplier clock;
+    private final MetricsReporter.Counter coalescedCounter;
+    private final MetricsReporter.Counter cacheHitsCounter;
+
+    public RequestCoalescer(long cacheTtlMillis, MetricsReporter metricsReporter) {
+        this(cacheTtlMillis, metricsReporter, System::currentTimeMillis);
+    }
+
+    RequestCoalescer(long cacheTtlMillis, MetricsReporter metricsReporter, LongSupplier clock) {
+        this.cacheTtlMillis = cacheTtlMillis;
+        this.clock = clock;
+        this.coalescedCounter =
+                metricsReporter.counter(
+                        "ai_coalesced_requests",
+                        "Total number of AI requests that shared the call of an identical request");
+        this.cacheHitsCounter =
+                metricsReporter.counter(
+                        "ai_cached_responses",
+                        "Total number of AI requests served by the responses cache");
+    }
+
+    public CompletableFuture<V> execute(
+            String key, boolean cacheable, Supplier<CompletableFuture<V>> call) {
+        final boolean useCache = cacheable && cacheTtlMillis > 0;
+        if (useCache) {
+            V cached = getCached(key);
+            if (cached != null) {
+                cacheHitsCounter.count(1);
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+        final CompletableFuture<V> created = new CompletableFuture<>();
+        final CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            coalescedCounter.count(1);
+            // a caller must not be able to complete the shared future
+            return existing.copy();
+        }
+        CompletableFuture<V> result;
+        try {
+            result = call.get();
+        } catch (Throwable error) {
+            result = CompletableFuture.failedFuture(error);
+        }
+        result.whenComplete(
+                (value, error) -> {
+                    if (error == null && useCache && value != null) {
+                        synchronized (cache) {
+                            cache.put(
+                                    key,
+                                    new CachedResponse<>(
+                                            value, clock.getAsLong() + cacheTtlMillis));
+                        }
+                    }
+                    inFlight.remove(key, created);
+                    if (error != null) {
+                        created.completeExceptionally(error);
+                    } else {
+                        created.complete(value);
+                    }
+                });
+        return created.copy();
+    }
+
+    private V getCached(String key) {
+        synchronized (cache) {
+            CachedResponse<V> cached = cache.get(key);
+            if (cached == null) {
+                return null;
+            }
+            if (cached.expiresAt() <= clock.getAsLong()) {
+                cache.remove(key);
+                return null;
+            }
+            return cached.value();
+        }
+    }
+
+    int inFlightSize() {
+        return inFlight.size();
+    }
+
+    /** Computes a stable key for the given request, the map keys are sorted. */
+    public static String computeKey(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] json = MAPPER.writeValueAsString(request).getBytes(StandardCharsets.UTF_8);
+            return HexFormat.of().formatHex(digest.digest(json));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
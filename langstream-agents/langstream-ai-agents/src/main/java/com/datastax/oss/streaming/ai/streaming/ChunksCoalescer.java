@@ -0,0 +1,101 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.streaming.ai.streaming;
+
+import static ai.langstream.api.util.ConfigurationUtils.getInteger;
+import static ai.langstream.api.util.ConfigurationUtils.getLong;
+
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Groups the chunks streamed by the AI service into bigger messages.
+ *
+ * <p>The first message contains only one chunk, then the number of chunks per message doubles until
+ * it reaches min-chunks-per-message: this keeps the time to the first token low. A message is also
+ * sent as soon as it contains max-chunk-size characters, or with the first chunk that arrives after
+ * the oldest one waited for max-chunk-delay-ms. There is no timer: the chunks buffered when the
+ * stream stalls are sent with the next chunk, or with the last one. The buffer is reused for all
+ * the messages. This class is not thread safe.
+ */
+public class ChunksCoalescer {
+
+    private final int minChunksPerMessage;
+    private final int maxChunkSize;
+    private final long maxChunkDelayMillis;
+    private final LongSupplier clock;
+
+    private final StringBuilder buffer = new StringBuilder();
+    private int numberOfChunks;
+    private int currentChunkSize = 1;
+    private long firstChunkTime;
+
+    public ChunksCoalescer(int minChunksPerMessage, int maxChunkSize, long maxChunkDelayMillis) {
+        this(minChunksPerMessage, maxChunkSize, maxChunkDelayMillis, System::currentTimeMillis);
+    }
+
+    ChunksCoalescer(
+            int minChunksPerMessage,
+            int maxChunkSize,
+            long maxChunkDelayMillis,
+            LongSupplier clock) {
+        this.minChunksPerMessage = Math.max(1, minChunksPerMessage);
+        this.maxChunkSize = maxChunkSize;
+        this.maxChunkDelayMillis = maxChunkDelayMillis;
+        this.clock = clock;
+    }
+
+    public static ChunksCoalescer fromOptions(Map<String, Object> options) {
+        return new ChunksCoalescer(
+                getInteger("min-chunks-per-message", 20, options),
+                getInteger("max-chunk-size", 0, options),
+                getLong("max-chunk-delay-ms", 0L, options));
+    }
+
+    public void append(String content) {
+        if (content == null || content.isEmpty()) {
+            return;
+        }
+        if (numberOfChunks == 0 && maxChunkDelayMillis > 0) {
+            firstChunkTime = clock.getAsLong();
+        }
+        buffer.append(content);
+        numberOfChunks++;
+    }
+
+    /** Returns true if the buffered chunks must be sent now. */
+    public boolean isReady(boolean last) {
+        if (last || numberOfChunks >= currentChunkSize) {
+            return true;
+        }
+        if (numberOfChunks == 0) {
+            return false;
+        }
+        if (maxChunkSize > 0 && buffer.length() >= maxChunkSize) {
+            return true;
+        }
+        return maxChunkDelayMillis > 0 && clock.getAsLong() - firstChunkTime >= maxChunkDelayMillis;
+    }
+
+    /** Returns the buffered chunks as one message and clears the buffer. */
+    public String flush() {
+        currentChunkSize = Math.min(currentChunkSize * 2, minChunksPerMessage);
+        String message = buffer.toString();
+        buffer.setLength(0);
+        numberOfChunks = 0;
+        return message;
+    }
+}
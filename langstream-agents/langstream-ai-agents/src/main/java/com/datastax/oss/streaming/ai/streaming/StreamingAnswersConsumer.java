@@ -16,9 +16,19 @@
 package com.datastax.oss.streaming.ai.streaming;
 
 import ai.langstream.ai.agents.commons.MutableRecord;
+import java.util.concurrent.CompletableFuture;
 
 public interface StreamingAnswersConsumer {
     void streamAnswerChunk(int index, String message, boolean last, MutableRecord outputMessage);
 
+    /**
+     * Streams a chunk and returns a future that completes when the consumer can accept more chunks.
+     */
+    default CompletableFuture<?> streamAnswerChunkAsync(
+            int index, String message, boolean last, MutableRecord outputMessage) {
+        streamAnswerChunk(index, message, last, outputMessage);
+        return CompletableFuture.completedFuture(null);
+    }
+
     default void close() {}
 }
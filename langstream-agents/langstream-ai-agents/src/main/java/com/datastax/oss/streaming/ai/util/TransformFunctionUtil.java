@@ -18,6 +18,8 @@ package com.datastax.oss.streaming.ai.util;
 import ai.langstream.ai.agents.commons.MutableRecord;
 import ai.langstream.ai.agents.commons.TransformSchemaType;
 import ai.langstream.ai.agents.commons.jstl.predicate.JstlPredicate;
+import ai.langstream.ai.agents.services.RateLimiter;
+import ai.langstream.api.runner.code.MetricsReporter;
 import com.azure.ai.openai.OpenAIAsyncClient;
 import com.azure.ai.openai.OpenAIClient;
 import com.azure.ai.openai.OpenAIClientBuilder;
@@ -120,6 +122,17 @@ public class TransformFunctionUtil {
     }
 
     public static OpenAIAsyncClient buildOpenAsyncAIClient(OpenAIConfig openAIConfig) {
+        return buildOpenAsyncAIClient(openAIConfig, null);
+    }
+
+    /**
+     * Builds the client, the rate limiter receives all the responses, including the ones retried by
+     * the client, to pause the requests on a 429. The model of the responses of Azure OpenAI is the
+     * deployment in their URL, the one of the responses of OpenAI is in the body of the request and
+     * it is not known.
+     */
+    public static OpenAIAsyncClient buildOpenAsyncAIClient(
+            OpenAIConfig openAIConfig, RateLimiter rateLimiter) {
         if (openAIConfig == null) {
             return null;
         }
@@ -139,12 +152,34 @@ public class TransformFunctionUtil {
                                 .httpClient(new MockHttpClient(openAIConfig.getAccessKey()))
                                 .build();
                 openAIClientBuilder.pipeline(httpPipeline);
+                return openAIClientBuilder.buildAsyncClient();
             }
         }
 
+        openAIClientBuilder.httpClient(SharedAzureHttpClient.INSTANCE);
+        if (rateLimiter != null) {
+            openAIClientBuilder.addPolicy(
+                    (context, next) -> {
+                        String model =
+                                RateLimiter.azureDeployment(
+                                        context.getHttpRequest().getUrl().getPath());
+                        return next.process()
+                                .doOnNext(
+                                        response ->
+                                                rateLimiter.onResponse(
+                                                        model,
+                                                        response.getStatusCode(),
+                                                        response::getHeaderValue));
+                    });
+        }
         return openAIClientBuilder.buildAsyncClient();
     }
 
+    private static final class SharedAzureHttpClient {
+        // all the OpenAI clients of the pod share the connection pool and the event loop
+        static final HttpClient INSTANCE = HttpClient.createDefault();
+    }
+
     @SneakyThrows
     public static QueryStepDataSource buildDataSource(Map<String, Object> dataSourceConfig) {
         if (dataSourceConfig == null) {
@@ -170,6 +205,23 @@ public class TransformFunctionUtil {
             StreamingAnswersConsumerFactory streamingAnswersConsumerFactory,
             StepConfig step)
             throws Exception {
+        return buildStep(
+                transformConfig,
+                serviceProvider,
+                dataSource,
+                streamingAnswersConsumerFactory,
+                step,
+                MetricsReporter.DISABLED);
+    }
+
+    public static StepPredicatePair buildStep(
+            TransformStepConfig transformConfig,
+            ServiceProvider serviceProvider,
+            QueryStepDataSource dataSource,
+            StreamingAnswersConsumerFactory streamingAnswersConsumerFactory,
+            StepConfig step,
+            MetricsReporter metricsReporter)
+            throws Exception {
         TransformStep transformStep;
         switch (step.getType()) {
             case "drop-fields":
@@ -197,14 +249,16 @@ public class TransformFunctionUtil {
                 break;
             case "compute-ai-embeddings":
                 transformStep =
-                        newComputeAIEmbeddings((ComputeAIEmbeddingsConfig) step, serviceProvider);
+                        newComputeAIEmbeddings(
+                                (ComputeAIEmbeddingsConfig) step, serviceProvider, metricsReporter);
                 break;
             case "ai-chat-completions":
                 transformStep =
                         newChatCompletionsFunction(
                                 (ChatCompletionsConfig) step,
                                 serviceProvider,
-                                streamingAnswersConsumerFactory);
+                                streamingAnswersConsumerFactory,
+                                metricsReporter);
                 break;
             case "ai-text-completions":
                 transformStep =
@@ -305,6 +359,14 @@ public class TransformFunctionUtil {
     @SneakyThrows
     public static TransformStep newComputeAIEmbeddings(
             ComputeAIEmbeddingsConfig config, ServiceProvider provider) {
+        return newComputeAIEmbeddings(config, provider, MetricsReporter.DISABLED);
+    }
+
+    @SneakyThrows
+    public static TransformStep newComputeAIEmbeddings(
+            ComputeAIEmbeddingsConfig config,
+            ServiceProvider provider,
+            MetricsReporter metricsReporter) {
         EmbeddingsService embeddingsService = provider.getEmbeddingsService(convertToMap(config));
         return new ComputeAIEmbeddingsStep(
                 config.getText(),
@@ -313,7 +375,8 @@ public class TransformFunctionUtil {
                 config.getBatchSize(),
                 config.getFlushInterval(),
                 config.getConcurrency(),
-                embeddingsService);
+                embeddingsService,
+                metricsReporter);
     }
 
     public static UnwrapKeyValueStep newUnwrapKeyValueFunction(UnwrapKeyValueConfig config) {
@@ -333,9 +396,20 @@ public class TransformFunctionUtil {
             ServiceProvider serviceProvider,
             StreamingAnswersConsumerFactory streamingAnswersConsumerFactory)
             throws Exception {
+        return newChatCompletionsFunction(
+                config, serviceProvider, streamingAnswersConsumerFactory, MetricsReporter.DISABLED);
+    }
+
+    public static ChatCompletionsStep newChatCompletionsFunction(
+            ChatCompletionsConfig config,
+            ServiceProvider serviceProvider,
+            StreamingAnswersConsumerFactory streamingAnswersConsumerFactory,
+            MetricsReporter metricsReporter)
+            throws Exception {
         CompletionsService completionsService =
                 serviceProvider.getCompletionsService(convertToMap(config));
-        return new ChatCompletionsStep(completionsService, streamingAnswersConsumerFactory, config);
+        return new ChatCompletionsStep(
+                completionsService, streamingAnswersConsumerFactory, config, metricsReporter);
     }
 
     public static TextCompletionsStep newTextCompletionsFunction(
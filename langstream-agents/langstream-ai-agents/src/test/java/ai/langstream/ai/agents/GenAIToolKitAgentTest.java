@@ -19,18 +19,63 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import ai.langstream.ai.agents.commons.MutableRecord;
 import ai.langstream.api.runner.code.AgentContext;
 import ai.langstream.api.runner.code.MetricsReporter;
 import ai.langstream.api.runner.code.Record;
 import ai.langstream.api.runner.code.SimpleRecord;
+import ai.langstream.api.runner.topics.TopicProducer;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import org.junit.jupiter.api.Test;
 
 class GenAIToolKitAgentTest {
     private static final ObjectMapper MAPPER = new ObjectMapper();
 
+    @Test
+    void testStreamingBackpressure() {
+        List<CompletableFuture<?>> writes = new ArrayList<>();
+        TopicProducer producer =
+                new TopicProducer() {
+                    @Override
+                    public CompletableFuture<?> write(Record record) {
+                        CompletableFuture<?> write = new CompletableFuture<>();
+                        writes.add(write);
+                        return write;
+                    }
+
+                    @Override
+                    public long getTotalIn() {
+                        return 0;
+                    }
+                };
+        GenAIToolKitAgent.TopicStreamingAnswersConsumer consumer =
+                new GenAIToolKitAgent.TopicStreamingAnswersConsumer(producer);
+        int max = GenAIToolKitAgent.TopicStreamingAnswersConsumer.MAX_PENDING_WRITES;
+        for (int i = 0; i < max; i++) {
+            assertTrue(consumer.streamAnswerChunkAsync(i, "chunk", false, chunk()).isDone());
+        }
+        CompletableFuture<?> ready = consumer.streamAnswerChunkAsync(max, "chunk", false, chunk());
+        assertFalse(ready.isDone());
+        writes.get(0).complete(null);
+        assertTrue(ready.isDone());
+
+        // a failed write doesn't block the stream
+        CompletableFuture<?> next =
+                consumer.streamAnswerChunkAsync(max + 1, "chunk", true, chunk());
+        assertFalse(next.isDone());
+        writes.get(1).completeExceptionally(new RuntimeException("failed"));
+        assertTrue(next.isDone());
+        assertFalse(next.isCompletedExceptionally());
+    }
+
+    private static MutableRecord chunk() {
+        return MutableRecord.recordToMutableRecord(SimpleRecord.of(null, "chunk"), true);
+    }
+
     @Test
     void testCompute() throws Exception {
         String value =
@@ -0,0 +1,171 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.ai.agents.rerank;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+class MMRReRankerTest {
+
+    private static final String[] WORDS = {
+        "the", "quick", "brown", "fox", "jumps", "over", "lazy", "dog", "number", "two", "three"
+    };
+
+    @Test
+    void testSameResultsAsFullRecomputation() {
+        Random random = new Random(42);
+        for (int round = 0; round < 20; round++) {
+            int numDocuments = 1 + random.nextInt(60);
+            int dimensions = 1 + random.nextInt(16);
+            List<Object> documents = new ArrayList<>();
+            for (int i = 0; i < numDocuments; i++) {
+                documents.add(
+                        new ReRankAgent.TextWithEmbeddings(
+                                randomText(random), randomVector(random, dimensions)));
+            }
+            ReRankAgent.TextWithEmbeddings query =
+                    new ReRankAgent.TextWithEmbeddings(
+                            randomText(random), randomVector(random, dimensions));
+            int max = 1 + random.nextInt(numDocuments + 5);
+            double lambda = random.nextDouble();
+
+            List<Object> expected =
+                    rerankWithFullRecomputation(
+                            documents,
+                            max,
+                            query,
+                            lambda,
+                            1.5,
+                            0.75,
+                            ReRankAgent.TextWithEmbeddings.class::cast);
+            List<Object> actual =
+                    new MMRReRanker(lambda, 1.5, 0.75)
+                            .rerank(
+                                    documents,
+                                    max,
+                                    query,
+                                    ReRankAgent.TextWithEmbeddings.class::cast);
+            assertEquals(expected, actual, "round " + round);
+        }
+    }
+
+    private static String randomText(Random random) {
+        StringBuilder text = new StringBuilder();
+        int numWords = 1 + random.nextInt(20);
+        for (int i = 0; i < numWords; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    private static float[] randomVector(Random random, int dimensions) {
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = random.nextFloat() * 2 - 1;
+        }
+        return vector;
+    }
+
+    /** Straightforward implementation, that recomputes everything for each selected document. */
+    private static List<Object> rerankWithFullRecomputation(
+            List<Object> documents,
+            int max,
+            ReRankAgent.TextWithEmbeddings query,
+            double lambda,
+            double k1,
+            double b,
+            Function<Object, ReRankAgent.TextWithEmbeddings> recordExtractor) {
+        List<Object> rankedDocuments = new ArrayList<>();
+        List<Object> remainingDocuments = new ArrayList<>(documents);
+        while (!remainingDocuments.isEmpty() && rankedDocuments.size() < max) {
+            List<ReRankAgent.TextWithEmbeddings> texts =
+                    remainingDocuments.stream().map(recordExtractor).toList();
+            double[] bm25scores = calculateBM25Scores(texts, query, k1, b);
+            Object topDocument = null;
+            double topScore = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < texts.size(); i++) {
+                double diversity = 0;
+                if (!rankedDocuments.isEmpty()) {
+                    double sum = 0;
+                    for (Object ranked : rankedDocuments) {
+                        sum +=
+                                ReRankAgent.cosineSimilarity(
+                                        texts.get(i).embeddings(),
+                                        recordExtractor.apply(ranked).embeddings());
+                    }
+                    diversity = sum / rankedDocuments.size();
+                }
+                double score = lambda * bm25scores[i] - (1 - lambda) * diversity;
+                if (score > topScore) {
+                    topScore = score;
+                    topDocument = remainingDocuments.get(i);
+                }
+            }
+            rankedDocuments.add(topDocument);
+            remainingDocuments.remove(topDocument);
+        }
+        return rankedDocuments;
+    }
+
+    private static double[] calculateBM25Scores(
+            List<ReRankAgent.TextWithEmbeddings> documents,
+            ReRankAgent.TextWithEmbeddings query,
+            double k1,
+            double b) {
+        int n = documents.size();
+        List<Map<String, Integer>> termFrequencies = new ArrayList<>();
+        int totalTerms = 0;
+        for (ReRankAgent.TextWithEmbeddings document : documents) {
+            Map<String, Integer> frequencies = new HashMap<>();
+            String[] terms = document.text().split("\\s+");
+            totalTerms += terms.length;
+            for (String term : terms) {
+                frequencies.put(term, frequencies.getOrDefault(term, 0) + 1);
+            }
+            termFrequencies.add(frequencies);
+        }
+        double avgdl = (double) totalTerms / n;
+        double[] scores = new double[n];
+        for (int i = 0; i < n; i++) {
+            double documentLength = documents.get(i).text().split("\\s+").length;
+            for (String term : query.text().split("\\s+")) {
+                int tf = termFrequencies.get(i).getOrDefault(term, 0);
+                int df = 0;
+                for (Map<String, Integer> frequencies : termFrequencies) {
+                    if (frequencies.containsKey(term)) {
+                        df++;
+                    }
+                }
+                double idf = Math.log((n - df + 0.5) / (df + 0.5) + 1.0);
+                scores[i] +=
+                        idf
+                                * ((tf * (k1 + 1))
+                                        / (tf + k1 * (1 - b + b * (documentLength / avgdl))));
+            }
+        }
+        return scores;
+    }
+}
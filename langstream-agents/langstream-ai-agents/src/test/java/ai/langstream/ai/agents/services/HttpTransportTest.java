@@ -0,0 +1,151 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.ai.agents.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ai.langstream.api.runner.code.MetricsReporter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.Test;
+
+class HttpTransportTest {
+
+    @Test
+    void testMaxConcurrentRequests() throws Exception {
+        HttpTransport transport = new HttpTransport("test", 2, MetricsReporter.DISABLED);
+        List<CompletableFuture<String>> calls = new ArrayList<>();
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            results.add(
+                    transport.execute(
+                            () -> {
+                                CompletableFuture<String> call = new CompletableFuture<>();
+                                calls.add(call);
+                                return call;
+                            }));
+        }
+        assertEquals(2, calls.size());
+        assertEquals(2, transport.inFlight());
+        assertEquals(3, transport.waiting());
+
+        calls.get(0).complete("a");
+        assertEquals("a", results.get(0).get());
+        assertEquals(3, calls.size());
+        assertEquals(2, transport.inFlight());
+
+        // a failure releases the slot too
+        calls.get(1).completeExceptionally(new IllegalStateException("error"));
+        assertThrows(ExecutionException.class, () -> results.get(1).get());
+        assertEquals(4, calls.size());
+        for (int i = 2; i < 5; i++) {
+            calls.get(i).complete("r" + i);
+        }
+        assertEquals(5, calls.size());
+        assertEquals("r4", results.get(4).get());
+        assertEquals(0, transport.inFlight());
+        assertEquals(0, transport.waiting());
+    }
+
+    @Test
+    void testImmediateCompletionsDontRecurse() throws Exception {
+        HttpTransport transport = new HttpTransport("test", 1, MetricsReporter.DISABLED);
+        CompletableFuture<String> blocker = new CompletableFuture<>();
+        transport.execute(() -> blocker);
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            results.add(transport.execute(() -> CompletableFuture.completedFuture("ok")));
+        }
+        blocker.complete("done");
+        for (CompletableFuture<String> result : results) {
+            assertEquals("ok", result.get());
+        }
+        assertEquals(0, transport.inFlight());
+    }
+
+    @Test
+    void testCallThrows() {
+        HttpTransport transport = new HttpTransport("test", 1, MetricsReporter.DISABLED);
+        CompletableFuture<String> result =
+                transport.execute(
+                        () -> {
+                            throw new IllegalArgumentException("bad request");
+                        });
+        assertTrue(result.isCompletedExceptionally());
+        assertEquals(0, transport.inFlight());
+    }
+
+    @Test
+    void testConfiguration() {
+        assertEquals(
+                "HttpTransport{test, max-concurrent-requests=64}",
+                HttpTransport.create("test", null, MetricsReporter.DISABLED).toString());
+        assertEquals(
+                "HttpTransport{test, max-concurrent-requests=3}",
+                HttpTransport.create(
+                                "test",
+                                Map.of("max-concurrent-requests", 3),
+                                MetricsReporter.DISABLED)
+                        .toString());
+        assertThrows(
+                IllegalArgumentException.class,
+                () ->
+                        HttpTransport.create(
+                                "test",
+                                Map.of("max-concurrent-requests", 0),
+                                MetricsReporter.DISABLED));
+    }
+
+    @Test
+    void testSharedByResource() {
+        Map<String, Object> configuration = Map.of("max-concurrent-requests", 5);
+        HttpTransport transport =
+                HttpTransport.create("shared", configuration, MetricsReporter.DISABLED);
+        assertSame(
+                transport,
+                HttpTransport.create(
+                        "shared", Map.of("max-concurrent-requests", 5), MetricsReporter.DISABLED));
+        assertSame(transport.rateLimiter(), RateLimiter.forResource("shared", configuration));
+        assertNotSame(
+                transport,
+                HttpTransport.create(
+                        "shared", Map.of("max-concurrent-requests", 6), MetricsReporter.DISABLED));
+        assertNotSame(
+                transport, HttpTransport.create("other", configuration, MetricsReporter.DISABLED));
+    }
+
+    @Test
+    void testDefaultVersion() {
+        HttpRequest plain = HttpRequest.newBuilder(URI.create("http://localhost:8080/")).build();
+        assertEquals(
+                HttpClient.Version.HTTP_1_1,
+                HttpTransport.withDefaultVersion(plain).version().orElseThrow());
+        HttpRequest tls = HttpRequest.newBuilder(URI.create("https://localhost:8080/")).build();
+        assertFalse(HttpTransport.withDefaultVersion(tls).version().isPresent());
+        assertEquals(HttpClient.Version.HTTP_2, HttpTransport.httpClient().version());
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.ai.agents.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ai.langstream.api.runner.code.MetricsReporter;
+import com.datastax.oss.streaming.ai.completions.ChatMessage;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong now = new AtomicLong(-5 * SECOND);
+
+    @Test
+    void testDisabled() {
+        RateLimiter limiter = new RateLimiter(0, 0, now::get);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(0, limiter.reserve(100_000));
+        }
+        assertFalse(limiter.countsTokens());
+    }
+
+    @Test
+    void testRequestsArePaced() {
+        RateLimiter limiter = new RateLimiter(120, 0, now::get);
+        // one second of burst, then one request every 500 ms
+        assertEquals(0, limiter.reserve(0));
+        assertEquals(0, limiter.reserve(0));
+        assertEquals(0, limiter.reserve(0));
+        assertEquals(SECOND / 2, limiter.reserve(0));
+        assertEquals(SECOND, limiter.reserve(0));
+
+        now.addAndGet(10 * SECOND);
+        assertEquals(0, limiter.reserve(0));
+    }
+
+    @Test
+    void testTokensArePaced() {
+        RateLimiter limiter = new RateLimiter(0, 6000, now::get);
+        assertTrue(limiter.countsTokens());
+        // a large request is sent immediately, the next requests pay for it
+        assertEquals(0, limiter.reserve(1000));
+        assertEquals(9 * SECOND, limiter.reserve(10));
+        now.addAndGet(SECOND);
+        assertEquals(8 * SECOND + SECOND / 10, limiter.reserve(10));
+    }
+
+    @Test
+    void testRateLimitHeadersOfTheModel() {
+        RateLimiter limiter = new RateLimiter(0, 0, now::get);
+        limiter.onResponse(
+                "gpt",
+                200,
+                Map.of(
+                                "x-ratelimit-limit-requests", "120",
+                                "x-ratelimit-remaining-requests", "100",
+                                "x-ratelimit-limit-tokens", "60000",
+                                "x-ratelimit-remaining-tokens", "50000")
+                        ::get);
+        // the limits are learned for the model only
+        assertTrue(limiter.countsTokens("gpt"));
+        assertFalse(limiter.countsTokens("ada"));
+        assertFalse(limiter.countsTokens());
+        assertEquals(0, limiter.reserve("gpt", 0));
+        assertEquals(0, limiter.reserve("gpt", 0));
+        assertEquals(0, limiter.reserve("gpt", 0));
+        assertEquals(SECOND / 2, limiter.reserve("gpt", 0));
+        assertEquals(0, limiter.reserve("ada", 0));
+        assertEquals(0, limiter.reserve(0));
+
+        now.addAndGet(10 * SECOND);
+        // the budget follows the remaining quota
+        limiter.onResponse(
+                "gpt",
+                200,
+                Map.of(
+                                "x-ratelimit-remaining-requests", "0",
+                                "x-ratelimit-reset-requests", "1m30s")
+                        ::get);
+        assertEquals(90 * SECOND, limiter.reserve("gpt", 0));
+        assertEquals(0, limiter.reserve("ada", 0));
+    }
+
+    @Test
+    void testRateLimitHeadersOfAnUnknownModelAreIgnored() {
+        RateLimiter limiter = new RateLimiter(120, 0, now::get);
+        Map<String, String> headers =
+                Map.of(
+                        "x-ratelimit-limit-requests", "60",
+                        "x-ratelimit-remaining-requests", "0",
+                        "x-ratelimit-reset-requests", "1m30s",
+                        "x-ratelimit-limit-tokens", "60000",
+                        "x-ratelimit-remaining-tokens", "0",
+                        "x-ratelimit-reset-tokens", "20ms");
+        limiter.onResponse(200, headers::get);
+        // the quota of one model doesn't limit the other models of the resource
+        assertFalse(limiter.countsTokens());
+        assertEquals(0, limiter.reserve(0));
+        assertEquals(0, limiter.reserve("gpt", 0));
+    }
+
+    @Test
+    void testTooManyRequestsOfTheModel() {
+        RateLimiter limiter = new RateLimiter(0, 0, now::get);
+        limiter.onResponse("gpt", 429, Map.of("retry-after", "2")::get);
+        assertEquals(2 * SECOND, limiter.reserve("gpt", 0));
+        assertEquals(0, limiter.reserve("ada", 0));
+        assertEquals(0, limiter.reserve(0));
+    }
+
+    @Test
+    void testAzureDeployment() {
+        assertEquals(
+                "my-gpt",
+                RateLimiter.azureDeployment("/openai/deployments/my-gpt/chat/completions"));
+        assertNull(RateLimiter.azureDeployment("/v1/chat/completions"));
+        assertNull(RateLimiter.azureDeployment(null));
+    }
+
+    @Test
+    void testTooManyRequests() {
+        RateLimiter limiter = new RateLimiter(0, 0, now::get);
+        limiter.onResponse(429, Map.of("retry-after", "2")::get);
+        assertEquals(2 * SECOND, limiter.reserve(0));
+        now.addAndGet(SECOND);
+        limiter.onResponse(429, Map.of("retry-after-ms", "300")::get);
+        assertEquals(SECOND, limiter.reserve(0));
+        now.addAndGet(SECOND);
+        assertEquals(0, limiter.reserve(0));
+
+        limiter.onThrottled();
+        assertEquals(
+                TimeUnit.MILLISECONDS.toNanos(RateLimiter.DEFAULT_RETRY_AFTER_MILLIS),
+                limiter.reserve(0));
+    }
+
+    @Test
+    void testParseDuration() {
+        assertEquals(2000, RateLimiter.parseDuration("2"));
+        assertEquals(20, RateLimiter.parseDuration("20ms"));
+        assertEquals(360_000, RateLimiter.parseDuration("6m0s"));
+        assertEquals(3_601_500, RateLimiter.parseDuration("1h1.5s"));
+        assertNull(RateLimiter.parseDuration("Wed, 21 Oct 2015 07:28:00 GMT"));
+        assertNull(RateLimiter.parseDuration(null));
+    }
+
+    @Test
+    void testEstimateTokens() {
+        assertEquals(0, RateLimiter.estimateTokens((String) null));
+        assertEquals(2, RateLimiter.estimateTokens("hello world"));
+        assertEquals(
+                103,
+                RateLimiter.estimateTokens(
+                        List.of("hello world", "hi"), Map.of("max-tokens", 100)));
+        assertEquals(
+                6,
+                RateLimiter.estimateChatTokens(
+                        List.of(new ChatMessage("user").setContent("hello world")), Map.of()));
+    }
+
+    @Test
+    void testSharedByResource() {
+        Map<String, Object> configuration = Map.of("requests-per-minute", 60, "url", "http://a");
+        RateLimiter limiter = RateLimiter.forResource("test", configuration);
+        assertSame(limiter, RateLimiter.forResource("test", Map.copyOf(configuration)));
+        assertNotSame(limiter, RateLimiter.forResource("other", configuration));
+        assertNotSame(
+                limiter,
+                RateLimiter.forResource(
+                        "test", Map.of("requests-per-minute", 60, "url", "http://b")));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> RateLimiter.forResource("test", Map.of("tokens-per-minute", -1)));
+    }
+
+    @Test
+    void testTransportDelaysTheRequests() throws Exception {
+        HttpTransport transport =
+                new HttpTransport(
+                        "test",
+                        10,
+                        new RateLimiter(600, 0, System::nanoTime),
+                        MetricsReporter.DISABLED);
+        long start = System.nanoTime();
+        CompletableFuture<String> last = null;
+        for (int i = 0; i < 13; i++) {
+            last = transport.execute(() -> CompletableFuture.completedFuture("ok"));
+        }
+        assertEquals("ok", last.get(10, TimeUnit.SECONDS));
+        // 10 requests per second: the burst, then 100 ms between the requests
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+    }
+}
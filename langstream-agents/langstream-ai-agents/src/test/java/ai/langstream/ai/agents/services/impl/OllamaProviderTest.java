@@ -50,41 +50,51 @@ class OllamaProviderTest {
                         {"model":"llama2","created_at":"2023-11-09T13:48:51.788062Z","response":" two","done":false}
                         {"model":"llama2","created_at":"2023-11-09T13:48:51.788062Z","response":" three","done":true}
                       """)));
-        OllamaProvider provider = new OllamaProvider();
-        ServiceProvider implementation =
-                provider.createImplementation(
-                        Map.of("ollama", Map.of("url", wmRuntimeInfo.getHttpBaseUrl())),
-                        MetricsReporter.DISABLED);
+        ServiceProvider implementation = createImplementation(wmRuntimeInfo);
 
         List<String> chunks = new CopyOnWriteArrayList<>();
-        CompletionsService service =
-                implementation.getCompletionsService(Map.of("model", "llama2"));
-        String result =
-                service.getChatCompletions(
-                                List.of(
-                                        new ChatMessage("user")
-                                                .setContent("Tell me three numberss")),
-                                new CompletionsService.StreamingChunksConsumer() {
-                                    @Override
-                                    public void consumeChunk(
-                                            String answerId, int index, Chunk chunk, boolean last) {
-                                        log.info(
-                                                "answerId: {}, index: {}, chunk: {}, last: {}",
-                                                answerId,
-                                                index,
-                                                chunk,
-                                                last);
-                                        chunks.add(chunk.content());
-                                    }
-                                },
-                                Map.of())
-                        .get()
-                        .getChoices()
-                        .get(0)
-                        .content();
+        String result = complete(implementation, Map.of("model", "llama2"), chunks);
         log.info("result: {}", result);
         assertEquals("one two three", result);
         assertEquals(List.of("one", " two three"), chunks);
+
+        // the chunks are coalesced with the options of the agent
+        chunks.clear();
+        complete(implementation, Map.of("model", "llama2", "max-chunk-size", 3), chunks);
+        assertEquals(List.of("one", " two", " three"), chunks);
+    }
+
+    private static ServiceProvider createImplementation(WireMockRuntimeInfo wmRuntimeInfo) {
+        OllamaProvider provider = new OllamaProvider();
+        return provider.createImplementation(
+                Map.of("ollama", Map.of("url", wmRuntimeInfo.getHttpBaseUrl())),
+                MetricsReporter.DISABLED);
+    }
+
+    private static String complete(
+            ServiceProvider implementation, Map<String, Object> options, List<String> chunks)
+            throws Exception {
+        CompletionsService service = implementation.getCompletionsService(options);
+        return service.getChatCompletions(
+                        List.of(new ChatMessage("user").setContent("Tell me three numberss")),
+                        new CompletionsService.StreamingChunksConsumer() {
+                            @Override
+                            public void consumeChunk(
+                                    String answerId, int index, Chunk chunk, boolean last) {
+                                log.info(
+                                        "answerId: {}, index: {}, chunk: {}, last: {}",
+                                        answerId,
+                                        index,
+                                        chunk,
+                                        last);
+                                chunks.add(chunk.content());
+                            }
+                        },
+                        Map.of())
+                .get()
+                .getChoices()
+                .get(0)
+                .content();
     }
 
     @Test
@@ -28,7 +28,10 @@ import ai.langstream.api.runner.code.MetricsReporter;
 import com.azure.ai.openai.OpenAIAsyncClient;
 import com.azure.ai.openai.models.ChatCompletions;
 import com.azure.ai.openai.models.ChatCompletionsOptions;
+import com.datastax.oss.streaming.ai.completions.ChatChoice;
 import com.datastax.oss.streaming.ai.completions.ChatMessage;
+import com.datastax.oss.streaming.ai.completions.CompletionsService;
+import com.datastax.oss.streaming.ai.completions.TextCompletionResult;
 import com.datastax.oss.streaming.ai.model.config.ChatCompletionsConfig;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -40,6 +43,9 @@ import java.time.ZoneOffset;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.util.Utf8;
 import org.apache.pulsar.client.api.Schema;
@@ -210,6 +216,73 @@ public class ChatCompletionsStepTest {
                 "Jane Doe 42 19359 1672700645006 83045006 test-key");
     }
 
+    @Test
+    void testFirstChunkLatency() throws Exception {
+        ChatMessage answer = new ChatMessage("assistant").setContent("result");
+        CompletionsService service =
+                new CompletionsService() {
+                    @Override
+                    public CompletableFuture<
+                                    com.datastax.oss.streaming.ai.completions.ChatCompletions>
+                            getChatCompletions(
+                                    List<ChatMessage> messages,
+                                    StreamingChunksConsumer consumer,
+                                    Map<String, Object> options) {
+                        // the providers count the chunks from 1
+                        consumer.consumeChunk("id", 1, new ChatChoice(answer), false);
+                        consumer.consumeChunk("id", 2, new ChatChoice(answer), true);
+                        com.datastax.oss.streaming.ai.completions.ChatCompletions result =
+                                new com.datastax.oss.streaming.ai.completions.ChatCompletions();
+                        result.setChoices(List.of(new ChatChoice(answer)));
+                        return CompletableFuture.completedFuture(result);
+                    }
+
+                    @Override
+                    public CompletableFuture<TextCompletionResult> getTextCompletions(
+                            List<String> prompt,
+                            StreamingChunksConsumer consumer,
+                            Map<String, Object> options) {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+        Map<String, AtomicInteger> observations = new ConcurrentHashMap<>();
+        MetricsReporter metricsReporter =
+                new MetricsReporter() {
+                    @Override
+                    public Counter counter(String name, String help) {
+                        return Counter.NOOP;
+                    }
+
+                    @Override
+                    public Histogram histogram(String name, String help) {
+                        return value ->
+                                observations
+                                        .computeIfAbsent(name, k -> new AtomicInteger())
+                                        .incrementAndGet();
+                    }
+                };
+        ChatCompletionsConfig config = new ChatCompletionsConfig();
+        config.setModel("test-model");
+        config.setMessages(List.of(new ChatMessage("user").setContent("{{ value }}")));
+        Record<GenericObject> record =
+                new Utils.TestRecord<>(
+                        Schema.STRING,
+                        AutoConsumeSchema.wrapPrimitiveObject(
+                                "test-message", SchemaType.STRING, new byte[] {}),
+                        "test-key");
+
+        Utils.process(
+                record,
+                new ChatCompletionsStep(
+                        service,
+                        topic -> (index, message, last, outputMessage) -> {},
+                        config,
+                        metricsReporter));
+
+        assertEquals(1, observations.get("ai_chat_completions_first_chunk_latency_ms").get());
+        assertEquals(1, observations.get("ai_chat_completions_latency_ms").get());
+    }
+
     public static Object[][] jsonStringSchemas() {
         return new Object[][] {{Schema.STRING}, {Schema.BYTES}};
     }
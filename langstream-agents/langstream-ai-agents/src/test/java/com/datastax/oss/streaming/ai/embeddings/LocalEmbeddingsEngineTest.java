@@ -0,0 +1,181 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.streaming.ai.embeddings;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ai.langstream.api.runner.code.MetricsReporter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class LocalEmbeddingsEngineTest {
+
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private final AtomicInteger predictors = new AtomicInteger();
+    private final AtomicInteger closedPredictors = new AtomicInteger();
+
+    private LocalEmbeddingsEngine.BatchPredictor predictor(CountDownLatch blocked) {
+        predictors.incrementAndGet();
+        return new LocalEmbeddingsEngine.BatchPredictor() {
+            @Override
+            public float[][] predict(String[] texts) throws Exception {
+                if (texts.length == 1 && LocalEmbeddingsEngine.WARMUP_TEXT.equals(texts[0])) {
+                    return new float[][] {{0}};
+                }
+                blocked.await();
+                batchSizes.add(texts.length);
+                float[][] result = new float[texts.length][];
+                for (int i = 0; i < texts.length; i++) {
+                    if (texts[i].equals("fail")) {
+                        throw new IllegalArgumentException("invalid text");
+                    }
+                    result[i] = new float[] {texts[i].length()};
+                }
+                return result;
+            }
+
+            @Override
+            public void close() {
+                closedPredictors.incrementAndGet();
+            }
+        };
+    }
+
+    @Test
+    void testConcurrentRequestsAreBatched() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        try (LocalEmbeddingsEngine engine =
+                new LocalEmbeddingsEngine(
+                        "test", 1, 8, 1000, () -> predictor(blocked), MetricsReporter.DISABLED)) {
+            assertEquals(1, predictors.get());
+            List<CompletableFuture<List<float[]>>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(engine.compute(List.of("a".repeat(i + 1), "b")));
+            }
+            blocked.countDown();
+            for (int i = 0; i < 4; i++) {
+                List<float[]> embeddings = results.get(i).get(10, TimeUnit.SECONDS);
+                assertEquals(2, embeddings.size());
+                assertEquals(i + 1, embeddings.get(0)[0]);
+                assertEquals(1, embeddings.get(1)[0]);
+            }
+            assertEquals(List.of(8), batchSizes);
+        }
+        assertEquals(1, closedPredictors.get());
+    }
+
+    @Test
+    void testMaxBatchSize() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        try (LocalEmbeddingsEngine engine =
+                new LocalEmbeddingsEngine(
+                        "test", 1, 3, 1000, () -> predictor(blocked), MetricsReporter.DISABLED)) {
+            CompletableFuture<List<float[]>> first = engine.compute(List.of("a", "b"));
+            CompletableFuture<List<float[]>> second = engine.compute(List.of("c", "d"));
+            CompletableFuture<List<float[]>> large =
+                    engine.compute(List.of("1", "2", "3", "4", "5"));
+            blocked.countDown();
+            assertEquals(2, first.get(10, TimeUnit.SECONDS).size());
+            assertEquals(2, second.get(10, TimeUnit.SECONDS).size());
+            assertEquals(5, large.get(10, TimeUnit.SECONDS).size());
+            // the requests are not split, but a request larger than the batch is
+            assertEquals(List.of(2, 2, 3, 2), batchSizes);
+        }
+    }
+
+    @Test
+    void testLatencyBudget() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(0);
+        try (LocalEmbeddingsEngine engine =
+                new LocalEmbeddingsEngine(
+                        "test", 1, 100, 10, () -> predictor(blocked), MetricsReporter.DISABLED)) {
+            // the batch is not full, it's computed when the latency budget expires
+            assertEquals(1, engine.compute(List.of("a")).get(10, TimeUnit.SECONDS).size());
+            assertEquals(List.of(1), batchSizes);
+        }
+    }
+
+    @Test
+    void testErrorFailsTheBatch() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        try (LocalEmbeddingsEngine engine =
+                new LocalEmbeddingsEngine(
+                        "test", 1, 10, 1000, () -> predictor(blocked), MetricsReporter.DISABLED)) {
+            CompletableFuture<List<float[]>> first = engine.compute(List.of("a"));
+            CompletableFuture<List<float[]>> second = engine.compute(List.of("fail"));
+            blocked.countDown();
+            ExecutionException error =
+                    assertThrows(ExecutionException.class, () -> first.get(10, TimeUnit.SECONDS));
+            assertTrue(error.getCause() instanceof IllegalArgumentException);
+            assertThrows(ExecutionException.class, () -> second.get(10, TimeUnit.SECONDS));
+
+            // the worker is still alive
+            assertEquals(1, engine.compute(List.of("a")).get(10, TimeUnit.SECONDS).size());
+        }
+    }
+
+    @Test
+    void testWarmPool() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(0);
+        try (LocalEmbeddingsEngine engine =
+                new LocalEmbeddingsEngine(
+                        "test", 3, 10, 0, () -> predictor(blocked), MetricsReporter.DISABLED)) {
+            // the predictors are created before the first request
+            assertEquals(3, predictors.get());
+            assertEquals(List.of(), engine.compute(List.of()).get());
+        }
+        assertEquals(3, closedPredictors.get());
+    }
+
+    @Test
+    void testWarmupFailure() {
+        assertThrows(
+                RuntimeException.class,
+                () ->
+                        new LocalEmbeddingsEngine(
+                                "test",
+                                2,
+                                10,
+                                0,
+                                () -> {
+                                    throw new IllegalStateException("cannot load the model");
+                                },
+                                MetricsReporter.DISABLED));
+    }
+
+    @Test
+    void testClosed() throws Exception {
+        LocalEmbeddingsEngine engine =
+                new LocalEmbeddingsEngine(
+                        "test",
+                        1,
+                        10,
+                        0,
+                        () -> predictor(new CountDownLatch(0)),
+                        MetricsReporter.DISABLED);
+        engine.close();
+        assertThrows(ExecutionException.class, () -> engine.compute(List.of("a")).get());
+    }
+}
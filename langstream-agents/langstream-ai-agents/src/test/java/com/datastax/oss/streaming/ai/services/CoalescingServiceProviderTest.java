@@ -0,0 +1,246 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.streaming.ai.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ai.langstream.api.runner.code.MetricsReporter;
+import com.datastax.oss.streaming.ai.completions.ChatCompletions;
+import com.datastax.oss.streaming.ai.completions.ChatMessage;
+import com.datastax.oss.streaming.ai.completions.CompletionsService;
+import com.datastax.oss.streaming.ai.completions.TextCompletionResult;
+import com.datastax.oss.streaming.ai.embeddings.EmbeddingsService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class CoalescingServiceProviderTest {
+
+    private final List<CompletableFuture<ChatCompletions>> chatCalls = new ArrayList<>();
+    private final List<List<String>> embeddingsCalls = new ArrayList<>();
+    private final List<CompletableFuture<List<List<Double>>>> embeddingsResults = new ArrayList<>();
+
+    private final ServiceProvider delegate =
+            new ServiceProvider() {
+                @Override
+                public CompletionsService getCompletionsService(
+                        Map<String, Object> additionalConfiguration) {
+                    return new CompletionsService() {
+                        @Override
+                        public CompletableFuture<ChatCompletions> getChatCompletions(
+                                List<ChatMessage> message,
+                                StreamingChunksConsumer streamingChunksConsumer,
+                                Map<String, Object> options) {
+                            CompletableFuture<ChatCompletions> result = new CompletableFuture<>();
+                            chatCalls.add(result);
+                            return result;
+                        }
+
+                        @Override
+                        public CompletableFuture<TextCompletionResult> getTextCompletions(
+                                List<String> prompt,
+                                StreamingChunksConsumer streamingChunksConsumer,
+                                Map<String, Object> options) {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+
+                @Override
+                public EmbeddingsService getEmbeddingsService(
+                        Map<String, Object> additionalConfiguration) {
+                    return texts -> {
+                        embeddingsCalls.add(texts);
+                        CompletableFuture<List<List<Double>>> result = new CompletableFuture<>();
+                        embeddingsResults.add(result);
+                        return result;
+                    };
+                }
+
+                @Override
+                public void close() {}
+            };
+
+    private final CoalescingServiceProvider provider =
+            new CoalescingServiceProvider(delegate, MetricsReporter.DISABLED);
+
+    private static Map<String, Object> options(Object... keyValues) {
+        Map<String, Object> options = new HashMap<>();
+        options.put("model", "test-model");
+        for (int i = 0; i < keyValues.length; i += 2) {
+            options.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return options;
+    }
+
+    private static List<ChatMessage> messages(String content) {
+        return List.of(new ChatMessage("user", content));
+    }
+
+    @Test
+    void testDisabledByDefault() throws Exception {
+        CompletionsService service = provider.getCompletionsService(options());
+        service.getChatCompletions(messages("hello"), null, options());
+        service.getChatCompletions(messages("hello"), null, options());
+        assertEquals(2, chatCalls.size());
+    }
+
+    @Test
+    void testConcurrentChatCompletions() throws Exception {
+        Map<String, Object> options = options("coalesce-requests", true);
+        CompletionsService service = provider.getCompletionsService(options);
+        CompletableFuture<ChatCompletions> first =
+                service.getChatCompletions(messages("hello"), null, options);
+        CompletableFuture<ChatCompletions> second =
+                service.getChatCompletions(messages("hello"), null, options);
+        CompletableFuture<ChatCompletions> other =
+                service.getChatCompletions(messages("bye"), null, options);
+        service.getChatCompletions(
+                messages("hello"), null, options("coalesce-requests", true, "max-tokens", 10));
+        assertEquals(3, chatCalls.size());
+
+        ChatCompletions result = new ChatCompletions();
+        chatCalls.get(0).complete(result);
+        assertSame(result, first.get());
+        assertSame(result, second.get());
+        assertTrue(!other.isDone());
+
+        // without cache, a new request calls the service again
+        service.getChatCompletions(messages("hello"), null, options);
+        assertEquals(4, chatCalls.size());
+    }
+
+    @Test
+    void testResponseCacheOnlyWhenDeterministic() throws Exception {
+        Map<String, Object> options =
+                options("coalesce-requests", true, "response-cache-ttl-ms", 60000);
+        CompletionsService service = provider.getCompletionsService(options);
+        service.getChatCompletions(messages("hello"), null, options);
+        chatCalls.get(0).complete(new ChatCompletions());
+        service.getChatCompletions(messages("hello"), null, options);
+        assertEquals(2, chatCalls.size());
+
+        options.put("temperature", 0.0);
+        service.getChatCompletions(messages("hello"), null, options);
+        chatCalls.get(2).complete(new ChatCompletions());
+        ChatCompletions cached = service.getChatCompletions(messages("hello"), null, options).get();
+        assertEquals(3, chatCalls.size());
+        assertSame(chatCalls.get(2).get(), cached);
+    }
+
+    @Test
+    void testStreamedCompletionsAreNotCoalesced() throws Exception {
+        Map<String, Object> options =
+                options("coalesce-requests", true, "stream-to-topic", "answers");
+        CompletionsService service = provider.getCompletionsService(options);
+        service.getChatCompletions(messages("hello"), null, options);
+        service.getChatCompletions(messages("hello"), null, options);
+        assertEquals(2, chatCalls.size());
+    }
+
+    @Test
+    void testErrorsAreShared() throws Exception {
+        Map<String, Object> options =
+                options(
+                        "coalesce-requests",
+                        true,
+                        "response-cache-ttl-ms",
+                        60000,
+                        "temperature",
+                        0.0);
+        CompletionsService service = provider.getCompletionsService(options);
+        CompletableFuture<ChatCompletions> first =
+                service.getChatCompletions(messages("hello"), null, options);
+        CompletableFuture<ChatCompletions> second =
+                service.getChatCompletions(messages("hello"), null, options);
+        chatCalls.get(0).completeExceptionally(new IllegalStateException("rate limited"));
+        assertThrows(ExecutionException.class, first::get);
+        assertThrows(ExecutionException.class, second::get);
+
+        // the failure is not cached
+        service.getChatCompletions(messages("hello"), null, options);
+        assertEquals(2, chatCalls.size());
+    }
+
+    @Test
+    void testEmbeddingsAreCoalescedPerText() throws Exception {
+        Map<String, Object> options =
+                options("coalesce-requests", true, "response-cache-ttl-ms", 60000);
+        EmbeddingsService service = provider.getEmbeddingsService(options);
+        CompletableFuture<List<List<Double>>> first = service.computeEmbeddings(List.of("a", "b"));
+        CompletableFuture<List<List<Double>>> second =
+                service.computeEmbeddings(List.of("b", "c", "c"));
+        assertEquals(List.of(List.of("a", "b"), List.of("c")), embeddingsCalls);
+
+        embeddingsResults.get(1).complete(List.of(List.of(3.0)));
+        embeddingsResults.get(0).complete(List.of(List.of(1.0), List.of(2.0)));
+        assertEquals(List.of(List.of(1.0), List.of(2.0)), first.get());
+        assertEquals(List.of(List.of(2.0), List.of(3.0), List.of(3.0)), second.get());
+
+        // cached
+        assertEquals(
+                List.of(List.of(3.0), List.of(1.0)),
+                service.computeEmbeddings(List.of("c", "a")).get());
+        assertEquals(2, embeddingsCalls.size());
+    }
+
+    @Test
+    void testCacheExpiration() throws Exception {
+        AtomicLong now = new AtomicLong(1000);
+        RequestCoalescer<String> coalescer =
+                new RequestCoalescer<>(100, MetricsReporter.DISABLED, now::get);
+        List<String> calls = new ArrayList<>();
+        assertEquals(
+                "v",
+                coalescer
+                        .execute(
+                                "k",
+                                true,
+                                () -> {
+                                    calls.add("k");
+                                    return CompletableFuture.completedFuture("v");
+                                })
+                        .get());
+        coalescer.execute("k", true, () -> CompletableFuture.completedFuture("other"));
+        assertEquals(1, calls.size());
+        now.addAndGet(100);
+        assertEquals(
+                "new",
+                coalescer.execute("k", true, () -> CompletableFuture.completedFuture("new")).get());
+        assertEquals(0, coalescer.inFlightSize());
+    }
+
+    @Test
+    void testCallersCannotCompleteTheSharedFuture() throws Exception {
+        RequestCoalescer<String> coalescer = new RequestCoalescer<>(0, MetricsReporter.DISABLED);
+        CompletableFuture<String> call = new CompletableFuture<>();
+        CompletableFuture<String> first = coalescer.execute("k", false, () -> call);
+        CompletableFuture<String> second = coalescer.execute("k", false, () -> call);
+        assertNotSame(first, second);
+        first.complete("wrong");
+        call.complete("right");
+        assertEquals("right", second.get());
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.streaming.ai.streaming;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class ChunksCoalescerTest {
+
+    private static List<String> stream(ChunksCoalescer coalescer, int tokens) {
+        List<String> messages = new ArrayList<>();
+        for (int i = 0; i < tokens; i++) {
+            boolean last = i == tokens - 1;
+            coalescer.append("t" + i + " ");
+            if (coalescer.isReady(last)) {
+                messages.add(coalescer.flush());
+            }
+        }
+        return messages;
+    }
+
+    @Test
+    void testChunksPerMessageDoubles() {
+        List<String> messages = stream(new ChunksCoalescer(4, 0, 0), 12);
+        assertEquals(List.of("t0 ", "t1 t2 ", "t3 t4 t5 t6 ", "t7 t8 t9 t10 ", "t11 "), messages);
+    }
+
+    @Test
+    void testMaxChunkSize() {
+        List<String> messages = stream(new ChunksCoalescer(100, 6, 0), 8);
+        assertEquals(List.of("t0 ", "t1 t2 ", "t3 t4 ", "t5 t6 ", "t7 "), messages);
+    }
+
+    @Test
+    void testMaxChunkDelay() {
+        AtomicLong now = new AtomicLong();
+        ChunksCoalescer coalescer = new ChunksCoalescer(100, 0, 50, now::get);
+        coalescer.append("a");
+        assertTrue(coalescer.isReady(false));
+        assertEquals("a", coalescer.flush());
+
+        coalescer.append("b");
+        now.addAndGet(30);
+        assertFalse(coalescer.isReady(false));
+        coalescer.append("c");
+        now.addAndGet(20);
+        assertTrue(coalescer.isReady(false));
+        assertEquals("bc", coalescer.flush());
+
+        // nothing to send
+        now.addAndGet(100);
+        assertFalse(coalescer.isReady(false));
+        assertTrue(coalescer.isReady(true));
+        assertEquals("", coalescer.flush());
+    }
+}
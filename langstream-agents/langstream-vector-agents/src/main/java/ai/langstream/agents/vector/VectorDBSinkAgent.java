@@ -18,7 +18,9 @@ package ai.langstream.agents.vector;
 import ai.langstream.api.database.VectorDatabaseWriter;
 import ai.langstream.api.database.VectorDatabaseWriterProviderRegistry;
 import ai.langstream.api.runner.code.AbstractAgentCode;
+import ai.langstream.api.runner.code.AgentContext;
 import ai.langstream.api.runner.code.AgentSink;
+import ai.langstream.api.runner.code.MetricsReporter;
 import ai.langstream.api.runner.code.Record;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -28,6 +30,8 @@ import lombok.extern.slf4j.Slf4j;
 public class VectorDBSinkAgent extends AbstractAgentCode implements AgentSink {
 
     private VectorDatabaseWriter writer;
+    private MetricsReporter.Histogram upsertLatency = MetricsReporter.Histogram.NOOP;
+    private MetricsReporter.Counter upsertErrors = MetricsReporter.Counter.NOOP;
 
     @Override
     public void init(Map<String, Object> configuration) throws Exception {
@@ -37,6 +41,20 @@ public class VectorDBSinkAgent extends AbstractAgentCode implements AgentSink {
         writer.initialise(configuration);
     }
 
+    @Override
+    public void setContext(AgentContext context) throws Exception {
+        super.setContext(context);
+        MetricsReporter reporter = context.getMetricsReporter();
+        upsertLatency =
+                reporter.histogram(
+                        "vector_db_upsert_latency_ms",
+                        "Duration of the upserts to the vector database, in milliseconds");
+        upsertErrors =
+                reporter.counter(
+                        "vector_db_upsert_errors",
+                        "Number of failed upserts to the vector database");
+    }
+
     @Override
     public void start() {}
 
@@ -51,6 +69,15 @@ public class VectorDBSinkAgent extends AbstractAgentCode implements AgentSink {
     public CompletableFuture<?> write(Record record) {
         // naive implementation, no batching
         Map<String, Object> context = Map.of();
-        return writer.upsert(record, context).thenRun(() -> processed(1, 0));
+        long start = System.nanoTime();
+        return writer.upsert(record, context)
+                .whenComplete(
+                        (r, error) -> {
+                            upsertLatency.observeMillisSince(start);
+                            if (error != null) {
+                                upsertErrors.count(1);
+                            }
+                        })
+                .thenRun(() -> processed(1, 0));
     }
 }
@@ -25,12 +25,16 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class GitHubAuthenticationProvider implements GatewayAuthenticationProvider {
 
     private static final ObjectMapper mapper = new ObjectMapper();
+    private static final HttpClient HTTP_CLIENT = HttpClient.newHttpClient();
 
     private String clientId;
 
@@ -50,60 +54,71 @@ public class GitHubAuthenticationProvider implements GatewayAuthenticationProvid
     @Override
     public GatewayAuthenticationResult authenticate(GatewayRequestContext context) {
         try {
-            String token = context.credentials();
+            return authenticateAsync(context).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
 
-            /*
-            curl --request GET \
-            --url "https://api.github.com/user" \
-            --header "Accept: application/vnd.github+json" \
-            --header "Authorization: Bearer USER_ACCESS_TOKEN" \
-            --header "X-GitHub-Api-Version: 2022-11-28"
-            */
+    @Override
+    public CompletableFuture<GatewayAuthenticationResult> authenticateAsync(
+            GatewayRequestContext context) {
+        String token = context.credentials();
 
-            if (token != null) {
+        /*
+        curl --request GET \
+        --url "https://api.github.com/user" \
+        --header "Accept: application/vnd.github+json" \
+        --header "Authorization: Bearer USER_ACCESS_TOKEN" \
+        --header "X-GitHub-Api-Version: 2022-11-28"
+        */
 
-                HttpClient client = HttpClient.newHttpClient();
-                HttpRequest request =
-                        HttpRequest.newBuilder()
-                                .uri(URI.create("https://api.github.com/user"))
-                                .header("Accept", "application/vnd.github+json")
-                                .header("Authorization", "Bearer " + token)
-                                .header("X-GitHub-Api-Version", "2022-11-28")
-                                .build();
+        if (token == null) {
+            return CompletableFuture.completedFuture(
+                    GatewayAuthenticationResult.authenticationFailed("Invalid token."));
+        }
+        HttpRequest request =
+                HttpRequest.newBuilder()
+                        .uri(URI.create("https://api.github.com/user"))
+                        .header("Accept", "application/vnd.github+json")
+                        .header("Authorization", "Bearer " + token)
+                        .header("X-GitHub-Api-Version", "2022-11-28")
+                        .build();
 
-                HttpResponse<String> response =
-                        client.send(request, HttpResponse.BodyHandlers.ofString());
-                String body = response.body();
-                String responseClientId =
-                        response.headers().firstValue("X-OAuth-Client-Id").orElse(null);
+        return HTTP_CLIENT
+                .sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(this::handleResponse);
+    }
+
+    @SneakyThrows
+    private GatewayAuthenticationResult handleResponse(HttpResponse<String> response) {
+        String body = response.body();
+        String responseClientId = response.headers().firstValue("X-OAuth-Client-Id").orElse(null);
 
-                log.info("GitHub response: {}", body);
-                log.info("X-OAuth-Client-Id: {}", responseClientId);
-                log.info("Required: X-OAuth-Client-Id: {}", clientId);
+        log.info("GitHub response: {}", body);
+        log.info("X-OAuth-Client-Id: {}", responseClientId);
+        log.info("Required: X-OAuth-Client-Id: {}", clientId);
 
-                Map<String, String> result = mapper.readValue(body, Map.class);
-                if (log.isDebugEnabled()) {
-                    response.headers().map().forEach((k, v) -> log.debug("Header {}: {}", k, v));
-                }
+        Map<String, String> result = mapper.readValue(body, Map.class);
+        if (log.isDebugEnabled()) {
+            response.headers().map().forEach((k, v) -> log.debug("Header {}: {}", k, v));
+        }
 
-                if (clientId != null && !clientId.isEmpty()) {
-                    if (!Objects.equals(responseClientId, clientId)) {
-                        String message =
-                                "Invalid client id,"
-                                        + "the token has been issued by "
-                                        + responseClientId
-                                        + ", expecting "
-                                        + clientId;
-                        log.info(message);
-                        return GatewayAuthenticationResult.authenticationFailed(message);
-                    }
-                }
-                return GatewayAuthenticationResult.authenticationSuccessful(result);
-            } else {
-                return GatewayAuthenticationResult.authenticationFailed("Invalid token.");
+        if (clientId != null && !clientId.isEmpty()) {
+            if (!Objects.equals(responseClientId, clientId)) {
+                String message =
+                        "Invalid client id,"
+                                + "the token has been issued by "
+                                + responseClientId
+                                + ", expecting "
+                                + clientId;
+                log.info(message);
+                return GatewayAuthenticationResult.authenticationFailed(message);
             }
-        } catch (Exception e) {
-            throw new RuntimeException(e);
         }
+        return GatewayAuthenticationResult.authenticationSuccessful(result);
     }
 }
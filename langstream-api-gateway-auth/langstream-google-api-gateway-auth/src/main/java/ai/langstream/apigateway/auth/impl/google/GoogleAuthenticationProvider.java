@@ -23,6 +23,7 @@ import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
 import com.google.api.client.googleapis.auth.oauth2.GoogleIdTokenVerifier;
 import com.google.api.client.http.javanet.NetHttpTransport;
 import com.google.api.client.json.gson.GsonFactory;
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -72,7 +73,9 @@ public class GoogleAuthenticationProvider implements GatewayAuthenticationProvid
                 result.put(FIELD_EMAIL, payload.getEmail());
                 result.put(FIELD_NAME, (String) payload.get("name"));
                 result.put(FIELD_LOCALE, (String) payload.get("locale"));
-                return GatewayAuthenticationResult.authenticationSuccessful(result);
+                final Long expiration = payload.getExpirationTimeSeconds();
+                return GatewayAuthenticationResult.authenticationSuccessful(
+                        result, expiration == null ? null : Instant.ofEpochSecond(expiration));
             } else {
                 return GatewayAuthenticationResult.authenticationFailed("Invalid credentials.");
             }
@@ -19,12 +19,16 @@ import ai.langstream.api.gateway.GatewayAuthenticationProvider;
 import ai.langstream.api.gateway.GatewayAuthenticationResult;
 import ai.langstream.api.gateway.GatewayRequestContext;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 
@@ -32,6 +36,7 @@ import lombok.extern.slf4j.Slf4j;
 public class HttpAuthenticationProvider implements GatewayAuthenticationProvider {
 
     private static final ObjectMapper mapper = new ObjectMapper();
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
     private HttpAuthenticationProviderConfiguration httpConfiguration;
     private HttpClient httpClient;
 
@@ -54,6 +59,19 @@ public class HttpAuthenticationProvider implements GatewayAuthenticationProvider
 
     @Override
     public GatewayAuthenticationResult authenticate(GatewayRequestContext context) {
+        try {
+            return authenticateAsync(context).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @Override
+    public CompletableFuture<GatewayAuthenticationResult> authenticateAsync(
+            GatewayRequestContext context) {
 
         final Map<String, String> placeholders = Map.of("tenant", context.tenant());
         final String uri = resolvePlaceholders(placeholders, httpConfiguration.getPathTemplate());
@@ -61,27 +79,41 @@ public class HttpAuthenticationProvider implements GatewayAuthenticationProvider
 
         log.info("Authenticating admin with url: {}", url);
 
-        final HttpRequest.Builder builder = HttpRequest.newBuilder().uri(URI.create(url));
+        final HttpRequest.Builder builder =
+                HttpRequest.newBuilder().uri(URI.create(url)).timeout(REQUEST_TIMEOUT);
 
         httpConfiguration.getHeaders().forEach(builder::header);
         final String credentials = context.credentials();
         builder.header("Authorization", "Bearer " + (credentials == null ? "" : credentials));
         final HttpRequest request = builder.GET().build();
 
-        final HttpResponse<Void> response;
-        try {
-            response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException(e);
-        } catch (Throwable e) {
-            return GatewayAuthenticationResult.authenticationFailed(e.getMessage());
-        }
-        if (httpConfiguration.getAcceptedStatuses().contains(response.statusCode())) {
-            return GatewayAuthenticationResult.authenticationSuccessful(Map.of());
-        }
-        return GatewayAuthenticationResult.authenticationFailed(
-                "Http authentication failed: " + response.statusCode());
+        return httpClient
+                .sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle(
+                        (response, error) -> {
+                            // a transport error or a server error says nothing about the
+                            // credentials, it must not be reported (and cached) as a failed
+                            // authentication
+                            if (error != null) {
+                                throw error instanceof CompletionException completionException
+                                        ? completionException
+                                        : new CompletionException(error);
+                            }
+                            if (httpConfiguration
+                                    .getAcceptedStatuses()
+                                    .contains(response.statusCode())) {
+                                return GatewayAuthenticationResult.authenticationSuccessful(
+                                        Map.of());
+                            }
+                            if (response.statusCode() >= 500) {
+                                throw new CompletionException(
+                                        new IOException(
+                                                "Http authentication service error: "
+                                                        + response.statusCode()));
+                            }
+                            return GatewayAuthenticationResult.authenticationFailed(
+                                    "Http authentication failed: " + response.statusCode());
+                        });
     }
 
     private static String resolvePlaceholders(Map<String, String> placeholders, String url) {
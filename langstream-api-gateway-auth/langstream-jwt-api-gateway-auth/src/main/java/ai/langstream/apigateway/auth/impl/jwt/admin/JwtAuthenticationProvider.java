@@ -64,16 +64,19 @@ public class JwtAuthenticationProvider implements GatewayAuthenticationProvider
 
     @Override
     public GatewayAuthenticationResult authenticate(GatewayRequestContext context) {
-        String role;
+        final AuthenticationProviderToken.AuthenticatedPrincipal principal;
         try {
             final String credentials = context.credentials();
-            role = authenticationProviderToken.authenticate(credentials == null ? "" : credentials);
+            principal =
+                    authenticationProviderToken.authenticatePrincipal(
+                            credentials == null ? "" : credentials);
         } catch (AuthenticationProviderToken.AuthenticationException ex) {
             return GatewayAuthenticationResult.authenticationFailed(ex.getMessage());
         }
-        if (!adminRoles.contains(role)) {
+        if (!adminRoles.contains(principal.principal())) {
             return GatewayAuthenticationResult.authenticationFailed("Not an admin.");
         }
-        return GatewayAuthenticationResult.authenticationSuccessful(Map.of());
+        return GatewayAuthenticationResult.authenticationSuccessful(
+                Map.of(), principal.expiresAt());
     }
 }
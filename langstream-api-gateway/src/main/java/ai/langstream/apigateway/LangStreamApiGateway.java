@@ -15,6 +15,7 @@
  */
 package ai.langstream.apigateway;
 
+import ai.langstream.apigateway.config.GatewayAuthenticationCacheProperties;
 import ai.langstream.apigateway.config.GatewayTestAuthenticationProperties;
 import ai.langstream.apigateway.config.StorageProperties;
 import ai.langstream.apigateway.config.TopicProperties;
@@ -30,6 +31,7 @@ import org.springframework.core.env.Environment;
 @EnableConfigurationProperties({
     StorageProperties.class,
     GatewayTestAuthenticationProperties.class,
+    GatewayAuthenticationCacheProperties.class,
     CodeConfiguration.class,
     TopicProperties.class
 })
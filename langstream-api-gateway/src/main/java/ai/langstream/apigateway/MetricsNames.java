@@ -17,4 +17,5 @@ package ai.langstream.apigateway;
 
 public class MetricsNames {
     public static final String TOPIC_PRODUCER_CACHE = "topic_producer_cache";
+    public static final String GATEWAY_AUTHENTICATION_CACHE = "gateway_authentication_cache";
 }
@@ -0,0 +1,246 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.apigateway.application;
+
+import ai.langstream.api.model.Application;
+import ai.langstream.api.model.ApplicationSpecs;
+import ai.langstream.api.storage.ApplicationStore;
+import ai.langstream.impl.common.ApplicationPlaceholderResolver;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the resolved applications in memory, so that the gateway requests don't need to load and
+ * parse the application from the store every time.
+ *
+ * <p>The applications are cached only for the tenants that the store is able to watch: an
+ * application is removed from the cache as soon as the store notifies that it (or its secrets)
+ * changed. Every change gets a new version, a value loaded before a change of the application is
+ * never put in the cache. Only the versions of the existing applications are kept: when an
+ * application is deleted its version is dropped, and the values loaded before the last deletion are
+ * not cached. If the watch of a tenant fails it is retried after {@link #WATCH_RETRY_DELAY}, in the
+ * meantime the applications of the tenant are not cached.
+ */
+@Slf4j
+public class ApplicationCache implements AutoCloseable {
+
+    static final Duration WATCH_RETRY_DELAY = Duration.ofSeconds(30);
+
+    private record Key(String tenant, String applicationId) {}
+
+    private record CachedApplication(
+            long version, Application application, Map<String, String> executorServiceURIs) {}
+
+    private final ApplicationStore applicationStore;
+    private final LongSupplier nanoClock;
+    private final ApplicationStore.ApplicationWatcher watcher =
+            new ApplicationStore.ApplicationWatcher() {
+                @Override
+                public void onApplicationChanged(String tenant, String applicationId) {
+                    invalidate(tenant, applicationId);
+                }
+
+                @Override
+                public void onApplicationDeleted(String tenant, String applicationId) {
+                    remove(tenant, applicationId);
+                }
+            };
+    private final Map<Key, CachedApplication> applications = new ConcurrentHashMap<>();
+    private final AtomicLong changes = new AtomicLong();
+    // application -> version of its last change
+    private final Map<Key, Long> versions = new ConcurrentHashMap<>();
+    private volatile long lastDeletion;
+    private final Set<String> watchedTenants = ConcurrentHashMap.newKeySet();
+    // the store doesn't support watching the tenant
+    private final Set<String> notWatchedTenants = ConcurrentHashMap.newKeySet();
+    // tenant -> when the failed watch can be retried
+    private final Map<String, Long> failedWatches = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    public ApplicationCache(ApplicationStore applicationStore) {
+        this(applicationStore, System::nanoTime);
+    }
+
+    ApplicationCache(ApplicationStore applicationStore, LongSupplier nanoClock) {
+        this.applicationStore = applicationStore;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Returns the application with the secrets and the placeholders resolved, or null if the
+     * application doesn't exist. The returned application is shared and must not be modified.
+     */
+    public Application getResolvedApplication(String tenant, String applicationId) {
+        Key key = new Key(tenant, applicationId);
+        CachedApplication cached = applications.get(key);
+        if (cached != null) {
+            return cached.application();
+        }
+        boolean watched = watch(tenant);
+        long version = changes.get();
+        Application application = loadResolvedApplication(tenant, applicationId);
+        if (application != null && watched) {
+            putIfNotChanged(key, version, new CachedApplication(version, application, Map.of()));
+        }
+        return application;
+    }
+
+    public String getExecutorServiceURI(String tenant, String applicationId, String executorId) {
+        Key key = new Key(tenant, applicationId);
+        CachedApplication cached = applications.get(key);
+        if (cached != null) {
+            String uri = cached.executorServiceURIs().get(executorId);
+            if (uri != null) {
+                return uri;
+            }
+        }
+        if (!watch(tenant)) {
+            return applicationStore.getExecutorServiceURI(tenant, applicationId, executorId);
+        }
+        long version = changes.get();
+        String uri = applicationStore.getExecutorServiceURI(tenant, applicationId, executorId);
+        if (uri != null) {
+            applications.computeIfPresent(
+                    key,
+                    (k, current) -> {
+                        if (changedSince(k, version)) {
+                            return current;
+                        }
+                        Map<String, String> uris = new ConcurrentHashMap<>();
+                        uris.putAll(current.executorServiceURIs());
+                        uris.put(executorId, uri);
+                        return new CachedApplication(version, current.application(), uris);
+                    });
+        }
+        return uri;
+    }
+
+    public void invalidate(String tenant, String applicationId) {
+        // compute() locks the entry, so a load that started before the change cannot put a stale
+        // value after the change
+        applications.compute(
+                new Key(tenant, applicationId),
+                (key, current) -> {
+                    versions.put(key, changes.incrementAndGet());
+                    return null;
+                });
+    }
+
+    public void remove(String tenant, String applicationId) {
+        applications.compute(
+                new Key(tenant, applicationId),
+                (key, current) -> {
+                    versions.remove(key);
+                    lastDeletion = changes.incrementAndGet();
+                    return null;
+                });
+    }
+
+    int size() {
+        return applications.size();
+    }
+
+    int versionsSize() {
+        return versions.size();
+    }
+
+    private void putIfNotChanged(Key key, long version, CachedApplication application) {
+        applications.compute(
+                key,
+                (k, current) -> {
+                    if (changedSince(k, version)) {
+                        return current;
+                    }
+                    return application;
+                });
+    }
+
+    private boolean changedSince(Key key, long version) {
+        return versions.getOrDefault(key, lastDeletion) > version;
+    }
+
+    private boolean watch(String tenant) {
+        if (watchedTenants.contains(tenant)) {
+            return true;
+        }
+        if (notWatchedTenants.contains(tenant) || !canRetryWatch(tenant)) {
+            return false;
+        }
+        synchronized (this) {
+            if (watchedTenants.contains(tenant)) {
+                return true;
+            }
+            if (closed || notWatchedTenants.contains(tenant) || !canRetryWatch(tenant)) {
+                return false;
+            }
+            boolean watched;
+            try {
+                watched = applicationStore.watchApplications(tenant, watcher);
+            } catch (RuntimeException error) {
+                log.warn(
+                        "Cannot watch the applications of tenant {}, retrying in {}",
+                        tenant,
+                        WATCH_RETRY_DELAY,
+                        error);
+                failedWatches.put(tenant, nanoClock.getAsLong() + WATCH_RETRY_DELAY.toNanos());
+                return false;
+            }
+            failedWatches.remove(tenant);
+            if (watched) {
+                log.info("Caching the applications of tenant {}", tenant);
+                watchedTenants.add(tenant);
+            } else {
+                notWatchedTenants.add(tenant);
+            }
+            return watched;
+        }
+    }
+
+    private boolean canRetryWatch(String tenant) {
+        Long retryAt = failedWatches.get(tenant);
+        return retryAt == null || nanoClock.getAsLong() - retryAt >= 0;
+    }
+
+    /** Stops watching the tenants, the cache is not used anymore. */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (String tenant : watchedTenants) {
+            try {
+                applicationStore.unwatchApplications(tenant, watcher);
+            } catch (RuntimeException error) {
+                log.warn("Cannot stop watching the applications of tenant {}", tenant, error);
+            }
+        }
+        watchedTenants.clear();
+        applications.clear();
+    }
+
+    private Application loadResolvedApplication(String tenant, String applicationId) {
+        final ApplicationSpecs applicationSpecs = applicationStore.getSpecs(tenant, applicationId);
+        if (applicationSpecs == null) {
+            return null;
+        }
+        final Application application = applicationSpecs.getApplication();
+        application.setSecrets(applicationStore.getSecrets(tenant, applicationId));
+        return ApplicationPlaceholderResolver.resolvePlaceholders(application);
+    }
+}
@@ -31,4 +31,9 @@ public class ApplicationStoreFactory {
         Objects.requireNonNull(apps);
         return ApplicationStoreRegistry.loadStore(apps.getType(), apps.getConfiguration());
     }
+
+    @Bean
+    public ApplicationCache applicationCache(ApplicationStore applicationStore) {
+        return new ApplicationCache(applicationStore);
+    }
 }
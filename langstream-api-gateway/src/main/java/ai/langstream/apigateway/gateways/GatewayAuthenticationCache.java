@@ -0,0 +1,203 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.apigateway.gateways;
+
+import ai.langstream.api.gateway.GatewayAuthenticationProvider;
+import ai.langstream.api.gateway.GatewayAuthenticationProviderRegistry;
+import ai.langstream.api.gateway.GatewayAuthenticationResult;
+import ai.langstream.api.gateway.GatewayRequestContext;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * Caches the authentication providers and the results of the authentications.
+ *
+ * <p>The providers are initialized once per configuration. The results are keyed by the hash of the
+ * provider configuration, the tenant, the application and the credentials. A successful result is
+ * reused until the ttl elapses or the credentials expire, a failed result only for the failure ttl.
+ * Concurrent authentications with the same credentials share the same call to the provider. Errors
+ * thrown by the provider are never cached.
+ *
+ * <p>A call to the provider fails with a {@link java.util.concurrent.TimeoutException} if it does
+ * not complete within the timeout, so {@link #authenticate} never waits longer than that. Use
+ * {@link #authenticateAsync} to not block the caller at all.
+ */
+@Slf4j
+public class GatewayAuthenticationCache {
+
+    private static final ObjectMapper MAPPER =
+            new ObjectMapper().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+    private static final int MAX_PROVIDERS = 1000;
+
+    static final class CachedResult {
+        private final CompletableFuture<GatewayAuthenticationResult> result =
+                new CompletableFuture<>();
+        private volatile long expiresAt = Long.MAX_VALUE;
+    }
+
+    private final long ttlMillis;
+    private final long failureTtlMillis;
+    private final long timeoutMillis;
+    private final LongSupplier clock;
+    private final Cache<String, GatewayAuthenticationProvider> providers =
+            CacheBuilder.newBuilder().maximumSize(MAX_PROVIDERS).build();
+    @Getter private final Cache<String, CachedResult> results;
+
+    public GatewayAuthenticationCache(
+            int size, long ttlMillis, long failureTtlMillis, long timeoutMillis) {
+        this(size, ttlMillis, failureTtlMillis, timeoutMillis, System::currentTimeMillis);
+    }
+
+    GatewayAuthenticationCache(
+            int size,
+            long ttlMillis,
+            long failureTtlMillis,
+            long timeoutMillis,
+            LongSupplier clock) {
+        this.ttlMillis = ttlMillis;
+        this.failureTtlMillis = failureTtlMillis;
+        this.timeoutMillis = timeoutMillis;
+        this.clock = clock;
+        this.results =
+                CacheBuilder.newBuilder()
+                        .maximumSize(size)
+                        .expireAfterWrite(
+                                Math.max(ttlMillis, failureTtlMillis), TimeUnit.MILLISECONDS)
+                        .recordStats()
+                        .build();
+    }
+
+    public GatewayAuthenticationResult authenticate(
+            String provider, Map<String, Object> configuration, GatewayRequestContext context) {
+        return join(authenticateAsync(provider, configuration, context));
+    }
+
+    public GatewayAuthenticationResult authenticate(
+            GatewayAuthenticationProvider provider,
+            String providerKey,
+            GatewayRequestContext context) {
+        return join(authenticateAsync(provider, providerKey, context));
+    }
+
+    public CompletableFuture<GatewayAuthenticationResult> authenticateAsync(
+            String provider, Map<String, Object> configuration, GatewayRequestContext context) {
+        final String providerKey = providerKey(provider, configuration);
+        final GatewayAuthenticationProvider authenticationProvider;
+        try {
+            authenticationProvider =
+                    providers.get(
+                            providerKey,
+                            () ->
+                                    GatewayAuthenticationProviderRegistry.loadProvider(
+                                            provider, configuration));
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        return authenticateAsync(authenticationProvider, providerKey, context);
+    }
+
+    public CompletableFuture<GatewayAuthenticationResult> authenticateAsync(
+            GatewayAuthenticationProvider provider,
+            String providerKey,
+            GatewayRequestContext context) {
+        final String credentials = context.credentials();
+        final String key =
+                DigestUtils.sha256Hex(
+                        String.join(
+                                "\n",
+                                providerKey,
+                                context.tenant(),
+                                context.applicationId(),
+                                credentials == null ? "" : credentials));
+        final long now = clock.getAsLong();
+        final CachedResult created = new CachedResult();
+        final CachedResult cached =
+                results.asMap()
+                        .compute(
+                                key,
+                                (k, current) ->
+                                        current != null && current.expiresAt > now
+                                                ? current
+                                                : created);
+        if (cached == created) {
+            provider.authenticateAsync(context)
+                    .copy()
+                    .orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                    .whenComplete(
+                            (result, error) -> {
+                                if (error != null || result == null) {
+                                    results.asMap().remove(key, created);
+                                } else {
+                                    created.expiresAt = computeExpiration(result);
+                                }
+                                if (error != null) {
+                                    created.result.completeExceptionally(error);
+                                } else {
+                                    created.result.complete(result);
+                                }
+                            });
+        }
+        return cached.result.copy();
+    }
+
+    private long computeExpiration(GatewayAuthenticationResult result) {
+        final long now = clock.getAsLong();
+        if (!result.authenticated()) {
+            return now + failureTtlMillis;
+        }
+        long expiresAt = now + ttlMillis;
+        final Instant credentialsExpiration = result.expiresAt();
+        if (credentialsExpiration != null) {
+            expiresAt = Math.min(expiresAt, credentialsExpiration.toEpochMilli());
+        }
+        return expiresAt;
+    }
+
+    private static GatewayAuthenticationResult join(
+            CompletableFuture<GatewayAuthenticationResult> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static String providerKey(String provider, Map<String, Object> configuration) {
+        try {
+            return provider + "\n" + MAPPER.writeValueAsString(configuration);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -20,15 +20,13 @@ import ai.langstream.api.gateway.GatewayAuthenticationProviderRegistry;
 import ai.langstream.api.gateway.GatewayAuthenticationResult;
 import ai.langstream.api.gateway.GatewayRequestContext;
 import ai.langstream.api.model.Application;
-import ai.langstream.api.model.ApplicationSpecs;
 import ai.langstream.api.model.Gateway;
 import ai.langstream.api.model.Gateways;
-import ai.langstream.api.storage.ApplicationStore;
+import ai.langstream.apigateway.application.ApplicationCache;
 import ai.langstream.apigateway.config.GatewayTestAuthenticationProperties;
 import ai.langstream.apigateway.websocket.AuthenticatedGatewayRequestContext;
 import ai.langstream.apigateway.websocket.impl.AuthenticatedGatewayRequestContextImpl;
 import ai.langstream.apigateway.websocket.impl.GatewayRequestContextImpl;
-import ai.langstream.impl.common.ApplicationPlaceholderResolver;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -53,13 +51,17 @@ public class GatewayRequestHandler {
         void validateOptions(Map<String, String> options);
     }
 
-    private final ApplicationStore applicationStore;
+    private static final String TEST_PROVIDER_KEY = "test";
+    private final ApplicationCache applicationCache;
+    private final GatewayAuthenticationCache authenticationCache;
     private final GatewayAuthenticationProvider authTestProvider;
 
     public GatewayRequestHandler(
-            ApplicationStore applicationStore,
+            ApplicationCache applicationCache,
+            GatewayAuthenticationCache authenticationCache,
             GatewayTestAuthenticationProperties testAuthenticationProperties) {
-        this.applicationStore = applicationStore;
+        this.applicationCache = applicationCache;
+        this.authenticationCache = authenticationCache;
         if (testAuthenticationProperties.getType() != null) {
             authTestProvider =
                     GatewayAuthenticationProviderRegistry.loadProvider(
@@ -175,13 +177,12 @@ public class GatewayRequestHandler {
     }
 
     private Application getResolvedApplication(String tenant, String applicationId) {
-        final ApplicationSpecs applicationSpecs = applicationStore.getSpecs(tenant, applicationId);
-        if (applicationSpecs == null) {
+        final Application application =
+                applicationCache.getResolvedApplication(tenant, applicationId);
+        if (application == null) {
             throw new IllegalArgumentException("application " + applicationId + " not found");
         }
-        final Application application = applicationSpecs.getApplication();
-        application.setSecrets(applicationStore.getSecrets(tenant, applicationId));
-        return ApplicationPlaceholderResolver.resolvePlaceholders(application);
+        return application;
     }
 
     private Gateway extractGateway(
@@ -238,13 +239,15 @@ public class GatewayRequestHandler {
             if (authTestProvider == null) {
                 throw new AuthFailedException("No test auth provider specified");
             }
-            result = authTestProvider.authenticate(gatewayRequestContext);
+            result =
+                    authenticationCache.authenticate(
+                            authTestProvider, TEST_PROVIDER_KEY, gatewayRequestContext);
         } else {
-            final String provider = authentication.getProvider();
-            final GatewayAuthenticationProvider authProvider =
-                    GatewayAuthenticationProviderRegistry.loadProvider(
-                            provider, authentication.getConfiguration());
-            result = authProvider.authenticate(gatewayRequestContext);
+            result =
+                    authenticationCache.authenticate(
+                            authentication.getProvider(),
+                            authentication.getConfiguration(),
+                            gatewayRequestContext);
         }
         if (result == null) {
             throw new AuthFailedException("Authentication provider returned null");
@@ -15,8 +15,13 @@
  */
 package ai.langstream.apigateway.gateways;
 
-import ai.langstream.api.storage.ApplicationStore;
+import ai.langstream.apigateway.MetricsNames;
+import ai.langstream.apigateway.application.ApplicationCache;
+import ai.langstream.apigateway.config.GatewayAuthenticationCacheProperties;
 import ai.langstream.apigateway.config.GatewayTestAuthenticationProperties;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.util.concurrent.TimeUnit;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -25,8 +30,30 @@ public class GatewayRequestHandlerFactory {
 
     @Bean
     public GatewayRequestHandler gatewayRequestHandler(
-            ApplicationStore applicationStore,
+            ApplicationCache applicationCache,
+            GatewayAuthenticationCache authenticationCache,
             GatewayTestAuthenticationProperties testAuthenticationProperties) {
-        return new GatewayRequestHandler(applicationStore, testAuthenticationProperties);
+        return new GatewayRequestHandler(
+                applicationCache, authenticationCache, testAuthenticationProperties);
+    }
+
+    @Bean
+    public GatewayAuthenticationCache gatewayAuthenticationCache(
+            GatewayAuthenticationCacheProperties properties) {
+        if (!properties.isEnabled()) {
+            return new GatewayAuthenticationCache(
+                    0, 0, 0, TimeUnit.SECONDS.toMillis(properties.getTimeoutSeconds()));
+        }
+        final GatewayAuthenticationCache cache =
+                new GatewayAuthenticationCache(
+                        properties.getSize(),
+                        TimeUnit.SECONDS.toMillis(properties.getTtlSeconds()),
+                        TimeUnit.SECONDS.toMillis(properties.getFailureTtlSeconds()),
+                        TimeUnit.SECONDS.toMillis(properties.getTimeoutSeconds()));
+        GuavaCacheMetrics.monitor(
+                Metrics.globalRegistry,
+                cache.getResults(),
+                MetricsNames.GATEWAY_AUTHENTICATION_CACHE);
+        return cache;
     }
 }
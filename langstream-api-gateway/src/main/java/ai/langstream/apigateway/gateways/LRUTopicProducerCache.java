@@ -20,6 +20,7 @@ import ai.langstream.api.runner.topics.TopicProducer;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.RemovalNotification;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -80,6 +81,11 @@ public class LRUTopicProducerCache implements TopicProducerCache {
             return producer.write(record);
         }
 
+        @Override
+        public CompletableFuture<?> writeBatch(List<Record> records) {
+            return producer.writeBatch(records);
+        }
+
         @Override
         public Object getNativeProducer() {
             return producer.getNativeProducer();
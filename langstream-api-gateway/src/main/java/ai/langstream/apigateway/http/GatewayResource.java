@@ -20,9 +20,9 @@ import ai.langstream.api.model.Gateway;
 import ai.langstream.api.runner.code.Header;
 import ai.langstream.api.runner.code.Record;
 import ai.langstream.api.runtime.ClusterRuntimeRegistry;
-import ai.langstream.api.storage.ApplicationStore;
 import ai.langstream.apigateway.api.ProduceRequest;
 import ai.langstream.apigateway.api.ProduceResponse;
+import ai.langstream.apigateway.application.ApplicationCache;
 import ai.langstream.apigateway.gateways.ConsumeGateway;
 import ai.langstream.apigateway.gateways.GatewayRequestHandler;
 import ai.langstream.apigateway.gateways.ProduceGateway;
@@ -81,7 +81,7 @@ public class GatewayResource {
     private final TopicConnectionsRuntimeProviderBean topicConnectionsRuntimeRegistryProvider;
     private final ClusterRuntimeRegistry clusterRuntimeRegistry;
     private final TopicProducerCache topicProducerCache;
-    private final ApplicationStore applicationStore;
+    private final ApplicationCache applicationCache;
     private final GatewayRequestHandler gatewayRequestHandler;
     private final ExecutorService httpClientThreadPool =
             Executors.newCachedThreadPool(
@@ -234,7 +234,7 @@ public class GatewayResource {
         }
         if (context.gateway().getServiceOptions().getAgentId() != null) {
             final String uri =
-                    applicationStore.getExecutorServiceURI(
+                    applicationCache.getExecutorServiceURI(
                             context.tenant(),
                             context.applicationId(),
                             context.gateway().getServiceOptions().getAgentId());
@@ -0,0 +1,186 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.apigateway.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ai.langstream.api.model.Application;
+import ai.langstream.api.model.ApplicationSpecs;
+import ai.langstream.api.storage.ApplicationStore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+class ApplicationCacheTest {
+
+    private static ApplicationSpecs specs() {
+        return ApplicationSpecs.builder().application(new Application()).build();
+    }
+
+    @Test
+    void testCacheWithWatch() {
+        ApplicationStore store = mock(ApplicationStore.class);
+        AtomicReference<ApplicationStore.ApplicationWatcher> watcher = new AtomicReference<>();
+        doAnswer(
+                        invocation -> {
+                            watcher.set(invocation.getArgument(1));
+                            return true;
+                        })
+                .when(store)
+                .watchApplications(anyString(), any());
+        when(store.getSpecs("t", "app")).thenAnswer(invocation -> specs());
+        when(store.getExecutorServiceURI("t", "app", "service")).thenReturn("http://service:8000");
+
+        ApplicationCache cache = new ApplicationCache(store);
+        Application application = cache.getResolvedApplication("t", "app");
+        assertSame(application, cache.getResolvedApplication("t", "app"));
+        assertEquals("http://service:8000", cache.getExecutorServiceURI("t", "app", "service"));
+        assertEquals("http://service:8000", cache.getExecutorServiceURI("t", "app", "service"));
+        verify(store, times(1)).getSpecs("t", "app");
+        verify(store, times(1)).getSecrets("t", "app");
+        verify(store, times(1)).getExecutorServiceURI("t", "app", "service");
+        verify(store, times(1)).watchApplications(anyString(), any());
+
+        // the application changed
+        watcher.get().onApplicationChanged("t", "app");
+        assertEquals(0, cache.size());
+        Application reloaded = cache.getResolvedApplication("t", "app");
+        assertNotSame(application, reloaded);
+        assertSame(reloaded, cache.getResolvedApplication("t", "app"));
+        verify(store, times(2)).getSpecs("t", "app");
+
+        // a change during the load is not lost
+        when(store.getSpecs("t", "other"))
+                .thenAnswer(
+                        invocation -> {
+                            watcher.get().onApplicationChanged("t", "other");
+                            return specs();
+                        });
+        cache.getResolvedApplication("t", "other");
+        cache.getResolvedApplication("t", "other");
+        verify(store, times(2)).getSpecs("t", "other");
+    }
+
+    @Test
+    void testDeletedApplicationsAreForgotten() {
+        ApplicationStore store = mock(ApplicationStore.class);
+        AtomicReference<ApplicationStore.ApplicationWatcher> watcher = new AtomicReference<>();
+        doAnswer(
+                        invocation -> {
+                            watcher.set(invocation.getArgument(1));
+                            return true;
+                        })
+                .when(store)
+                .watchApplications(anyString(), any());
+        when(store.getSpecs("t", "app")).thenAnswer(invocation -> specs());
+        ApplicationCache cache = new ApplicationCache(store);
+        cache.getResolvedApplication("t", "app");
+        watcher.get().onApplicationChanged("t", "app");
+        assertEquals(1, cache.versionsSize());
+
+        watcher.get().onApplicationDeleted("t", "app");
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.versionsSize());
+
+        // a deletion during the load is not lost
+        when(store.getSpecs("t", "app"))
+                .thenAnswer(
+                        invocation -> {
+                            watcher.get().onApplicationDeleted("t", "app");
+                            return specs();
+                        });
+        cache.getResolvedApplication("t", "app");
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testNoCacheWithoutWatch() {
+        ApplicationStore store = mock(ApplicationStore.class);
+        when(store.getSpecs("t", "app")).thenAnswer(invocation -> specs());
+        ApplicationCache cache = new ApplicationCache(store);
+        cache.getResolvedApplication("t", "app");
+        cache.getResolvedApplication("t", "app");
+        cache.getExecutorServiceURI("t", "app", "service");
+        cache.getExecutorServiceURI("t", "app", "service");
+        verify(store, times(2)).getSpecs("t", "app");
+        verify(store, times(2)).getExecutorServiceURI("t", "app", "service");
+        verify(store, times(1)).watchApplications(anyString(), any());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testRetryFailedWatch() {
+        ApplicationStore store = mock(ApplicationStore.class);
+        when(store.watchApplications(anyString(), any()))
+                .thenThrow(new RuntimeException("cannot list"))
+                .thenReturn(true);
+        when(store.getSpecs("t", "app")).thenAnswer(invocation -> specs());
+        AtomicLong now = new AtomicLong();
+        ApplicationCache cache = new ApplicationCache(store, now::get);
+        cache.getResolvedApplication("t", "app");
+        cache.getResolvedApplication("t", "app");
+        verify(store, times(1)).watchApplications(anyString(), any());
+        assertEquals(0, cache.size());
+
+        now.addAndGet(ApplicationCache.WATCH_RETRY_DELAY.toNanos());
+        Application application = cache.getResolvedApplication("t", "app");
+        assertSame(application, cache.getResolvedApplication("t", "app"));
+        verify(store, times(2)).watchApplications(anyString(), any());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void testCloseStopsTheWatches() {
+        ApplicationStore store = mock(ApplicationStore.class);
+        AtomicReference<ApplicationStore.ApplicationWatcher> watcher = new AtomicReference<>();
+        doAnswer(
+                        invocation -> {
+                            watcher.set(invocation.getArgument(1));
+                            return true;
+                        })
+                .when(store)
+                .watchApplications(anyString(), any());
+        when(store.getSpecs("t", "app")).thenAnswer(invocation -> specs());
+        ApplicationCache cache = new ApplicationCache(store);
+        cache.getResolvedApplication("t", "app");
+        assertEquals(1, cache.size());
+
+        cache.close();
+        verify(store).unwatchApplications("t", watcher.get());
+        assertEquals(0, cache.size());
+        cache.getResolvedApplication("t", "app");
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testNotFound() {
+        ApplicationStore store = mock(ApplicationStore.class);
+        when(store.watchApplications(anyString(), any())).thenReturn(true);
+        ApplicationCache cache = new ApplicationCache(store);
+        assertNull(cache.getResolvedApplication("t", "app"));
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.apigateway.gateways;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ai.langstream.api.gateway.GatewayAuthenticationProvider;
+import ai.langstream.api.gateway.GatewayAuthenticationResult;
+import ai.langstream.api.gateway.GatewayRequestContext;
+import ai.langstream.api.model.Application;
+import ai.langstream.api.model.Gateway;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class GatewayAuthenticationCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private GatewayAuthenticationCache cache() {
+        return new GatewayAuthenticationCache(100, 60_000, 5_000, 1_000, now::get);
+    }
+
+    private class CountingProvider implements GatewayAuthenticationProvider {
+        private volatile CompletableFuture<GatewayAuthenticationResult> pending;
+        private volatile Instant expiresAt;
+
+        @Override
+        public String type() {
+            return "counting";
+        }
+
+        @Override
+        public void initialize(Map<String, Object> configuration) {}
+
+        @Override
+        public GatewayAuthenticationResult authenticate(GatewayRequestContext context) {
+            calls.incrementAndGet();
+            if ("error".equals(context.credentials())) {
+                throw new IllegalStateException("provider error");
+            }
+            if ("good".equals(context.credentials())) {
+                return GatewayAuthenticationResult.authenticationSuccessful(
+                        Map.of("login", "good"), expiresAt);
+            }
+            return GatewayAuthenticationResult.authenticationFailed("Invalid credentials");
+        }
+
+        @Override
+        public CompletableFuture<GatewayAuthenticationResult> authenticateAsync(
+                GatewayRequestContext context) {
+            if (pending != null) {
+                calls.incrementAndGet();
+                return pending;
+            }
+            return GatewayAuthenticationProvider.super.authenticateAsync(context);
+        }
+    }
+
+    @Test
+    void testSuccessIsCachedUntilTtl() {
+        GatewayAuthenticationCache cache = cache();
+        CountingProvider provider = new CountingProvider();
+        for (int i = 0; i < 5; i++) {
+            assertTrue(cache.authenticate(provider, "p", context("t", "good")).authenticated());
+        }
+        assertEquals(1, calls.get());
+
+        // different tenant or credentials are not shared
+        cache.authenticate(provider, "p", context("other", "good"));
+        cache.authenticate(provider, "p", context("t", "bad"));
+        assertEquals(3, calls.get());
+
+        now.addAndGet(60_000);
+        cache.authenticate(provider, "p", context("t", "good"));
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    void testCredentialsExpiration() {
+        GatewayAuthenticationCache cache = cache();
+        CountingProvider provider = new CountingProvider();
+        provider.expiresAt = Instant.ofEpochMilli(now.get() + 1000);
+        cache.authenticate(provider, "p", context("t", "good"));
+        cache.authenticate(provider, "p", context("t", "good"));
+        assertEquals(1, calls.get());
+        now.addAndGet(1000);
+        cache.authenticate(provider, "p", context("t", "good"));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testFailuresAreCachedBriefly() {
+        GatewayAuthenticationCache cache = cache();
+        CountingProvider provider = new CountingProvider();
+        assertFalse(cache.authenticate(provider, "p", context("t", "bad")).authenticated());
+        assertFalse(cache.authenticate(provider, "p", context("t", "bad")).authenticated());
+        assertEquals(1, calls.get());
+        now.addAndGet(5_000);
+        cache.authenticate(provider, "p", context("t", "bad"));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testErrorsAreNotCached() {
+        GatewayAuthenticationCache cache = cache();
+        CountingProvider provider = new CountingProvider();
+        assertThrows(
+                IllegalStateException.class,
+                () -> cache.authenticate(provider, "p", context("t", "error")));
+        assertThrows(
+                IllegalStateException.class,
+                () -> cache.authenticate(provider, "p", context("t", "error")));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testConcurrentAuthenticationsShareTheCall() throws Exception {
+        GatewayAuthenticationCache cache = cache();
+        CountingProvider provider = new CountingProvider();
+        provider.pending = new CompletableFuture<>();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<GatewayAuthenticationResult>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(
+                        executor.submit(
+                                () -> cache.authenticate(provider, "p", context("t", "good"))));
+            }
+            Thread.sleep(100);
+            provider.pending.complete(
+                    GatewayAuthenticationResult.authenticationSuccessful(Map.of()));
+            for (Future<GatewayAuthenticationResult> result : results) {
+                assertTrue(result.get().authenticated());
+            }
+            assertEquals(1, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testPendingCallTimesOut() {
+        GatewayAuthenticationCache cache = cache();
+        CountingProvider provider = new CountingProvider();
+        provider.pending = new CompletableFuture<>();
+        RuntimeException error =
+                assertThrows(
+                        RuntimeException.class,
+                        () -> cache.authenticate(provider, "p", context("t", "good")));
+        assertInstanceOf(TimeoutException.class, error.getCause());
+
+        // the timed out call is not cached
+        provider.pending = null;
+        assertTrue(cache.authenticate(provider, "p", context("t", "good")).authenticated());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testDisabled() {
+        GatewayAuthenticationCache cache = new GatewayAuthenticationCache(0, 0, 0, 1_000, now::get);
+        CountingProvider provider = new CountingProvider();
+        cache.authenticate(provider, "p", context("t", "good"));
+        cache.authenticate(provider, "p", context("t", "good"));
+        assertEquals(2, calls.get());
+    }
+
+    private static GatewayRequestContext context(String tenant, String credentials) {
+        return new GatewayRequestContext() {
+            @Override
+            public String tenant() {
+                return tenant;
+            }
+
+            @Override
+            public String applicationId() {
+                return "app";
+            }
+
+            @Override
+            public Application application() {
+                return null;
+            }
+
+            @Override
+            public Gateway gateway() {
+                return null;
+            }
+
+            @Override
+            public String credentials() {
+                return credentials;
+            }
+
+            @Override
+            public boolean isTestMode() {
+                return false;
+            }
+
+            @Override
+            public Map<String, String> userParameters() {
+                return Map.of();
+            }
+
+            @Override
+            public Map<String, String> options() {
+                return Map.of();
+            }
+
+            @Override
+            public Map<String, String> httpHeaders() {
+                return Map.of();
+            }
+        };
+    }
+}
@@ -28,7 +28,7 @@ public abstract class GenericZipFileArchiveFile implements DownloadedCodeArchive
 
     public static void extractTo(InputStream inputStream, Path directory) throws IOException {
         File destDirectory = directory.toFile();
-        byte[] buffer = new byte[1024];
+        byte[] buffer = new byte[64 * 1024];
         ZipInputStream zis = new ZipInputStream(inputStream);
         ZipEntry zipEntry = zis.getNextEntry();
         while (zipEntry != null) {
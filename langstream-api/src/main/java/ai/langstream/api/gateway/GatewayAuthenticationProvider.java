@@ -16,6 +16,7 @@
 package ai.langstream.api.gateway;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public interface GatewayAuthenticationProvider {
 
@@ -24,4 +25,18 @@ public interface GatewayAuthenticationProvider {
     void initialize(Map<String, Object> configuration);
 
     GatewayAuthenticationResult authenticate(GatewayRequestContext context);
+
+    /**
+     * Authenticates without blocking the caller. Providers that call external services should
+     * override this method, the default implementation runs {@link #authenticate} in the calling
+     * thread.
+     */
+    default CompletableFuture<GatewayAuthenticationResult> authenticateAsync(
+            GatewayRequestContext context) {
+        try {
+            return CompletableFuture.completedFuture(authenticate(context));
+        } catch (Throwable error) {
+            return CompletableFuture.failedFuture(error);
+        }
+    }
 }
@@ -15,12 +15,22 @@
  */
 package ai.langstream.api.gateway;
 
+import java.time.Instant;
 import java.util.Map;
 
 public interface GatewayAuthenticationResult {
 
     static GatewayAuthenticationResult authenticationSuccessful(
             Map<String, String> principalValues) {
+        return authenticationSuccessful(principalValues, null);
+    }
+
+    /**
+     * @param expiresAt when the credentials expire, the authentication result is not reused after
+     *     this time
+     */
+    static GatewayAuthenticationResult authenticationSuccessful(
+            Map<String, String> principalValues, Instant expiresAt) {
         return new GatewayAuthenticationResult() {
             @Override
             public boolean authenticated() {
@@ -36,6 +46,11 @@ public interface GatewayAuthenticationResult {
             public Map<String, String> principalValues() {
                 return principalValues;
             }
+
+            @Override
+            public Instant expiresAt() {
+                return expiresAt;
+            }
         };
     }
 
@@ -63,4 +78,9 @@ public interface GatewayAuthenticationResult {
     String reason();
 
     Map<String, String> principalValues();
+
+    /** When the credentials expire, null if unknown. */
+    default Instant expiresAt() {
+        return null;
+    }
 }
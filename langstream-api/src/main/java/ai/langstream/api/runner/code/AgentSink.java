@@ -16,6 +16,7 @@
 package ai.langstream.api.runner.code;
 
 import ai.langstream.api.runtime.ComponentType;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 /** Body of the agent */
@@ -30,6 +31,24 @@ public interface AgentSink extends AgentCode {
      */
     CompletableFuture<?> write(Record record);
 
+    /**
+     * Writes the records produced from the same source record. The default implementation writes
+     * them one at a time, a sink can override it to write them with a single request.
+     *
+     * <p>If the returned future fails the runner writes the records again one at a time, so some of
+     * them may be written twice.
+     *
+     * @param records the records to write, in order
+     * @return an handle to the asynchronous write, completed when all the records are written
+     */
+    default CompletableFuture<?> writeBatch(List<Record> records) {
+        CompletableFuture<?>[] handles = new CompletableFuture<?>[records.size()];
+        for (int i = 0; i < handles.length; i++) {
+            handles[i] = write(records.get(i));
+        }
+        return CompletableFuture.allOf(handles);
+    }
+
     @Override
     default ComponentType componentType() {
         return ComponentType.SINK;
@@ -0,0 +1,58 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.api.runner.code;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Value of a {@link Record} whose content is not loaded in memory, like a big file read by a
+ * source. The content is accessed with {@link #openStream()}, that can be called more than once.
+ *
+ * <p>Agents that are able to process the content incrementally should read it from the stream, the
+ * other agents can load it with {@link #toByteArray()}. The value must be loaded in memory before
+ * writing the record to a topic or sending it to a gRPC agent: the streaming only saves memory for
+ * the agents that read the content incrementally.
+ */
+public interface BlobValue {
+
+    /**
+     * Open a new stream over the content. The caller must close the stream.
+     *
+     * @return the stream
+     * @throws IOException if the content cannot be read
+     */
+    InputStream openStream() throws IOException;
+
+    /**
+     * The size of the content.
+     *
+     * @return the size in bytes or -1 if unknown
+     */
+    long size();
+
+    /**
+     * Load the whole content in memory.
+     *
+     * @return the content
+     * @throws IOException if the content cannot be read
+     */
+    default byte[] toByteArray() throws IOException {
+        try (InputStream stream = openStream()) {
+            return stream.readAllBytes();
+        }
+    }
+}
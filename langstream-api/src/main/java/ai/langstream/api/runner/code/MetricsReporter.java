@@ -29,6 +29,29 @@ public interface MetricsReporter {
 
     Counter counter(String name, String help);
 
+    /**
+     * Create a histogram, to track the distribution of values like latencies (in milliseconds) or
+     * batch sizes.
+     *
+     * @param name the name of the metric
+     * @param help the description of the metric
+     * @return the histogram
+     */
+    default Histogram histogram(String name, String help) {
+        return Histogram.NOOP;
+    }
+
+    /**
+     * Create a gauge, to track a value that can go up and down, like the number of pending records.
+     *
+     * @param name the name of the metric
+     * @param help the description of the metric
+     * @return the gauge
+     */
+    default Gauge gauge(String name, String help) {
+        return Gauge.NOOP;
+    }
+
     default MetricsReporter withPodName(String podName) {
         return this;
     }
@@ -41,4 +64,38 @@ public interface MetricsReporter {
 
         long value();
     }
+
+    interface Histogram {
+
+        Histogram NOOP = value -> {};
+
+        void observe(double value);
+
+        /**
+         * Record the time elapsed since the given instant, in milliseconds.
+         *
+         * @param startNanos the start instant, as returned by {@link System#nanoTime()}
+         */
+        default void observeMillisSince(long startNanos) {
+            observe((System.nanoTime() - startNanos) / 1_000_000.0);
+        }
+    }
+
+    interface Gauge {
+
+        Gauge NOOP =
+                new Gauge() {
+                    @Override
+                    public void set(double value) {}
+
+                    @Override
+                    public double value() {
+                        return 0;
+                    }
+                };
+
+        void set(double value);
+
+        double value();
+    }
 }
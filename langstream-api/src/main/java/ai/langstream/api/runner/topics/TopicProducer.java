@@ -16,6 +16,7 @@
 package ai.langstream.api.runner.topics;
 
 import ai.langstream.api.runner.code.Record;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
@@ -29,6 +30,19 @@ public interface TopicProducer extends AutoCloseable {
         return CompletableFuture.completedFuture(null);
     }
 
+    /**
+     * Writes the records in order. The returned future completes when all the records are written,
+     * or exceptionally with the first error. Some of the records may have been written even if the
+     * future fails.
+     */
+    default CompletableFuture<?> writeBatch(List<Record> records) {
+        CompletableFuture<?>[] handles = new CompletableFuture<?>[records.size()];
+        for (int i = 0; i < handles.length; i++) {
+            handles[i] = write(records.get(i));
+        }
+        return CompletableFuture.allOf(handles);
+    }
+
     default Object getNativeProducer() {
         return null;
     }
@@ -57,6 +57,37 @@ public interface ApplicationStore extends GenericStore {
 
     String getExecutorServiceURI(String tenant, String applicationId, String executorId);
 
+    @FunctionalInterface
+    interface ApplicationWatcher {
+        /**
+         * Called when an application of the tenant, or its secrets, are created/updated/deleted.
+         */
+        void onApplicationChanged(String tenant, String applicationId);
+
+        /** Called when an application of the tenant is deleted. */
+        default void onApplicationDeleted(String tenant, String applicationId) {
+            onApplicationChanged(tenant, applicationId);
+        }
+    }
+
+    /**
+     * Watches the applications of the tenant, so that the caller can cache them and invalidate them
+     * only when they change.
+     *
+     * @return false if the store doesn't support watching the applications, in this case the
+     *     watcher is never called
+     */
+    default boolean watchApplications(String tenant, ApplicationWatcher watcher) {
+        return false;
+    }
+
+    /**
+     * Stops calling the watcher registered with {@link #watchApplications(String,
+     * ApplicationWatcher)}. The store releases the resources of the watch when the tenant has no
+     * more watchers.
+     */
+    default void unwatchApplications(String tenant, ApplicationWatcher watcher) {}
+
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
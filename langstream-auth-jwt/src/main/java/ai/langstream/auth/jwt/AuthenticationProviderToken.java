@@ -35,6 +35,8 @@ import java.security.Key;
 import java.security.KeyFactory;
 import java.security.PublicKey;
 import java.security.spec.X509EncodedKeySpec;
+import java.time.Instant;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import javax.crypto.SecretKey;
@@ -91,13 +93,25 @@ public class AuthenticationProviderToken {
         this.k8sNamespacePrefix = tokenProperties.kubernetesNamespacePrefix();
     }
 
+    /**
+     * @param expiresAt the expiration of the token, null if the token doesn't expire
+     */
+    public record AuthenticatedPrincipal(String principal, Instant expiresAt) {}
+
     public String authenticate(String token) throws AuthenticationException {
+        return authenticatePrincipal(token).principal();
+    }
+
+    public AuthenticatedPrincipal authenticatePrincipal(String token)
+            throws AuthenticationException {
         final Jwt<?, Claims> jwt = authenticateToken(token);
         final String principal = getPrincipal(jwt);
         if (principal == null) {
             throw new AuthenticationException("Token was valid, however no principal found.");
         }
-        return principal;
+        final Date expiration = jwt.getBody().getExpiration();
+        return new AuthenticatedPrincipal(
+                principal, expiration == null ? null : expiration.toInstant());
     }
 
     private Jwt<?, Claims> authenticateToken(final String token) throws AuthenticationException {
@@ -111,6 +111,42 @@ public class AITextCompletionsConfiguration extends BaseGenAIStepConfiguration {
     @JsonProperty(value = "min-chunks-per-message")
     private int minChunksPerMessage = 20;
 
+    @ConfigProperty(
+            description =
+                    """
+                            Send the chunks to the stream-to-topic topic as soon as they contain this number of characters, even if min-chunks-per-message is not reached. 0 means no limit.
+                            """,
+            defaultValue = "0")
+    @JsonProperty(value = "max-chunk-size")
+    private int maxChunkSize;
+
+    @ConfigProperty(
+            description =
+                    """
+                            Send the chunks to the stream-to-topic topic when the oldest one waited for this number of milliseconds, even if min-chunks-per-message is not reached. The delay is checked when the next chunk arrives. 0 means no limit.
+                            """,
+            defaultValue = "0")
+    @JsonProperty(value = "max-chunk-delay-ms")
+    private long maxChunkDelayMs;
+
+    @ConfigProperty(
+            description =
+                    """
+                            Share a single call to the AI Service between the concurrent identical requests (same prompt and options).
+                            """,
+            defaultValue = "false")
+    @JsonProperty(value = "coalesce-requests")
+    private boolean coalesceRequests;
+
+    @ConfigProperty(
+            description =
+                    """
+                            Cache the responses of the requests with temperature 0 for this number of milliseconds. Requires coalesce-requests. 0 means no cache.
+                            """,
+            defaultValue = "0")
+    @JsonProperty(value = "response-cache-ttl-ms")
+    private long responseCacheTtlMs;
+
     @ConfigProperty(
             description =
                     """
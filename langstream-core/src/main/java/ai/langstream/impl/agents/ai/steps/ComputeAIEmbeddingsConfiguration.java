@@ -151,4 +151,51 @@ public class ComputeAIEmbeddingsConfiguration extends BaseGenAIStepConfiguration
                              """)
     @JsonProperty("model-url")
     private String modelUrl;
+
+    @ConfigProperty(
+            description =
+                    """
+                            Max number of texts computed together by a local model. (HuggingFace only)
+                            The texts of concurrent requests are batched together. If 0, the texts are computed one at a time.
+                            """,
+            defaultValue = "0")
+    @JsonProperty("inference-batch-size")
+    private int inferenceBatchSize;
+
+    @ConfigProperty(
+            description =
+                    """
+                            Max time to wait for more texts before computing a batch with a local model. (HuggingFace only)
+                            """,
+            defaultValue = "5")
+    @JsonProperty("inference-batch-latency-ms")
+    private int inferenceBatchLatencyMs = 5;
+
+    @ConfigProperty(
+            description =
+                    """
+                            Number of threads computing the batches with a local model. The threads share the model, every thread has its own predictor. (HuggingFace only)
+                            An inference already uses all the available processors, more threads help only when the batches are small.
+                            """,
+            defaultValue = "1")
+    @JsonProperty("inference-threads")
+    private int inferenceThreads = 1;
+
+    @ConfigProperty(
+            description =
+                    """
+                            Share a single call to the AI Service between the concurrent identical texts.
+                            """,
+            defaultValue = "false")
+    @JsonProperty(value = "coalesce-requests")
+    private boolean coalesceRequests;
+
+    @ConfigProperty(
+            description =
+                    """
+                            Cache the responses of the texts for this number of milliseconds. Requires coalesce-requests. 0 means no cache.
+                            """,
+            defaultValue = "0")
+    @JsonProperty(value = "response-cache-ttl-ms")
+    private long responseCacheTtlMs;
 }
@@ -20,26 +20,60 @@ import ai.langstream.api.codestorage.LocalZipFileArchiveFile;
 import ai.langstream.api.runner.assets.AssetManagerRegistry;
 import ai.langstream.api.runner.code.AgentCodeRegistry;
 import ai.langstream.api.runner.topics.TopicConnectionsRuntimeRegistry;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringReader;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
 import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import lombok.Data;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Discovers the NAR packages and creates the classloaders of the agents.
+ *
+ * <p>The NAR files are scanned in parallel, only their indexes are read. A package is unpacked the
+ * first time a classloader is needed for it.
+ *
+ * <p>With the "langstream.nar.cacheDirectory" system property the indexes and the unpacked packages
+ * are kept in the given directory, which may be a volume that survives the restarts of the pod. The
+ * entries are keyed by a fingerprint of the file name, size and last modified time of the NAR, so a
+ * new version of a package is unpacked again. The directory can be shared by several processes.
+ * After a scan the entries of the packages that are no longer in the packages directory are deleted
+ * if they have not been used for {@link #STALE_CACHE_ENTRY_AGE}, so an entry used by another
+ * process, or a package that another process is still unpacking, is never deleted.
+ */
 @Slf4j
 public class NarFileHandler
         implements AutoCloseable,
@@ -50,12 +84,27 @@ public class NarFileHandler
     private static final boolean CLOSE_CLASSLOADERS =
             Boolean.parseBoolean(System.getProperty("langstream.nar.closeClassloaders", "true"));
 
+    private static final String CACHE_DIRECTORY =
+            System.getProperty("langstream.nar.cacheDirectory");
+
+    private static final int SCAN_THREADS =
+            Integer.getInteger(
+                    "langstream.nar.scanThreads", Runtime.getRuntime().availableProcessors());
+
+    static final String INDEX_CACHE_FILE = "nar-index.json";
+
+    static final Duration STALE_CACHE_ENTRY_AGE = Duration.ofHours(24);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     static {
         log.info("langstream.nar.closeClassloaders = {}", CLOSE_CLASSLOADERS);
+        log.info("langstream.nar.cacheDirectory = {}", CACHE_DIRECTORY);
     }
 
     private final Path packagesDirectory;
     private final Path temporaryDirectory;
+    private final Path cacheDirectory;
 
     private final List<URL> customLibClasspath;
     private final ClassLoader parentClassloader;
@@ -66,10 +115,29 @@ public class NarFileHandler
     public NarFileHandler(
             Path packagesDirectory, List<URL> customLibClasspath, ClassLoader parentClassloader)
             throws Exception {
+        this(
+                packagesDirectory,
+                customLibClasspath,
+                parentClassloader,
+                CACHE_DIRECTORY != null && !CACHE_DIRECTORY.isBlank()
+                        ? Path.of(CACHE_DIRECTORY)
+                        : null);
+    }
+
+    public NarFileHandler(
+            Path packagesDirectory,
+            List<URL> customLibClasspath,
+            ClassLoader parentClassloader,
+            Path cacheDirectory)
+            throws Exception {
         this.packagesDirectory = packagesDirectory;
         this.temporaryDirectory = Files.createTempDirectory("nar");
         this.customLibClasspath = customLibClasspath;
         this.parentClassloader = parentClassloader;
+        this.cacheDirectory = cacheDirectory;
+        if (cacheDirectory != null) {
+            Files.createDirectories(cacheDirectory);
+        }
     }
 
     private static void deleteDirectory(Path dir) throws Exception {
@@ -175,10 +243,37 @@ public class NarFileHandler
             if (directory != null) {
                 return;
             }
-            Path dest = temporaryDirectory.resolve(nar.getFileName().toString() + ".dir");
+            if (cacheDirectory == null) {
+                Path dest = temporaryDirectory.resolve(nar.getFileName().toString() + ".dir");
+                log.info("Unpacking NAR file {} to {}", nar, dest);
+                GenericZipFileArchiveFile file = new LocalZipFileArchiveFile(nar);
+                file.extractTo(dest);
+                directory = dest;
+                return;
+            }
+            String fingerprint = fingerprint(nar);
+            Path dest = cacheDirectory.resolve(fingerprint + ".dir");
+            if (Files.isDirectory(dest)) {
+                log.info("Using the unpacked NAR file {} from the cache {}", nar, dest);
+                touch(dest);
+                directory = dest;
+                return;
+            }
+            // the package is unpacked in a temporary directory and then renamed, so a directory
+            // in the cache is always complete, even if the pod is killed while unpacking
+            Path tmp = Files.createTempDirectory(cacheDirectory, fingerprint + ".tmp");
             log.info("Unpacking NAR file {} to {}", nar, dest);
-            GenericZipFileArchiveFile file = new LocalZipFileArchiveFile(nar);
-            file.extractTo(dest);
+            try {
+                GenericZipFileArchiveFile file = new LocalZipFileArchiveFile(nar);
+                file.extractTo(tmp);
+                Files.move(tmp, dest, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException | DirectoryNotEmptyException err) {
+                log.info("The NAR file {} has been unpacked by another process", nar);
+                deleteDirectory(tmp);
+            } catch (Exception err) {
+                deleteDirectory(tmp);
+                throw err;
+            }
             directory = dest;
         }
 
@@ -197,19 +292,71 @@ public class NarFileHandler
         }
     }
 
+    /** The indexes of a NAR file. */
+    record NarIndex(
+            List<String> agents,
+            List<String> assetTypes,
+            List<String> streamingClusterTypes,
+            boolean serviceProviders) {}
+
     public synchronized void scan() throws Exception {
-        try (DirectoryStream<Path> all = Files.newDirectoryStream(packagesDirectory, "*.nar")) {
-            for (Path narFile : all) {
-                handleNarFile(narFile);
+        long start = System.nanoTime();
+        try {
+            List<Path> narFiles = new ArrayList<>();
+            try (DirectoryStream<Path> all = Files.newDirectoryStream(packagesDirectory, "*.nar")) {
+                for (Path narFile : all) {
+                    narFiles.add(narFile);
+                }
+            }
+            Map<String, NarIndex> indexCache = loadIndexCache();
+            Map<String, NarIndex> newIndexCache = new ConcurrentHashMap<>();
+            List<Callable<NarIndex>> tasks = new ArrayList<>();
+            for (Path narFile : narFiles) {
+                tasks.add(() -> getIndex(narFile, indexCache, newIndexCache));
             }
+            List<NarIndex> indexes = runInParallel(tasks);
+            for (int i = 0; i < narFiles.size(); i++) {
+                registerPackage(narFiles.get(i), indexes.get(i));
+            }
+            if (cacheDirectory != null) {
+                if (!newIndexCache.equals(indexCache)) {
+                    saveIndexCache(newIndexCache);
+                }
+                deleteStaleCacheEntries(newIndexCache.keySet());
+            }
+            log.info(
+                    "Scanned {} NAR files in {} ms",
+                    narFiles.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
         } catch (Exception err) {
             log.error("Failed to scan packages directory", err);
             throw err;
         }
     }
 
+    private NarIndex getIndex(
+            Path narFile, Map<String, NarIndex> indexCache, Map<String, NarIndex> newIndexCache)
+            throws Exception {
+        if (cacheDirectory == null) {
+            return readIndex(narFile);
+        }
+        String fingerprint = fingerprint(narFile);
+        NarIndex index = indexCache.get(fingerprint);
+        if (index == null) {
+            index = readIndex(narFile);
+        } else {
+            log.debug("Using the cached index of {}", narFile);
+        }
+        newIndexCache.put(fingerprint, index);
+        return index;
+    }
+
     public void handleNarFile(Path narFile) throws Exception {
-        String filename = narFile.getFileName().toString();
+        checkNotProcessed(narFile.getFileName().toString());
+        registerPackage(narFile, readIndex(narFile));
+    }
+
+    private void checkNotProcessed(String filename) {
         if (packages.containsKey(filename)) {
             log.error(
                     "NarFileHandler ID: {} The package {} has already been processed",
@@ -222,66 +369,63 @@ public class NarFileHandler
             throw new IllegalStateException(
                     "The package " + filename + " has already been processed");
         }
+    }
+
+    private void registerPackage(Path narFile, NarIndex index) {
+        String filename = narFile.getFileName().toString();
+        checkNotProcessed(filename);
+        if (!index.agents().isEmpty()
+                || !index.assetTypes().isEmpty()
+                || !index.streamingClusterTypes().isEmpty()) {
+            PackageMetadata metadata =
+                    new PackageMetadata(
+                            narFile,
+                            filename,
+                            Set.copyOf(index.agents()),
+                            Set.copyOf(index.assetTypes()),
+                            Set.copyOf(index.streamingClusterTypes()));
+            packages.put(filename, metadata);
+            return;
+        }
+        if (!index.serviceProviders()) {
+            log.debug(
+                    "The file {} does not contain any AgentCodeProvider/AssetManagerProvider/TopicConnectionProvider, skipping the file",
+                    narFile);
+            return;
+        }
+        log.debug("The file {} does not contain any indexes, still adding the file", narFile);
+        PackageMetadata metadata = new PackageMetadata(narFile, filename, null, null, null);
+        packages.put(filename, metadata);
+    }
 
+    static NarIndex readIndex(Path narFile) throws Exception {
         // first of all we look for an index file
         try (ZipFile zipFile = new ZipFile(narFile.toFile())) {
 
-            List<String> agents = List.of();
-            List<String> assetTypes = List.of();
-            List<String> streamingClusterTypes = List.of();
-
-            ZipEntry entryAgentsIndex = zipFile.getEntry("META-INF/ai.langstream.agents.index");
-            if (entryAgentsIndex != null) {
-                InputStream inputStream = zipFile.getInputStream(entryAgentsIndex);
-                byte[] bytes = inputStream.readAllBytes();
-                String string = new String(bytes, StandardCharsets.UTF_8);
-                BufferedReader reader = new BufferedReader(new StringReader(string));
-                agents = reader.lines().filter(s -> !s.isBlank() && !s.startsWith("#")).toList();
+            List<String> agents = readIndexEntry(zipFile, "META-INF/ai.langstream.agents.index");
+            if (!agents.isEmpty()) {
                 log.debug(
                         "The file {} contains a static agents index, skipping the unpacking. It is expected that handles these agents: {}",
                         narFile,
                         agents);
             }
 
-            ZipEntry entryAssetsIndex = zipFile.getEntry("META-INF/ai.langstream.assets.index");
-            if (entryAssetsIndex != null) {
-                InputStream inputStream = zipFile.getInputStream(entryAssetsIndex);
-                byte[] bytes = inputStream.readAllBytes();
-                String string = new String(bytes, StandardCharsets.UTF_8);
-                BufferedReader reader = new BufferedReader(new StringReader(string));
-                assetTypes =
-                        reader.lines().filter(s -> !s.isBlank() && !s.startsWith("#")).toList();
+            List<String> assetTypes =
+                    readIndexEntry(zipFile, "META-INF/ai.langstream.assets.index");
+            if (!assetTypes.isEmpty()) {
                 log.debug(
                         "The file {} contains a static assetTypes index, skipping the unpacking. It is expected that handles these assetTypes: {}",
                         narFile,
                         assetTypes);
             }
 
-            ZipEntry streamingClustersIndex =
-                    zipFile.getEntry("META-INF/ai.langstream.streamingClusters.index");
-            if (streamingClustersIndex != null) {
-                InputStream inputStream = zipFile.getInputStream(streamingClustersIndex);
-                byte[] bytes = inputStream.readAllBytes();
-                String string = new String(bytes, StandardCharsets.UTF_8);
-                BufferedReader reader = new BufferedReader(new StringReader(string));
-                streamingClusterTypes =
-                        reader.lines().filter(s -> !s.isBlank() && !s.startsWith("#")).toList();
+            List<String> streamingClusterTypes =
+                    readIndexEntry(zipFile, "META-INF/ai.langstream.streamingClusters.index");
+            if (!streamingClusterTypes.isEmpty()) {
                 log.debug(
                         "The file {} contains a static streamingClusters index, skipping the unpacking. It is expected that handles these streamingClusters: {}",
                         narFile,
-                        assetTypes);
-            }
-
-            if (!agents.isEmpty() || !assetTypes.isEmpty() || !streamingClusterTypes.isEmpty()) {
-                PackageMetadata metadata =
-                        new PackageMetadata(
-                                narFile,
-                                filename,
-                                Set.copyOf(agents),
-                                Set.copyOf(assetTypes),
-                                Set.copyOf(streamingClusterTypes));
-                packages.put(filename, metadata);
-                return;
+                        streamingClusterTypes);
             }
 
             ZipEntry serviceProviderForAgents =
@@ -293,19 +437,141 @@ public class NarFileHandler
             ZipEntry serviceProviderForStreamingClusters =
                     zipFile.getEntry(
                             "META-INF/services/ai.langstream.api.runner.topics.TopicConnectionProvider");
-            if (serviceProviderForAgents == null
-                    && serviceProviderForAssets == null
-                    && serviceProviderForStreamingClusters == null) {
-                log.debug(
-                        "The file {} does not contain any AgentCodeProvider/AssetManagerProvider/TopicConnectionProvider, skipping the file",
-                        narFile);
-                return;
+            return new NarIndex(
+                    agents,
+                    assetTypes,
+                    streamingClusterTypes,
+                    serviceProviderForAgents != null
+                            || serviceProviderForAssets != null
+                            || serviceProviderForStreamingClusters != null);
+        }
+    }
+
+    private static List<String> readIndexEntry(ZipFile zipFile, String name) throws IOException {
+        ZipEntry entry = zipFile.getEntry(name);
+        if (entry == null) {
+            return List.of();
+        }
+        try (InputStream inputStream = zipFile.getInputStream(entry)) {
+            byte[] bytes = inputStream.readAllBytes();
+            String string = new String(bytes, StandardCharsets.UTF_8);
+            BufferedReader reader = new BufferedReader(new StringReader(string));
+            return reader.lines().filter(s -> !s.isBlank() && !s.startsWith("#")).toList();
+        }
+    }
+
+    /** Identifies a version of a NAR file without reading it. */
+    @SneakyThrows
+    static String fingerprint(Path narFile) {
+        BasicFileAttributes attributes = Files.readAttributes(narFile, BasicFileAttributes.class);
+        String key =
+                narFile.getFileName()
+                        + ":"
+                        + attributes.size()
+                        + ":"
+                        + attributes.lastModifiedTime().toMillis();
+        byte[] digest =
+                MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+        return narFile.getFileName() + "-" + HexFormat.of().formatHex(digest, 0, 8);
+    }
+
+    private Map<String, NarIndex> loadIndexCache() {
+        if (cacheDirectory == null) {
+            return Map.of();
+        }
+        Path file = cacheDirectory.resolve(INDEX_CACHE_FILE);
+        if (!Files.isRegularFile(file)) {
+            return Map.of();
+        }
+        try {
+            return MAPPER.readValue(file.toFile(), new TypeReference<Map<String, NarIndex>>() {});
+        } catch (IOException err) {
+            log.warn("Cannot read the NAR index cache {}, ignoring it", file, err);
+            return Map.of();
+        }
+    }
+
+    private void saveIndexCache(Map<String, NarIndex> indexes) {
+        Path file = cacheDirectory.resolve(INDEX_CACHE_FILE);
+        try {
+            Path tmp = Files.createTempFile(cacheDirectory, INDEX_CACHE_FILE, ".tmp");
+            MAPPER.writeValue(tmp.toFile(), new TreeMap<>(indexes));
+            Files.move(
+                    tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException err) {
+            log.warn("Cannot write the NAR index cache {}", file, err);
+        }
+    }
+
+    /** Marks the entry as used, so that it is not deleted by the other processes. */
+    private static void touch(Path entry) {
+        try {
+            Files.setLastModifiedTime(entry, FileTime.from(Instant.now()));
+        } catch (IOException err) {
+            log.warn("Cannot update the last modified time of {}", entry, err);
+        }
+    }
+
+    /**
+     * Deletes the unpacked packages, complete or not, of the NAR files that are gone and that have
+     * not been used recently.
+     */
+    private void deleteStaleCacheEntries(Set<String> fingerprints) {
+        Instant deleteBefore = Instant.now().minus(STALE_CACHE_ENTRY_AGE);
+        try (DirectoryStream<Path> all = Files.newDirectoryStream(cacheDirectory)) {
+            for (Path entry : all) {
+                String name = entry.getFileName().toString();
+                String fingerprint;
+                if (name.endsWith(".dir")) {
+                    fingerprint = name.substring(0, name.length() - ".dir".length());
+                } else if (name.contains(".tmp") && Files.isDirectory(entry)) {
+                    fingerprint = name.substring(0, name.lastIndexOf(".tmp"));
+                } else {
+                    continue;
+                }
+                if (fingerprints.contains(fingerprint)
+                        || Files.getLastModifiedTime(entry).toInstant().isAfter(deleteBefore)) {
+                    continue;
+                }
+                log.info("Deleting {} from the NAR cache, the package is gone", entry);
+                try {
+                    deleteDirectory(entry);
+                } catch (Exception err) {
+                    log.warn("Cannot delete {} from the NAR cache", entry, err);
+                }
             }
+        } catch (IOException err) {
+            log.warn("Cannot clean the NAR cache {}", cacheDirectory, err);
         }
+    }
 
-        log.debug("The file {} does not contain any indexes, still adding the file", narFile);
-        PackageMetadata metadata = new PackageMetadata(narFile, filename, null, null, null);
-        packages.put(filename, metadata);
+    private static <T> List<T> runInParallel(List<Callable<T>> tasks) throws Exception {
+        if (tasks.size() <= 1 || SCAN_THREADS <= 1) {
+            List<T> results = new ArrayList<>(tasks.size());
+            for (Callable<T> task : tasks) {
+                results.add(task.call());
+            }
+            return results;
+        }
+        ExecutorService executor =
+                Executors.newFixedThreadPool(Math.min(SCAN_THREADS, tasks.size()));
+        try {
+            List<Future<T>> futures = executor.invokeAll(tasks);
+            List<T> results = new ArrayList<>(tasks.size());
+            for (Future<T> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException err) {
+                    if (err.getCause() instanceof Exception cause) {
+                        throw cause;
+                    }
+                    throw err;
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
     @Override
@@ -418,6 +684,16 @@ public class NarFileHandler
             return classloaders;
         }
 
+        // unpacking is the slow part, the packages are unpacked in parallel
+        List<Callable<Void>> unpackTasks = new ArrayList<>();
+        for (PackageMetadata metadata : packages.values()) {
+            unpackTasks.add(
+                    () -> {
+                        metadata.unpack();
+                        return null;
+                    });
+        }
+        runInParallel(unpackTasks);
         classloaders = new ArrayList<>();
         for (PackageMetadata metadata : packages.values()) {
             URLClassLoader result =
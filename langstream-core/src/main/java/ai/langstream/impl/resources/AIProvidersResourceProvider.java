@@ -117,9 +117,39 @@ public class AIProvidersResourceProvider extends AbstractResourceProvider {
         }
     }
 
+    @Data
+    public static class BaseAIProviderConfig {
+        @ConfigProperty(
+                description =
+                        """
+                            Max number of concurrent requests to the service, shared by all the agents of the pod that use this resource. The requests over the limit wait for a running request to complete.
+                        """,
+                defaultValue = "64")
+        @JsonProperty("max-concurrent-requests")
+        private int maxConcurrentRequests = 64;
+
+        @ConfigProperty(
+                description =
+                        """
+                            Max number of requests per minute sent to the service, shared by all the agents of the pod that use this resource. The requests are paced to stay under the limit. 0 means no limit.
+                        """,
+                defaultValue = "0")
+        @JsonProperty("requests-per-minute")
+        private double requestsPerMinute;
+
+        @ConfigProperty(
+                description =
+                        """
+                            Max number of tokens per minute sent to the service, shared by all the agents of the pod that use this resource. The tokens of every request are estimated from the text and from the 'max-tokens' of the completions. 0 means no limit.
+                        """,
+                defaultValue = "0")
+        @JsonProperty("tokens-per-minute")
+        private double tokensPerMinute;
+    }
+
     @Data
     @ResourceConfig(name = "Open AI", description = "Connect to OpenAI API or Azure OpenAI API.")
-    public static class OpenAIConfig {
+    public static class OpenAIConfig extends BaseAIProviderConfig {
 
         public enum Provider {
             openai,
@@ -153,7 +183,7 @@ public class AIProvidersResourceProvider extends AbstractResourceProvider {
 
     @Data
     @ResourceConfig(name = "Vertex AI", description = "Connect to VertexAI API.")
-    public static class VertexAIConfig {
+    public static class VertexAIConfig extends BaseAIProviderConfig {
 
         @ConfigProperty(
                 description =
@@ -196,7 +226,7 @@ public class AIProvidersResourceProvider extends AbstractResourceProvider {
 
     @Data
     @ResourceConfig(name = "Hugging Face", description = "Connect to Hugging Face service.")
-    public static class HuggingFaceConfig {
+    public static class HuggingFaceConfig extends BaseAIProviderConfig {
 
         public enum Provider {
             local,
@@ -240,7 +270,7 @@ public class AIProvidersResourceProvider extends AbstractResourceProvider {
 
     @Data
     @ResourceConfig(name = "Ollama", description = "Connect to Ollama API.")
-    public static class OllamaConfig {
+    public static class OllamaConfig extends BaseAIProviderConfig {
 
         @ConfigProperty(
                 description =
@@ -253,8 +283,11 @@ public class AIProvidersResourceProvider extends AbstractResourceProvider {
     }
 
     @Data
-    @ResourceConfig(name = "AWS Bedrock", description = "Connect to AWS Bedrock API.")
-    public static class BedrockConfig {
+    @ResourceConfig(
+            name = "AWS Bedrock",
+            description =
+                    "Connect to AWS Bedrock API. The AWS client blocks a thread for every running request, so 'max-concurrent-requests' is also the max number of threads used for Bedrock by the agents of the pod.")
+    public static class BedrockConfig extends BaseAIProviderConfig {
 
         @ConfigProperty(
                 description =
@@ -0,0 +1,244 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.impl.nar;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@Slf4j
+class NarFileHandlerTest {
+
+    @TempDir Path packages;
+
+    @TempDir Path cache;
+
+    private static void writeNar(Path file, Map<String, byte[]> entries) throws Exception {
+        try (OutputStream out = Files.newOutputStream(file);
+                ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue());
+                zip.closeEntry();
+            }
+        }
+    }
+
+    private void writeAgentsNar(String name, String agents, int payloadSize) throws Exception {
+        byte[] payload = new byte[payloadSize];
+        new Random(name.hashCode()).nextBytes(payload);
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("META-INF/ai.langstream.agents.index", agents.getBytes(StandardCharsets.UTF_8));
+        entries.put("META-INF/bundled-dependencies/dependency.jar", payload);
+        writeNar(packages.resolve(name), entries);
+    }
+
+    private NarFileHandler newHandler(Path cacheDirectory) throws Exception {
+        return new NarFileHandler(
+                packages, List.of(), NarFileHandlerTest.class.getClassLoader(), cacheDirectory);
+    }
+
+    @Test
+    void testScan() throws Exception {
+        writeAgentsNar("agents.nar", "# comment\nagent-a\nagent-b\n", 10);
+        writeNar(
+                packages.resolve("providers.nar"),
+                Map.of(
+                        "META-INF/services/ai.langstream.api.runner.code.AgentCodeProvider",
+                        "Provider".getBytes(StandardCharsets.UTF_8)));
+        writeNar(
+                packages.resolve("empty.nar"),
+                Map.of("README", "nothing".getBytes(StandardCharsets.UTF_8)));
+        Files.writeString(packages.resolve("other.txt"), "not a nar");
+
+        try (NarFileHandler handler = newHandler(null)) {
+            handler.scan();
+            assertEquals(
+                    Set.of("agent-a", "agent-b"),
+                    handler.getPackageForAgentType("agent-b").getAgentTypes());
+            assertNull(handler.getPackageForAgentType("agent-c"));
+            assertEquals(2, handler.getAllClassloaders().size());
+
+            assertThrows(
+                    IllegalStateException.class,
+                    () -> handler.handleNarFile(packages.resolve("agents.nar")));
+        }
+    }
+
+    @Test
+    void testIndexCache() throws Exception {
+        writeAgentsNar("agents.nar", "agent-a", 10);
+        try (NarFileHandler handler = newHandler(cache)) {
+            handler.scan();
+        }
+        Path indexFile = cache.resolve(NarFileHandler.INDEX_CACHE_FILE);
+        String fingerprint = NarFileHandler.fingerprint(packages.resolve("agents.nar"));
+        assertTrue(Files.readString(indexFile).contains(fingerprint));
+
+        // the second scan doesn't open the NAR file
+        Files.writeString(indexFile, Files.readString(indexFile).replace("agent-a", "agent-x"));
+        try (NarFileHandler handler = newHandler(cache)) {
+            handler.scan();
+            assertNotNull(handler.getPackageForAgentType("agent-x"));
+        }
+
+        // a new version of the package is scanned again
+        writeAgentsNar("agents.nar", "agent-a\nagent-new", 10);
+        try (NarFileHandler handler = newHandler(cache)) {
+            handler.scan();
+            assertNotNull(handler.getPackageForAgentType("agent-new"));
+        }
+        assertFalse(Files.readString(indexFile).contains(fingerprint));
+    }
+
+    @Test
+    void testCorruptedIndexCache() throws Exception {
+        writeAgentsNar("agents.nar", "agent-a", 10);
+        Files.writeString(cache.resolve(NarFileHandler.INDEX_CACHE_FILE), "{ not json");
+        try (NarFileHandler handler = newHandler(cache)) {
+            handler.scan();
+            assertNotNull(handler.getPackageForAgentType("agent-a"));
+        }
+    }
+
+    @Test
+    void testExtractionCache() throws Exception {
+        writeAgentsNar("agents.nar", "agent-a", 1000);
+        Path directory;
+        try (NarFileHandler handler = newHandler(cache)) {
+            handler.scan();
+            assertNotNull(handler.loadPackageForAgent("agent-a"));
+            directory = handler.getPackageForAgentType("agent-a").getDirectory();
+        }
+        // the cache survives the handler
+        assertTrue(directory.startsWith(cache));
+        assertTrue(
+                Files.isRegularFile(
+                        directory.resolve("META-INF/bundled-dependencies/dependency.jar")));
+
+        Path marker = Files.writeString(directory.resolve("marker"), "unpacked before");
+        try (NarFileHandler handler = newHandler(cache)) {
+            handler.scan();
+            handler.loadPackageForAgent("agent-a");
+            assertEquals(directory, handler.getPackageForAgentType("agent-a").getDirectory());
+            assertTrue(Files.exists(marker));
+        }
+    }
+
+    @Test
+    void testStaleCacheEntriesAreDeleted() throws Exception {
+        writeAgentsNar("agents.nar", "agent-a", 10);
+        writeAgentsNar("other.nar", "agent-b", 10);
+        Path oldDirectory;
+        try (NarFileHandler handler = newHandler(cache)) {
+            handler.scan();
+            handler.loadPackageForAgent("agent-a");
+            oldDirectory = handler.getPackageForAgentType("agent-a").getDirectory();
+        }
+        String fingerprint = NarFileHandler.fingerprint(packages.resolve("agents.nar"));
+        // left by a process killed while unpacking
+        Path oldTemporary = Files.createDirectory(cache.resolve(fingerprint + ".tmp123"));
+        Path otherTemporary =
+                Files.createDirectory(
+                        cache.resolve(
+                                NarFileHandler.fingerprint(packages.resolve("other.nar"))
+                                        + ".tmp456"));
+
+        // used recently, maybe by another process
+        Path recentTemporary = Files.createDirectory(cache.resolve(fingerprint + ".tmp789"));
+        FileTime old =
+                FileTime.from(
+                        Instant.now().minus(NarFileHandler.STALE_CACHE_ENTRY_AGE).minusSeconds(60));
+        Files.setLastModifiedTime(oldDirectory, old);
+        Files.setLastModifiedTime(oldTemporary, old);
+
+        writeAgentsNar("agents.nar", "agent-a\nagent-new", 10);
+        try (NarFileHandler handler = newHandler(cache)) {
+            handler.scan();
+        }
+        assertFalse(Files.exists(oldDirectory));
+        assertFalse(Files.exists(oldTemporary));
+        assertTrue(Files.exists(recentTemporary));
+        // the entries of the current packages are kept
+        Files.setLastModifiedTime(otherTemporary, old);
+        try (NarFileHandler handler = newHandler(cache)) {
+            handler.scan();
+        }
+        assertTrue(Files.exists(otherTemporary));
+        assertTrue(Files.exists(cache.resolve(NarFileHandler.INDEX_CACHE_FILE)));
+    }
+
+    @Test
+    void testBenchmark() throws Exception {
+        int count = 30;
+        for (int i = 0; i < count; i++) {
+            writeAgentsNar("package-" + i + ".nar", "agent-" + i, 256 * 1024);
+        }
+        // the cache is filled by the first scan
+        long coldNanos = scanNanos(cache, count);
+        // the best of a few runs, to leave out the warm up of the JVM and the noise
+        long warmNanos = Long.MAX_VALUE;
+        long uncachedNanos = Long.MAX_VALUE;
+        for (int run = 0; run < 5; run++) {
+            warmNanos = Math.min(warmNanos, scanNanos(cache, count));
+            uncachedNanos = Math.min(uncachedNanos, scanNanos(null, count));
+        }
+        log.info(
+                "Startup with {} NAR files: no cache {} ms, cold cache {} ms, warm cache {} ms",
+                count,
+                uncachedNanos / 1_000_000,
+                coldNanos / 1_000_000,
+                warmNanos / 1_000_000);
+        // the warm cache doesn't open the NAR files, it must not be slower than reading them
+        assertTrue(
+                warmNanos <= uncachedNanos * 2 + TimeUnit.MILLISECONDS.toNanos(20),
+                "warm cache "
+                        + warmNanos / 1_000_000
+                        + " ms, no cache "
+                        + uncachedNanos / 1_000_000
+                        + " ms");
+    }
+
+    private long scanNanos(Path cacheDirectory, int count) throws Exception {
+        long start = System.nanoTime();
+        try (NarFileHandler handler = newHandler(cacheDirectory)) {
+            handler.scan();
+            assertEquals(count, handler.getAllClassloaders().size());
+        }
+        return System.nanoTime() - start;
+    }
+}
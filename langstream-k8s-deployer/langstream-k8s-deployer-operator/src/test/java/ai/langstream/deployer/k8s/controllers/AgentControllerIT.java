@@ -264,7 +264,8 @@ public class AgentControllerIT {
                                                 Map.of("config", true),
                                                 Map.of(),
                                                 Set.of()),
-                                        new StreamingCluster("noop", Map.of("config", true)))))
+                                        new StreamingCluster("noop", Map.of("config", true)),
+                                        0)))
                 .inNamespace(namespace)
                 .serverSideApply();
     }
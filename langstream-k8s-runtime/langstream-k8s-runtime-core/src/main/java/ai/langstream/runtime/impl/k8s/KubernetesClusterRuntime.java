@@ -312,7 +312,8 @@ public class KubernetesClusterRuntime extends BasicClusterRuntime {
                                 defaultAgentImplementation.getConfiguration(),
                                 errorsConfiguration,
                                 agentIdsWithDisks != null ? agentIdsWithDisks : Set.of()),
-                        streamingCluster);
+                        streamingCluster,
+                        configuration.getLatencyTracingSampleRate());
 
         final Secret secret =
                 AgentResourcesFactory.generateAgentSecret(
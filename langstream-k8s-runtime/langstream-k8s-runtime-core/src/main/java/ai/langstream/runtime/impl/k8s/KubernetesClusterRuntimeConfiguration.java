@@ -32,4 +32,11 @@ public class KubernetesClusterRuntimeConfiguration {
 
     @JsonAlias({"image-pull-policy", "imagepullpolicy"})
     private String imagePullPolicy;
+
+    /**
+     * Fraction of the records written to the topics by the agents that start a latency trace. 0
+     * disables the tracing.
+     */
+    @JsonAlias({"latency-tracing-sample-rate", "latencytracingsamplerate"})
+    private double latencyTracingSampleRate;
 }
@@ -45,8 +45,9 @@ public class FlowControlAgentsProvider extends AbstractComposableAgentProvider {
     protected static final String TRIGGER_EVENT = "trigger-event";
 
     protected static final String LOG_EVENT = "log-event";
+    protected static final String WINDOW = "window";
     private static final Set<String> SUPPORTED_AGENT_TYPES =
-            Set.of(DISPATCH, TIMER_SOURCE, TRIGGER_EVENT, LOG_EVENT);
+            Set.of(DISPATCH, TIMER_SOURCE, TRIGGER_EVENT, LOG_EVENT, WINDOW);
 
     public FlowControlAgentsProvider() {
         super(SUPPORTED_AGENT_TYPES, List.of(KubernetesClusterRuntime.CLUSTER_TYPE, "none"));
@@ -59,6 +60,7 @@ public class FlowControlAgentsProvider extends AbstractComposableAgentProvider {
             case TIMER_SOURCE -> ComponentType.SOURCE;
             case TRIGGER_EVENT -> ComponentType.PROCESSOR;
             case LOG_EVENT -> ComponentType.PROCESSOR;
+            case WINDOW -> ComponentType.PROCESSOR;
             default -> throw new IllegalArgumentException(
                     "Unsupported agent type: " + agentConfiguration.getType());
         };
@@ -130,6 +132,7 @@ public class FlowControlAgentsProvider extends AbstractComposableAgentProvider {
             case TIMER_SOURCE -> TimeSourceConfig.class;
             case TRIGGER_EVENT -> TriggerEventProcessorConfig.class;
             case LOG_EVENT -> LogEventProcessorConfig.class;
+            case WINDOW -> WindowProcessorConfig.class;
             default -> throw new IllegalArgumentException("Unsupported agent type: " + type);
         };
     }
@@ -239,6 +242,93 @@ public class FlowControlAgentsProvider extends AbstractComposableAgentProvider {
         String destination;
     }
 
+    @AgentConfig(
+            name = "Window",
+            description =
+                    """
+            Aggregates the records over tumbling, sliding or session windows, optionally grouped by key.
+            An aggregated record is emitted when a window closes, the records of a window are committed only when the window closes.
+            """)
+    @Data
+    public static class WindowProcessorConfig {
+        @ConfigProperty(
+                description =
+                        """
+                        Type of window. Possible values are "tumbling", "sliding" or "session".
+                                """,
+                defaultValue = "tumbling")
+        @JsonProperty("window-type")
+        String windowType;
+
+        @ConfigProperty(
+                description =
+                        """
+                        Number of records of a window. A tumbling window closes when it contains this number of records.
+                        A sliding window emits a record every time it contains this number of records.
+                                """)
+        int size;
+
+        @ConfigProperty(
+                description =
+                        """
+                        Number of records that leave a sliding window every time it emits a record.
+                                """,
+                defaultValue = "1")
+        int slide;
+
+        @ConfigProperty(
+                description =
+                        """
+                        Duration of a tumbling window in milliseconds. For a sliding window, the window is closed if no record is received for this time.
+                                """)
+        @JsonProperty("duration-ms")
+        long durationMs;
+
+        @ConfigProperty(
+                description =
+                        """
+                        Inactivity gap in milliseconds that closes a session window.
+                                """)
+        @JsonProperty("gap-ms")
+        long gapMs;
+
+        @ConfigProperty(
+                description =
+                        """
+                        Key of the windows, the records with a different key are aggregated in different windows. This is a standard EL expression.
+                        If not set, all the records go to the same window.
+                                """,
+                extendedValidationType = ExtendedValidationType.EL_EXPRESSION)
+        String key;
+
+        @ConfigProperty(
+                description =
+                        """
+                        Maximum number of records in a window, the window closes when it reaches this size.
+                        The aggregated record of a window closed early has the "window-close-reason" property set to "max-records".
+                                """,
+                defaultValue = "10000")
+        @JsonProperty("max-records")
+        int maxRecords;
+
+        @ConfigProperty(
+                description =
+                        """
+                        Maximum number of open windows, when it is reached the oldest window closes.
+                        The aggregated record of a window closed early has the "window-close-reason" property set to "max-windows".
+                                """,
+                defaultValue = "10000")
+        @JsonProperty("max-windows")
+        int maxWindows;
+
+        @ConfigProperty(
+                description =
+                        """
+                        Fields of the aggregated record.
+                                """)
+        List<AggregateFieldConfiguration> fields;
+    }
+
     @AgentConfig(
             name = "Dispatch agent",
             description =
@@ -300,4 +390,31 @@ public class FlowControlAgentsProvider extends AbstractComposableAgentProvider {
                 extendedValidationType = ExtendedValidationType.EL_EXPRESSION)
         String expression;
     }
+
+    @Data
+    public static class AggregateFieldConfiguration {
+        @ConfigProperty(
+                description =
+                        """
+                        Name of the field like value.xx, key.xxx, properties.xxx
+                                """,
+                required = true)
+        String name;
+
+        @ConfigProperty(
+                description =
+                        """
+                        Expression to compute the value of the field for each record. This is a standard EL expression.
+                                """,
+                extendedValidationType = ExtendedValidationType.EL_EXPRESSION)
+        String expression;
+
+        @ConfigProperty(
+                description =
+                        """
+                        Aggregation of the values of the window. Possible values are "collect", "count", "sum", "min", "max", "first" or "last".
+                                """,
+                defaultValue = "collect")
+        String aggregate;
+    }
 }
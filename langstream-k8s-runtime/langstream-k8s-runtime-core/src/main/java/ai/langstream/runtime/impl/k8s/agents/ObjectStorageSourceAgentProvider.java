@@ -126,6 +126,35 @@ public class ObjectStorageSourceAgentProvider extends AbstractComposableAgentPro
                                 """)
         @JsonProperty("file-extensions")
         private String fileExtensions = DEFAULT_FILE_EXTENSIONS;
+
+        @ConfigProperty(
+                defaultValue = "1",
+                description =
+                        """
+                                Maximum number of objects downloaded in parallel. Each read returns up to this number of objects.
+                                """)
+        @JsonProperty("max-concurrent-downloads")
+        private int maxConcurrentDownloads;
+
+        @ConfigProperty(
+                defaultValue = "true",
+                description =
+                        """
+                                Whether to delete the objects from the bucket after they are processed.
+                                If false the ETags of the processed objects are kept in the agent persistent disk and an object is processed again only when it changes.
+                                """)
+        @JsonProperty("delete-objects")
+        private boolean deleteObjects = true;
+
+        @ConfigProperty(
+                defaultValue = "-1",
+                description =
+                        """
+                                Objects bigger than this size (in bytes) are not loaded in memory: the value of the record is a stream that reads the object when an agent consumes it.
+                                The text-extractor and text-splitter agents read the stream incrementally. Use -1 to always load the objects in memory.
+                                """)
+        @JsonProperty("max-in-memory-size")
+        private long maxInMemorySize;
     }
 
     @AgentConfig(
@@ -205,5 +234,15 @@ public class ObjectStorageSourceAgentProvider extends AbstractComposableAgentPro
                                 """)
         @JsonProperty("file-extensions")
         private String fileExtensions;
+
+        @ConfigProperty(
+                defaultValue = "-1",
+                description =
+                        """
+                                Objects bigger than this size (in bytes) are not loaded in memory: the value of the record is a stream that reads the blob when an agent consumes it.
+                                The text-extractor and text-splitter agents read the stream incrementally. Use -1 to always load the blobs in memory.
+                                """)
+        @JsonProperty("max-in-memory-size")
+        private long maxInMemorySize;
     }
 }
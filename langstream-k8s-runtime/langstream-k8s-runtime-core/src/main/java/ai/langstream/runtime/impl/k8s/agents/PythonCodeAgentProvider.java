@@ -27,6 +27,7 @@ import ai.langstream.api.runtime.ExecutionPlan;
 import ai.langstream.api.runtime.PluginsRegistry;
 import ai.langstream.impl.agents.AbstractComposableAgentProvider;
 import ai.langstream.runtime.impl.k8s.KubernetesClusterRuntime;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -149,7 +150,34 @@ public class PythonCodeAgentProvider extends AbstractComposableAgentProvider {
                     Run a your own Python sink.
                     All the configuration properties are available in the class init method.
                     """)
-    public static class PythonSinkConfig extends PythonConfig {}
+    public static class PythonSinkConfig extends PythonConfig {
+        @ConfigProperty(
+                description =
+                        """
+                                Maximum number of records sent to the Python process in a single request. With 1 every record is sent as soon as it is written.
+                                        """,
+                defaultValue = "1")
+        @JsonProperty("grpc-batch-size")
+        private int grpcBatchSize;
+
+        @ConfigProperty(
+                description =
+                        """
+                                Maximum time in milliseconds a record waits for the batch to be completed before it is sent to the Python process. Must be positive when grpc-batch-size is greater than 1.
+                                        """,
+                defaultValue = "100")
+        @JsonProperty("grpc-flush-interval")
+        private int grpcFlushInterval;
+
+        @ConfigProperty(
+                description =
+                        """
+                                Maximum size in bytes of the records sent to the Python process in a single request. A record bigger than the limit is sent alone.
+                                        """,
+                defaultValue = "1048576")
+        @JsonProperty("grpc-batch-max-bytes")
+        private long grpcBatchMaxBytes;
+    }
 
     @AgentConfig(
             name = "Python custom processor",
@@ -158,7 +186,27 @@ public class PythonCodeAgentProvider extends AbstractComposableAgentProvider {
                     Run a your own Python processor.
                     All the configuration properties are available the class init method.
                     """)
-    public static class PythonProcessorConfig extends PythonConfig {}
+    public static class PythonProcessorConfig extends PythonConfig {
+        @ConfigProperty(
+                description =
+                        """
+                                Number of Python processes that process the records. Use more than one process to use more than one CPU core with CPU bound processors.
+                                Each process gets its own persistent state directory, the "worker-N" subdirectory of the one of the agent.
+                                        """,
+                defaultValue = "1")
+        @JsonProperty("python-workers")
+        private int pythonWorkers;
+
+        @ConfigProperty(
+                description =
+                        """
+                                How the records are distributed among the Python processes. With "round-robin" each batch of records goes to the least busy process, with "key" the records with the same key always go to the same process, so they are processed in order.
+                                Only "key" keeps the order of the records.
+                                        """,
+                defaultValue = "round-robin")
+        @JsonProperty("python-workers-routing")
+        private String pythonWorkersRouting;
+    }
 
     public static class PythonConfig {
         @ConfigProperty(
@@ -168,5 +216,14 @@ public class PythonCodeAgentProvider extends AbstractComposableAgentProvider {
                                         """,
                 required = true)
         private String className;
+
+        @ConfigProperty(
+                description =
+                        """
+                                Transport used between the runtime and the Python process. Supported values are "tcp" (loopback TCP connection) and "unix-socket" (Unix domain socket, only on Linux).
+                                        """,
+                defaultValue = "tcp")
+        @JsonProperty("grpc-transport")
+        private String grpcTransport;
     }
 }
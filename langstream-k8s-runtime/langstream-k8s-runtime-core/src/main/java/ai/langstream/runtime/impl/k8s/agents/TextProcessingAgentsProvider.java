@@ -72,7 +72,25 @@ public class TextProcessingAgentsProvider extends AbstractComposableAgentProvide
             Extracts text content from different document formats like PDF, JSON, XML, ODF, HTML and many others.
             """)
     @Data
-    public static class TextExtractorConfig {}
+    public static class TextExtractorConfig {
+        @ConfigProperty(
+                description =
+                        """
+                        Maximum number of characters to extract from a document, the rest of the text is dropped. -1 means no limit.
+                                """,
+                defaultValue = "-1")
+        @JsonProperty("max-characters")
+        private int maxCharacters;
+
+        @ConfigProperty(
+                description =
+                        """
+                        Maximum time to extract the text from a document, in milliseconds. If the extraction takes longer the record fails. 0 means no timeout.
+                                """,
+                defaultValue = "0")
+        @JsonProperty("timeout-ms")
+        private long timeoutMs;
+    }
 
     @AgentConfig(
             name = "Language detector",
@@ -96,6 +114,24 @@ public class TextProcessingAgentsProvider extends AbstractComposableAgentProvide
                         Define a list of allowed language codes. If the message language is not in this list, the message is dropped.
                                 """)
         private List<String> allowedLanguages;
+
+        @ConfigProperty(
+                description =
+                        """
+                        Maximum number of characters of the text used to detect the language. -1 means the whole text.
+                                """,
+                defaultValue = "10000")
+        @JsonProperty("max-characters")
+        private int maxCharacters;
+
+        @ConfigProperty(
+                description =
+                        """
+                        Number of windows, spread over the whole text, the characters used to detect the language are taken from. With 1 only the beginning of the text is used.
+                                """,
+                defaultValue = "1")
+        @JsonProperty("sample-windows")
+        private int sampleWindows;
     }
 
     @AgentConfig(
@@ -283,5 +283,54 @@ public class WebCrawlerSourceAgentProvider extends AbstractComposableAgentProvid
                 defaultValue = "true")
         @JsonProperty("handle-cookies")
         private boolean handleCookies;
+
+        @ConfigProperty(
+                description =
+                        """
+                        Maximum number of pages downloaded at the same time.
+                        With values greater than 1 the pages are downloaded by a pool of threads.
+                        """,
+                defaultValue = "1")
+        @JsonProperty("max-concurrent-requests")
+        private int maxConcurrentRequests;
+
+        @ConfigProperty(
+                description =
+                        """
+                        Maximum number of pages downloaded at the same time from the same domain.
+                        """,
+                defaultValue = "1")
+        @JsonProperty("max-concurrent-requests-per-host")
+        private int maxConcurrentRequestsPerHost;
+
+        @ConfigProperty(
+                description =
+                        """
+                        Maximum number of downloaded pages waiting to be emitted by the source.
+                        When the limit is reached the downloads are paused.
+                        """,
+                defaultValue = "100")
+        @JsonProperty("max-buffered-documents")
+        private int maxBufferedDocuments;
+
+        @ConfigProperty(
+                description =
+                        """
+                        Do not emit the pages that did not change since the previous index.
+                        The crawler stores the ETag, Last-Modified and a hash of the content of each page
+                        and uses conditional requests when the body is not needed to discover new links.
+                        """,
+                defaultValue = "false")
+        @JsonProperty("skip-unchanged-pages")
+        private boolean skipUnchangedPages;
+
+        @ConfigProperty(
+                description =
+                        """
+                        At the end of each index, emit a record with a null value for each page that has been emitted before but that has not been found anymore.
+                        """,
+                defaultValue = "false")
+        @JsonProperty("emit-tombstones")
+        private boolean emitTombstones;
     }
 }
@@ -140,6 +140,12 @@ class KubernetesGenAIToolKitFunctionAgentProviderTest {
                                   "required" : false,
                                   "type" : "string"
                                 },
+                                "coalesce-requests" : {
+                                  "description" : "Share a single call to the AI Service between the concurrent identical requests (same messages and options).",
+                                  "required" : false,
+                                  "type" : "boolean",
+                                  "defaultValue" : "false"
+                                },
                                 "completion-field" : {
                                   "description" : "Field to use to store the completion results in the output topic. Use \\"value\\" to write the result without a structured schema. Use \\"value.<field>\\" to write the result in a specific field.",
                                   "required" : false,
@@ -166,6 +172,18 @@ class KubernetesGenAIToolKitFunctionAgentProviderTest {
                                   "required" : false,
                                   "type" : "object"
                                 },
+                                "max-chunk-delay-ms" : {
+                                  "description" : "Send the chunks to the stream-to-topic topic when the oldest one waited for this number of milliseconds, even if min-chunks-per-message is not reached. The delay is checked when the next chunk arrives. 0 means no limit.",
+                                  "required" : false,
+                                  "type" : "integer",
+                                  "defaultValue" : "0"
+                                },
+                                "max-chunk-size" : {
+                                  "description" : "Send the chunks to the stream-to-topic topic as soon as they contain this number of characters, even if min-chunks-per-message is not reached. 0 means no limit.",
+                                  "required" : false,
+                                  "type" : "integer",
+                                  "defaultValue" : "0"
+                                },
                                 "max-tokens" : {
                                   "description" : "Parameter for the completion request. The parameters are passed to the AI Service as is.",
                                   "required" : false,
@@ -214,6 +232,12 @@ class KubernetesGenAIToolKitFunctionAgentProviderTest {
                                   "required" : false,
                                   "type" : "number"
                                 },
+                                "response-cache-ttl-ms" : {
+                                  "description" : "Cache the responses of the requests with temperature 0 for this number of milliseconds. Requires coalesce-requests. 0 means no cache.",
+                                  "required" : false,
+                                  "type" : "integer",
+                                  "defaultValue" : "0"
+                                },
                                 "stop" : {
                                   "description" : "Parameter for the completion request. The parameters are passed to the AI Service as is.",
                                   "required" : false,
@@ -271,6 +295,12 @@ class KubernetesGenAIToolKitFunctionAgentProviderTest {
                                   "required" : false,
                                   "type" : "string"
                                 },
+                                "coalesce-requests" : {
+                                  "description" : "Share a single call to the AI Service between the concurrent identical requests (same prompt and options).",
+                                  "required" : false,
+                                  "type" : "boolean",
+                                  "defaultValue" : "false"
+                                },
                                 "completion-field" : {
                                   "description" : "Field to use to store the completion results in the output topic. Use \\"value\\" to write the result without a structured schema. Use \\"value.<field>\\" to write the result in a specific field.",
                                   "required" : false,
@@ -307,6 +337,18 @@ class KubernetesGenAIToolKitFunctionAgentProviderTest {
                                   "required" : false,
                                   "type" : "string"
                                 },
+                                "max-chunk-delay-ms" : {
+                                  "description" : "Send the chunks to the stream-to-topic topic when the oldest one waited for this number of milliseconds, even if min-chunks-per-message is not reached. The delay is checked when the next chunk arrives. 0 means no limit.",
+                                  "required" : false,
+                                  "type" : "integer",
+                                  "defaultValue" : "0"
+                                },
+                                "max-chunk-size" : {
+                                  "description" : "Send the chunks to the stream-to-topic topic as soon as they contain this number of characters, even if min-chunks-per-message is not reached. 0 means no limit.",
+                                  "required" : false,
+                                  "type" : "integer",
+                                  "defaultValue" : "0"
+                                },
                                 "max-tokens" : {
                                   "description" : "Parameter for the completion request. The parameters are passed to the AI Service as is.",
                                   "required" : false,
@@ -343,6 +385,12 @@ class KubernetesGenAIToolKitFunctionAgentProviderTest {
                                     "type" : "string"
                                   }
                                 },
+                                "response-cache-ttl-ms" : {
+                                  "description" : "Cache the responses of the requests with temperature 0 for this number of milliseconds. Requires coalesce-requests. 0 means no cache.",
+                                  "required" : false,
+                                  "type" : "integer",
+                                  "defaultValue" : "0"
+                                },
                                 "stop" : {
                                   "description" : "Parameter for the completion request. The parameters are passed to the AI Service as is.",
                                   "required" : false,
@@ -489,6 +537,12 @@ class KubernetesGenAIToolKitFunctionAgentProviderTest {
                                   "type" : "integer",
                                   "defaultValue" : "10"
                                 },
+                                "coalesce-requests" : {
+                                  "description" : "Share a single call to the AI Service between the concurrent identical texts.",
+                                  "required" : false,
+                                  "type" : "boolean",
+                                  "defaultValue" : "false"
+                                },
                                 "composable" : {
                                   "description" : "Whether this step can be composed with other steps.",
                                   "required" : false,
@@ -512,6 +566,24 @@ class KubernetesGenAIToolKitFunctionAgentProviderTest {
                                   "type" : "integer",
                                   "defaultValue" : "0"
                                 },
+                                "inference-batch-latency-ms" : {
+                                  "description" : "Max time to wait for more texts before computing a batch with a local model. (HuggingFace only)",
+                                  "required" : false,
+                                  "type" : "integer",
+                                  "defaultValue" : "5"
+                                },
+                                "inference-batch-size" : {
+                                  "description" : "Max number of texts computed together by a local model. (HuggingFace only)\\nThe texts of concurrent requests are batched together. If 0, the texts are computed one at a time.",
+                                  "required" : false,
+                                  "type" : "integer",
+                                  "defaultValue" : "0"
+                                },
+                                "inference-threads" : {
+                                  "description" : "Number of threads computing the batches with a local model. The threads share the model, every thread has its own predictor. (HuggingFace only)\\nAn inference already uses all the available processors, more threads help only when the batches are small.",
+                                  "required" : false,
+                                  "type" : "integer",
+                                  "defaultValue" : "1"
+                                },
                                 "loop-over" : {
                                   "description" : "Execute the agent over a list of documents",
                                   "required" : false,
@@ -533,6 +605,12 @@ class KubernetesGenAIToolKitFunctionAgentProviderTest {
                                   "required" : false,
                                   "type" : "object"
                                 },
+                                "response-cache-ttl-ms" : {
+                                  "description" : "Cache the responses of the texts for this number of milliseconds. Requires coalesce-requests. 0 means no cache.",
+                                  "required" : false,
+                                  "type" : "integer",
+                                  "defaultValue" : "0"
+                                },
                                 "text" : {
                                   "description" : "Text to create embeddings from. You can use Mustache syntax to compose multiple fields into a single text. Example:\\ntext: \\"{{{ value.field1 }}} {{{ value.field2 }}}\\"",
                                   "required" : true,
@@ -131,6 +131,12 @@ class S3SourceAgentProviderTest {
                                 "type" : "integer",
                                 "defaultValue" : "5"
                               },
+                              "max-in-memory-size" : {
+                                "description" : "Objects bigger than this size (in bytes) are not loaded in memory: the value of the record is a stream that reads the blob when an agent consumes it.\\nThe text-extractor and text-splitter agents read the stream incrementally. Use -1 to always load the blobs in memory.",
+                                "required" : false,
+                                "type" : "integer",
+                                "defaultValue" : "-1"
+                              },
                               "sas-token" : {
                                 "description" : "Azure SAS token. If not provided, storage account name and key must be provided.",
                                 "required" : false,
@@ -169,6 +175,12 @@ class S3SourceAgentProviderTest {
                                 "type" : "string",
                                 "defaultValue" : "langstream-source"
                               },
+                              "delete-objects" : {
+                                "description" : "Whether to delete the objects from the bucket after they are processed.\\nIf false the ETags of the processed objects are kept in the agent persistent disk and an object is processed again only when it changes.",
+                                "required" : false,
+                                "type" : "boolean",
+                                "defaultValue" : "true"
+                              },
                               "endpoint" : {
                                 "description" : "The endpoint of the S3 server.",
                                 "required" : false,
@@ -187,6 +199,18 @@ class S3SourceAgentProviderTest {
                                 "type" : "integer",
                                 "defaultValue" : "5"
                               },
+                              "max-concurrent-downloads" : {
+                                "description" : "Maximum number of objects downloaded in parallel. Each read returns up to this number of objects.",
+                                "required" : false,
+                                "type" : "integer",
+                                "defaultValue" : "1"
+                              },
+                              "max-in-memory-size" : {
+                                "description" : "Objects bigger than this size (in bytes) are not loaded in memory: the value of the record is a stream that reads the object when an agent consumes it.\\nThe text-extractor and text-splitter agents read the stream incrementally. Use -1 to always load the objects in memory.",
+                                "required" : false,
+                                "type" : "integer",
+                                "defaultValue" : "-1"
+                              },
                               "region" : {
                                 "description" : "Region for the S3 server.",
                                 "required" : false,
@@ -23,6 +23,7 @@ import ai.langstream.api.model.StoredApplication;
 import ai.langstream.api.runtime.ComponentType;
 import ai.langstream.api.runtime.ExecutionPlan;
 import ai.langstream.api.storage.ApplicationStore;
+import ai.langstream.deployer.k8s.CRDConstants;
 import ai.langstream.deployer.k8s.agents.AgentResourcesFactory;
 import ai.langstream.deployer.k8s.api.crds.apps.ApplicationCustomResource;
 import ai.langstream.deployer.k8s.api.crds.apps.ApplicationSpec;
@@ -34,6 +35,7 @@ import ai.langstream.deployer.k8s.util.KubeUtil;
 import ai.langstream.impl.k8s.KubernetesClientFactory;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.fabric8.kubernetes.api.model.HasMetadata;
 import io.fabric8.kubernetes.api.model.Namespace;
 import io.fabric8.kubernetes.api.model.ObjectMetaBuilder;
 import io.fabric8.kubernetes.api.model.Pod;
@@ -42,6 +44,8 @@ import io.fabric8.kubernetes.api.model.SecretBuilder;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.dsl.LogWatch;
 import io.fabric8.kubernetes.client.dsl.PodResource;
+import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
+import io.fabric8.kubernetes.client.informers.SharedIndexInformer;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
@@ -55,7 +59,10 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -84,6 +91,7 @@ public class KubernetesApplicationStore implements ApplicationStore {
             Pattern.compile("(\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d{9}Z) (.*)");
     private KubernetesClient client;
     private KubernetesApplicationStoreProperties properties;
+    private final Map<String, TenantWatch> tenantWatches = new ConcurrentHashMap<>();
 
     @Override
     public String storeType() {
@@ -183,6 +191,7 @@ public class KubernetesApplicationStore implements ApplicationStore {
                         .withNewMetadata()
                         .withName(applicationId)
                         .withNamespace(namespace)
+                        .withLabels(Map.of(CRDConstants.APP_LABEL_APPLICATION, applicationId))
                         .withOwnerReferences(KubeUtil.getOwnerReferenceForResource(crd))
                         .endMetadata()
                         .withData(
@@ -520,6 +529,128 @@ public class KubernetesApplicationStore implements ApplicationStore {
         }
     }
 
+    @Override
+    public boolean watchApplications(String tenant, ApplicationWatcher watcher) {
+        tenantWatches.compute(
+                tenant,
+                (t, watch) -> {
+                    if (watch == null) {
+                        watch = new TenantWatch(t);
+                    }
+                    watch.watchers.add(watcher);
+                    return watch;
+                });
+        return true;
+    }
+
+    @Override
+    public void unwatchApplications(String tenant, ApplicationWatcher watcher) {
+        tenantWatches.computeIfPresent(
+                tenant,
+                (t, watch) -> {
+                    watch.watchers.remove(watcher);
+                    if (!watch.watchers.isEmpty()) {
+                        return watch;
+                    }
+                    watch.close();
+                    return null;
+                });
+    }
+
+    /**
+     * Watches the application custom resources and the secrets in the namespace of the tenant. The
+     * watch is namespaced, so it doesn't require cluster wide permissions. Only the secrets labeled
+     * with the application id are watched, the other secrets of the namespace are never listed.
+     */
+    private class TenantWatch {
+        private final String tenant;
+        private final List<ApplicationWatcher> watchers = new CopyOnWriteArrayList<>();
+        private final SharedIndexInformer<ApplicationCustomResource> applicationsInformer;
+        private final SharedIndexInformer<Secret> secretsInformer;
+
+        TenantWatch(String tenant) {
+            this.tenant = tenant;
+            final String namespace = tenantToNamespace(tenant);
+            log.info("Watching applications and secrets in namespace {}", namespace);
+            this.applicationsInformer =
+                    client.resources(ApplicationCustomResource.class)
+                            .inNamespace(namespace)
+                            .inform(new ChangeHandler<>(true), 0);
+            try {
+                this.secretsInformer =
+                        client.secrets()
+                                .inNamespace(namespace)
+                                .withLabel(CRDConstants.APP_LABEL_APPLICATION)
+                                .inform(new ChangeHandler<>(false), 0);
+            } catch (RuntimeException e) {
+                applicationsInformer.close();
+                throw e;
+            }
+        }
+
+        void close() {
+            log.info("Stop watching applications and secrets of tenant {}", tenant);
+            try {
+                applicationsInformer.close();
+            } finally {
+                secretsInformer.close();
+            }
+        }
+
+        private void notifyChanged(HasMetadata resource) {
+            final String applicationId = resource.getMetadata().getName();
+            for (ApplicationWatcher watcher : watchers) {
+                try {
+                    watcher.onApplicationChanged(tenant, applicationId);
+                } catch (Throwable e) {
+                    log.error("Error notifying change of application {}", applicationId, e);
+                }
+            }
+        }
+
+        private void notifyDeleted(HasMetadata resource) {
+            final String applicationId = resource.getMetadata().getName();
+            for (ApplicationWatcher watcher : watchers) {
+                try {
+                    watcher.onApplicationDeleted(tenant, applicationId);
+                } catch (Throwable e) {
+                    log.error("Error notifying deletion of application {}", applicationId, e);
+                }
+            }
+        }
+
+        private class ChangeHandler<T extends HasMetadata> implements ResourceEventHandler<T> {
+            private final boolean applications;
+
+            ChangeHandler(boolean applications) {
+                this.applications = applications;
+            }
+
+            @Override
+            public void onAdd(T resource) {
+                notifyChanged(resource);
+            }
+
+            @Override
+            public void onUpdate(T oldResource, T newResource) {
+                if (!Objects.equals(
+                        oldResource.getMetadata().getResourceVersion(),
+                        newResource.getMetadata().getResourceVersion())) {
+                    notifyChanged(newResource);
+                }
+            }
+
+            @Override
+            public void onDelete(T resource, boolean deletedFinalStateUnknown) {
+                if (applications) {
+                    notifyDeleted(resource);
+                } else {
+                    notifyChanged(resource);
+                }
+            }
+        }
+    }
+
     @Override
     public String getExecutorServiceURI(String tenant, String applicationId, String executorId) {
         final ApplicationCustomResource application =
@@ -217,7 +217,8 @@ class KubernetesApplicationStoreLogsTest {
                                                 Map.of("config", true),
                                                 Map.of(),
                                                 Set.of()),
-                                        new StreamingCluster("noop", Map.of("config", true)))))
+                                        new StreamingCluster("noop", Map.of("config", true)),
+                                        0)))
                 .inNamespace("langstream-" + tenant)
                 .serverSideApply();
 
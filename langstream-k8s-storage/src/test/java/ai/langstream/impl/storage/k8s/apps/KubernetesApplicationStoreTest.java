@@ -19,6 +19,7 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import ai.langstream.api.model.Application;
 import ai.langstream.api.model.Secrets;
+import ai.langstream.api.storage.ApplicationStore;
 import ai.langstream.deployer.k8s.api.crds.apps.ApplicationCustomResource;
 import ai.langstream.deployer.k8s.api.crds.apps.ApplicationSpec;
 import ai.langstream.deployer.k8s.api.crds.apps.ApplicationSpecOptions;
@@ -27,6 +28,7 @@ import io.fabric8.kubernetes.api.model.OwnerReference;
 import io.fabric8.kubernetes.api.model.Secret;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.Test;
@@ -177,4 +179,41 @@ class KubernetesApplicationStoreTest {
                             }
                         });
     }
+
+    @Test
+    void testWatchApplications() {
+        final KubernetesApplicationStore store = new KubernetesApplicationStore();
+        store.initialize(getInitMap());
+        final String tenant = getTenant();
+        store.onTenantCreated(tenant);
+
+        final List<String> changes = new CopyOnWriteArrayList<>();
+        final ApplicationStore.ApplicationWatcher watcher =
+                (t, applicationId) -> changes.add(t + "/" + applicationId);
+        assertTrue(store.watchApplications(tenant, watcher));
+
+        store.put(tenant, "myapp", new Application(), "code-1", null);
+        Awaitility.await().until(() -> changes.contains(tenant + "/myapp"));
+
+        changes.clear();
+        final Application updated = new Application();
+        updated.setSecrets(
+                new Secrets(
+                        Map.of(
+                                "mysecret",
+                                new ai.langstream.api.model.Secret(
+                                        "mysecret", "My secret", Map.of("token", "yyy")))));
+        store.put(tenant, "myapp", updated, "code-2", null);
+        Awaitility.await().until(() -> changes.contains(tenant + "/myapp"));
+
+        // the informers are closed with the last watcher
+        store.unwatchApplications(tenant, watcher);
+        store.put(tenant, "otherapp", new Application(), "code-1", null);
+        final List<String> otherChanges = new CopyOnWriteArrayList<>();
+        assertTrue(
+                store.watchApplications(
+                        tenant, (t, applicationId) -> otherChanges.add(t + "/" + applicationId)));
+        Awaitility.await().until(() -> otherChanges.contains(tenant + "/otherapp"));
+        assertFalse(changes.contains(tenant + "/otherapp"));
+    }
 }
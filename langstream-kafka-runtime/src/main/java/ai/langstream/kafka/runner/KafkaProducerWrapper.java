@@ -37,8 +37,11 @@ import java.util.concurrent.atomic.AtomicInteger;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.kafka.clients.producer.Callback;
 import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.common.header.internals.RecordHeader;
 import org.apache.kafka.common.serialization.BooleanSerializer;
 import org.apache.kafka.common.serialization.ByteArraySerializer;
@@ -75,25 +78,14 @@ class KafkaProducerWrapper implements TopicProducer {
     private final Map<String, Object> copy;
     private final String topicName;
     private final AtomicInteger totalIn = new AtomicInteger();
-    KafkaProducer<Object, Object> producer;
-    Serializer keySerializer;
-    Class cacheKeyForKeySerializer;
-    Serializer valueSerializer;
+    Producer<Object, Object> producer;
 
-    Class cacheKeyForValueSerializer;
-    Serializer headerSerializer;
-
-    Class cacheKeyForHeaderSerializer;
-
-    boolean forcedKeySerializer;
-    boolean forcedValueSerializer;
+    final boolean forcedKeySerializer;
+    final boolean forcedValueSerializer;
 
     public KafkaProducerWrapper(Map<String, Object> copy, String topicName) {
         this.copy = copy;
         this.topicName = topicName;
-        keySerializer = null;
-        valueSerializer = null;
-        headerSerializer = null;
         forcedKeySerializer =
                 !Objects.equals(
                         org.apache.kafka.common.serialization.ByteArraySerializer.class.getName(),
@@ -156,62 +148,10 @@ class KafkaProducerWrapper implements TopicProducer {
     }
 
     @Override
-    public synchronized CompletableFuture<?> write(Record r) {
+    public CompletableFuture<?> write(Record r) {
         CompletableFuture<?> handle = new CompletableFuture<>();
         try {
-            List<org.apache.kafka.common.header.Header> headers = new ArrayList<>();
-            Object key = null;
-            if (r.key() != null) {
-                if (forcedKeySerializer) {
-                    key = r.key();
-                } else {
-                    Class<?> keyClass = r.key().getClass();
-                    if (keySerializer == null
-                            || !(Objects.equals(keyClass, cacheKeyForKeySerializer))) {
-                        keySerializer = getSerializer(keyClass, keySerializers, true);
-                        cacheKeyForKeySerializer = keyClass;
-                    }
-                    key = keySerializer.serialize(topicName, r.key());
-                }
-            }
-            Object value = null;
-            if (r.value() != null) {
-                if (forcedValueSerializer) {
-                    value = r.value();
-                } else {
-                    Class<?> valueClass = r.value().getClass();
-                    if (valueSerializer == null
-                            || !(Objects.equals(valueClass, cacheKeyForValueSerializer))) {
-                        valueSerializer = getSerializer(valueClass, valueSerializers, false);
-                        cacheKeyForValueSerializer = valueClass;
-                    }
-                    value = valueSerializer.serialize(topicName, r.value());
-                }
-            }
-            if (r.headers() != null) {
-                for (Header header : r.headers()) {
-                    Object headerValue = header.value();
-                    byte[] serializedHeader = null;
-
-                    if (headerValue != null) {
-                        Class<?> headerClass = headerValue.getClass();
-                        if (headerSerializer == null
-                                || !(Objects.equals(headerClass, cacheKeyForHeaderSerializer))) {
-                            headerSerializer = getSerializer(headerClass, headerSerializers, null);
-                            cacheKeyForHeaderSerializer = headerClass;
-                        }
-                        serializedHeader = headerSerializer.serialize(topicName, headerValue);
-                    }
-                    headers.add(new RecordHeader(header.key(), serializedHeader));
-                }
-            }
-            ProducerRecord<Object, Object> record =
-                    new ProducerRecord<>(topicName, null, null, key, value, headers);
-
-            if (log.isDebugEnabled()) {
-                log.debug("Sending record {}", record);
-            }
-
+            ProducerRecord<Object, Object> record = toProducerRecord(r, new SerializerLookup());
             producer.send(
                     record,
                     (metadata, exception) -> {
@@ -228,8 +168,153 @@ class KafkaProducerWrapper implements TopicProducer {
         return handle;
     }
 
+    @Override
+    public CompletableFuture<?> writeBatch(List<Record> records) {
+        if (records.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        BatchCallback callback = new BatchCallback(records.size());
+        SerializerLookup serializers = new SerializerLookup();
+        int sent = 0;
+        for (Record r : records) {
+            try {
+                producer.send(toProducerRecord(r, serializers), callback);
+                sent++;
+            } catch (Exception e) {
+                // the records already sent are still acknowledged by the callback
+                callback.fail(e, records.size() - sent);
+                break;
+            }
+        }
+        return callback.handle;
+    }
+
+    private ProducerRecord<Object, Object> toProducerRecord(
+            Record r, SerializerLookup serializers) {
+        Object key = null;
+        if (r.key() != null) {
+            if (forcedKeySerializer) {
+                key = r.key();
+            } else {
+                key = serializers.key(r.key().getClass()).serialize(topicName, r.key());
+            }
+        }
+        Object value = null;
+        if (r.value() != null) {
+            if (forcedValueSerializer) {
+                value = r.value();
+            } else {
+                value = serializers.value(r.value().getClass()).serialize(topicName, r.value());
+            }
+        }
+        List<org.apache.kafka.common.header.Header> headers;
+        if (r.headers() != null && !r.headers().isEmpty()) {
+            headers = new ArrayList<>(r.headers().size());
+            for (Header header : r.headers()) {
+                Object headerValue = header.value();
+                byte[] serializedHeader = null;
+                if (headerValue != null) {
+                    serializedHeader =
+                            serializers
+                                    .header(headerValue.getClass())
+                                    .serialize(topicName, headerValue);
+                }
+                headers.add(new RecordHeader(header.key(), serializedHeader));
+            }
+        } else {
+            headers = List.of();
+        }
+        ProducerRecord<Object, Object> record =
+                new ProducerRecord<>(topicName, null, null, key, value, headers);
+        if (log.isDebugEnabled()) {
+            log.debug("Sending record {}", record);
+        }
+        return record;
+    }
+
+    /**
+     * Remembers the last serializer used for keys, values and headers. It is not shared between
+     * threads: every write (or batch of writes) has its own, so the producer doesn't need any lock
+     * and the shared maps are only read when the class of the data changes.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final class SerializerLookup {
+        private Class<?> keyClass;
+        private Serializer keySerializer;
+        private Class<?> valueClass;
+        private Serializer valueSerializer;
+        private Class<?> headerClass;
+        private Serializer headerSerializer;
+
+        Serializer key(Class<?> clazz) {
+            if (clazz != keyClass) {
+                keySerializer = getSerializer(clazz, keySerializers, true);
+                keyClass = clazz;
+            }
+            return keySerializer;
+        }
+
+        Serializer value(Class<?> clazz) {
+            if (clazz != valueClass) {
+                valueSerializer = getSerializer(clazz, valueSerializers, false);
+                valueClass = clazz;
+            }
+            return valueSerializer;
+        }
+
+        Serializer header(Class<?> clazz) {
+            if (clazz != headerClass) {
+                headerSerializer = getSerializer(clazz, headerSerializers, null);
+                headerClass = clazz;
+            }
+            return headerSerializer;
+        }
+    }
+
+    /** A single callback for all the records of a batch, it completes when all are acknowledged. */
+    private final class BatchCallback implements Callback {
+        private final CompletableFuture<?> handle = new CompletableFuture<>();
+        private final AtomicInteger pending;
+        private volatile Throwable error;
+
+        BatchCallback(int size) {
+            this.pending = new AtomicInteger(size);
+        }
+
+        @Override
+        public void onCompletion(RecordMetadata metadata, Exception exception) {
+            if (exception != null) {
+                fail(exception, 1);
+            } else {
+                totalIn.addAndGet(1);
+                done(1);
+            }
+        }
+
+        void fail(Throwable exception, int count) {
+            if (error == null) {
+                error = exception;
+            }
+            done(count);
+        }
+
+        private void done(int count) {
+            if (pending.addAndGet(-count) == 0) {
+                if (error != null) {
+                    handle.completeExceptionally(error);
+                } else {
+                    handle.complete(null);
+                }
+            }
+        }
+    }
+
     private Serializer<?> getSerializer(
             Class<?> r, Map<Class<?>, Serializer<?>> serializerMap, Boolean isKey) {
+        Serializer<?> serializer = serializerMap.get(r);
+        if (serializer != null) {
+            return serializer;
+        }
         return serializerMap.computeIfAbsent(
                 r,
                 k -> {
@@ -237,7 +322,6 @@ class KafkaProducerWrapper implements TopicProducer {
                             && isKey != null) { // no AVRO in headers
                         KafkaAvroSerializer kafkaAvroSerializer = new KafkaAvroSerializer();
                         kafkaAvroSerializer.configure(copy, isKey);
-                        serializerMap.put(r, kafkaAvroSerializer);
                         return kafkaAvroSerializer;
                     }
                     if (Map.class.isAssignableFrom(k)) {
@@ -0,0 +1,157 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.kafka.runner;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ai.langstream.api.runner.code.Record;
+import ai.langstream.api.runner.code.SimpleRecord;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.junit.jupiter.api.Test;
+
+class KafkaProducerWrapperTest {
+
+    private static final Serializer<Object> BYTES = (topic, data) -> (byte[]) data;
+
+    private static KafkaProducerWrapper wrapper(MockProducer<Object, Object> producer) {
+        KafkaProducerWrapper wrapper =
+                new KafkaProducerWrapper(
+                        Map.of(
+                                ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG,
+                                ByteArraySerializer.class.getName(),
+                                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG,
+                                ByteArraySerializer.class.getName()),
+                        "topic");
+        wrapper.producer = producer;
+        return wrapper;
+    }
+
+    private static String string(Object bytes) {
+        return new String((byte[]) bytes, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testWriteBatch() throws Exception {
+        MockProducer<Object, Object> producer = new MockProducer<>(false, BYTES, BYTES);
+        KafkaProducerWrapper wrapper = wrapper(producer);
+        List<Record> records = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            records.add(
+                    SimpleRecord.builder()
+                            .key("key" + i)
+                            .value(i % 2 == 0 ? "value" + i : Map.of("i", i))
+                            .headers(
+                                    List.of(
+                                            SimpleRecord.SimpleHeader.of("h", "v" + i),
+                                            SimpleRecord.SimpleHeader.of("n", i)))
+                            .build());
+        }
+        CompletableFuture<?> handle = wrapper.writeBatch(records);
+        assertEquals(5, producer.history().size());
+        for (int i = 0; i < 4; i++) {
+            producer.completeNext();
+        }
+        assertFalse(handle.isDone());
+        producer.completeNext();
+        handle.get();
+        assertEquals(5, wrapper.getTotalIn());
+
+        List<ProducerRecord<Object, Object>> history = producer.history();
+        assertEquals("key0", string(history.get(0).key()));
+        assertEquals("value0", string(history.get(0).value()));
+        assertEquals("{\"i\":1}", string(history.get(1).value()));
+        assertEquals("v3", string(history.get(3).headers().lastHeader("h").value()));
+        assertArrayEquals(
+                new byte[] {0, 0, 0, 4}, history.get(4).headers().lastHeader("n").value());
+    }
+
+    @Test
+    void testWriteBatchFailures() {
+        MockProducer<Object, Object> producer = new MockProducer<>(false, BYTES, BYTES);
+        KafkaProducerWrapper wrapper = wrapper(producer);
+        CompletableFuture<?> handle =
+                wrapper.writeBatch(
+                        List.of(
+                                SimpleRecord.of(null, "a"),
+                                SimpleRecord.of(null, "b"),
+                                SimpleRecord.of(null, "c")));
+        producer.completeNext();
+        producer.errorNext(new RuntimeException("failed"));
+        assertFalse(handle.isDone());
+        producer.completeNext();
+        ExecutionException error = assertThrows(ExecutionException.class, handle::get);
+        assertEquals("failed", error.getCause().getMessage());
+        assertEquals(2, wrapper.getTotalIn());
+
+        // a record that cannot be serialized fails the batch, the previous ones are sent
+        handle =
+                wrapper.writeBatch(
+                        List.of(SimpleRecord.of(null, "a"), SimpleRecord.of(null, new Object())));
+        assertEquals(4, producer.history().size());
+        assertFalse(handle.isDone());
+        producer.completeNext();
+        error = assertThrows(ExecutionException.class, handle::get);
+        assertTrue(error.getCause() instanceof IllegalArgumentException);
+
+        assertTrue(wrapper.writeBatch(List.of()).isDone());
+    }
+
+    @Test
+    void testConcurrentWrites() throws Exception {
+        MockProducer<Object, Object> producer = new MockProducer<>(true, BYTES, BYTES);
+        KafkaProducerWrapper wrapper = wrapper(producer);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                final int thread = t;
+                futures.add(
+                        executor.submit(
+                                () -> {
+                                    for (int i = 0; i < 100; i++) {
+                                        Object value =
+                                                i % 2 == 0 ? "value" + i : Map.of("t", thread);
+                                        wrapper.write(SimpleRecord.of(i, value)).join();
+                                    }
+                                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(400, wrapper.getTotalIn());
+        assertEquals(400, producer.history().size());
+    }
+}
@@ -18,8 +18,15 @@ package ai.langstream.runtime.api.agent;
 import ai.langstream.api.model.StreamingCluster;
 import java.util.Map;
 
+/**
+ * Configuration of a pod of the agent runner.
+ *
+ * @param latencyTracingSampleRate the fraction of the records written to the output topic that
+ *     start a latency trace, 0 disables the tracing
+ */
 public record RuntimePodConfiguration(
         Map<String, Object> input,
         Map<String, Object> output,
         AgentSpec agent,
-        StreamingCluster streamingCluster) {}
+        StreamingCluster streamingCluster,
+        double latencyTracingSampleRate) {}
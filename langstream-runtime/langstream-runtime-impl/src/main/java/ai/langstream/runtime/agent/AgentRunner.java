@@ -69,6 +69,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
@@ -353,7 +354,7 @@ public class AgentRunner {
                     if (sink == null) {
                         sink = new TopicProducerSink(producer);
                         sink.setMetadata("topic-sink", "topic-sink", System.currentTimeMillis());
-                        sink.init(Map.of());
+                        sink.init(topicSinkConfiguration(configuration));
                     }
                     agentAPIController.watchSink(sink);
                 }
@@ -474,9 +475,12 @@ public class AgentRunner {
 
     private static final class PendingRecordsCounterSource implements AgentSource {
         private final AgentSource wrapped;
-        private final Set<Record> pendingRecords = ConcurrentHashMap.newKeySet();
+        // record -> System.nanoTime() when the record has been read
+        private final Map<Record, Long> pendingRecords = new ConcurrentHashMap<>();
         private final AtomicLong totalSourceRecords = new AtomicLong();
         private final boolean sinkHandlesCommits;
+        private MetricsReporter.Histogram commitLatency = MetricsReporter.Histogram.NOOP;
+        private MetricsReporter.Gauge pendingRecordsGauge = MetricsReporter.Gauge.NOOP;
 
         public PendingRecordsCounterSource(AgentSource wrapped, boolean sinkHandlesCommits) {
             this.wrapped = wrapped;
@@ -505,6 +509,15 @@ public class AgentRunner {
 
         @Override
         public void setContext(AgentContext context) throws Exception {
+            MetricsReporter reporter = context.getMetricsReporter();
+            commitLatency =
+                    reporter.histogram(
+                            "source_commit_latency_ms",
+                            "Time between reading a record from the source and committing it, in milliseconds");
+            pendingRecordsGauge =
+                    reporter.gauge(
+                            "source_pending_records",
+                            "Number of records read from the source and not committed yet");
             wrapped.setContext(context);
         }
 
@@ -532,7 +545,11 @@ public class AgentRunner {
                     // is the Sink handles the commit (Kafka Connect case)
                     // then it doesn't notify the Source of the commit,
                     // so we cannot track this here, otherwise it is a memory leak
-                    pendingRecords.addAll(read);
+                    long now = System.nanoTime();
+                    for (Record record : read) {
+                        pendingRecords.put(record, now);
+                    }
+                    pendingRecordsGauge.set(pendingRecords.size());
                 }
             }
             return read;
@@ -540,7 +557,13 @@ public class AgentRunner {
 
         @Override
         public void commit(List<Record> records) throws Exception {
-            pendingRecords.removeAll(records);
+            for (Record record : records) {
+                Long readAt = pendingRecords.remove(record);
+                if (readAt != null) {
+                    commitLatency.observeMillisSince(readAt);
+                }
+            }
+            pendingRecordsGauge.set(pendingRecords.size());
             wrapped.commit(records);
         }
 
@@ -568,11 +591,11 @@ public class AgentRunner {
                         log.info(
                                 "Waiting for {} pending records: {}",
                                 pendingRecords.size(),
-                                pendingRecords);
+                                pendingRecords.keySet());
                     } else {
                         Record first = null;
                         try {
-                            first = pendingRecords.iterator().next();
+                            first = pendingRecords.keySet().iterator().next();
                         } catch (NoSuchElementException e) {
                             // ignore
                         }
@@ -624,6 +647,17 @@ public class AgentRunner {
         }
     }
 
+    private static Map<String, Object> topicSinkConfiguration(
+            RuntimePodConfiguration configuration) {
+        // the fraction of the records that start a latency trace, the records
+        // that are already traced by the previous agents are always traced
+        double sampleRate = configuration.latencyTracingSampleRate();
+        if (sampleRate <= 0) {
+            return Map.of();
+        }
+        return Map.of(LatencyTracing.SAMPLE_RATE_CONFIG, sampleRate);
+    }
+
     private static BadRecordHandler getBadRecordHandler(
             String onBadRecord, final TopicProducer deadLetterProducer) {
         final BadRecordHandler brh;
@@ -666,9 +700,27 @@ public class AgentRunner {
         SourceRecordTracker sourceRecordTracker = new SourceRecordTracker(source);
         AtomicReference<Exception> fatalError = new AtomicReference<>();
 
+        MetricsReporter metricsReporter = agentContext.getMetricsReporter();
+        MetricsReporter.Histogram readBatchSize =
+                metricsReporter.histogram(
+                        "source_read_batch_size", "Number of records returned by the source");
+        MetricsReporter.Histogram processorBatchLatency =
+                metricsReporter.histogram(
+                        "processor_batch_latency_ms",
+                        "Time spent by the processor on a batch of records read from the source,"
+                                + " until the last record of the batch is processed, in"
+                                + " milliseconds");
+        MetricsReporter.Histogram sinkWriteLatency =
+                metricsReporter.histogram(
+                        "sink_write_latency_ms",
+                        "Time spent by the sink to write a record, in milliseconds");
+
         while (continueLoop.get()) {
             List<Record> records = source.read();
             if (records != null && !records.isEmpty()) {
+                readBatchSize.observe(records.size());
+                long processingStart = System.nanoTime();
+                AtomicInteger notProcessed = new AtomicInteger(records.size());
                 // in case of permanent FAIL this method will throw an exception
                 runProcessorAgent(
                         processor,
@@ -676,6 +728,9 @@ public class AgentRunner {
                         errorsHandler,
                         source,
                         (AgentProcessor.SourceRecordAndResult sourceRecordAndResult) -> {
+                            if (notProcessed.decrementAndGet() == 0) {
+                                processorBatchLatency.observeMillisSince(processingStart);
+                            }
                             if (sourceRecordAndResult.error() != null) {
                                 log.error("Fatal error", sourceRecordAndResult.error());
                                 // handle error
@@ -710,7 +765,8 @@ public class AgentRunner {
                                         errorsHandler,
                                         sourceRecordTracker,
                                         source,
-                                        fatalError);
+                                        fatalError,
+                                        sinkWriteLatency);
                             } catch (Throwable e) {
                                 log.error("Error while processing records", e);
                                 setFatalError(e, fatalError);
@@ -753,9 +809,42 @@ public class AgentRunner {
             ErrorsHandler errorsHandler,
             SourceRecordTracker sourceRecordTracker,
             AgentSource source,
-            AtomicReference<Exception> fatalError) {
+            AtomicReference<Exception> fatalError,
+            MetricsReporter.Histogram sinkWriteLatency) {
         Record sourceRecord = sourceRecordAndResult.sourceRecord();
         List<Record> toWrite = new ArrayList<>(sourceRecordAndResult.resultRecords());
+        if (toWrite.size() > 1 && !sink.handlesCommit()) {
+            // the records of a source record (e.g. the chunks of the splitter) are written
+            // with a single batch
+            long writeStart = System.nanoTime();
+            sink.writeBatch(toWrite)
+                    .whenComplete(
+                            (___, error) -> {
+                                sinkWriteLatency.observeMillisSince(writeStart);
+                                if (error == null) {
+                                    sourceRecordTracker.commit(toWrite);
+                                    return;
+                                }
+                                // we don't know which records failed, write them again one at a
+                                // time so that the errors are handled for each record
+                                log.warn(
+                                        "Error while writing a batch of {} records, writing them one at a time",
+                                        toWrite.size(),
+                                        error);
+                                for (Record record : toWrite) {
+                                    writeRecordToTheSink(
+                                            sink,
+                                            errorsHandler,
+                                            sourceRecordTracker,
+                                            source,
+                                            fatalError,
+                                            sourceRecord,
+                                            record,
+                                            sinkWriteLatency);
+                                }
+                            });
+            return;
+        }
         for (Record record : toWrite) {
             writeRecordToTheSink(
                     sink,
@@ -764,7 +853,8 @@ public class AgentRunner {
                     source,
                     fatalError,
                     sourceRecord,
-                    record);
+                    record,
+                    sinkWriteLatency);
         }
     }
 
@@ -775,8 +865,11 @@ public class AgentRunner {
             AgentSource source,
             AtomicReference<Exception> fatalError,
             Record sourceRecord,
-            Record record) {
+            Record record,
+            MetricsReporter.Histogram sinkWriteLatency) {
+        long writeStart = System.nanoTime();
         CompletableFuture<?> writeResult = sink.write(record);
+        writeResult.whenComplete((___, error) -> sinkWriteLatency.observeMillisSince(writeStart));
 
         if (sink.handlesCommit()) {
             // it is the sink that handles the commit
@@ -820,7 +913,8 @@ public class AgentRunner {
                                         source,
                                         fatalError,
                                         sourceRecord,
-                                        record);
+                                        record,
+                                        sinkWriteLatency);
                             }
                             case FAIL -> {
                                 log.error(
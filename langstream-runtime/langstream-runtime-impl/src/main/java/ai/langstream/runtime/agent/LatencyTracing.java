@@ -0,0 +1,140 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.runtime.agent;
+
+import ai.langstream.api.runner.code.Header;
+import ai.langstream.api.runner.code.Record;
+import ai.langstream.api.runner.code.SimpleRecord;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timestamps carried in the headers of the records, to measure where the time goes while a record
+ * crosses the agents of a pipeline.
+ *
+ * <p>The first agent that writes a traced record to a topic sets the ingestion time, then every
+ * agent that writes it to a topic overwrites the hop time. The agent that reads the record from the
+ * topic measures the time spent in the topic (queueing) and the agent that writes it measures the
+ * time since the previous hop (queueing plus processing) and since the ingestion.
+ *
+ * <p>Only a fraction of the records is traced, the decision is taken when the ingestion time is set
+ * and the following agents trace every record that carries the headers.
+ */
+final class LatencyTracing {
+
+    static final String INGESTION_TIME_HEADER = "langstream-ingestion-time";
+    static final String HOP_TIME_HEADER = "langstream-hop-time";
+
+    static final String SAMPLE_RATE_CONFIG = "latency-tracing-sample-rate";
+
+    private LatencyTracing() {}
+
+    static Long getTimestamp(Record record, String header) {
+        if (record.headers() == null) {
+            return null;
+        }
+        for (Header h : record.headers()) {
+            if (header.equals(h.key())) {
+                String value = h.valueAsString();
+                if (value == null) {
+                    return null;
+                }
+                try {
+                    return Long.parseLong(value.trim());
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stamp the hop time on a record that is going to be written to a topic.
+     *
+     * @param record the record
+     * @param sampleRate the fraction of the records without an ingestion time that start a trace
+     * @param now the current time
+     * @return the record with the tracing headers, or the same record if it is not traced
+     */
+    static Record stamp(Record record, double sampleRate, long now) {
+        Long ingestionTime = getTimestamp(record, INGESTION_TIME_HEADER);
+        if (ingestionTime == null) {
+            if (sampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+                return record;
+            }
+        }
+        Collection<Header> headers = record.headers() == null ? List.of() : record.headers();
+        List<Header> newHeaders = new ArrayList<>(headers.size() + 2);
+        for (Header h : headers) {
+            if (!HOP_TIME_HEADER.equals(h.key())) {
+                newHeaders.add(h);
+            }
+        }
+        if (ingestionTime == null) {
+            newHeaders.add(SimpleRecord.SimpleHeader.of(INGESTION_TIME_HEADER, now + ""));
+        }
+        newHeaders.add(SimpleRecord.SimpleHeader.of(HOP_TIME_HEADER, now + ""));
+        return SimpleRecord.copyFrom(record).headers(newHeaders).build();
+    }
+
+    /** Simple latency statistics, reported in the info endpoint of the agent. */
+    static final class Stats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+        private final AtomicLong last = new AtomicLong();
+
+        /**
+         * Record a latency.
+         *
+         * @param latency the latency in milliseconds
+         * @return the recorded value
+         */
+        long record(long latency) {
+            // clocks of different machines may be out of sync
+            long value = Math.max(0, latency);
+            count.increment();
+            total.add(value);
+            max.accumulate(value);
+            last.set(value);
+            return value;
+        }
+
+        long count() {
+            return count.sum();
+        }
+
+        Map<String, Object> toInfo() {
+            long c = count.sum();
+            return Map.of(
+                    "count",
+                    c,
+                    "avg-ms",
+                    c == 0 ? 0 : total.sum() / c,
+                    "max-ms",
+                    max.get(),
+                    "last-ms",
+                    last.get());
+        }
+    }
+}
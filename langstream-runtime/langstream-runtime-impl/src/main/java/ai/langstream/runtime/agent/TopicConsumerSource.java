@@ -16,10 +16,13 @@
 package ai.langstream.runtime.agent;
 
 import ai.langstream.api.runner.code.AbstractAgentCode;
+import ai.langstream.api.runner.code.AgentContext;
 import ai.langstream.api.runner.code.AgentSource;
+import ai.langstream.api.runner.code.MetricsReporter;
 import ai.langstream.api.runner.code.Record;
 import ai.langstream.api.runner.topics.TopicConsumer;
 import ai.langstream.api.runner.topics.TopicProducer;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
@@ -30,15 +33,37 @@ public class TopicConsumerSource extends AbstractAgentCode implements AgentSourc
     private final TopicConsumer consumer;
     private final TopicProducer deadLetterQueueProducer;
 
+    private final LatencyTracing.Stats queueLatencyStats = new LatencyTracing.Stats();
+    private MetricsReporter.Histogram queueLatency = MetricsReporter.Histogram.NOOP;
+
     public TopicConsumerSource(TopicConsumer consumer, TopicProducer deadLetterQueueProducer) {
         this.consumer = consumer;
         this.deadLetterQueueProducer = deadLetterQueueProducer;
     }
 
+    @Override
+    public void setContext(AgentContext context) throws Exception {
+        super.setContext(context);
+        queueLatency =
+                context.getMetricsReporter()
+                        .histogram(
+                                "topic_queue_latency_ms",
+                                "Time spent by a traced record in the input topic, in milliseconds");
+    }
+
     @Override
     public List<Record> read() throws Exception {
         List<Record> result = consumer.read();
         processed(0, result.size());
+        if (!result.isEmpty()) {
+            long now = System.currentTimeMillis();
+            for (Record record : result) {
+                Long hopTime = LatencyTracing.getTimestamp(record, LatencyTracing.HOP_TIME_HEADER);
+                if (hopTime != null) {
+                    queueLatency.observe(queueLatencyStats.record(now - hopTime));
+                }
+            }
+        }
         return result;
     }
 
@@ -75,6 +100,11 @@ public class TopicConsumerSource extends AbstractAgentCode implements AgentSourc
 
     @Override
     protected Map<String, Object> buildAdditionalInfo() {
-        return Map.of("consumer", consumer.getInfo());
+        Map<String, Object> info = new HashMap<>();
+        info.put("consumer", consumer.getInfo());
+        if (queueLatencyStats.count() > 0) {
+            info.put("latency", Map.of("queue", queueLatencyStats.toInfo()));
+        }
+        return info;
     }
 }
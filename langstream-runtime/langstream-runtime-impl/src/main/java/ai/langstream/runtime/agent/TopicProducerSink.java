@@ -16,9 +16,18 @@
 package ai.langstream.runtime.agent;
 
 import ai.langstream.api.runner.code.AbstractAgentCode;
+import ai.langstream.api.runner.code.AgentContext;
 import ai.langstream.api.runner.code.AgentSink;
+import ai.langstream.api.runner.code.BlobValue;
+import ai.langstream.api.runner.code.MetricsReporter;
 import ai.langstream.api.runner.code.Record;
+import ai.langstream.api.runner.code.SimpleRecord;
 import ai.langstream.api.runner.topics.TopicProducer;
+import ai.langstream.api.util.ConfigurationUtils;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
@@ -26,6 +35,12 @@ public class TopicProducerSink extends AbstractAgentCode implements AgentSink {
 
     private final TopicProducer producer;
 
+    private double latencyTracingSampleRate;
+    private final LatencyTracing.Stats hopLatencyStats = new LatencyTracing.Stats();
+    private final LatencyTracing.Stats endToEndLatencyStats = new LatencyTracing.Stats();
+    private MetricsReporter.Histogram hopLatency = MetricsReporter.Histogram.NOOP;
+    private MetricsReporter.Histogram endToEndLatency = MetricsReporter.Histogram.NOOP;
+
     public TopicProducerSink(TopicProducer producer) {
         this.producer = producer;
     }
@@ -33,6 +48,22 @@ public class TopicProducerSink extends AbstractAgentCode implements AgentSink {
     @Override
     public void init(Map<String, Object> configuration) {
         // the producer is already initialized
+        latencyTracingSampleRate =
+                ConfigurationUtils.getDouble(LatencyTracing.SAMPLE_RATE_CONFIG, 0d, configuration);
+    }
+
+    @Override
+    public void setContext(AgentContext context) throws Exception {
+        super.setContext(context);
+        MetricsReporter reporter = context.getMetricsReporter();
+        hopLatency =
+                reporter.histogram(
+                        "topic_hop_latency_ms",
+                        "Time between the write of a traced record by the previous agent and the write by this agent, in milliseconds");
+        endToEndLatency =
+                reporter.histogram(
+                        "end_to_end_latency_ms",
+                        "Time between the ingestion of a traced record and the write by this agent, in milliseconds");
     }
 
     @Override
@@ -48,7 +79,51 @@ public class TopicProducerSink extends AbstractAgentCode implements AgentSink {
     @Override
     public CompletableFuture<?> write(Record records) {
         processed(1, 0);
-        return producer.write(records);
+        try {
+            return producer.write(prepare(records));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Writes the records in order with a single {@link TopicProducer#writeBatch(List)}. The
+     * returned future completes when all the records are written, or exceptionally with the first
+     * error.
+     */
+    @Override
+    public CompletableFuture<?> writeBatch(List<Record> records) {
+        processed(records.size(), 0);
+        List<Record> prepared = new ArrayList<>(records.size());
+        try {
+            for (Record record : records) {
+                prepared.add(prepare(record));
+            }
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return producer.writeBatch(prepared);
+    }
+
+    private Record prepare(Record record) throws IOException {
+        if (record.value() instanceof BlobValue blobValue) {
+            // the topics cannot carry a stream, the content must be loaded in memory
+            record = SimpleRecord.copyFrom(record).value(blobValue.toByteArray()).build();
+        }
+        return traceLatency(record);
+    }
+
+    private Record traceLatency(Record record) {
+        long now = System.currentTimeMillis();
+        Long previousHop = LatencyTracing.getTimestamp(record, LatencyTracing.HOP_TIME_HEADER);
+        if (previousHop != null) {
+            hopLatency.observe(hopLatencyStats.record(now - previousHop));
+        }
+        Long ingestion = LatencyTracing.getTimestamp(record, LatencyTracing.INGESTION_TIME_HEADER);
+        if (ingestion != null) {
+            endToEndLatency.observe(endToEndLatencyStats.record(now - ingestion));
+        }
+        return LatencyTracing.stamp(record, latencyTracingSampleRate, now);
     }
 
     @Override
@@ -58,6 +133,15 @@ public class TopicProducerSink extends AbstractAgentCode implements AgentSink {
 
     @Override
     protected Map<String, Object> buildAdditionalInfo() {
-        return Map.of("producer", producer.getInfo());
+        Map<String, Object> info = new HashMap<>();
+        info.put("producer", producer.getInfo());
+        if (hopLatencyStats.count() > 0 || endToEndLatencyStats.count() > 0) {
+            info.put(
+                    "latency",
+                    Map.of(
+                            "hop", hopLatencyStats.toInfo(),
+                            "end-to-end", endToEndLatencyStats.toInfo()));
+        }
+        return info;
     }
 }
@@ -32,6 +32,18 @@ public class PrometheusMetricsReporter implements MetricsReporter {
     private static final Map<String, io.prometheus.client.Counter> counters =
             new ConcurrentHashMap<>();
 
+    private static final Map<String, io.prometheus.client.Histogram> histograms =
+            new ConcurrentHashMap<>();
+
+    private static final Map<String, io.prometheus.client.Gauge> gauges = new ConcurrentHashMap<>();
+
+    /**
+     * Exponential buckets from 0.5 to 65536, they cover both latencies in milliseconds (up to about
+     * one minute) and batch sizes. Observing a value only updates a few atomic adders.
+     */
+    static final double[] HISTOGRAM_BUCKETS =
+            io.prometheus.client.Histogram.exponentialBuckets(0.5, 2, 18);
+
     public PrometheusMetricsReporter(String agentName, String podName) {
         this.agentName = agentName;
         this.podName = podName;
@@ -91,6 +103,63 @@ public class PrometheusMetricsReporter implements MetricsReporter {
         };
     }
 
+    @Override
+    public Histogram histogram(String name, String help) {
+        io.prometheus.client.Histogram histogram =
+                histograms.computeIfAbsent(
+                        name,
+                        k ->
+                                io.prometheus.client.Histogram.build()
+                                        .name(sanitizeMetricName(name))
+                                        .labelNames(labelNames())
+                                        .buckets(HISTOGRAM_BUCKETS)
+                                        .help(help)
+                                        .register());
+        io.prometheus.client.Histogram.Child histogramWithLabel = histogram.labels(labelValues());
+        return histogramWithLabel::observe;
+    }
+
+    @Override
+    public Gauge gauge(String name, String help) {
+        io.prometheus.client.Gauge gauge =
+                gauges.computeIfAbsent(
+                        name,
+                        k ->
+                                io.prometheus.client.Gauge.build()
+                                        .name(sanitizeMetricName(name))
+                                        .labelNames(labelNames())
+                                        .help(help)
+                                        .register());
+        io.prometheus.client.Gauge.Child gaugeWithLabel = gauge.labels(labelValues());
+        return new Gauge() {
+            @Override
+            public void set(double value) {
+                gaugeWithLabel.set(value);
+            }
+
+            @Override
+            public double value() {
+                return gaugeWithLabel.get();
+            }
+        };
+    }
+
+    private String[] labelNames() {
+        if (podName.isEmpty()) {
+            return new String[] {"agent_id"};
+        } else {
+            return new String[] {"agent_id", "pod"};
+        }
+    }
+
+    private String[] labelValues() {
+        if (podName.isEmpty()) {
+            return new String[] {agentName};
+        } else {
+            return new String[] {agentName, podName};
+        }
+    }
+
     private static String sanitizeMetricName(String metricName) {
         // Define a regular expression pattern to match forbidden characters
         String pattern = "[^a-zA-Z0-9_]+";
@@ -42,6 +42,7 @@ from langstream_grpc.proto.agent_pb2 import (
     SourceResponse,
     SinkRequest,
     SinkResponse,
+    SinkResult,
     TopicProducerWriteResult,
     TopicProducerResponse,
 )
@@ -50,6 +51,9 @@ from .api import Source, Sink, Processor, Record, Agent, AgentContext, TopicProd
 from .util import SimpleRecord, AvroValue
 
 
+MAX_CACHED_SCHEMA_OBJECTS = 1000
+
+
 class RecordWithId(SimpleRecord):
     def __init__(
         self,
@@ -79,6 +83,7 @@ class AgentService(AgentServiceServicer):
         self.agent = agent
         self.schema_id = 0
         self.schemas = {}
+        self.writer_schemas_by_identity = {}
         self.client_schemas = {}
         self.topic_producer_record_id = 0
         self.topic_producer_records = topic_producer_records
@@ -227,6 +232,48 @@ class AgentService(AgentServiceServicer):
                     yield SinkResponse(record_id=request.record.record_id)
                 except Exception as e:
                     yield SinkResponse(record_id=request.record.record_id, error=str(e))
+            if len(request.records) > 0:
+                results = await self.write_records(request.records)
+                yield SinkResponse(results=results)
+
+    async def write_records(self, grpc_records) -> List[SinkResult]:
+        """Writes a batch of records, the writes are started in order and then awaited
+        together, so the asynchronous writes of the batch run concurrently."""
+        results = [SinkResult(record_id=r.record_id) for r in grpc_records]
+        pending = []
+        if inspect.iscoroutinefunction(self.agent.write):
+            for i, grpc_record in enumerate(grpc_records):
+                try:
+                    r = self.from_grpc_record(grpc_record)
+                    pending.append((i, asyncio.ensure_future(self.agent.write(r))))
+                except Exception as e:
+                    results[i].error = str(e)
+        else:
+            # a single hop to the worker thread for the whole batch
+            for i, outcome in enumerate(
+                await asyncio.to_thread(self.write_records_sync, grpc_records)
+            ):
+                if isinstance(outcome, Exception):
+                    results[i].error = str(outcome)
+                elif isinstance(outcome, Future):
+                    pending.append((i, asyncio.wrap_future(outcome)))
+        for i, future in pending:
+            try:
+                result = await future
+                if isinstance(result, Future):
+                    await asyncio.wrap_future(result)
+            except Exception as e:
+                results[i].error = str(e)
+        return results
+
+    def write_records_sync(self, grpc_records) -> List[Any]:
+        outcomes = []
+        for grpc_record in grpc_records:
+            try:
+                outcomes.append(self.agent.write(self.from_grpc_record(grpc_record)))
+            except Exception as e:
+                outcomes.append(e)
+        return outcomes
 
     def from_grpc_record(self, record: GrpcRecord) -> SimpleRecord:
         return RecordWithId(
@@ -292,18 +339,14 @@ class AgentService(AgentServiceServicer):
         elif isinstance(value, float):
             grpc_value.double_value = value
         elif type(value).__name__ == "AvroValue":
-            schema_str = fastavro.schema.to_parsing_canonical_form(value.schema)
-            if schema_str not in self.schemas:
-                self.schema_id += 1
-                self.schemas[schema_str] = self.schema_id
-                grpc_schema = Schema(
-                    schema_id=self.schema_id, value=schema_str.encode("utf-8")
-                )
+            grpc_schema, schema_id, parsed_schema = self.avro_writer_schema(
+                value.schema
+            )
             fp = BytesIO()
             try:
-                fastavro.schemaless_writer(fp, value.schema, value.value)
+                fastavro.schemaless_writer(fp, parsed_schema, value.value)
                 grpc_value.avro_value = fp.getvalue()
-                grpc_value.schema_id = self.schema_id
+                grpc_value.schema_id = schema_id
             finally:
                 fp.close()
         elif isinstance(value, dict) or isinstance(value, list):
@@ -312,6 +355,29 @@ class AgentService(AgentServiceServicer):
             raise TypeError(f"Got unsupported type {type(value)}")
         return grpc_schema, grpc_value
 
+    def avro_writer_schema(self, schema) -> Tuple[Optional[Schema], int, Any]:
+        """Returns the schema to send to the client if it is new, the id and the
+        parsed form of the schema.
+        Computing the canonical form and parsing the schema are expensive, the result
+        is cached for the schema objects that are reused across records."""
+        cached = self.writer_schemas_by_identity.get(id(schema))
+        if cached is not None and cached[0] is schema:
+            return None, cached[1], cached[2]
+        grpc_schema = None
+        schema_str = fastavro.schema.to_parsing_canonical_form(schema)
+        if schema_str not in self.schemas:
+            self.schema_id += 1
+            self.schemas[schema_str] = (self.schema_id, fastavro.parse_schema(schema))
+            grpc_schema = Schema(
+                schema_id=self.schema_id, value=schema_str.encode("utf-8")
+            )
+        schema_id, parsed_schema = self.schemas[schema_str]
+        if len(self.writer_schemas_by_identity) >= MAX_CACHED_SCHEMA_OBJECTS:
+            self.writer_schemas_by_identity.clear()
+        # the schema object is kept in the entry, so its id cannot be reused
+        self.writer_schemas_by_identity[id(schema)] = (schema, schema_id, parsed_schema)
+        return grpc_schema, schema_id, parsed_schema
+
 
 def call_method_if_exists(klass, method, *args, **kwargs):
     method = getattr(klass, method, None)
@@ -218,18 +218,36 @@ class ProcessorResult(_message.Message):
     ) -> None: ...
 
 class SinkRequest(_message.Message):
-    __slots__ = ["schema", "record"]
+    __slots__ = ["schema", "record", "records"]
     SCHEMA_FIELD_NUMBER: _ClassVar[int]
     RECORD_FIELD_NUMBER: _ClassVar[int]
+    RECORDS_FIELD_NUMBER: _ClassVar[int]
     schema: Schema
     record: Record
+    records: _containers.RepeatedCompositeFieldContainer[Record]
     def __init__(
         self,
         schema: _Optional[_Union[Schema, _Mapping]] = ...,
         record: _Optional[_Union[Record, _Mapping]] = ...,
+        records: _Optional[_Iterable[_Union[Record, _Mapping]]] = ...,
     ) -> None: ...
 
 class SinkResponse(_message.Message):
+    __slots__ = ["record_id", "error", "results"]
+    RECORD_ID_FIELD_NUMBER: _ClassVar[int]
+    ERROR_FIELD_NUMBER: _ClassVar[int]
+    RESULTS_FIELD_NUMBER: _ClassVar[int]
+    record_id: int
+    error: str
+    results: _containers.RepeatedCompositeFieldContainer[SinkResult]
+    def __init__(
+        self,
+        record_id: _Optional[int] = ...,
+        error: _Optional[str] = ...,
+        results: _Optional[_Iterable[_Union[SinkResult, _Mapping]]] = ...,
+    ) -> None: ...
+
+class SinkResult(_message.Message):
     __slots__ = ["record_id", "error"]
     RECORD_ID_FIELD_NUMBER: _ClassVar[int]
     ERROR_FIELD_NUMBER: _ClassVar[int]
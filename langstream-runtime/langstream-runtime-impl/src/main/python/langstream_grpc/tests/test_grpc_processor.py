@@ -24,6 +24,7 @@ import pytest
 from google.protobuf import empty_pb2
 
 from langstream_grpc.api import Record, RecordType, Processor, AgentContext
+from langstream_grpc.grpc_service import AgentService
 from langstream_grpc.proto.agent_pb2 import (
     ProcessorRequest,
     Record as GrpcRecord,
@@ -34,6 +35,7 @@ from langstream_grpc.proto.agent_pb2 import (
     InfoResponse,
 )
 from langstream_grpc.tests.server_and_stub import ServerAndStub
+from langstream_grpc.util import AvroValue
 
 
 @pytest.mark.parametrize(
@@ -154,6 +156,38 @@ async def test_avro():
             fp.close()
 
 
+def test_avro_schema_ids():
+    service = AgentService(MyProcessor(), None)
+    schemas = [
+        {
+            "type": "record",
+            "name": f"Test{i}",
+            "namespace": "test",
+            "fields": [{"name": "field", "type": {"type": "string"}}],
+        }
+        for i in range(2)
+    ]
+    for _ in range(3):
+        for i, schema in enumerate(schemas):
+            grpc_schema, grpc_value = service.to_grpc_value(
+                AvroValue(schema=schema, value={"field": f"value{i}"})
+            )
+            assert grpc_value.schema_id == i + 1
+            fp = BytesIO(grpc_value.avro_value)
+            try:
+                decoded = fastavro.schemaless_reader(fp, schema)
+                assert decoded == {"field": f"value{i}"}
+            finally:
+                fp.close()
+
+    # the same schema in a new object is still sent once
+    grpc_schema, grpc_value = service.to_grpc_value(
+        AvroValue(schema=dict(schemas[0]), value={"field": "value"})
+    )
+    assert grpc_schema is None
+    assert grpc_value.schema_id == 1
+
+
 async def test_empty_record():
     async with ServerAndStub(
         "langstream_grpc.tests.test_grpc_processor.MyProcessor"
@@ -79,6 +79,56 @@ async def test_write(klass):
         assert await write_call.read() == grpc.aio.EOF
 
 
+@pytest.mark.parametrize("klass", ["MySink", "MyFutureSink", "MyAsyncSink"])
+async def test_write_batch(klass):
+    async with ServerAndStub(
+        f"langstream_grpc.tests.test_grpc_sink.{klass}"
+    ) as server_and_stub:
+        responses: list[SinkResponse]
+        responses = [
+            response
+            async for response in server_and_stub.stub.write(
+                [
+                    SinkRequest(
+                        records=[
+                            GrpcRecord(record_id=i, value=Value(string_value=f"v{i}"))
+                            for i in range(1, 4)
+                        ]
+                    )
+                ]
+            )
+        ]
+        assert len(responses) == 1
+        assert [r.record_id for r in responses[0].results] == [1, 2, 3]
+        assert all(r.error == "" for r in responses[0].results)
+        written = sorted(
+            r.value() for r in server_and_stub.server.agent.written_records
+        )
+        assert written == ["v1", "v2", "v3"]
+
+
+async def test_write_batch_error():
+    async with ServerAndStub(
+        "langstream_grpc.tests.test_grpc_sink.MyErrorSink"
+    ) as server_and_stub:
+        responses: list[SinkResponse]
+        responses = [
+            response
+            async for response in server_and_stub.stub.write(
+                [
+                    SinkRequest(
+                        records=[
+                            GrpcRecord(record_id=1, value=Value(string_value="a")),
+                            GrpcRecord(record_id=2, value=Value(string_value="b")),
+                        ]
+                    )
+                ]
+            )
+        ]
+        assert len(responses) == 1
+        assert [r.error for r in responses[0].results] == ["test-error"] * 2
+
+
 async def test_write_error():
     async with ServerAndStub(
         "langstream_grpc.tests.test_grpc_sink.MyErrorSink"
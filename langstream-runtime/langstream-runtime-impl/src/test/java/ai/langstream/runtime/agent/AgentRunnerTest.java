@@ -28,6 +28,8 @@ import ai.langstream.api.runner.code.MetricsReporter;
 import ai.langstream.api.runner.code.Record;
 import ai.langstream.api.runner.code.SimpleRecord;
 import ai.langstream.api.runner.code.SingleRecordAgentProcessor;
+import ai.langstream.api.runner.topics.TopicProducer;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -180,6 +182,89 @@ class AgentRunnerTest {
         source.expectUncommitted(0);
     }
 
+    @Test
+    void fanOutIsWrittenWithOneBatch() throws Exception {
+        SimpleSource source = new SimpleSource(List.of(SimpleRecord.of("key", "split-me")));
+        List<List<Record>> batches = new ArrayList<>();
+        TopicProducerSink sink =
+                new TopicProducerSink(
+                        new TopicProducer() {
+                            @Override
+                            public CompletableFuture<?> writeBatch(List<Record> records) {
+                                batches.add(records);
+                                return CompletableFuture.completedFuture(null);
+                            }
+
+                            @Override
+                            public long getTotalIn() {
+                                return 0;
+                            }
+                        });
+        SingleRecordAgentProcessor processor =
+                new SingleRecordAgentProcessor() {
+                    @Override
+                    public List<Record> processRecord(Record record) {
+                        return List.of(
+                                SimpleRecord.of("key", "chunk-1"),
+                                SimpleRecord.of("key", "chunk-2"),
+                                SimpleRecord.of("key", "chunk-3"));
+                    }
+                };
+        StandardErrorsHandler errorHandler =
+                new StandardErrorsHandler(Map.of("retries", 0, "onFailure", "fail"));
+        AgentRunner.runMainLoop(
+                source,
+                processor,
+                sink,
+                createMockAgentContext(),
+                errorHandler,
+                source::hasMoreRecords);
+        assertEquals(1, batches.size());
+        assertEquals(
+                List.of("chunk-1", "chunk-2", "chunk-3"),
+                batches.get(0).stream().map(Record::value).toList());
+        source.expectUncommitted(0);
+    }
+
+    @Test
+    void failedBatchIsWrittenOneRecordAtATime() throws Exception {
+        SimpleSource source = new SimpleSource(List.of(SimpleRecord.of("key", "split-me")));
+        List<Object> written = new ArrayList<>();
+        AgentSink sink =
+                new SimpleSink() {
+                    @Override
+                    public CompletableFuture<?> writeBatch(List<Record> records) {
+                        return CompletableFuture.failedFuture(new IOException("batch failed"));
+                    }
+
+                    @Override
+                    public CompletableFuture<?> write(Record record) {
+                        written.add(record.value());
+                        return CompletableFuture.completedFuture(null);
+                    }
+                };
+        SingleRecordAgentProcessor processor =
+                new SingleRecordAgentProcessor() {
+                    @Override
+                    public List<Record> processRecord(Record record) {
+                        return List.of(
+                                SimpleRecord.of("key", "chunk-1"),
+                                SimpleRecord.of("key", "chunk-2"));
+                    }
+                };
+        StandardErrorsHandler errorHandler =
+                new StandardErrorsHandler(Map.of("retries", 0, "onFailure", "fail"));
+        AgentRunner.runMainLoop(
+                source,
+                processor,
+                sink,
+                createMockAgentContext(),
+                errorHandler,
+                source::hasMoreRecords);
+        assertEquals(List.of("chunk-1", "chunk-2"), written);
+        source.expectUncommitted(0);
+    }
+
     private static class SimpleSink extends AbstractAgentCode implements AgentSink {
         @Override
         public CompletableFuture<?> write(Record record) {
@@ -0,0 +1,80 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.runtime.agent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import ai.langstream.api.runner.code.Record;
+import ai.langstream.api.runner.code.SimpleRecord;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class LatencyTracingTest {
+
+    @Test
+    void testNotSampled() {
+        Record record = SimpleRecord.of("key", "value");
+        assertSame(record, LatencyTracing.stamp(record, 0, 1000));
+    }
+
+    @Test
+    void testHopsAreStamped() {
+        Record record =
+                SimpleRecord.builder()
+                        .value("value")
+                        .headers(List.of(SimpleRecord.SimpleHeader.of("foo", "bar")))
+                        .build();
+        Record first = LatencyTracing.stamp(record, 1, 1000);
+        assertEquals(
+                1000L, LatencyTracing.getTimestamp(first, LatencyTracing.INGESTION_TIME_HEADER));
+        assertEquals(1000L, LatencyTracing.getTimestamp(first, LatencyTracing.HOP_TIME_HEADER));
+        assertEquals(3, first.headers().size());
+
+        // the following hops are traced regardless of the sample rate
+        Record second = LatencyTracing.stamp(first, 0, 1500);
+        assertEquals(
+                1000L, LatencyTracing.getTimestamp(second, LatencyTracing.INGESTION_TIME_HEADER));
+        assertEquals(1500L, LatencyTracing.getTimestamp(second, LatencyTracing.HOP_TIME_HEADER));
+        assertEquals(3, second.headers().size());
+        assertEquals("value", second.value());
+    }
+
+    @Test
+    void testInvalidHeader() {
+        Record record =
+                SimpleRecord.builder()
+                        .value("value")
+                        .headers(
+                                List.of(
+                                        SimpleRecord.SimpleHeader.of(
+                                                LatencyTracing.HOP_TIME_HEADER, "foo")))
+                        .build();
+        assertNull(LatencyTracing.getTimestamp(record, LatencyTracing.HOP_TIME_HEADER));
+    }
+
+    @Test
+    void testStats() {
+        LatencyTracing.Stats stats = new LatencyTracing.Stats();
+        stats.record(10);
+        stats.record(30);
+        assertEquals(0, stats.record(-5));
+        assertEquals(3L, stats.toInfo().get("count"));
+        assertEquals(13L, stats.toInfo().get("avg-ms"));
+        assertEquals(30L, stats.toInfo().get("max-ms"));
+    }
+}
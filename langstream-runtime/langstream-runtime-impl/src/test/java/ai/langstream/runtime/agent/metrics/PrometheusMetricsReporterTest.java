@@ -0,0 +1,73 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.runtime.agent.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import ai.langstream.api.runner.code.MetricsReporter;
+import io.prometheus.client.CollectorRegistry;
+import org.junit.jupiter.api.Test;
+
+class PrometheusMetricsReporterTest {
+
+    @Test
+    void testHistogram() {
+        MetricsReporter reporter = new PrometheusMetricsReporter("my-agent", "");
+        MetricsReporter.Histogram histogram =
+                reporter.histogram("test-histogram-latency", "Some latency");
+        histogram.observe(3);
+        histogram.observe(700);
+        reporter.withAgentName("other-agent")
+                .histogram("test-histogram-latency", "Some latency")
+                .observe(1);
+
+        CollectorRegistry registry = CollectorRegistry.defaultRegistry;
+        String[] labels = {"agent_id"};
+        assertEquals(
+                2.0,
+                registry.getSampleValue(
+                        "test_histogram_latency_count", labels, new String[] {"my-agent"}));
+        assertEquals(
+                703.0,
+                registry.getSampleValue(
+                        "test_histogram_latency_sum", labels, new String[] {"my-agent"}));
+        assertEquals(
+                1.0,
+                registry.getSampleValue(
+                        "test_histogram_latency_bucket",
+                        new String[] {"agent_id", "le"},
+                        new String[] {"my-agent", "4.0"}));
+        assertEquals(
+                1.0,
+                registry.getSampleValue(
+                        "test_histogram_latency_count", labels, new String[] {"other-agent"}));
+    }
+
+    @Test
+    void testGauge() {
+        MetricsReporter reporter = new PrometheusMetricsReporter("my-agent", "pod-0");
+        MetricsReporter.Gauge gauge = reporter.gauge("test-gauge", "Some gauge");
+        gauge.set(10);
+        gauge.set(4);
+        assertEquals(4.0, gauge.value());
+        assertEquals(
+                4.0,
+                CollectorRegistry.defaultRegistry.getSampleValue(
+                        "test_gauge",
+                        new String[] {"agent_id", "pod"},
+                        new String[] {"my-agent", "pod-0"}));
+    }
+}